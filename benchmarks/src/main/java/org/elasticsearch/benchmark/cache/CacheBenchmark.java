@@ -0,0 +1,160 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.cache;
+
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.common.cache.CacheLoader;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of {@link Cache} lookups from concurrent threads on keys following a Zipfian distribution, which
+ * is typical for request caches. The cache hits and misses per time unit are reported as secondary results.
+ */
+@Fork(2)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Threads(8)
+@SuppressWarnings("unused") // invoked by benchmarking framework
+public class CacheBenchmark {
+
+    private static final int NUM_KEYS = 1 << 20;
+    private static final int NUM_DISTINCT_KEYS = 1 << 18;
+
+    @Param({ "false", "true" })
+    private boolean frequencyAdmission;
+
+    @Param({ "1000", "100000" })
+    private int maximumWeight;
+
+    @Param({ "0.8", "1.2" })
+    private double skew;
+
+    private Cache<Integer, Integer> cache;
+
+    private int[] keys;
+
+    @Setup
+    public void setUp() {
+        keys = zipfian(NUM_KEYS, NUM_DISTINCT_KEYS, skew, new Random(42));
+        cache = CacheBuilder.<Integer, Integer>builder()
+            .setMaximumWeight(maximumWeight)
+            .setFrequencyAdmission(frequencyAdmission)
+            .build();
+        for (int key : keys) {
+            if (cache.get(key) == null) {
+                cache.put(key, key);
+            }
+        }
+    }
+
+    @Benchmark
+    public Integer computeIfAbsent(HitCounters counters) throws ExecutionException {
+        final int key = keys[ThreadLocalRandom.current().nextInt(NUM_KEYS)];
+        return counters.computeIfAbsent(cache, key);
+    }
+
+    @Benchmark
+    public Integer get(HitCounters counters) {
+        final int key = keys[ThreadLocalRandom.current().nextInt(NUM_KEYS)];
+        final Integer value = cache.get(key);
+        if (value == null) {
+            counters.misses++;
+        } else {
+            counters.hits++;
+        }
+        return value;
+    }
+
+    /**
+     * Counts the cache hits and misses of each benchmark thread, reported by JMH as secondary results.
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class HitCounters {
+        public long hits;
+        public long misses;
+
+        private boolean loaded;
+        // allocated once per thread so that counting misses does not allocate a capturing lambda per lookup
+        private final CacheLoader<Integer, Integer> loader = key -> {
+            loaded = true;
+            return key;
+        };
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            hits = 0;
+            misses = 0;
+        }
+
+        Integer computeIfAbsent(Cache<Integer, Integer> cache, int key) throws ExecutionException {
+            loaded = false;
+            final Integer value = cache.computeIfAbsent(key, loader);
+            if (loaded) {
+                misses++;
+            } else {
+                hits++;
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Draws <code>numKeys</code> keys in <code>[0, numDistinctKeys)</code> whose probabilities follow Zipf's law with the
+     * given skew.
+     */
+    private static int[] zipfian(int numKeys, int numDistinctKeys, double skew, Random random) {
+        final double[] cumulativeProbabilities = new double[numDistinctKeys];
+        double sum = 0;
+        for (int i = 0; i < numDistinctKeys; i++) {
+            sum += 1 / Math.pow(i + 1, skew);
+            cumulativeProbabilities[i] = sum;
+        }
+        final int[] keys = new int[numKeys];
+        for (int i = 0; i < numKeys; i++) {
+            final int index = Arrays.binarySearch(cumulativeProbabilities, random.nextDouble() * sum);
+            keys[i] = Math.min(index >= 0 ? index : -index - 1, numDistinctKeys - 1);
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.common.util;
+
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.DoubleArray;
+import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.common.util.PageCacheRecycler;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput of random reads and writes on {@link LongArray}s and {@link DoubleArray}s whose pages live on the
+ * Java heap with arrays whose pages are direct buffers, see {@link BigArrays#withOffHeapPages()}.
+ */
+@Fork(2)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") // invoked by benchmarking framework
+public class BigArraysBenchmark {
+
+    private static final int NUM_OPERATIONS = 1 << 16;
+
+    @Param({ "false", "true" })
+    private boolean offHeap;
+
+    @Param({ "100000", "10000000" })
+    private int size;
+
+    private LongArray longs;
+    private DoubleArray doubles;
+    private long[] indices;
+
+    @Setup
+    public void setUp() {
+        BigArrays bigArrays = new BigArrays(new PageCacheRecycler(Settings.EMPTY), new NoneCircuitBreakerService(),
+            CircuitBreaker.REQUEST);
+        if (offHeap) {
+            bigArrays = bigArrays.withOffHeapPages();
+        }
+        longs = bigArrays.newLongArray(size);
+        doubles = bigArrays.newDoubleArray(size);
+        final Random random = new Random(42);
+        for (long i = 0; i < size; ++i) {
+            longs.set(i, random.nextLong());
+            doubles.set(i, random.nextDouble());
+        }
+        indices = new long[NUM_OPERATIONS];
+        for (int i = 0; i < indices.length; ++i) {
+            indices[i] = random.nextInt(size);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        longs.close();
+        doubles.close();
+    }
+
+    @Benchmark
+    public long getLong() {
+        long sum = 0;
+        for (long index : indices) {
+            sum += longs.get(index);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long setLong() {
+        long previous = 0;
+        for (long index : indices) {
+            previous ^= longs.set(index, index);
+        }
+        return previous;
+    }
+
+    @Benchmark
+    public long incrementLong() {
+        long last = 0;
+        for (long index : indices) {
+            last = longs.increment(index, 1);
+        }
+        return last;
+    }
+
+    @Benchmark
+    public double incrementDouble() {
+        double last = 0;
+        for (long index : indices) {
+            last = doubles.increment(index, 1d);
+        }
+        return last;
+    }
+
+    @Benchmark
+    public long sequentialGetLong() {
+        long sum = 0;
+        for (long i = 0; i < size; ++i) {
+            sum += longs.get(i);
+        }
+        return sum;
+    }
+}
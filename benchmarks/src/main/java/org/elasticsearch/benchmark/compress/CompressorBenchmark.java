@@ -0,0 +1,167 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.compress;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.compress.Compressor;
+import org.elasticsearch.common.compress.CompressorFactory;
+import org.elasticsearch.common.io.Streams;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput of the available {@link Compressor}s on a serialized search response. The compression benchmark
+ * also reports the uncompressed and compressed bytes per second, whose ratio is the compression ratio of the compressor.
+ */
+@Fork(2)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") // invoked by benchmarking framework
+public class CompressorBenchmark {
+
+    @Param({ "deflate", "lz4" })
+    private String compressorName;
+
+    @Param({ "10", "500" })
+    private int numHits;
+
+    private Compressor compressor;
+
+    private BytesReference uncompressed;
+
+    private BytesReference compressed;
+
+    @Setup
+    public void setUp() throws IOException {
+        compressor = CompressorFactory.compressor(compressorName);
+        uncompressed = searchResponse(numHits, new Random(42));
+        compressed = compress(uncompressed);
+    }
+
+    @Benchmark
+    public BytesReference compress(CompressedBytes counters) throws IOException {
+        final BytesReference bytes = compress(uncompressed);
+        counters.uncompressedBytes += uncompressed.length();
+        counters.compressedBytes += bytes.length();
+        return bytes;
+    }
+
+    @Benchmark
+    public BytesReference decompress() throws IOException {
+        try (StreamInput in = compressor.streamInput(compressed.streamInput())) {
+            return Streams.readFully(in);
+        }
+    }
+
+    private BytesReference compress(BytesReference bytes) throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput(bytes.length());
+        try (StreamOutput compressedOut = compressor.streamOutput(Streams.flushOnCloseStream(out))) {
+            bytes.writeTo(compressedOut);
+        }
+        return out.bytes();
+    }
+
+    /**
+     * Counts the bytes processed by the compression benchmark, reported by JMH as secondary results.
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class CompressedBytes {
+        public long uncompressedBytes;
+        public long compressedBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            uncompressedBytes = 0;
+            compressedBytes = 0;
+        }
+    }
+
+    /**
+     * Builds the json of a search response with log documents and a terms aggregation.
+     */
+    private static BytesReference searchResponse(int numHits, Random random) throws IOException {
+        final String[] levels = new String[] { "INFO", "WARN", "ERROR", "DEBUG" };
+        final String[] services = new String[] { "frontend", "checkout", "payment", "search", "inventory", "auth" };
+        try (XContentBuilder builder = XContentFactory.jsonBuilder()) {
+            builder.startObject();
+            builder.field("took", 42);
+            builder.field("timed_out", false);
+            builder.startObject("_shards").field("total", 5).field("successful", 5).field("skipped", 0).field("failed", 0).endObject();
+            builder.startObject("hits");
+            builder.startObject("total").field("value", 10000).field("relation", "gte").endObject();
+            builder.field("max_score", 1.0f);
+            builder.startArray("hits");
+            for (int i = 0; i < numHits; i++) {
+                final String service = services[random.nextInt(services.length)];
+                builder.startObject();
+                builder.field("_index", "logs-2020.07." + (10 + random.nextInt(20)));
+                builder.field("_id", Long.toString(random.nextLong() & Long.MAX_VALUE, 36));
+                builder.field("_score", random.nextFloat());
+                builder.startObject("_source");
+                builder.field("@timestamp", 1594000000000L + random.nextInt(100_000_000));
+                builder.field("level", levels[random.nextInt(levels.length)]);
+                builder.field("service", service);
+                builder.field("host", "host-" + random.nextInt(64) + ".eu-west-1.internal");
+                builder.field("http.status", 200 + random.nextInt(4) * 100);
+                builder.field("http.response_time_ms", random.nextInt(5000));
+                builder.field("message", "request to /api/" + service + "/" + random.nextInt(1000)
+                    + " completed in " + random.nextInt(5000) + "ms for user " + random.nextInt(100000));
+                builder.endObject();
+                builder.endObject();
+            }
+            builder.endArray();
+            builder.endObject();
+            builder.startObject("aggregations").startObject("services");
+            builder.field("doc_count_error_upper_bound", 0).field("sum_other_doc_count", 0);
+            builder.startArray("buckets");
+            for (String service : services) {
+                builder.startObject().field("key", service).field("doc_count", random.nextInt(100000)).endObject();
+            }
+            builder.endArray();
+            builder.endObject().endObject();
+            builder.endObject();
+            return BytesReference.bytes(builder);
+        }
+    }
+}
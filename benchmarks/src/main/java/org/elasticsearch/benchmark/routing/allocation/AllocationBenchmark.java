@@ -106,7 +106,12 @@ public class AllocationBenchmark {
         "       10|     10|        2|    50",
         "      100|      1|        2|    50",
         "      100|      3|        2|    50",
-        "      100|     10|        2|    50" })
+        "      100|     10|        2|    50",
+
+        // many nodes, where balancing used to re-sort all nodes after every relocation
+        "      500|      1|        1|   200",
+        "      500|      3|        1|   200",
+        "     1000|      1|        1|   500" })
     public String indicesShardsReplicasNodes = "10|1|0|1";
 
     public int numTags = 2;
@@ -0,0 +1,325 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.search.aggregations;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DoublePoint;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryCachingPolicy;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.NumericUtils;
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.metadata.IndexMetadata;
+import org.elasticsearch.common.UUIDs;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.PageCacheRecycler;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.fielddata.IndexFieldData;
+import org.elasticsearch.index.fielddata.IndexFieldDataCache;
+import org.elasticsearch.index.fielddata.LeafFieldData;
+import org.elasticsearch.index.mapper.DateFieldMapper;
+import org.elasticsearch.index.mapper.KeywordFieldMapper;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.NumberFieldMapper;
+import org.elasticsearch.index.query.QueryShardContext;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+import org.elasticsearch.search.SearchModule;
+import org.elasticsearch.search.SearchShardTarget;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.MultiBucketConsumerService.MultiBucketConsumer;
+import org.elasticsearch.search.aggregations.SearchContextAggregations;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.DateHistogramValuesSourceBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.TermsValuesSourceBuilder;
+import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramInterval;
+import org.elasticsearch.search.aggregations.bucket.terms.TermsAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.CardinalityAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.PercentilesAggregationBuilder;
+import org.elasticsearch.search.aggregations.support.ValuesSourceRegistry;
+import org.elasticsearch.search.internal.ContextIndexSearcher;
+import org.elasticsearch.search.internal.FilteredSearchContext;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static java.util.Collections.emptyList;
+
+/**
+ * An in-memory Lucene index with a {@code keyword}, a {@code long}, a {@code date} and a {@code double} field that runs
+ * aggregations the same way a shard does in the query phase: the aggregators are built from their {@link AggregationBuilder}
+ * against the real field data and collect all documents through a {@link ContextIndexSearcher}. Global ordinals are built
+ * once per field and reused by subsequent aggregations, like the field data cache of a shard does.
+ */
+final class AggregationBenchmarkIndex implements Closeable {
+    static final String KEYWORD_FIELD = "keyword";
+    static final String LONG_FIELD = "long";
+    static final String DATE_FIELD = "date";
+    static final String DOUBLE_FIELD = "double";
+
+    private static final long START_MILLIS = 1577836800000L; // 2020-01-01T00:00:00Z
+    private static final ValuesSourceRegistry VALUES_SOURCE_REGISTRY =
+        new SearchModule(Settings.EMPTY, emptyList()).getValuesSourceRegistry();
+
+    private final Directory directory;
+    private final DirectoryReader reader;
+    private final ContextIndexSearcher searcher;
+    private final BigArrays bigArrays;
+    private final QueryShardContext queryShardContext;
+
+    /**
+     * Indexes {@code numDocs} documents into {@code numSegments} segments. Each field has {@code cardinality} distinct
+     * values that are uniformly distributed over the documents. Dates are one minute apart.
+     */
+    AggregationBenchmarkIndex(long seed, int numDocs, int cardinality, int numSegments) throws IOException {
+        Random random = new Random(seed);
+        BytesRef[] terms = new BytesRef[cardinality];
+        for (int i = 0; i < cardinality; i++) {
+            terms[i] = new BytesRef(UUIDs.randomBase64UUID(random));
+        }
+        directory = new ByteBuffersDirectory();
+        // flush segments explicitly so that the number of segments doesn't depend on the size of the documents
+        IndexWriterConfig config = new IndexWriterConfig()
+            .setMergePolicy(NoMergePolicy.INSTANCE)
+            .setMaxBufferedDocs(IndexWriterConfig.DISABLE_AUTO_FLUSH)
+            .setRAMBufferSizeMB(1024);
+        int docsPerSegment = Math.max(1, numDocs / numSegments);
+        try (IndexWriter writer = new IndexWriter(directory, config)) {
+            for (int i = 0; i < numDocs; i++) {
+                Document doc = new Document();
+                BytesRef term = terms[random.nextInt(cardinality)];
+                doc.add(new StringField(KEYWORD_FIELD, term, Field.Store.NO));
+                doc.add(new SortedSetDocValuesField(KEYWORD_FIELD, term));
+                long value = random.nextInt(cardinality);
+                doc.add(new LongPoint(LONG_FIELD, value));
+                doc.add(new SortedNumericDocValuesField(LONG_FIELD, value));
+                long date = START_MILLIS + random.nextInt(cardinality) * 60_000L;
+                doc.add(new LongPoint(DATE_FIELD, date));
+                doc.add(new SortedNumericDocValuesField(DATE_FIELD, date));
+                double number = random.nextGaussian() * 1000;
+                doc.add(new DoublePoint(DOUBLE_FIELD, number));
+                doc.add(new SortedNumericDocValuesField(DOUBLE_FIELD, NumericUtils.doubleToSortableLong(number)));
+                writer.addDocument(doc);
+                if ((i + 1) % docsPerSegment == 0) {
+                    writer.flush();
+                }
+            }
+            writer.commit();
+        }
+        reader = DirectoryReader.open(directory);
+        searcher = new ContextIndexSearcher(reader, IndexSearcher.getDefaultSimilarity(), null, NEVER_CACHE, false);
+        bigArrays = new BigArrays(new PageCacheRecycler(Settings.EMPTY), new NoneCircuitBreakerService(), CircuitBreaker.REQUEST);
+
+        IndexMetadata indexMetadata = IndexMetadata.builder("index")
+            .settings(Settings.builder().put(IndexMetadata.SETTING_VERSION_CREATED, Version.CURRENT))
+            .numberOfShards(1)
+            .numberOfReplicas(0)
+            .build();
+        IndexSettings indexSettings = new IndexSettings(indexMetadata, Settings.EMPTY);
+        Map<String, MappedFieldType> fieldTypes = new HashMap<>();
+        fieldTypes.put(KEYWORD_FIELD, new KeywordFieldMapper.KeywordFieldType(KEYWORD_FIELD));
+        fieldTypes.put(LONG_FIELD, new NumberFieldMapper.NumberFieldType(LONG_FIELD, NumberFieldMapper.NumberType.LONG));
+        fieldTypes.put(DATE_FIELD, new DateFieldMapper.DateFieldType(DATE_FIELD));
+        fieldTypes.put(DOUBLE_FIELD, new NumberFieldMapper.NumberFieldType(DOUBLE_FIELD, NumberFieldMapper.NumberType.DOUBLE));
+        CircuitBreakerService breakerService = new NoneCircuitBreakerService();
+        IndexFieldDataCache fieldDataCache = new GlobalOrdinalsCache();
+        queryShardContext = new QueryShardContext(0, indexSettings, bigArrays, null,
+            (fieldType, index) -> fieldType.fielddataBuilder(index).build(indexSettings, fieldType, fieldDataCache, breakerService, null),
+            null, null, null, null, null, null, searcher, () -> START_MILLIS, null, null, () -> true, VALUES_SOURCE_REGISTRY) {
+            @Override
+            public MappedFieldType fieldMapper(String name) {
+                return fieldTypes.get(name);
+            }
+        };
+    }
+
+    /**
+     * Creates the aggregation with the given name: {@code terms_keyword}, {@code terms_long}, {@code date_histogram},
+     * {@code composite}, {@code cardinality} or {@code percentiles}.
+     */
+    static AggregationBuilder newAggregation(String name) {
+        switch (name) {
+            case "terms_keyword":
+                return new TermsAggregationBuilder(name).field(KEYWORD_FIELD);
+            case "terms_long":
+                return new TermsAggregationBuilder(name).field(LONG_FIELD);
+            case "date_histogram":
+                return new DateHistogramAggregationBuilder(name).field(DATE_FIELD).calendarInterval(DateHistogramInterval.HOUR);
+            case "composite":
+                return new CompositeAggregationBuilder(name, Arrays.asList(
+                    new TermsValuesSourceBuilder(KEYWORD_FIELD).field(KEYWORD_FIELD),
+                    new DateHistogramValuesSourceBuilder(DATE_FIELD).field(DATE_FIELD).calendarInterval(DateHistogramInterval.DAY)))
+                    .size(1000);
+            case "cardinality":
+                return new CardinalityAggregationBuilder(name).field(KEYWORD_FIELD);
+            case "percentiles":
+                return new PercentilesAggregationBuilder(name).field(DOUBLE_FIELD);
+            default:
+                throw new IllegalArgumentException("unknown aggregation [" + name + "]");
+        }
+    }
+
+    /**
+     * Runs the given aggregation over all documents of the index and returns its shard level result.
+     */
+    InternalAggregation aggregate(AggregationBuilder aggregation) throws IOException {
+        AggregatorFactories factories = AggregatorFactories.builder()
+            .addAggregator(aggregation)
+            .rewrite(queryShardContext)
+            .build(queryShardContext, null);
+        BenchmarkSearchContext context = new BenchmarkSearchContext(factories);
+        try {
+            Aggregator aggregator = factories.createTopLevelAggregators(context)[0];
+            aggregator.preCollection();
+            searcher.search(context.query(), aggregator);
+            aggregator.postCollection();
+            return aggregator.buildTopLevel();
+        } finally {
+            context.clearReleasables(SearchContext.Lifetime.CONTEXT);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOUtils.close(reader, directory);
+    }
+
+    private static final QueryCachingPolicy NEVER_CACHE = new QueryCachingPolicy() {
+        @Override
+        public void onUse(Query query) {}
+
+        @Override
+        public boolean shouldCache(Query query) {
+            return false;
+        }
+    };
+
+    /**
+     * The subset of a {@link SearchContext} that aggregators access during collection, everything else is unsupported.
+     */
+    private class BenchmarkSearchContext extends FilteredSearchContext {
+        private final SearchContextAggregations aggregations;
+        private final Query query = new MatchAllDocsQuery();
+
+        BenchmarkSearchContext(AggregatorFactories factories) {
+            super(null);
+            this.aggregations = new SearchContextAggregations(factories,
+                new MultiBucketConsumer(Integer.MAX_VALUE, new NoopCircuitBreaker(CircuitBreaker.REQUEST)));
+        }
+
+        @Override
+        public SearchShardTarget shardTarget() {
+            return null;
+        }
+
+        @Override
+        public int numberOfShards() {
+            return 1;
+        }
+
+        @Override
+        public SearchContextAggregations aggregations() {
+            return aggregations;
+        }
+
+        @Override
+        public ContextIndexSearcher searcher() {
+            return searcher;
+        }
+
+        @Override
+        public BigArrays bigArrays() {
+            return bigArrays;
+        }
+
+        @Override
+        public Query query() {
+            return query;
+        }
+
+        @Override
+        public QueryShardContext getQueryShardContext() {
+            return queryShardContext;
+        }
+    }
+
+    /**
+     * Loads segment level field data directly and builds global ordinals once per field.
+     */
+    private static class GlobalOrdinalsCache implements IndexFieldDataCache {
+        private final Map<String, IndexFieldData<?>> globalFieldData = new HashMap<>();
+
+        @Override
+        public <FD extends LeafFieldData, IFD extends IndexFieldData<FD>> FD load(LeafReaderContext context, IFD indexFieldData)
+                throws Exception {
+            return indexFieldData.loadDirect(context);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public synchronized <FD extends LeafFieldData, IFD extends IndexFieldData.Global<FD>> IFD load(DirectoryReader indexReader,
+                                                                                                      IFD indexFieldData)
+                throws Exception {
+            IndexFieldData<?> global = globalFieldData.get(indexFieldData.getFieldName());
+            if (global == null) {
+                global = indexFieldData.localGlobalDirect(indexReader);
+                globalFieldData.put(indexFieldData.getFieldName(), global);
+            }
+            return (IFD) global;
+        }
+
+        @Override
+        public synchronized void clear() {
+            globalFieldData.clear();
+        }
+
+        @Override
+        public synchronized void clear(String fieldName) {
+            globalFieldData.remove(fieldName);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.search.aggregations;
+
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time it takes to collect all documents of a shard into an aggregation and to build the shard level result.
+ * The {@code keyword} terms, composite and cardinality aggregations run on global ordinals that are built once during the
+ * first warmup iteration, like on a shard that serves repeated requests.
+ */
+@Fork(2)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") // invoked by benchmarking framework
+public class AggregationCollectionBenchmark {
+
+    @Param({ "terms_keyword", "terms_long", "date_histogram", "composite", "cardinality", "percentiles" })
+    private String aggregation;
+
+    @Param({ "1000000" })
+    private int numDocs;
+
+    @Param({ "100", "10000", "1000000" })
+    private int cardinality;
+
+    @Param({ "1", "10" })
+    private int numSegments;
+
+    private AggregationBenchmarkIndex index;
+    private AggregationBuilder builder;
+
+    @Setup
+    public void setUp() throws IOException {
+        index = new AggregationBenchmarkIndex(0, numDocs, cardinality, numSegments);
+        builder = AggregationBenchmarkIndex.newAggregation(aggregation);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        index.close();
+    }
+
+    @Benchmark
+    public InternalAggregation collect() throws IOException {
+        return index.aggregate(builder);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.search.aggregations;
+
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.aggregations.InternalAggregation.ReduceContext;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator.PipelineTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.singletonList;
+
+/**
+ * Measures the time it takes to reduce the shard level results of an aggregation on the coordinating node, either partially
+ * like the incremental reduce of a search with many shards or finally like the last reduce before the response is built.
+ * Every shard indexes different random documents with the same cardinality so that the shard results overlap only partially.
+ */
+@Fork(2)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") // invoked by benchmarking framework
+public class AggregationReduceBenchmark {
+
+    @Param({ "terms_keyword", "terms_long", "date_histogram", "composite", "cardinality", "percentiles" })
+    private String aggregation;
+
+    @Param({ "8", "64" })
+    private int numShards;
+
+    @Param({ "100000" })
+    private int numDocsPerShard;
+
+    @Param({ "100", "10000", "100000" })
+    private int cardinality;
+
+    private List<InternalAggregations> shardResults;
+
+    @Setup
+    public void setUp() throws IOException {
+        AggregationBuilder builder = AggregationBenchmarkIndex.newAggregation(aggregation);
+        shardResults = new ArrayList<>(numShards);
+        for (int shard = 0; shard < numShards; shard++) {
+            try (AggregationBenchmarkIndex index = new AggregationBenchmarkIndex(shard, numDocsPerShard, cardinality, 1)) {
+                shardResults.add(InternalAggregations.from(singletonList(index.aggregate(builder))));
+            }
+        }
+    }
+
+    @Benchmark
+    public InternalAggregations partialReduce() {
+        ReduceContext context = ReduceContext.forPartialReduction(BigArrays.NON_RECYCLING_INSTANCE, null, () -> PipelineTree.EMPTY);
+        return InternalAggregations.topLevelReduce(shardResults, context);
+    }
+
+    @Benchmark
+    public InternalAggregations finalReduce() {
+        ReduceContext context = ReduceContext.forFinalReduction(BigArrays.NON_RECYCLING_INSTANCE, null, buckets -> {},
+            PipelineTree.EMPTY);
+        return InternalAggregations.topLevelReduce(shardResults, context);
+    }
+}
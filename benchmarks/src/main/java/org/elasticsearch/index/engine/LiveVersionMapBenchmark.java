@@ -0,0 +1,118 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.index.translog.Translog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the throughput of id lookups and puts on a {@link LiveVersionMap} that holds its versions in a map of objects
+ * ({@code heap}) or in paged arrays ({@code paged}). Puts update random ids of a fixed set and refresh the map every
+ * {@code numIds} operations, like an update heavy index with a long refresh interval. Running with {@code -prof gc} shows the
+ * allocation rate and collection times of both implementations.
+ */
+@Fork(2)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Threads(4)
+@SuppressWarnings("unused") // invoked by benchmarking framework
+public class LiveVersionMapBenchmark {
+
+    @Param({ "heap", "paged" })
+    private String type;
+
+    @Param({ "10000", "1000000" })
+    private int numIds;
+
+    private LiveVersionMap versionMap;
+    private BytesRef[] ids;
+    private final AtomicLong seqNo = new AtomicLong();
+
+    @Setup
+    public void setUp() throws IOException {
+        switch (type) {
+            case "heap":
+                versionMap = new LiveVersionMap();
+                break;
+            case "paged":
+                versionMap = new LiveVersionMap(BigArrays.NON_RECYCLING_INSTANCE);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown version map type [" + type + "]");
+        }
+        versionMap.enforceSafeAccess();
+        ids = new BytesRef[numIds];
+        for (int i = 0; i < numIds; i++) {
+            ids[i] = BytesRef.deepCopyOf(new BytesRef(UUID.randomUUID().toString()));
+            put(ids[i]);
+        }
+    }
+
+    @Benchmark
+    public VersionValue lookup() {
+        final BytesRef id = ids[ThreadLocalRandom.current().nextInt(numIds)];
+        try (Releasable ignored = versionMap.acquireLock(id)) {
+            return versionMap.getUnderLock(id);
+        }
+    }
+
+    @Benchmark
+    public void put() throws IOException {
+        final long operations = put(ids[ThreadLocalRandom.current().nextInt(numIds)]);
+        if (operations % numIds == 0) {
+            synchronized (versionMap) {
+                versionMap.beforeRefresh();
+                versionMap.afterRefresh(true);
+            }
+        }
+    }
+
+    private long put(BytesRef id) {
+        final long operation = seqNo.incrementAndGet();
+        final Translog.Location location = new Translog.Location(1, operation * 128, 128);
+        try (Releasable ignored = versionMap.acquireLock(id)) {
+            versionMap.putIndexUnderLock(id, new IndexVersionValue(location, operation, operation, 1));
+        }
+        return operation;
+    }
+}
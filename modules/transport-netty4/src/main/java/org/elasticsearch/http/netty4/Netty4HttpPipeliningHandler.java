@@ -19,25 +19,54 @@
 
 package org.elasticsearch.http.netty4;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
 import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
 import org.elasticsearch.common.collect.Tuple;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.http.HttpPipelinedRequest;
 import org.elasticsearch.http.HttpPipelinedResponse;
 import org.elasticsearch.http.HttpPipeliningAggregator;
+import org.elasticsearch.http.HttpResponse;
+import org.elasticsearch.rest.ChunkedRestResponseBody;
+import org.elasticsearch.transport.netty4.Netty4Utils;
 
 import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
 import java.util.List;
 
 /**
  * Implements HTTP pipelining ordering, ensuring that responses are completely served in the same order as their corresponding requests.
+ * The body of a {@link Netty4ChunkedHttpResponse} is serialized and written one chunk at a time, only while the channel is writable, and
+ * responses that become ready in the meantime are held back until it has been written completely.
  */
 public class Netty4HttpPipeliningHandler extends ChannelDuplexHandler {
 
+    /**
+     * The number of bytes that each chunk of a chunked response is serialized into before it is written to the channel.
+     */
+    static final int CHUNK_SIZE_BYTES = Math.toIntExact(ByteSizeUnit.KB.toBytes(256));
+
     private final Logger logger;
     private final HttpPipeliningAggregator<ChannelPromise> aggregator;
+    private final BigArrays bigArrays;
+
+    // responses that are ready to be written, in order, but must wait for the chunked response that is being written
+    private final ArrayDeque<Tuple<HttpResponse, ChannelPromise>> queuedWrites = new ArrayDeque<>();
+
+    @Nullable
+    private ChunkedWrite currentChunkedWrite;
+
+    // flushing may synchronously notify that the channel became writable again, which must not recursively resume the write
+    private boolean writing;
 
     /**
      * Construct a new pipelining handler; this handler should be used downstream of HTTP decoding/aggregation.
@@ -45,10 +74,12 @@ public class Netty4HttpPipeliningHandler extends ChannelDuplexHandler {
      * @param logger        for logging unexpected errors
      * @param maxEventsHeld the maximum number of channel events that will be retained prior to aborting the channel connection; this is
      *                      required as events cannot queue up indefinitely
+     * @param bigArrays     to allocate the pages that the chunks of chunked responses are serialized into
      */
-    public Netty4HttpPipeliningHandler(Logger logger, final int maxEventsHeld) {
+    public Netty4HttpPipeliningHandler(Logger logger, final int maxEventsHeld, BigArrays bigArrays) {
         this.logger = logger;
         this.aggregator = new HttpPipeliningAggregator<>(maxEventsHeld);
+        this.bigArrays = bigArrays;
     }
 
     @Override
@@ -66,7 +97,7 @@ public class Netty4HttpPipeliningHandler extends ChannelDuplexHandler {
         try {
             List<Tuple<HttpPipelinedResponse, ChannelPromise>> readyResponses = aggregator.write(response, promise);
             for (Tuple<HttpPipelinedResponse, ChannelPromise> readyResponse : readyResponses) {
-                ctx.write(readyResponse.v1().getDelegateRequest(), readyResponse.v2());
+                queuedWrites.add(new Tuple<>(readyResponse.v1().getDelegateRequest(), readyResponse.v2()));
             }
             success = true;
         } catch (IllegalStateException e) {
@@ -76,6 +107,110 @@ public class Netty4HttpPipeliningHandler extends ChannelDuplexHandler {
                 promise.setFailure(new ClosedChannelException());
             }
         }
+        if (success) {
+            doWrite(ctx);
+        }
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        if (writing == false && currentChunkedWrite != null && ctx.channel().isWritable()) {
+            doWrite(ctx);
+            ctx.flush();
+        }
+        ctx.fireChannelWritabilityChanged();
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        failQueuedWrites(new ClosedChannelException());
+        ctx.fireChannelInactive();
+    }
+
+    private void doWrite(ChannelHandlerContext ctx) {
+        if (writing) {
+            return;
+        }
+        writing = true;
+        try {
+            while (true) {
+                if (currentChunkedWrite != null && writeChunks(ctx) == false) {
+                    // resumed once the channel becomes writable again
+                    return;
+                }
+                final Tuple<HttpResponse, ChannelPromise> queuedWrite = queuedWrites.poll();
+                if (queuedWrite == null) {
+                    return;
+                }
+                if (queuedWrite.v1() instanceof Netty4ChunkedHttpResponse) {
+                    final Netty4ChunkedHttpResponse response = (Netty4ChunkedHttpResponse) queuedWrite.v1();
+                    currentChunkedWrite = new ChunkedWrite(response.body(), queuedWrite.v2());
+                    // a failure to write the head also fails the writes of the chunks that follow it
+                    ctx.write(response);
+                } else {
+                    ctx.write(queuedWrite.v1(), queuedWrite.v2());
+                }
+            }
+        } finally {
+            writing = false;
+        }
+    }
+
+    /**
+     * Serializes and writes chunks of the current chunked response for as long as the channel is writable.
+     *
+     * @return true if the response has been written completely, false if the channel is not writable anymore
+     */
+    private boolean writeChunks(ChannelHandlerContext ctx) {
+        final ChunkedWrite chunkedWrite = currentChunkedWrite;
+        while (true) {
+            if (ctx.channel().isWritable() == false) {
+                // flush what has been written so far, the channel becomes writable again once the outbound buffer has drained
+                ctx.flush();
+                if (ctx.channel().isWritable() == false) {
+                    return false;
+                }
+            }
+            if (currentChunkedWrite != chunkedWrite) {
+                // the channel was closed while flushing
+                return false;
+            }
+            final ReleasableBytesReference bytes;
+            try {
+                bytes = chunkedWrite.body.encodeChunk(CHUNK_SIZE_BYTES, bigArrays);
+            } catch (Exception e) {
+                // the response head has already been sent, so the only way to tell the client is to close the channel
+                logger.warn(new ParameterizedMessage("failed to serialize chunked http response on channel [{}]", ctx.channel()), e);
+                currentChunkedWrite = null;
+                chunkedWrite.promise.tryFailure(e);
+                ctx.channel().close();
+                return false;
+            }
+            final boolean done = chunkedWrite.body.isDone();
+            final ByteBuf content = Netty4Utils.toByteBuf(bytes);
+            final ChannelPromise chunkPromise = done ? chunkedWrite.promise : ctx.newPromise();
+            chunkPromise.addListener(f -> bytes.close());
+            ctx.write(done ? new DefaultLastHttpContent(content) : new DefaultHttpContent(content), chunkPromise);
+            if (done) {
+                currentChunkedWrite = null;
+                return true;
+            }
+        }
+    }
+
+    private void failQueuedWrites(Exception e) {
+        if (currentChunkedWrite != null) {
+            currentChunkedWrite.promise.tryFailure(e);
+            currentChunkedWrite = null;
+        }
+        Tuple<HttpResponse, ChannelPromise> queuedWrite;
+        while ((queuedWrite = queuedWrites.poll()) != null) {
+            try {
+                queuedWrite.v2().tryFailure(e);
+            } catch (RuntimeException ex) {
+                logger.error("unexpected error while releasing pipelined http responses", ex);
+            }
+        }
     }
 
     @Override
@@ -92,6 +227,18 @@ public class Netty4HttpPipeliningHandler extends ChannelDuplexHandler {
                 }
             }
         }
+        failQueuedWrites(new ClosedChannelException());
         ctx.close(promise);
     }
+
+    private static final class ChunkedWrite {
+
+        private final ChunkedRestResponseBody body;
+        private final ChannelPromise promise;
+
+        ChunkedWrite(ChunkedRestResponseBody body, ChannelPromise promise) {
+            this.body = body;
+            this.promise = promise;
+        }
+    }
 }
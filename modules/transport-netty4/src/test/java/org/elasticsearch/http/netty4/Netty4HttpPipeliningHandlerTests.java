@@ -26,14 +26,24 @@ import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.handler.codec.http.DefaultFullHttpRequest;
 import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
 import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.LastHttpContent;
 import io.netty.handler.codec.http.QueryStringDecoder;
 import org.elasticsearch.common.Randomness;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.MockBigArrays;
+import org.elasticsearch.common.util.MockPageCacheRecycler;
 import org.elasticsearch.http.HttpPipelinedRequest;
 import org.elasticsearch.http.HttpPipelinedResponse;
 import org.elasticsearch.http.HttpResponse;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+import org.elasticsearch.rest.ChunkedRestResponseBody;
 import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.test.ESTestCase;
 import org.junit.After;
@@ -48,11 +58,13 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_LENGTH;
 import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.core.Is.is;
 
 public class Netty4HttpPipeliningHandlerTests extends ESTestCase {
@@ -61,6 +73,7 @@ public class Netty4HttpPipeliningHandlerTests extends ESTestCase {
     private final ExecutorService eventLoopService = Executors.newFixedThreadPool(1);
     private final Map<String, CountDownLatch> waitingRequests = new ConcurrentHashMap<>();
     private final Map<String, CountDownLatch> finishingRequests = new ConcurrentHashMap<>();
+    private final BigArrays bigArrays = new MockBigArrays(new MockPageCacheRecycler(Settings.EMPTY), new NoneCircuitBreakerService());
 
     @After
     public void tearDown() throws Exception {
@@ -87,7 +100,7 @@ public class Netty4HttpPipeliningHandlerTests extends ESTestCase {
 
     public void testThatPipeliningWorksWithFastSerializedRequests() throws InterruptedException {
         final int numberOfRequests = randomIntBetween(2, 128);
-        final EmbeddedChannel embeddedChannel = new EmbeddedChannel(new Netty4HttpPipeliningHandler(logger, numberOfRequests),
+        final EmbeddedChannel embeddedChannel = new EmbeddedChannel(new Netty4HttpPipeliningHandler(logger, numberOfRequests, bigArrays),
             new WorkEmulatorHandler());
 
         for (int i = 0; i < numberOfRequests; i++) {
@@ -114,7 +127,7 @@ public class Netty4HttpPipeliningHandlerTests extends ESTestCase {
 
     public void testThatPipeliningWorksWhenSlowRequestsInDifferentOrder() throws InterruptedException {
         final int numberOfRequests = randomIntBetween(2, 128);
-        final EmbeddedChannel embeddedChannel = new EmbeddedChannel(new Netty4HttpPipeliningHandler(logger, numberOfRequests),
+        final EmbeddedChannel embeddedChannel = new EmbeddedChannel(new Netty4HttpPipeliningHandler(logger, numberOfRequests, bigArrays),
             new WorkEmulatorHandler());
 
         for (int i = 0; i < numberOfRequests; i++) {
@@ -144,7 +157,7 @@ public class Netty4HttpPipeliningHandlerTests extends ESTestCase {
 
     public void testThatPipeliningClosesConnectionWithTooManyEvents() throws InterruptedException {
         final int numberOfRequests = randomIntBetween(2, 128);
-        final EmbeddedChannel embeddedChannel = new EmbeddedChannel(new Netty4HttpPipeliningHandler(logger, numberOfRequests),
+        final EmbeddedChannel embeddedChannel = new EmbeddedChannel(new Netty4HttpPipeliningHandler(logger, numberOfRequests, bigArrays),
             new WorkEmulatorHandler());
 
         for (int i = 0; i < 1 + numberOfRequests + 1; i++) {
@@ -173,7 +186,7 @@ public class Netty4HttpPipeliningHandlerTests extends ESTestCase {
     public void testPipeliningRequestsAreReleased() throws InterruptedException {
         final int numberOfRequests = 10;
         final EmbeddedChannel embeddedChannel =
-            new EmbeddedChannel(new Netty4HttpPipeliningHandler(logger, numberOfRequests + 1));
+            new EmbeddedChannel(new Netty4HttpPipeliningHandler(logger, numberOfRequests + 1, bigArrays));
 
         for (int i = 0; i < numberOfRequests; i++) {
             embeddedChannel.writeInbound(createHttpRequest("/" + i));
@@ -204,6 +217,62 @@ public class Netty4HttpPipeliningHandlerTests extends ESTestCase {
         }
     }
 
+    public void testChunkedResponsesAreWrittenInOrder() {
+        final EmbeddedChannel embeddedChannel = new EmbeddedChannel(new Netty4HttpPipeliningHandler(logger, 2, bigArrays));
+        embeddedChannel.writeInbound(createHttpRequest("/0"));
+        embeddedChannel.writeInbound(createHttpRequest("/1"));
+        final HttpPipelinedRequest first = embeddedChannel.readInbound();
+        final HttpPipelinedRequest second = embeddedChannel.readInbound();
+
+        final List<String> chunks = new ArrayList<>();
+        final int numberOfChunks = randomIntBetween(1, 10);
+        for (int i = 0; i < numberOfChunks; i++) {
+            // some chunks are larger than the high water mark of the channel's outbound buffer
+            chunks.add(randomAlphaOfLength(randomBoolean() ? randomIntBetween(1, 100) : randomIntBetween(64 * 1024, 128 * 1024)));
+        }
+
+        // the response to the second request is ready first but must wait for the chunked response to the first request
+        final ChannelPromise secondPromise = embeddedChannel.newPromise();
+        embeddedChannel.writeAndFlush(second.createResponse(RestStatus.OK, new BytesArray("1")), secondPromise);
+        assertFalse(secondPromise.isDone());
+        assertNull(embeddedChannel.readOutbound());
+
+        final AtomicInteger releasedChunks = new AtomicInteger();
+        final ChannelPromise firstPromise = embeddedChannel.newPromise();
+        embeddedChannel.writeAndFlush(first.createResponse(RestStatus.OK, new ChunkedRestResponseBody() {
+            private int chunk = 0;
+
+            @Override
+            public boolean isDone() {
+                return chunk == chunks.size();
+            }
+
+            @Override
+            public ReleasableBytesReference encodeChunk(int sizeHint, BigArrays bigArrays) {
+                final BytesArray bytes = new BytesArray(chunks.get(chunk++));
+                return new ReleasableBytesReference(bytes, releasedChunks::incrementAndGet);
+            }
+
+            @Override
+            public String getResponseContentTypeString() {
+                return "text/plain";
+            }
+        }), firstPromise);
+        assertTrue(firstPromise.isSuccess());
+        assertTrue(secondPromise.isSuccess());
+        assertThat(releasedChunks.get(), is(numberOfChunks));
+
+        final io.netty.handler.codec.http.HttpResponse head = embeddedChannel.readOutbound();
+        assertThat(head, instanceOf(Netty4ChunkedHttpResponse.class));
+        assertTrue(HttpUtil.isTransferEncodingChunked(head));
+        for (int i = 0; i < numberOfChunks; i++) {
+            final HttpContent content = embeddedChannel.readOutbound();
+            assertThat(content, instanceOf(i == numberOfChunks - 1 ? LastHttpContent.class : HttpContent.class));
+            assertThat(content.content().toString(StandardCharsets.UTF_8), is(chunks.get(i)));
+        }
+        assertReadHttpMessageHasContent(embeddedChannel, "1");
+        assertTrue(embeddedChannel.isOpen());
+    }
 
     private void assertReadHttpMessageHasContent(EmbeddedChannel embeddedChannel, String expectedContent) {
         FullHttpResponse response = (FullHttpResponse) embeddedChannel.outboundMessages().poll();
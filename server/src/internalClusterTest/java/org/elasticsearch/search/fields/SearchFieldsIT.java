@@ -34,6 +34,7 @@ import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.common.xcontent.support.XContentMapValues;
+import org.elasticsearch.index.MergePolicyConfig;
 import org.elasticsearch.index.fielddata.ScriptDocValues;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.plugins.Plugin;
@@ -913,6 +914,83 @@ public class SearchFieldsIT extends ESIntegTestCase {
                 equalTo(DateFormatter.forPattern("epoch_millis").format(date)));
     }
 
+    public void testMultiValuedDocValueFieldsAcrossSegments() throws Exception {
+        assertAcked(prepareCreate("test")
+            .setSettings(Settings.builder()
+                .put("index.number_of_shards", 1)
+                .put("index.number_of_replicas", 0)
+                .put(MergePolicyConfig.INDEX_MERGE_ENABLED, false))
+            .setMapping("long_field", "type=long", "double_field", "type=double", "keyword_field", "type=keyword",
+                "sort_key", "type=integer"));
+
+        final int numDocs = randomIntBetween(10, 100);
+        final List<Integer> sortKeys = new ArrayList<>();
+        for (int i = 0; i < numDocs; i++) {
+            sortKeys.add(i);
+        }
+        Collections.shuffle(sortKeys, random());
+        final Map<String, List<Object>> expectedLongs = new HashMap<>();
+        final Map<String, List<Object>> expectedDoubles = new HashMap<>();
+        final Map<String, List<Object>> expectedKeywords = new HashMap<>();
+        for (int i = 0; i < numDocs; i++) {
+            final String id = Integer.toString(i);
+            // some documents miss values, others have several of them
+            final List<Long> longs = new ArrayList<>();
+            final List<Double> doubles = new ArrayList<>();
+            final Set<String> keywords = new HashSet<>();
+            for (int j = randomIntBetween(0, 3); j > 0; j--) {
+                longs.add(randomLongBetween(-1000, 1000));
+            }
+            for (int j = randomIntBetween(0, 3); j > 0; j--) {
+                doubles.add(randomIntBetween(-1000, 1000) + 0.5);
+            }
+            for (int j = randomIntBetween(0, 3); j > 0; j--) {
+                keywords.add(randomAlphaOfLength(3));
+            }
+            client().prepareIndex("test").setId(id).setSource(jsonBuilder().startObject()
+                .field("sort_key", sortKeys.get(i))
+                .field("long_field", longs)
+                .field("double_field", doubles)
+                .field("keyword_field", keywords)
+                .endObject()).get();
+            // doc values are returned in sorted order
+            longs.sort(null);
+            doubles.sort(null);
+            final List<String> sortedKeywords = new ArrayList<>(keywords);
+            sortedKeywords.sort(null);
+            expectedLongs.put(id, new ArrayList<>(longs));
+            expectedDoubles.put(id, new ArrayList<>(doubles));
+            expectedKeywords.put(id, new ArrayList<>(sortedKeywords));
+            if (rarely()) {
+                // start a new segment
+                refresh("test");
+            }
+        }
+        refresh("test");
+
+        // sorting on a random key returns the hits of the different segments out of doc id order
+        SearchResponse response = client().prepareSearch("test")
+            .setQuery(matchAllQuery())
+            .setSize(numDocs)
+            .addSort("sort_key", SortOrder.ASC)
+            .addDocValueField("long_field")
+            .addDocValueField("double_field")
+            .addDocValueField("keyword_field")
+            .get();
+        assertSearchResponse(response);
+        assertHitCount(response, numDocs);
+        for (SearchHit hit : response.getHits().getHits()) {
+            assertThat(docValues(hit, "long_field"), equalTo(expectedLongs.get(hit.getId())));
+            assertThat(docValues(hit, "double_field"), equalTo(expectedDoubles.get(hit.getId())));
+            assertThat(docValues(hit, "keyword_field"), equalTo(expectedKeywords.get(hit.getId())));
+        }
+    }
+
+    private static List<Object> docValues(SearchHit hit, String field) {
+        DocumentField documentField = hit.field(field);
+        return documentField == null ? Collections.emptyList() : documentField.getValues();
+    }
+
     public void testScriptFields() throws Exception {
         assertAcked(prepareCreate("index").setMapping(
                 "s", "type=keyword",
@@ -0,0 +1,119 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.bulk;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.util.concurrent.AbstractRunnable;
+import org.elasticsearch.index.mapper.SourceToParse;
+import org.elasticsearch.index.shard.IndexShard;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Parses the documents of the index requests of a {@link BulkShardRequest} on the dedicated
+ * {@link org.elasticsearch.threadpool.ThreadPool.Names#BULK_PARSE} thread pool while the preceding items of the request are
+ * executed on the primary, so that parsing is not bound to the single thread that executes the items. At most
+ * {@code window} items ahead of the item being executed are parsed concurrently. The items are still executed in order: an item
+ * whose document is not parsed yet when it is executed, for instance because the executor rejected the parsing task or because
+ * it is still being parsed, is parsed inline as usual, and the shard discards the parsed documents of items that were parsed
+ * with a mapping that changed since.
+ */
+final class BulkParseAhead {
+
+    private static final Logger logger = LogManager.getLogger(BulkParseAhead.class);
+
+    private static final Object PARSING = new Object();
+    private static final Object TAKEN = new Object();
+
+    private final IndexShard primary;
+    private final BulkItemRequest[] items;
+    private final Executor executor;
+    private final int window;
+    // for each item, null if it was not parsed yet, PARSING, TAKEN or the parsed document
+    private final AtomicReferenceArray<Object> parsedDocuments;
+    // the items before this index were submitted for parsing, only accessed by the thread that executes the items
+    private int submittedUpTo;
+
+    BulkParseAhead(IndexShard primary, BulkItemRequest[] items, Executor executor, int window) {
+        assert window > 0 : window;
+        this.primary = primary;
+        this.items = items;
+        this.executor = executor;
+        this.window = window;
+        this.parsedDocuments = new AtomicReferenceArray<>(items.length);
+        // the first item is executed right away
+        this.submittedUpTo = 1;
+    }
+
+    /**
+     * Returns the parsed document of the item at the given index if it was parsed ahead, and submits the following items
+     * of the window for parsing.
+     */
+    @Nullable
+    IndexShard.PreParsedDocument take(int index) {
+        final int end = Math.min(items.length, index + 1 + window);
+        for (int i = Math.max(submittedUpTo, index + 1); i < end; i++) {
+            if (isIndexRequest(items[i])) {
+                submit(i);
+            }
+        }
+        submittedUpTo = Math.max(submittedUpTo, end);
+        final Object parsedDocument = parsedDocuments.getAndSet(index, TAKEN);
+        return parsedDocument instanceof IndexShard.PreParsedDocument ? (IndexShard.PreParsedDocument) parsedDocument : null;
+    }
+
+    private void submit(int index) {
+        executor.execute(new AbstractRunnable() {
+            @Override
+            protected void doRun() {
+                if (parsedDocuments.compareAndSet(index, null, PARSING)) {
+                    final IndexRequest request = (IndexRequest) items[index].request();
+                    final IndexShard.PreParsedDocument parsedDocument = primary.preParseDocument(new SourceToParse(
+                        request.index(), request.id(), request.source(), request.getContentType(), request.routing()));
+                    // the item may have been executed in the meantime, in which case it parsed the document itself
+                    parsedDocuments.compareAndSet(index, PARSING, parsedDocument);
+                }
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                // the item parses its document again when it is executed and reports the failure
+                logger.trace(() -> new ParameterizedMessage("{} failed to parse item [{}] ahead", primary.shardId(), index), e);
+            }
+
+            @Override
+            public void onRejection(Exception e) {
+                // the item parses its document when it is executed
+            }
+        });
+    }
+
+    private static boolean isIndexRequest(BulkItemRequest item) {
+        final DocWriteRequest<?> request = item.request();
+        return item.getPrimaryResponse() == null
+            && (request.opType() == DocWriteRequest.OpType.INDEX || request.opType() == DocWriteRequest.OpType.CREATE);
+    }
+}
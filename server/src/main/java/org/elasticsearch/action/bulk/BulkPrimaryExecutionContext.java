@@ -108,6 +108,11 @@ class BulkPrimaryExecutionContext {
         assert assertInvariants(ItemProcessingState.INITIAL);
     }
 
+    /** returns the index of the current item in the items of the request */
+    public int getCurrentIndex() {
+        return currentIndex;
+    }
+
     /** gets the current, untranslated item request */
     public DocWriteRequest<?> getCurrent() {
         return getCurrentItem().request();
@@ -46,11 +46,14 @@ import org.elasticsearch.cluster.action.shard.ShardStateAction;
 import org.elasticsearch.cluster.metadata.IndexMetadata;
 import org.elasticsearch.cluster.metadata.MappingMetadata;
 import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.compress.CompressedXContent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.ToXContent;
@@ -86,8 +89,16 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
 
     private static final Logger logger = LogManager.getLogger(TransportShardBulkAction.class);
 
+    /**
+     * The number of index requests of a shard bulk request whose documents are parsed on the bulk parse pool ahead of their
+     * execution on the primary, see {@link BulkParseAhead}. Parsing ahead is disabled if set to 0.
+     */
+    public static final Setting<Integer> PARSE_AHEAD_SETTING =
+        Setting.intSetting("indices.bulk.parse_ahead", 0, 0, Property.Dynamic, Property.NodeScope);
+
     private final UpdateHelper updateHelper;
     private final MappingUpdatedAction mappingUpdatedAction;
+    private volatile int parseAhead;
 
     @Inject
     public TransportShardBulkAction(Settings settings, TransportService transportService, ClusterService clusterService,
@@ -98,6 +109,8 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
             BulkShardRequest::new, BulkShardRequest::new, ThreadPool.Names.WRITE, false, writeMemoryLimits);
         this.updateHelper = updateHelper;
         this.mappingUpdatedAction = mappingUpdatedAction;
+        this.parseAhead = PARSE_AHEAD_SETTING.get(settings);
+        clusterService.getClusterSettings().addSettingsUpdateConsumer(PARSE_AHEAD_SETTING, v -> parseAhead = v);
     }
 
     @Override
@@ -135,7 +148,7 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
                 public void onTimeout(TimeValue timeout) {
                     mappingUpdateListener.onFailure(new MapperException("timed out while waiting for a dynamic mapping update"));
                 }
-            }), listener, threadPool
+            }), listener, threadPool, parseAhead
         );
     }
 
@@ -153,19 +166,41 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
         Consumer<ActionListener<Void>> waitForMappingUpdate,
         ActionListener<PrimaryResult<BulkShardRequest, BulkShardResponse>> listener,
         ThreadPool threadPool) {
+        performOnPrimary(request, primary, updateHelper, nowInMillisSupplier, mappingUpdater, waitForMappingUpdate, listener, threadPool,
+            0);
+    }
+
+    /**
+     * Same as {@link #performOnPrimary(BulkShardRequest, IndexShard, UpdateHelper, LongSupplier, MappingUpdatePerformer, Consumer,
+     * ActionListener, ThreadPool)} but parses the documents of up to {@code parseAhead} index requests following the executed item on
+     * the {@link ThreadPool.Names#BULK_PARSE} thread pool.
+     */
+    public static void performOnPrimary(
+        BulkShardRequest request,
+        IndexShard primary,
+        UpdateHelper updateHelper,
+        LongSupplier nowInMillisSupplier,
+        MappingUpdatePerformer mappingUpdater,
+        Consumer<ActionListener<Void>> waitForMappingUpdate,
+        ActionListener<PrimaryResult<BulkShardRequest, BulkShardResponse>> listener,
+        ThreadPool threadPool,
+        int parseAhead) {
         new ActionRunnable<>(listener) {
 
             private final Executor executor = threadPool.executor(ThreadPool.Names.WRITE);
 
             private final BulkPrimaryExecutionContext context = new BulkPrimaryExecutionContext(request, primary);
 
+            private final BulkParseAhead bulkParseAhead = parseAhead > 0 && request.items().length > 1
+                ? new BulkParseAhead(primary, request.items(), threadPool.executor(ThreadPool.Names.BULK_PARSE), parseAhead) : null;
+
             final long startBulkTime = System.nanoTime();
 
             @Override
             protected void doRun() throws Exception {
                 while (context.hasMoreOperationsToExecute()) {
                     if (executeBulkItemRequest(context, updateHelper, nowInMillisSupplier, mappingUpdater, waitForMappingUpdate,
-                        ActionListener.wrap(v -> executor.execute(this), this::onRejection)) == false) {
+                        ActionListener.wrap(v -> executor.execute(this), this::onRejection), bulkParseAhead) == false) {
                         // We are waiting for a mapping update on another thread, that will invoke this action again once its done
                         // so we just break out here.
                         return;
@@ -221,7 +256,18 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
     static boolean executeBulkItemRequest(BulkPrimaryExecutionContext context, UpdateHelper updateHelper, LongSupplier nowInMillisSupplier,
                                        MappingUpdatePerformer mappingUpdater, Consumer<ActionListener<Void>> waitForMappingUpdate,
                                        ActionListener<Void> itemDoneListener) throws Exception {
+        return executeBulkItemRequest(context, updateHelper, nowInMillisSupplier, mappingUpdater, waitForMappingUpdate, itemDoneListener,
+            null);
+    }
+
+    private static boolean executeBulkItemRequest(BulkPrimaryExecutionContext context, UpdateHelper updateHelper,
+                                                  LongSupplier nowInMillisSupplier, MappingUpdatePerformer mappingUpdater,
+                                                  Consumer<ActionListener<Void>> waitForMappingUpdate,
+                                                  ActionListener<Void> itemDoneListener,
+                                                  @Nullable BulkParseAhead bulkParseAhead) throws Exception {
         final DocWriteRequest.OpType opType = context.getCurrent().opType();
+        final IndexShard.PreParsedDocument preParsedDocument =
+            bulkParseAhead == null ? null : bulkParseAhead.take(context.getCurrentIndex());
 
         final UpdateHelper.Result updateResult;
         if (opType == DocWriteRequest.OpType.UPDATE) {
@@ -275,9 +321,16 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
                 request.ifSeqNo(), request.ifPrimaryTerm());
         } else {
             final IndexRequest request = context.getRequestToExecute();
-            result = primary.applyIndexOperationOnPrimary(version, request.versionType(), new SourceToParse(
-                    request.index(), request.id(), request.source(), request.getContentType(), request.routing()),
+            final SourceToParse sourceToParse = new SourceToParse(
+                request.index(), request.id(), request.source(), request.getContentType(), request.routing());
+            if (preParsedDocument != null && request == context.getCurrent()) {
+                result = primary.applyIndexOperationOnPrimary(version, request.versionType(), sourceToParse,
+                    request.ifSeqNo(), request.ifPrimaryTerm(), request.getAutoGeneratedTimestamp(), request.isRetry(),
+                    preParsedDocument);
+            } else {
+                result = primary.applyIndexOperationOnPrimary(version, request.versionType(), sourceToParse,
                     request.ifSeqNo(), request.ifPrimaryTerm(), request.getAutoGeneratedTimestamp(), request.isRetry());
+            }
         }
         if (result.getResultType() == Engine.Result.Type.MAPPING_UPDATE_REQUIRED) {
 
@@ -54,7 +54,9 @@ final class DfsQueryPhase extends SearchPhase {
                   SearchPhaseContext context) {
         super("dfs_query");
         this.progressListener = context.getTask().getProgressListener();
-        this.queryResult = searchPhaseController.newSearchPhaseResults(progressListener, context.getRequest(), context.getNumShards());
+        this.queryResult = searchPhaseController.newSearchPhaseResults(context::execute, progressListener, context.getRequest(),
+            context.getNumShards());
+        context.addReleasable(queryResult);
         this.searchPhaseController = searchPhaseController;
         this.dfsSearchResults = dfsSearchResults;
         this.nextPhaseFactory = nextPhaseFactory;
@@ -36,10 +36,16 @@ import org.apache.lucene.search.TopFieldDocs;
 import org.apache.lucene.search.TotalHits;
 import org.apache.lucene.search.TotalHits.Relation;
 import org.apache.lucene.search.grouping.CollapseTopFieldDocs;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
 import org.elasticsearch.common.collect.HppcMaps;
 import org.elasticsearch.common.io.stream.DelayableWriteable;
 import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
 import org.elasticsearch.common.lucene.search.TopDocsAndMaxScore;
+import org.elasticsearch.common.util.concurrent.AbstractRunnable;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
@@ -62,6 +68,7 @@ import org.elasticsearch.search.suggest.Suggest;
 import org.elasticsearch.search.suggest.Suggest.Suggestion;
 import org.elasticsearch.search.suggest.completion.CompletionSuggestion;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -69,6 +76,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 import java.util.function.IntFunction;
 import java.util.stream.Collectors;
@@ -79,11 +87,22 @@ public final class SearchPhaseController {
 
     private final NamedWriteableRegistry namedWriteableRegistry;
     private final Function<SearchRequest, InternalAggregation.ReduceContextBuilder> requestToAggReduceContextBuilder;
+    private final CircuitBreaker circuitBreaker;
 
     public SearchPhaseController(NamedWriteableRegistry namedWriteableRegistry,
             Function<SearchRequest, InternalAggregation.ReduceContextBuilder> requestToAggReduceContextBuilder) {
+        this(namedWriteableRegistry, requestToAggReduceContextBuilder, new NoopCircuitBreaker(CircuitBreaker.REQUEST));
+    }
+
+    /**
+     * @param circuitBreaker the circuit breaker that accounts for the aggregations that are buffered by incremental reduces
+     */
+    public SearchPhaseController(NamedWriteableRegistry namedWriteableRegistry,
+            Function<SearchRequest, InternalAggregation.ReduceContextBuilder> requestToAggReduceContextBuilder,
+            CircuitBreaker circuitBreaker) {
         this.namedWriteableRegistry = namedWriteableRegistry;
         this.requestToAggReduceContextBuilder = requestToAggReduceContextBuilder;
+        this.circuitBreaker = circuitBreaker;
     }
 
     public AggregatedDfs aggregateDfs(Collection<DfsSearchResult> results) {
@@ -621,10 +640,15 @@ public final class SearchPhaseController {
      * A {@link ArraySearchPhaseResults} implementation
      * that incrementally reduces aggregation results as shard results are consumed.
      * This implementation can be configured to batch up a certain amount of results and only reduce them
-     * iff the buffer is exhausted.
+     * iff the buffer is exhausted. Exhausted buffers are merged into a single partial result on the provided
+     * executor, one batch at a time, so that shard responses can still be consumed while a partial reduce is running.
+     * The memory held by the buffered and partially reduced aggregations is accounted against the provided circuit
+     * breaker and released once the final reduce completed or the consumer is closed.
      */
     static final class QueryPhaseResultConsumer extends ArraySearchPhaseResults<SearchPhaseResult> {
         private final NamedWriteableRegistry namedWriteableRegistry;
+        private final Executor executor;
+        private final CircuitBreaker circuitBreaker;
         private final SearchShardTarget[] processedShards;
         private final DelayableWriteable.Serialized<InternalAggregations>[] aggsBuffer;
         private final TopDocs[] topDocsBuffer;
@@ -639,20 +663,34 @@ public final class SearchPhaseController {
         private final int topNSize;
         private final InternalAggregation.ReduceContextBuilder aggReduceContextBuilder;
         private final boolean performFinalReduce;
-        private long aggsCurrentBufferSize;
-        private long aggsMaxBufferSize;
+
+        // exhausted buffers that wait to be merged into the partial result
+        private final ArrayDeque<MergeTask> pendingMerges = new ArrayDeque<>();
+        private DelayableWriteable.Serialized<InternalAggregations> reducedAggs;
+        private TopDocs reducedTopDocs;
+        private long reducedAggsBytes;
+        private long bufferedAggsBytes;
+        private long circuitBreakerBytes;
+        private long maxCircuitBreakerBytes;
+        private boolean mergeScheduled;
+        private boolean mergeRunning;
+        private boolean closed;
+        private boolean released;
+        private RuntimeException failure;
 
         /**
          * Creates a new {@link QueryPhaseResultConsumer}
          * @param progressListener a progress listener to be notified when a successful response is received
          *                         and when a partial or final reduce has completed.
          * @param controller a controller instance to reduce the query response objects
+         * @param executor the executor to run the partial reduces on
+         * @param circuitBreaker the circuit breaker to account the buffered aggregations against
          * @param expectedResultSize the expected number of query results. Corresponds to the number of shards queried
          * @param bufferSize the size of the reduce buffer. if the buffer size is smaller than the number of expected results
          *                   the buffer is used to incrementally reduce aggregation results before all shards responded.
          */
         private QueryPhaseResultConsumer(NamedWriteableRegistry namedWriteableRegistry, SearchProgressListener progressListener,
-                                         SearchPhaseController controller,
+                                         SearchPhaseController controller, Executor executor, CircuitBreaker circuitBreaker,
                                          int expectedResultSize, int bufferSize, boolean hasTopDocs, boolean hasAggs,
                                          int trackTotalHitsUpTo, int topNSize,
                                          InternalAggregation.ReduceContextBuilder aggReduceContextBuilder,
@@ -669,6 +707,8 @@ public final class SearchPhaseController {
                 throw new IllegalArgumentException("either aggs or top docs must be present");
             }
             this.controller = controller;
+            this.executor = executor;
+            this.circuitBreaker = circuitBreaker;
             this.progressListener = progressListener;
             this.processedShards = new SearchShardTarget[expectedResultSize];
             // no need to buffer anything if we have less expected results. in this case we don't consume any results ahead of time.
@@ -689,94 +729,307 @@ public final class SearchPhaseController {
         public void consumeResult(SearchPhaseResult result) {
             super.consumeResult(result);
             QuerySearchResult queryResult = result.queryResult();
-            consumeInternal(queryResult);
+            if (consumeInternal(queryResult)) {
+                executor.execute(new AbstractRunnable() {
+                    @Override
+                    protected void doRun() {
+                        runPendingMerges();
+                    }
+
+                    @Override
+                    public void onRejection(Exception e) {
+                        // the pending batches are picked up by the next scheduled merge or by the final reduce
+                        synchronized (QueryPhaseResultConsumer.this) {
+                            mergeScheduled = false;
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        onMergeFailure(e);
+                    }
+                });
+            }
             progressListener.notifyQueryResult(queryResult.getShardIndex());
         }
 
-        private synchronized void consumeInternal(QuerySearchResult querySearchResult) {
+        /**
+         * Buffers the given result and returns <code>true</code> iff the caller must schedule a merge of the exhausted buffers.
+         */
+        private synchronized boolean consumeInternal(QuerySearchResult querySearchResult) {
+            boolean scheduleMerge = false;
             if (querySearchResult.isNull() == false) {
-                if (index == bufferSize) {
-                    DelayableWriteable.Serialized<InternalAggregations> reducedAggs = null;
-                    if (hasAggs) {
-                        List<InternalAggregations> aggs = new ArrayList<>(aggsBuffer.length);
-                        for (int i = 0; i < aggsBuffer.length; i++) {
-                            aggs.add(aggsBuffer[i].expand());
-                            aggsBuffer[i] = null; // null the buffer so it can be GCed now.
+                DelayableWriteable.Serialized<InternalAggregations> aggs = null;
+                if (hasAggs) {
+                    aggs = querySearchResult.consumeAggs().asSerialized(InternalAggregations::readFrom, namedWriteableRegistry);
+                }
+                TopDocs topDocs = null;
+                if (hasTopDocs) {
+                    final TopDocsAndMaxScore topDocsAndMaxScore = querySearchResult.consumeTopDocs(); // can't be null
+                    topDocsStats.add(topDocsAndMaxScore, querySearchResult.searchTimedOut(), querySearchResult.terminatedEarly());
+                    setShardIndex(topDocsAndMaxScore.topDocs, querySearchResult.getShardIndex());
+                    topDocs = topDocsAndMaxScore.topDocs;
+                }
+                // once the consumer failed or was closed there is no point in holding on to the shard results
+                if (failure == null && closed == false) {
+                    try {
+                        if (hasAggs) {
+                            addCircuitBreakerBytes(aggs.ramBytesUsed(), true);
                         }
-                        InternalAggregations reduced =
-                                InternalAggregations.topLevelReduce(aggs, aggReduceContextBuilder.forPartialReduction());
-                        reducedAggs = aggsBuffer[0] = DelayableWriteable.referencing(reduced)
-                                .asSerialized(InternalAggregations::readFrom, namedWriteableRegistry);
-                        long previousBufferSize = aggsCurrentBufferSize;
-                        aggsMaxBufferSize = Math.max(aggsMaxBufferSize, aggsCurrentBufferSize);
-                        aggsCurrentBufferSize = aggsBuffer[0].ramBytesUsed();
-                        logger.trace("aggs partial reduction [{}->{}] max [{}]",
-                                previousBufferSize, aggsCurrentBufferSize, aggsMaxBufferSize);
+                        if (index == bufferSize) {
+                            pendingMerges.add(new MergeTask(SearchProgressListener.buildSearchShards(processedShards),
+                                topDocsStats.getTotalHits(), Arrays.asList(aggsBuffer.clone()), bufferedAggsBytes,
+                                Arrays.asList(topDocsBuffer.clone())));
+                            Arrays.fill(aggsBuffer, null); // null the buffer so it can be GCed once the batch is merged.
+                            Arrays.fill(topDocsBuffer, null);
+                            bufferedAggsBytes = 0;
+                            index = 0;
+                            scheduleMerge = mergeScheduled == false;
+                            mergeScheduled = true;
+                        }
+                        final int i = index++;
+                        if (hasAggs) {
+                            aggsBuffer[i] = aggs;
+                            bufferedAggsBytes += aggs.ramBytesUsed();
+                        }
+                        if (hasTopDocs) {
+                            topDocsBuffer[i] = topDocs;
+                        }
+                    } catch (CircuitBreakingException e) {
+                        onMergeFailure(e);
+                        scheduleMerge = false;
                     }
-                    if (hasTopDocs) {
-                        TopDocs reducedTopDocs = mergeTopDocs(Arrays.asList(topDocsBuffer),
-                            // we have to merge here in the same way we collect on a shard
-                            topNSize, 0);
-                        Arrays.fill(topDocsBuffer, null);
-                        topDocsBuffer[0] = reducedTopDocs;
+                }
+            }
+            processedShards[querySearchResult.getShardIndex()] = querySearchResult.getSearchShardTarget();
+            return scheduleMerge;
+        }
+
+        /**
+         * Merges the pending batches into the partial result until no more batches are pending.
+         * Only a single thread runs this method at a time.
+         */
+        private void runPendingMerges() {
+            while (true) {
+                final MergeTask task;
+                final DelayableWriteable.Serialized<InternalAggregations> previousAggs;
+                final long previousAggsBytes;
+                final TopDocs previousTopDocs;
+                synchronized (this) {
+                    if (closed || failure != null || pendingMerges.isEmpty()) {
+                        mergeScheduled = false;
+                        return;
                     }
-                    numReducePhases++;
-                    index = 1;
-                    if (hasAggs || hasTopDocs) {
-                        progressListener.notifyPartialReduce(SearchProgressListener.buildSearchShards(processedShards),
-                            topDocsStats.getTotalHits(), reducedAggs, numReducePhases);
+                    task = pendingMerges.poll();
+                    previousAggs = reducedAggs;
+                    previousAggsBytes = reducedAggsBytes;
+                    previousTopDocs = reducedTopDocs;
+                    mergeRunning = true;
+                }
+                try {
+                    merge(task, previousAggs, previousAggsBytes, previousTopDocs);
+                } catch (Exception e) {
+                    onMergeFailure(e);
+                } finally {
+                    synchronized (this) {
+                        mergeRunning = false;
+                        notifyAll();
                     }
                 }
-                final int i = index++;
+            }
+        }
+
+        private void merge(MergeTask task, DelayableWriteable.Serialized<InternalAggregations> previousAggs, long previousAggsBytes,
+                           TopDocs previousTopDocs) {
+            // expanding the serialized aggregations needs at least as much memory as their serialized form
+            final long estimatedBytes = previousAggsBytes + task.aggsBytes;
+            DelayableWriteable.Serialized<InternalAggregations> newAggs = null;
+            long newAggsBytes = 0;
+            if (hasAggs) {
+                addCircuitBreakerBytes(estimatedBytes, true);
+                List<InternalAggregations> aggs = new ArrayList<>(task.aggs.size() + 1);
+                if (previousAggs != null) {
+                    aggs.add(previousAggs.expand());
+                }
+                for (DelayableWriteable.Serialized<InternalAggregations> agg : task.aggs) {
+                    aggs.add(agg.expand());
+                }
+                InternalAggregations reduced = InternalAggregations.topLevelReduce(aggs, aggReduceContextBuilder.forPartialReduction());
+                newAggs = DelayableWriteable.referencing(reduced).asSerialized(InternalAggregations::readFrom, namedWriteableRegistry);
+                newAggsBytes = newAggs.ramBytesUsed();
+            }
+            TopDocs newTopDocs = null;
+            if (hasTopDocs) {
+                List<TopDocs> topDocs = new ArrayList<>(task.topDocs.size() + 1);
+                if (previousTopDocs != null) {
+                    topDocs.add(previousTopDocs);
+                }
+                topDocs.addAll(task.topDocs);
+                // we have to merge here in the same way we collect on a shard
+                newTopDocs = mergeTopDocs(topDocs, topNSize, 0);
+            }
+            final int reducePhase;
+            synchronized (this) {
                 if (hasAggs) {
-                    aggsBuffer[i] = querySearchResult.consumeAggs().asSerialized(InternalAggregations::readFrom, namedWriteableRegistry);
-                    aggsCurrentBufferSize += aggsBuffer[i].ramBytesUsed();
+                    // the merged batch and the previous partial result are replaced by the new partial result
+                    addCircuitBreakerBytes(newAggsBytes - estimatedBytes - previousAggsBytes - task.aggsBytes, false);
+                    logger.trace("aggs partial reduction [{}->{}] max [{}]",
+                        previousAggsBytes + task.aggsBytes, newAggsBytes, maxCircuitBreakerBytes);
                 }
-                if (hasTopDocs) {
-                    final TopDocsAndMaxScore topDocs = querySearchResult.consumeTopDocs(); // can't be null
-                    topDocsStats.add(topDocs, querySearchResult.searchTimedOut(), querySearchResult.terminatedEarly());
-                    setShardIndex(topDocs.topDocs, querySearchResult.getShardIndex());
-                    topDocsBuffer[i] = topDocs.topDocs;
+                if (failure != null) {
+                    return;
                 }
+                reducedAggs = newAggs;
+                reducedAggsBytes = newAggsBytes;
+                reducedTopDocs = newTopDocs;
+                reducePhase = ++numReducePhases;
             }
-            processedShards[querySearchResult.getShardIndex()] = querySearchResult.getSearchShardTarget();
+            progressListener.notifyPartialReduce(task.shards, task.totalHits, newAggs, reducePhase);
         }
 
-        private synchronized List<DelayableWriteable<InternalAggregations>> getRemainingAggs() {
-            return hasAggs ? Arrays.asList((DelayableWriteable<InternalAggregations>[]) aggsBuffer).subList(0, index) : null;
+        private synchronized void addCircuitBreakerBytes(long bytes, boolean maybeBreak) {
+            if (released) {
+                return;
+            }
+            if (maybeBreak) {
+                circuitBreaker.addEstimateBytesAndMaybeBreak(bytes, "<reduce_aggs>");
+            } else {
+                circuitBreaker.addWithoutBreaking(bytes);
+            }
+            circuitBreakerBytes += bytes;
+            maxCircuitBreakerBytes = Math.max(maxCircuitBreakerBytes, circuitBreakerBytes);
         }
 
-        private synchronized List<TopDocs> getRemainingTopDocs() {
-            return hasTopDocs ? Arrays.asList(topDocsBuffer).subList(0, index) : null;
+        private synchronized void onMergeFailure(Exception exc) {
+            if (failure == null) {
+                failure = ExceptionsHelper.convertToRuntime(exc);
+            } else {
+                failure.addSuppressed(exc);
+            }
+            // the search will fail on the final reduce, drop the buffered results to free memory early
+            pendingMerges.clear();
+            Arrays.fill(aggsBuffer, null);
+            Arrays.fill(topDocsBuffer, null);
+            index = 0;
+            reducedAggs = null;
+            reducedTopDocs = null;
         }
 
         @Override
         public ReducedQueryPhase reduce() {
-            aggsMaxBufferSize = Math.max(aggsMaxBufferSize, aggsCurrentBufferSize);
-            logger.trace("aggs final reduction [{}] max [{}]", aggsCurrentBufferSize, aggsMaxBufferSize);
-            ReducedQueryPhase reducePhase = controller.reducedQueryPhase(results.asList(), getRemainingAggs(), getRemainingTopDocs(),
+            try {
+                final List<DelayableWriteable<InternalAggregations>> aggs;
+                final List<TopDocs> topDocs;
+                final int numReducePhases;
+                synchronized (this) {
+                    // batches that are pending but not picked up by a merge yet are reduced below
+                    closed = true;
+                    while (mergeRunning) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new IllegalStateException("interrupted while waiting for the partial reduce to complete", e);
+                        }
+                    }
+                    if (failure != null) {
+                        throw failure;
+                    }
+                    aggs = hasAggs ? new ArrayList<>() : null;
+                    topDocs = hasTopDocs ? new ArrayList<>() : null;
+                    if (hasAggs) {
+                        if (reducedAggs != null) {
+                            aggs.add(reducedAggs);
+                        }
+                        for (MergeTask task : pendingMerges) {
+                            aggs.addAll(task.aggs);
+                        }
+                        aggs.addAll(Arrays.asList(aggsBuffer).subList(0, index));
+                    }
+                    if (hasTopDocs) {
+                        if (reducedTopDocs != null) {
+                            topDocs.add(reducedTopDocs);
+                        }
+                        for (MergeTask task : pendingMerges) {
+                            topDocs.addAll(task.topDocs);
+                        }
+                        topDocs.addAll(Arrays.asList(topDocsBuffer).subList(0, index));
+                    }
+                    numReducePhases = this.numReducePhases;
+                    logger.trace("aggs final reduction [{}] max [{}]", circuitBreakerBytes, maxCircuitBreakerBytes);
+                }
+                ReducedQueryPhase reducePhase = controller.reducedQueryPhase(results.asList(), aggs, topDocs,
                     topDocsStats, numReducePhases, false, aggReduceContextBuilder, performFinalReduce);
-            progressListener.notifyFinalReduce(SearchProgressListener.buildSearchShards(results.asList()),
-                reducePhase.totalHits, reducePhase.aggregations, reducePhase.numReducePhases);
-            return reducePhase;
+                progressListener.notifyFinalReduce(SearchProgressListener.buildSearchShards(results.asList()),
+                    reducePhase.totalHits, reducePhase.aggregations, reducePhase.numReducePhases);
+                return reducePhase;
+            } finally {
+                close();
+            }
+        }
+
+        @Override
+        public synchronized void close() {
+            closed = true;
+            if (released == false) {
+                released = true;
+                circuitBreaker.addWithoutBreaking(-circuitBreakerBytes);
+                circuitBreakerBytes = 0;
+            }
         }
 
         /**
          * Returns the number of buffered results
          */
-        int getNumBuffered() {
+        synchronized int getNumBuffered() {
             return index;
         }
 
-        int getNumReducePhases() { return numReducePhases; }
+        synchronized int getNumReducePhases() { return numReducePhases; }
+
+        /**
+         * Returns the number of bytes that are currently accounted against the circuit breaker
+         */
+        synchronized long getCircuitBreakerBytes() {
+            return circuitBreakerBytes;
+        }
+
+        private static final class MergeTask {
+            private final List<SearchShard> shards;
+            private final TotalHits totalHits;
+            private final List<DelayableWriteable.Serialized<InternalAggregations>> aggs;
+            private final long aggsBytes;
+            private final List<TopDocs> topDocs;
+
+            private MergeTask(List<SearchShard> shards, TotalHits totalHits, List<DelayableWriteable.Serialized<InternalAggregations>> aggs,
+                              long aggsBytes, List<TopDocs> topDocs) {
+                this.shards = shards;
+                this.totalHits = totalHits;
+                this.aggs = aggs;
+                this.aggsBytes = aggsBytes;
+                this.topDocs = topDocs;
+            }
+        }
     }
 
     /**
-     * Returns a new ArraySearchPhaseResults instance. This might return an instance that reduces search responses incrementally.
+     * Returns a new ArraySearchPhaseResults instance that runs partial reduces on the calling thread.
+     * @see #newSearchPhaseResults(Executor, SearchProgressListener, SearchRequest, int)
      */
     ArraySearchPhaseResults<SearchPhaseResult> newSearchPhaseResults(SearchProgressListener listener,
                                                                      SearchRequest request,
                                                                      int numShards) {
+        return newSearchPhaseResults(EsExecutors.newDirectExecutorService(), listener, request, numShards);
+    }
+
+    /**
+     * Returns a new ArraySearchPhaseResults instance. This might return an instance that reduces search responses incrementally,
+     * in which case the partial reduces are executed on the provided executor.
+     */
+    ArraySearchPhaseResults<SearchPhaseResult> newSearchPhaseResults(Executor executor,
+                                                                     SearchProgressListener listener,
+                                                                     SearchRequest request,
+                                                                     int numShards) {
         SearchSourceBuilder source = request.source();
         boolean isScrollRequest = request.scroll() != null;
         final boolean hasAggs = source != null && source.aggregations() != null;
@@ -788,8 +1041,9 @@ public final class SearchPhaseController {
             if (request.getBatchedReduceSize() < numShards) {
                 int topNSize = getTopDocsSize(request);
                 // only use this if there are aggs and if there are more shards than we should reduce at once
-                return new QueryPhaseResultConsumer(namedWriteableRegistry, listener, this, numShards, request.getBatchedReduceSize(),
-                    hasTopDocs, hasAggs, trackTotalHitsUpTo, topNSize, aggReduceContextBuilder, request.isFinalReduce());
+                return new QueryPhaseResultConsumer(namedWriteableRegistry, listener, this, executor, circuitBreaker, numShards,
+                    request.getBatchedReduceSize(), hasTopDocs, hasAggs, trackTotalHitsUpTo, topNSize, aggReduceContextBuilder,
+                    request.isFinalReduce());
             }
         }
         return new ArraySearchPhaseResults<SearchPhaseResult>(numShards) {
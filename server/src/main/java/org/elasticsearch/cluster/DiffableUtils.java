@@ -278,6 +278,10 @@ public final class DiffableUtils {
 
         @Override
         public ImmutableOpenMap<K, T> apply(ImmutableOpenMap<K, T> map) {
+            if (isEmpty()) {
+                // the map is immutable so it can be shared rather than copied
+                return map;
+            }
             ImmutableOpenMap.Builder<K, T> builder = ImmutableOpenMap.builder();
             builder.putAll(map);
 
@@ -335,6 +339,10 @@ public final class DiffableUtils {
 
         @Override
         public ImmutableOpenIntMap<T> apply(ImmutableOpenIntMap<T> map) {
+            if (isEmpty()) {
+                // the map is immutable so it can be shared rather than copied
+                return map;
+            }
             ImmutableOpenIntMap.Builder<T> builder = ImmutableOpenIntMap.builder();
             builder.putAll(map);
 
@@ -441,6 +449,13 @@ public final class DiffableUtils {
             return upserts;
         }
 
+        /**
+         * Whether applying this diff leaves the map unchanged.
+         */
+        public boolean isEmpty() {
+            return deletes.isEmpty() && diffs.isEmpty() && upserts.isEmpty();
+        }
+
         @Override
         public void writeTo(StreamOutput out) throws IOException {
             out.writeVInt(deletes.size());
@@ -900,6 +900,17 @@ public class Metadata implements Iterable<IndexMetadata>, Diffable<Metadata>, To
 
         @Override
         public Metadata apply(Metadata part) {
+            final ImmutableOpenMap<String, IndexMetadata> updatedIndices = indices.apply(part.indices);
+            final ImmutableOpenMap<String, Custom> updatedCustoms = customs.apply(part.customs);
+            if (updatedIndices == part.indices
+                && updatedCustoms.get(DataStreamMetadata.TYPE) == part.customs.get(DataStreamMetadata.TYPE)) {
+                // neither the indices nor the data streams changed, so the concrete indices and the lookup built from
+                // them are still valid and do not need to be rebuilt
+                return new Metadata(clusterUUID, clusterUUIDCommitted, version, coordinationMetadata, transientSettings,
+                    persistentSettings, hashesOfConsistentSettings.apply(part.hashesOfConsistentSettings), updatedIndices,
+                    templates.apply(part.templates), updatedCustoms, part.allIndices, part.visibleIndices, part.allOpenIndices,
+                    part.visibleOpenIndices, part.allClosedIndices, part.visibleClosedIndices, part.indicesLookup);
+            }
             Builder builder = builder();
             builder.clusterUUID(clusterUUID);
             builder.clusterUUIDCommitted(clusterUUIDCommitted);
@@ -908,9 +919,9 @@ public class Metadata implements Iterable<IndexMetadata>, Diffable<Metadata>, To
             builder.transientSettings(transientSettings);
             builder.persistentSettings(persistentSettings);
             builder.hashesOfConsistentSettings(hashesOfConsistentSettings.apply(part.hashesOfConsistentSettings));
-            builder.indices(indices.apply(part.indices));
+            builder.indices(updatedIndices);
             builder.templates(templates.apply(part.templates));
-            builder.customs(customs.apply(part.customs));
+            builder.customs(updatedCustoms);
             return builder.build();
         }
     }
@@ -225,8 +225,12 @@ public class BalancedShardsAllocator implements ShardsAllocator {
         }
 
         float weight(Balancer balancer, ModelNode node, String index) {
-            final float weightShard = node.numShards() - balancer.avgShardsPerNode();
-            final float weightIndex = node.numShards(index) - balancer.avgShardsPerNode(index);
+            return weight(balancer.avgShardsPerNode(), balancer.avgShardsPerNode(index), node, index);
+        }
+
+        float weight(float avgShardsPerNode, float avgShardsPerNodeOfIndex, ModelNode node, String index) {
+            final float weightShard = node.numShards() - avgShardsPerNode;
+            final float weightIndex = node.numShards(index) - avgShardsPerNodeOfIndex;
             return theta0 * weightShard + theta1 * weightIndex;
         }
     }
@@ -536,13 +540,12 @@ public class BalancedShardsAllocator implements ShardsAllocator {
                                 maxNode.getNodeId(), minNode.getNodeId());
                         } else if (tryRelocateShard(minNode, maxNode, index)) {
                             /*
-                             * TODO we could be a bit smarter here, we don't need to fully sort necessarily
-                             * we could just find the place to insert linearly but the win might be minor
-                             * compared to the added complexity
+                             * only the weights of the source and the target node changed, so all other nodes
+                             * are still in order and the two updated ones can be moved to their new place linearly
                              */
                             weights[lowIdx] = sorter.weight(modelNodes[lowIdx]);
                             weights[highIdx] = sorter.weight(modelNodes[highIdx]);
-                            sorter.sort(0, relevantNodes);
+                            sorter.resort(0, relevantNodes);
                             lowIdx = 0;
                             highIdx = relevantNodes - 1;
                             continue;
@@ -585,8 +588,7 @@ public class BalancedShardsAllocator implements ShardsAllocator {
             final String[] indices = allocation.routingTable().indicesRouting().keys().toArray(String.class);
             final float[] deltas = new float[indices.length];
             for (int i = 0; i < deltas.length; i++) {
-                sorter.reset(indices[i]);
-                deltas[i] = sorter.delta();
+                deltas[i] = sorter.delta(indices[i]);
             }
             new IntroSorter() {
 
@@ -1169,6 +1171,7 @@ public class BalancedShardsAllocator implements ShardsAllocator {
         final float[] weights;
         private final WeightFunction function;
         private String index;
+        private float avgShardsPerNodeOfIndex;
         private final Balancer balancer;
         private float pivotWeight;
 
@@ -1184,7 +1187,7 @@ public class BalancedShardsAllocator implements ShardsAllocator {
          * nodes by weight, with minimal weight first.
          */
         public void reset(String index, int from, int to) {
-            this.index = index;
+            setIndex(index);
             for (int i = from; i < to; i++) {
                 weights[i] = weight(modelNodes[i]);
             }
@@ -1195,8 +1198,26 @@ public class BalancedShardsAllocator implements ShardsAllocator {
             reset(index, 0, modelNodes.length);
         }
 
+        private void setIndex(String index) {
+            this.index = index;
+            this.avgShardsPerNodeOfIndex = balancer.avgShardsPerNode(index);
+        }
+
         public float weight(ModelNode node) {
-            return function.weight(balancer, node, index);
+            return function.weight(balancer.avgShardsPerNode(), avgShardsPerNodeOfIndex, node, index);
+        }
+
+        /**
+         * Restores the order of the nodes between {@code from} and {@code to} after the weights of a few of them have been
+         * updated. This is a stable insertion sort, which runs in linear time when only a constant number of nodes are out
+         * of place.
+         */
+        public void resort(int from, int to) {
+            for (int i = from + 1; i < to; i++) {
+                for (int j = i; j > from && compare(j - 1, j) > 0; j--) {
+                    swap(j - 1, j);
+                }
+            }
         }
 
         @Override
@@ -1224,8 +1245,21 @@ public class BalancedShardsAllocator implements ShardsAllocator {
             return Float.compare(pivotWeight, weights[j]);
         }
 
-        public float delta() {
-            return weights[weights.length - 1] - weights[0];
+        /**
+         * Returns the delta between the highest and the lowest weight of all nodes for the given index. Unlike
+         * {@link #reset(String)} this does not sort the nodes, so the sorter must be reset before its nodes are used again.
+         */
+        public float delta(String index) {
+            setIndex(index);
+            float min = Float.POSITIVE_INFINITY;
+            float max = Float.NEGATIVE_INFINITY;
+            for (int i = 0; i < modelNodes.length; i++) {
+                final float weight = weight(modelNodes[i]);
+                weights[i] = weight;
+                min = Math.min(min, weight);
+                max = Math.max(max, weight);
+            }
+            return max - min;
         }
     }
 }
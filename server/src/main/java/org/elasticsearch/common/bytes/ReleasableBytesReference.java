@@ -21,11 +21,13 @@ package org.elasticsearch.common.bytes;
 
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefIterator;
+import org.elasticsearch.common.io.stream.FilterStreamInput;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.util.concurrent.AbstractRefCounted;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.OutputStream;
 
@@ -104,7 +106,7 @@ public final class ReleasableBytesReference implements Releasable, BytesReferenc
 
     @Override
     public StreamInput streamInput() throws IOException {
-        return delegate.streamInput();
+        return new RetainingStreamInput(delegate.streamInput());
     }
 
     @Override
@@ -152,6 +154,49 @@ public final class ReleasableBytesReference implements Releasable, BytesReferenc
         return delegate.hashCode();
     }
 
+    /**
+     * A stream over the bytes of this reference that hands out retained slices instead of copies from
+     * {@link StreamInput#readReleasableBytesReference(int)}, so that callers can hold on to parts of the content without copying them.
+     */
+    private final class RetainingStreamInput extends FilterStreamInput {
+
+        RetainingStreamInput(StreamInput in) {
+            super(in);
+        }
+
+        @Override
+        public ReleasableBytesReference readReleasableBytesReference(int len) throws IOException {
+            final int available = available();
+            if (len > available) {
+                throw new EOFException("tried to read: " + len + " bytes but only " + available + " remaining");
+            }
+            final int offset = length() - available;
+            final long skipped = delegate.skip(len);
+            assert skipped == len : "skipped [" + skipped + "] but expected [" + len + "]";
+            return retainedSlice(offset, len);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return delegate.read(b, off, len);
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            return delegate.skip(n);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return delegate.markSupported();
+        }
+
+        @Override
+        public void mark(int readLimit) {
+            delegate.mark(readLimit);
+        }
+    }
+
     private static final class RefCountedReleasable extends AbstractRefCounted {
 
         private final Releasable releasable;
@@ -22,13 +22,13 @@ package org.elasticsearch.common.cache;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.util.concurrent.ReleasableLock;
 
-import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Iterator;
-import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -46,20 +46,20 @@ import java.util.function.ToLongBiFunction;
  * accept reduced write performance in exchange for easy-to-understand code. Cache statistics for hits, misses and
  * evictions are exposed.
  * <p>
- * The design of the cache is relatively simple. The cache is segmented into 256 segments which are backed by HashMaps.
- * Each segment is protected by a re-entrant read/write lock. The read/write locks permit multiple concurrent readers
- * without contention, and the segments gives us write throughput without impacting readers (so readers are blocked only
- * if they are reading a segment that a writer is writing to).
+ * The design of the cache is relatively simple. The cache is segmented into 256 segments which are backed by
+ * ConcurrentHashMaps. Reads do not take any lock on the segment. Mutations of a segment are serialized by a re-entrant
+ * read/write lock, and the segments give us write throughput without impacting readers.
  * <p>
  * The LRU functionality is backed by a single doubly-linked list chaining the entries in order of insertion. This
- * LRU list is protected by a lock that serializes all writes to it. There are opportunities for improvements
- * here if write throughput is a concern.
- * <ol>
- * <li>LRU list mutations could be inserted into a blocking queue that a single thread is reading from
- * and applying to the LRU list.</li>
- * <li>Promotions could be deferred for entries that were "recently" promoted.</li>
- * <li>Locks on the list could be taken per node being modified instead of globally.</li>
- * </ol>
+ * LRU list is protected by a lock that serializes all writes to it. Readers never wait for this lock: if it is held
+ * by another thread, the promotion of the entry that was read is recorded in a buffer which is drained by the next
+ * thread that acquires the lock. Readers only wait for the lock once the buffer is full.
+ * <p>
+ * Weight-based evictions optionally use a frequency-based admission policy (TinyLFU): when inserting an entry requires
+ * evicting the least recently used entry, the new entry is rejected instead if it was accessed less frequently than
+ * the entry it would evict, as estimated by a {@link FrequencySketch}. This protects frequently used entries from
+ * being flushed by a scan of entries that are used only once. Entries whose keys are known to be stale, such as keys that
+ * can never be looked up again, are always evicted in favour of the new entry.
  * <p>
  * Evictions only occur after a mutation to the cache (meaning an entry promotion, a cache insertion, or a manual
  * invalidation) or an explicit call to {@link #refresh()}.
@@ -97,6 +97,12 @@ public class Cache<K, V> {
     private RemovalListener<K, V> removalListener = notification -> {
     };
 
+    // estimates of the access frequencies of keys, only set if evictions use frequency-based admission
+    private FrequencySketch frequencySketch;
+
+    // keys that will never be read again, which frequency-based admission always evicts in favour of new entries
+    private Predicate<K> staleKeys = k -> false;
+
     // use CacheBuilder to construct
     Cache() {
     }
@@ -144,6 +150,15 @@ public class Cache<K, V> {
         this.removalListener = removalListener;
     }
 
+    void setFrequencyAdmission(boolean frequencyAdmission) {
+        this.frequencySketch = frequencyAdmission ? new FrequencySketch(count) : null;
+    }
+
+    void setStaleKeys(Predicate<K> staleKeys) {
+        Objects.requireNonNull(staleKeys);
+        this.staleKeys = staleKeys;
+    }
+
     /**
      * The relative time used to track time-based evictions.
      *
@@ -179,7 +194,7 @@ public class Cache<K, V> {
     /**
      * A cache segment.
      * <p>
-     * A CacheSegment is backed by a HashMap and is protected by a read/write lock.
+     * A CacheSegment is backed by a ConcurrentHashMap whose mutations are protected by a read/write lock.
      *
      * @param <K> the type of the keys
      * @param <V> the type of the values
@@ -188,10 +203,9 @@ public class Cache<K, V> {
         // read/write lock protecting mutations to the segment
         ReadWriteLock segmentLock = new ReentrantReadWriteLock();
 
-        ReleasableLock readLock = new ReleasableLock(segmentLock.readLock());
         ReleasableLock writeLock = new ReleasableLock(segmentLock.writeLock());
 
-        Map<K, CompletableFuture<Entry<K, V>>> map = new HashMap<>();
+        final ConcurrentHashMap<K, CompletableFuture<Entry<K, V>>> map = new ConcurrentHashMap<>();
 
         SegmentStats segmentStats = new SegmentStats();
 
@@ -206,10 +220,7 @@ public class Cache<K, V> {
          * @return the entry if there was one, otherwise null
          */
         Entry<K, V> get(K key, long now, Predicate<Entry<K, V>> isExpired, Consumer<Entry<K, V>> onExpiration) {
-            CompletableFuture<Entry<K, V>> future;
-            try (ReleasableLock ignored = readLock.acquire()) {
-                future = map.get(key);
-            }
+            final CompletableFuture<Entry<K, V>> future = map.get(key);
             if (future != null) {
                 Entry<K, V> entry;
                 try {
@@ -351,6 +362,13 @@ public class Cache<K, V> {
     // lock protecting mutations to the LRU list
     private final ReleasableLock lruLock = new ReleasableLock(new ReentrantLock());
 
+    // the maximum number of buffered promotions before readers wait for the LRU lock
+    static final int ACCESS_BUFFER_SIZE = 1024;
+
+    // promotions of entries that were read while the LRU lock was held by another thread
+    private final ConcurrentLinkedQueue<Entry<K, V>> accessBuffer = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger accessBufferSize = new AtomicInteger();
+
     /**
      * Returns the value to which the specified key is mapped, or null if this map contains no mapping for the key.
      *
@@ -367,11 +385,44 @@ public class Cache<K, V> {
         if (entry == null) {
             return null;
         } else {
-            promote(entry, now);
+            recordAccess(entry, now);
             return entry.value;
         }
     }
 
+    /**
+     * Promotes an entry that was read without waiting for the LRU lock if another thread holds it, in which case the
+     * promotion is buffered and applied by the next thread that acquires the lock.
+     */
+    private void recordAccess(Entry<K, V> entry, long now) {
+        ReleasableLock lock = lruLock.tryAcquire();
+        if (lock == null) {
+            accessBuffer.offer(entry);
+            if (accessBufferSize.incrementAndGet() < ACCESS_BUFFER_SIZE) {
+                return;
+            }
+            // the buffer is full, wait for the lock to drain it including the entry that was just added
+            try (ReleasableLock ignored = lruLock.acquire()) {
+                drainAccessBuffer();
+                evict(now, null);
+            }
+        } else {
+            try (ReleasableLock ignored = lock) {
+                promote(entry, now);
+            }
+        }
+    }
+
+    private void drainAccessBuffer() {
+        assert lruLock.isHeldByCurrentThread();
+
+        Entry<K, V> entry;
+        while ((entry = accessBuffer.poll()) != null) {
+            accessBufferSize.decrementAndGet();
+            link(entry);
+        }
+    }
+
     /**
      * If the specified key is not already associated with a value (or is mapped to null), attempts to compute its
      * value using the given mapping function and enters it into this map unless null. The load method for a given key
@@ -543,7 +594,9 @@ public class Cache<K, V> {
             }
             try (ReleasableLock ignored = lruLock.acquire()) {
                 h = head;
-                Arrays.stream(segments).forEach(segment -> segment.map = new HashMap<>());
+                for (CacheSegment<K, V> segment : segments) {
+                    segment.map.clear();
+                }
                 Entry<K, V> current = head;
                 while (current != null) {
                     current.state = State.DELETED;
@@ -572,7 +625,8 @@ public class Cache<K, V> {
     public void refresh() {
         long now = now();
         try (ReleasableLock ignored = lruLock.acquire()) {
-            evict(now);
+            drainAccessBuffer();
+            evict(now, null);
         }
     }
 
@@ -728,32 +782,74 @@ public class Cache<K, V> {
     }
 
     private boolean promote(Entry<K, V> entry, long now) {
-        boolean promoted = true;
+        boolean promoted;
         try (ReleasableLock ignored = lruLock.acquire()) {
-            switch (entry.state) {
-                case DELETED:
-                    promoted = false;
-                    break;
-                case EXISTING:
-                    relinkAtHead(entry);
-                    break;
-                case NEW:
-                    linkAtHead(entry);
-                    break;
-            }
+            drainAccessBuffer();
+            final boolean inserted = entry.state == State.NEW;
+            promoted = link(entry);
             if (promoted) {
-                evict(now);
+                evict(now, inserted ? entry : null);
             }
         }
         return promoted;
     }
 
-    private void evict(long now) {
+    /**
+     * Moves the entry at the head of the LRU list, or adds it there if it is new, and records the access.
+     *
+     * @return false if the entry was deleted and could not be promoted
+     */
+    private boolean link(Entry<K, V> entry) {
         assert lruLock.isHeldByCurrentThread();
 
+        switch (entry.state) {
+            case DELETED:
+                return false;
+            case EXISTING:
+                relinkAtHead(entry);
+                break;
+            case NEW:
+                linkAtHead(entry);
+                break;
+        }
+        if (frequencySketch != null) {
+            frequencySketch.increment(entry.key.hashCode());
+        }
+        return true;
+    }
+
+    /**
+     * Evicts expired entries and least recently used entries while the cache exceeds its maximum weight.
+     *
+     * @param candidate the entry that was just inserted, which may be rejected instead of evicting a more frequently
+     *                  used entry if frequency-based admission is enabled
+     */
+    private void evict(long now, Entry<K, V> candidate) {
+        assert lruLock.isHeldByCurrentThread();
+
+        if (frequencySketch != null) {
+            frequencySketch.ensureCapacity(count);
+        }
         while (tail != null && shouldPrune(tail, now)) {
-            evictEntry(tail);
+            if (candidate != null && admit(candidate, tail, now) == false) {
+                evictEntry(candidate);
+                candidate = null;
+            } else {
+                evictEntry(tail);
+            }
+        }
+    }
+
+    private boolean admit(Entry<K, V> candidate, Entry<K, V> victim, long now) {
+        if (frequencySketch == null || candidate == victim || candidate.state != State.EXISTING || isExpired(victim, now)) {
+            return true;
+        }
+        if (staleKeys.test(victim.key)) {
+            // the victim will never be read again, however frequently it was read before
+            return true;
         }
+        // ties are admitted so that the policy falls back to LRU for entries that are equally (in)frequent
+        return frequencySketch.frequency(candidate.key.hashCode()) >= frequencySketch.frequency(victim.key.hashCode());
     }
 
     private void evictEntry(Entry<K, V> entry) {
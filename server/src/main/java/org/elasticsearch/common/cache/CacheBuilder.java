@@ -22,6 +22,7 @@ package org.elasticsearch.common.cache;
 import org.elasticsearch.common.unit.TimeValue;
 
 import java.util.Objects;
+import java.util.function.Predicate;
 import java.util.function.ToLongBiFunction;
 
 public class CacheBuilder<K, V> {
@@ -30,6 +31,8 @@ public class CacheBuilder<K, V> {
     private long expireAfterWriteNanos = -1;
     private ToLongBiFunction<K, V> weigher;
     private RemovalListener<K, V> removalListener;
+    private boolean frequencyAdmission;
+    private Predicate<K> staleKeys;
 
     public static <K, V> CacheBuilder<K, V> builder() {
         return new CacheBuilder<>();
@@ -90,6 +93,26 @@ public class CacheBuilder<K, V> {
         return this;
     }
 
+    /**
+     * Sets whether entries that would evict a more frequently accessed entry when the cache is full are rejected instead of
+     * evicting the least recently used entry. This protects frequently used entries from being flushed out of the cache by
+     * entries that are used only once.
+     */
+    public CacheBuilder<K, V> setFrequencyAdmission(boolean frequencyAdmission) {
+        this.frequencyAdmission = frequencyAdmission;
+        return this;
+    }
+
+    /**
+     * Sets the predicate that identifies keys that will never be read again. When frequency-based admission is enabled, entries
+     * with such keys are evicted in favour of new entries however frequently they were accessed before.
+     */
+    public CacheBuilder<K, V> setStaleKeys(Predicate<K> staleKeys) {
+        Objects.requireNonNull(staleKeys);
+        this.staleKeys = staleKeys;
+        return this;
+    }
+
     public Cache<K, V> build() {
         Cache<K, V> cache = new Cache<>();
         if (maximumWeight != -1) {
@@ -107,6 +130,12 @@ public class CacheBuilder<K, V> {
         if (removalListener != null) {
             cache.setRemovalListener(removalListener);
         }
+        if (frequencyAdmission) {
+            cache.setFrequencyAdmission(true);
+        }
+        if (staleKeys != null) {
+            cache.setStaleKeys(staleKeys);
+        }
         return cache;
     }
 }
@@ -0,0 +1,119 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.cache;
+
+/**
+ * A count-min sketch of 4-bit counters estimating how often keys were accessed. {@link Cache} uses it to decide whether a
+ * newly inserted entry is worth keeping over the least recently used entry it would evict (TinyLFU admission).
+ * <p>
+ * All counters are halved once the number of increments reaches ten times the capacity of the sketch, so that the
+ * estimated frequencies favour recent popularity. This class is not thread-safe.
+ */
+final class FrequencySketch {
+
+    private static final long[] SEEDS = new long[] {
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+    // clears the high bit of every counter after the table was shifted by one bit
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long COUNTER_MASK = 0xFL;
+
+    private int capacity;
+    // every long holds 16 counters of 4 bits
+    private long[] table;
+    private int tableMask;
+    private int sampleSize;
+    private int size;
+
+    FrequencySketch(int capacity) {
+        ensureCapacity(capacity);
+    }
+
+    /**
+     * Grows the sketch so that it can track about <code>capacity</code> keys. Growing loses the recorded frequencies.
+     */
+    void ensureCapacity(int capacity) {
+        capacity = Math.max(16, capacity);
+        if (table != null && capacity <= this.capacity) {
+            return;
+        }
+        final int tableSize = Integer.highestOneBit(capacity - 1) << 1;
+        this.capacity = tableSize;
+        this.table = new long[tableSize];
+        this.tableMask = tableSize - 1;
+        this.sampleSize = 10 * tableSize;
+        this.size = 0;
+    }
+
+    /**
+     * Returns the estimated number of times the key with the given hash code was accessed, at most 15.
+     */
+    int frequency(int hashCode) {
+        final int hash = spread(hashCode);
+        int frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < SEEDS.length; i++) {
+            final int shift = counterIndex(hash, i) << 2;
+            final int count = (int) ((table[tableIndex(hash, i)] >>> shift) & COUNTER_MASK);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * Records an access to the key with the given hash code.
+     */
+    void increment(int hashCode) {
+        final int hash = spread(hashCode);
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            final int index = tableIndex(hash, i);
+            final int shift = counterIndex(hash, i) << 2;
+            if (((table[index] >>> shift) & COUNTER_MASK) != COUNTER_MASK) {
+                table[index] += 1L << shift;
+                added = true;
+            }
+        }
+        if (added && ++size == sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size /= 2;
+    }
+
+    private int tableIndex(int hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += h >>> 32;
+        return ((int) h) & tableMask;
+    }
+
+    private static int counterIndex(int hash, int i) {
+        return (hash >>> (i << 3)) & 0xF;
+    }
+
+    private static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+}
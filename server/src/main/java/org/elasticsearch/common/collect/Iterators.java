@@ -19,8 +19,10 @@
 
 package org.elasticsearch.common.collect;
 
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.function.Function;
 
 public class Iterators {
     public static <T> Iterator<T> concat(Iterator<? extends T>... iterators) {
@@ -32,6 +34,47 @@ public class Iterators {
         return new ConcatenatedIterator<T>(iterators);
     }
 
+    /**
+     * Returns an iterator over the elements of the iterators returned by applying {@code fn} to each element of {@code input}. The
+     * function is applied lazily, as the returned iterator advances.
+     */
+    public static <T, U> Iterator<U> flatMap(Iterator<? extends T> input, Function<? super T, Iterator<? extends U>> fn) {
+        if (input == null) {
+            throw new NullPointerException("input");
+        }
+        if (fn == null) {
+            throw new NullPointerException("fn");
+        }
+        return new FlatMappedIterator<>(input, fn);
+    }
+
+    static class FlatMappedIterator<T, U> implements Iterator<U> {
+        private final Iterator<? extends T> input;
+        private final Function<? super T, Iterator<? extends U>> fn;
+        private Iterator<? extends U> current = Collections.emptyIterator();
+
+        FlatMappedIterator(Iterator<? extends T> input, Function<? super T, Iterator<? extends U>> fn) {
+            this.input = input;
+            this.fn = fn;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (current.hasNext() == false && input.hasNext()) {
+                current = fn.apply(input.next());
+            }
+            return current.hasNext();
+        }
+
+        @Override
+        public U next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+    }
+
     static class ConcatenatedIterator<T> implements Iterator<T> {
         private final Iterator<? extends T>[] iterators;
         private int index = 0;
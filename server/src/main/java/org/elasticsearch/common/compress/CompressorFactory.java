@@ -26,25 +26,67 @@ import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.common.xcontent.XContentType;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
 
 public class CompressorFactory {
 
-    public static final Compressor COMPRESSOR = new DeflateCompressor();
+    public static final Compressor DEFLATE = new DeflateCompressor();
+
+    public static final Compressor LZ4 = new LZ4Compressor();
+
+    /**
+     * The compressor used for everything that may be read by nodes of older versions or that is persisted: cluster
+     * state, mappings and repository metadata.
+     */
+    public static final Compressor COMPRESSOR = DEFLATE;
+
+    private static final List<Compressor> COMPRESSORS = List.of(DEFLATE, LZ4);
+
+    /**
+     * Returns the compressor registered under the given name, either <code>deflate</code> or <code>lz4</code>.
+     */
+    public static Compressor compressor(String name) {
+        switch (name.toLowerCase(Locale.ROOT)) {
+            case "deflate":
+                return DEFLATE;
+            case "lz4":
+                return LZ4;
+            default:
+                throw new IllegalArgumentException("unknown compressor [" + name + "], must be one of [deflate, lz4]");
+        }
+    }
 
     public static boolean isCompressed(BytesReference bytes) {
         return compressor(bytes) != null;
     }
 
+    /**
+     * Returns the compressor that was used to compress the given bytes, or <code>null</code> if the bytes do not start
+     * with the header of a known compressor. Contrary to {@link #compressor(BytesReference)}, this does not require
+     * uncompressed bytes to be xcontent.
+     */
     @Nullable
-    public static Compressor compressor(BytesReference bytes) {
-            if (COMPRESSOR.isCompressed(bytes)) {
-                // bytes should be either detected as compressed or as xcontent,
-                // if we have bytes that can be either detected as compressed or
-                // as a xcontent, we have a problem
-                assert XContentHelper.xContentType(bytes) == null;
-                return COMPRESSOR;
+    public static Compressor compressorForHeader(BytesReference bytes) {
+        for (Compressor compressor : COMPRESSORS) {
+            if (compressor.isCompressed(bytes)) {
+                return compressor;
             }
+        }
+        return null;
+    }
+
+    @Nullable
+    public static Compressor compressor(BytesReference bytes) {
+        Compressor compressor = compressorForHeader(bytes);
+        if (compressor != null) {
+            // bytes should be either detected as compressed or as xcontent,
+            // if we have bytes that can be either detected as compressed or
+            // as a xcontent, we have a problem
+            assert XContentHelper.xContentType(bytes) == null;
+            return compressor;
+        }
 
         XContentType contentType = XContentHelper.xContentType(bytes);
         if (contentType == null) {
@@ -0,0 +1,216 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.compress;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A pure Java implementation of the LZ4 block format. This favours speed over compression ratio: it uses a single
+ * hash table lookup per position and a greedy match selection, which is what makes LZ4 much cheaper than DEFLATE
+ * on the CPU.
+ */
+public final class LZ4 {
+
+    static final int MIN_MATCH = 4;
+    // the last match must start at least 12 bytes before the end of the block
+    private static final int MF_LIMIT = 12;
+    // the last 5 bytes of a block are always literals
+    private static final int LAST_LITERALS = 5;
+    private static final int MAX_DISTANCE = (1 << 16) - 1;
+    private static final int ML_MASK = 0x0F;
+    private static final int RUN_MASK = 0x0F;
+
+    static final int HASH_LOG = 12;
+    public static final int HASH_TABLE_SIZE = 1 << HASH_LOG;
+
+    private LZ4() {}
+
+    /**
+     * Returns the maximum number of bytes that compressing <code>length</code> bytes may produce.
+     */
+    public static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) | ((bytes[offset + 1] & 0xFF) << 8) | ((bytes[offset + 2] & 0xFF) << 16)
+            | ((bytes[offset + 3] & 0xFF) << 24);
+    }
+
+    private static int hash(int sequence) {
+        return (sequence * -1640531535) >>> (32 - HASH_LOG);
+    }
+
+    /**
+     * Compresses <code>srcLen</code> bytes of <code>src</code> starting at <code>srcOff</code> into <code>dest</code>
+     * which must have at least {@link #maxCompressedLength(int)} bytes available after <code>destOff</code>.
+     * The <code>hashTable</code> must have {@link #HASH_TABLE_SIZE} entries and can be reused across calls.
+     *
+     * @return the number of bytes written to <code>dest</code>
+     */
+    public static int compress(byte[] src, int srcOff, int srcLen, byte[] dest, int destOff, int[] hashTable) {
+        assert hashTable.length == HASH_TABLE_SIZE;
+        final int srcEnd = srcOff + srcLen;
+        final int matchLimit = srcEnd - LAST_LITERALS;
+        final int mfLimit = srcEnd - MF_LIMIT;
+        int sOff = srcOff;
+        int anchor = srcOff;
+        int dOff = destOff;
+        if (srcLen > MF_LIMIT) {
+            Arrays.fill(hashTable, -1);
+            while (sOff < mfLimit) {
+                final int sequence = readInt(src, sOff);
+                final int h = hash(sequence);
+                int ref = hashTable[h];
+                hashTable[h] = sOff;
+                if (ref < 0 || sOff - ref > MAX_DISTANCE || readInt(src, ref) != sequence) {
+                    ++sOff;
+                    continue;
+                }
+                // extend the match backwards over the pending literals
+                while (sOff > anchor && ref > srcOff && src[sOff - 1] == src[ref - 1]) {
+                    --sOff;
+                    --ref;
+                }
+                int matchLen = MIN_MATCH;
+                while (sOff + matchLen < matchLimit && src[sOff + matchLen] == src[ref + matchLen]) {
+                    ++matchLen;
+                }
+                dOff = writeSequence(src, anchor, sOff - anchor, sOff - ref, matchLen, dest, dOff);
+                sOff += matchLen;
+                anchor = sOff;
+            }
+        }
+        dOff = writeLastLiterals(src, anchor, srcEnd - anchor, dest, dOff);
+        return dOff - destOff;
+    }
+
+    private static int writeSequence(byte[] src, int literalOff, int literalLen, int matchOffset, int matchLen,
+                                     byte[] dest, int dOff) {
+        final int tokenOff = dOff++;
+        final int matchLenMinusMin = matchLen - MIN_MATCH;
+        dest[tokenOff] = (byte) ((Math.min(literalLen, RUN_MASK) << 4) | Math.min(matchLenMinusMin, ML_MASK));
+        if (literalLen >= RUN_MASK) {
+            dOff = writeLength(literalLen - RUN_MASK, dest, dOff);
+        }
+        System.arraycopy(src, literalOff, dest, dOff, literalLen);
+        dOff += literalLen;
+        dest[dOff++] = (byte) matchOffset;
+        dest[dOff++] = (byte) (matchOffset >>> 8);
+        if (matchLenMinusMin >= ML_MASK) {
+            dOff = writeLength(matchLenMinusMin - ML_MASK, dest, dOff);
+        }
+        return dOff;
+    }
+
+    private static int writeLastLiterals(byte[] src, int literalOff, int literalLen, byte[] dest, int dOff) {
+        dest[dOff++] = (byte) (Math.min(literalLen, RUN_MASK) << 4);
+        if (literalLen >= RUN_MASK) {
+            dOff = writeLength(literalLen - RUN_MASK, dest, dOff);
+        }
+        System.arraycopy(src, literalOff, dest, dOff, literalLen);
+        return dOff + literalLen;
+    }
+
+    private static int writeLength(int length, byte[] dest, int dOff) {
+        while (length >= 0xFF) {
+            dest[dOff++] = (byte) 0xFF;
+            length -= 0xFF;
+        }
+        dest[dOff++] = (byte) length;
+        return dOff;
+    }
+
+    /**
+     * Decompresses the <code>srcLen</code> bytes of <code>src</code> starting at <code>srcOff</code> into exactly
+     * <code>destLen</code> bytes of <code>dest</code> starting at <code>destOff</code>.
+     *
+     * @throws IOException if the compressed bytes are corrupt
+     */
+    public static void decompress(byte[] src, int srcOff, int srcLen, byte[] dest, int destOff, int destLen) throws IOException {
+        final int srcEnd = srcOff + srcLen;
+        final int destEnd = destOff + destLen;
+        int sOff = srcOff;
+        int dOff = destOff;
+        while (true) {
+            if (sOff >= srcEnd) {
+                throw new IOException("Corrupt LZ4 block: unexpected end of input");
+            }
+            final int token = src[sOff++] & 0xFF;
+
+            int literalLen = token >>> 4;
+            if (literalLen == RUN_MASK) {
+                int b;
+                do {
+                    if (sOff >= srcEnd) {
+                        throw new IOException("Corrupt LZ4 block: unexpected end of input");
+                    }
+                    b = src[sOff++] & 0xFF;
+                    literalLen += b;
+                } while (b == 0xFF);
+            }
+            if (literalLen > srcEnd - sOff || literalLen > destEnd - dOff) {
+                throw new IOException("Corrupt LZ4 block: literals overflow the block");
+            }
+            System.arraycopy(src, sOff, dest, dOff, literalLen);
+            sOff += literalLen;
+            dOff += literalLen;
+
+            if (sOff == srcEnd) {
+                // the last sequence only has literals
+                break;
+            }
+
+            if (srcEnd - sOff < 2) {
+                throw new IOException("Corrupt LZ4 block: unexpected end of input");
+            }
+            final int matchOffset = (src[sOff++] & 0xFF) | ((src[sOff++] & 0xFF) << 8);
+            int matchLen = token & ML_MASK;
+            if (matchLen == ML_MASK) {
+                int b;
+                do {
+                    if (sOff >= srcEnd) {
+                        throw new IOException("Corrupt LZ4 block: unexpected end of input");
+                    }
+                    b = src[sOff++] & 0xFF;
+                    matchLen += b;
+                } while (b == 0xFF);
+            }
+            matchLen += MIN_MATCH;
+            final int ref = dOff - matchOffset;
+            if (matchOffset == 0 || ref < destOff || matchLen > destEnd - dOff) {
+                throw new IOException("Corrupt LZ4 block: invalid match");
+            }
+            if (matchOffset >= matchLen) {
+                System.arraycopy(dest, ref, dest, dOff, matchLen);
+            } else {
+                // overlapping copy, the match repeats the last matchOffset bytes
+                for (int i = 0; i < matchLen; ++i) {
+                    dest[dOff + i] = dest[ref + i];
+                }
+            }
+            dOff += matchLen;
+        }
+        if (dOff != destEnd) {
+            throw new IOException("Corrupt LZ4 block: expected [" + destLen + "] bytes but got [" + (dOff - destOff) + "]");
+        }
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.compress;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.InputStreamStreamInput;
+import org.elasticsearch.common.io.stream.OutputStreamStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * {@link Compressor} implementation based on the LZ4 compression algorithm. It trades some compression ratio for a
+ * much lower CPU cost than {@link DeflateCompressor}.
+ *
+ * The content is split into blocks of at most {@link #BLOCK_SIZE} bytes. Each block is written as its compressed length
+ * and its decompressed length, both as big-endian ints, followed by the compressed bytes. Blocks that do not compress
+ * are stored as-is, which is signalled by equal compressed and decompressed lengths. A compressed length of
+ * <code>0</code> marks the end of the stream.
+ */
+public class LZ4Compressor implements Compressor {
+
+    // An arbitrary header that we use to identify compressed streams
+    // It needs to be different from other compressors and to not be specific
+    // enough so that no stream starting with these bytes could be detected as
+    // a XContent
+    private static final byte[] HEADER = new byte[]{'L', 'Z', '4', '\0'};
+
+    public static final int BLOCK_SIZE = 1 << 16;
+
+    public static final int BLOCK_HEADER_LENGTH = 8;
+
+    @Override
+    public boolean isCompressed(BytesReference bytes) {
+        if (bytes.length() < HEADER.length) {
+            return false;
+        }
+        for (int i = 0; i < HEADER.length; ++i) {
+            if (bytes.get(i) != HEADER[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int headerLength() {
+        return HEADER.length;
+    }
+
+    @Override
+    public StreamInput streamInput(StreamInput in) throws IOException {
+        final byte[] headerBytes = new byte[HEADER.length];
+        int len = 0;
+        while (len < headerBytes.length) {
+            final int read = in.read(headerBytes, len, headerBytes.length - len);
+            if (read == -1) {
+                break;
+            }
+            len += read;
+        }
+        if (len != HEADER.length || Arrays.equals(headerBytes, HEADER) == false) {
+            throw new IllegalArgumentException("Input stream is not compressed with LZ4!");
+        }
+        return new InputStreamStreamInput(new LZ4BlockInputStream(in));
+    }
+
+    @Override
+    public StreamOutput streamOutput(OutputStream out) throws IOException {
+        out.write(HEADER);
+        return new OutputStreamStreamOutput(new LZ4BlockOutputStream(out));
+    }
+
+    public static int readBlockInt(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16) | ((bytes[offset + 2] & 0xFF) << 8)
+            | (bytes[offset + 3] & 0xFF);
+    }
+
+    private static void writeBlockInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    private static final class LZ4BlockOutputStream extends OutputStream {
+
+        private final OutputStream out;
+        private final byte[] buffer = new byte[BLOCK_SIZE];
+        private final byte[] compressed = new byte[BLOCK_HEADER_LENGTH + LZ4.maxCompressedLength(BLOCK_SIZE)];
+        private final int[] hashTable = new int[LZ4.HASH_TABLE_SIZE];
+        private int bufferOffset = 0;
+        private boolean closed = false;
+
+        private LZ4BlockOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (bufferOffset == BLOCK_SIZE) {
+                writeBlock();
+            }
+            buffer[bufferOffset++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (bufferOffset == BLOCK_SIZE) {
+                    writeBlock();
+                }
+                final int toCopy = Math.min(len, BLOCK_SIZE - bufferOffset);
+                System.arraycopy(b, off, buffer, bufferOffset, toCopy);
+                bufferOffset += toCopy;
+                off += toCopy;
+                len -= toCopy;
+            }
+        }
+
+        private void writeBlock() throws IOException {
+            if (bufferOffset == 0) {
+                return;
+            }
+            int compressedLength = LZ4.compress(buffer, 0, bufferOffset, compressed, BLOCK_HEADER_LENGTH, hashTable);
+            if (compressedLength >= bufferOffset) {
+                // not worth it, store the block uncompressed
+                compressedLength = bufferOffset;
+                System.arraycopy(buffer, 0, compressed, BLOCK_HEADER_LENGTH, bufferOffset);
+            }
+            writeBlockInt(compressed, 0, compressedLength);
+            writeBlockInt(compressed, 4, bufferOffset);
+            out.write(compressed, 0, BLOCK_HEADER_LENGTH + compressedLength);
+            bufferOffset = 0;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writeBlock();
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed == false) {
+                closed = true;
+                try {
+                    writeBlock();
+                    // end of stream marker
+                    out.write(new byte[4]);
+                } finally {
+                    out.close();
+                }
+            }
+        }
+    }
+
+    private static final class LZ4BlockInputStream extends InputStream {
+
+        private final InputStream in;
+        private final byte[] blockHeader = new byte[BLOCK_HEADER_LENGTH];
+        private byte[] compressed = new byte[0];
+        private final byte[] buffer = new byte[BLOCK_SIZE];
+        private int bufferOffset = 0;
+        private int bufferLength = 0;
+        private boolean eos = false;
+
+        private LZ4BlockInputStream(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (ensureAvailable() == false) {
+                return -1;
+            }
+            return buffer[bufferOffset++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (ensureAvailable() == false) {
+                return -1;
+            }
+            final int toCopy = Math.min(len, bufferLength - bufferOffset);
+            System.arraycopy(buffer, bufferOffset, b, off, toCopy);
+            bufferOffset += toCopy;
+            return toCopy;
+        }
+
+        @Override
+        public int available() {
+            return bufferLength - bufferOffset;
+        }
+
+        private boolean ensureAvailable() throws IOException {
+            while (bufferOffset == bufferLength) {
+                if (eos) {
+                    return false;
+                }
+                readBlock();
+            }
+            return true;
+        }
+
+        private void readBlock() throws IOException {
+            readFully(blockHeader, 0, 4);
+            final int compressedLength = readBlockInt(blockHeader, 0);
+            if (compressedLength == 0) {
+                eos = true;
+                return;
+            }
+            readFully(blockHeader, 4, 4);
+            final int decompressedLength = readBlockInt(blockHeader, 4);
+            if (compressedLength < 0 || decompressedLength <= 0 || decompressedLength > BLOCK_SIZE
+                || compressedLength > LZ4.maxCompressedLength(decompressedLength)) {
+                throw new IOException("Corrupt LZ4 stream: invalid block lengths [" + compressedLength + "/" + decompressedLength + "]");
+            }
+            if (compressedLength == decompressedLength) {
+                readFully(buffer, 0, decompressedLength);
+            } else {
+                if (compressed.length < compressedLength) {
+                    compressed = new byte[LZ4.maxCompressedLength(BLOCK_SIZE)];
+                }
+                readFully(compressed, 0, compressedLength);
+                LZ4.decompress(compressed, 0, compressedLength, buffer, 0, decompressedLength);
+            }
+            bufferOffset = 0;
+            bufferLength = decompressedLength;
+        }
+
+        private void readFully(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                final int read = in.read(b, off, len);
+                if (read == -1) {
+                    throw new EOFException("Unexpected end of LZ4 stream");
+                }
+                off += read;
+                len -= read;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
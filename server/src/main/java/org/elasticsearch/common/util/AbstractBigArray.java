@@ -25,6 +25,8 @@ import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.recycler.Recycler;
 
 import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
 
 /** Common implementation for array lists that slice data into fixed-size blocks. */
@@ -148,6 +150,24 @@ abstract class AbstractBigArray extends AbstractArray {
         }
     }
 
+    /**
+     * Allocate a page outside of the Java heap. Pages are recycled like heap pages so that the native memory of released pages is reused
+     * instead of waiting for their buffers to be garbage collected. The page is on the heap if the direct limit of the recycler is
+     * reached, or if there is no recycler to bound the direct memory.
+     */
+    protected final ByteBuffer newDirectPage(int page) {
+        if (recycler != null) {
+            final Recycler.V<ByteBuffer> v = recycler.directPage(clearOnResize);
+            cache = grow(cache, page + 1);
+            assert cache[page] == null;
+            cache[page] = v;
+            assert v.v().capacity() == pageSize() * numBytesPerElement();
+            return v.v();
+        } else {
+            return ByteBuffer.allocate(pageSize() * numBytesPerElement()).order(ByteOrder.nativeOrder());
+        }
+    }
+
     protected final void releasePage(int page) {
         if (recycler != null) {
             cache[page].close();
@@ -156,7 +176,7 @@ abstract class AbstractBigArray extends AbstractArray {
     }
 
     @Override
-    protected final void doClose() {
+    protected void doClose() {
         if (recycler != null) {
             Releasables.close(cache);
             cache = null;
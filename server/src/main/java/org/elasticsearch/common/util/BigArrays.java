@@ -28,6 +28,8 @@ import org.elasticsearch.common.breaker.CircuitBreakingException;
 import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.recycler.Recycler;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.indices.breaker.CircuitBreakerService;
 
 import java.util.Arrays;
@@ -37,6 +39,14 @@ public class BigArrays {
 
     public static final BigArrays NON_RECYCLING_INSTANCE = new BigArrays(null, null, CircuitBreaker.REQUEST);
 
+    /**
+     * Whether large int, long and double arrays should store their pages in direct buffers rather than on the Java heap. These pages
+     * are still accounted on the circuit breaker. They are also bounded by {@link PageCacheRecycler#LIMIT_DIRECT_SETTING}, past which
+     * pages are allocated on the heap again.
+     */
+    public static final Setting<Boolean> OFF_HEAP_PAGES_SETTING =
+        Setting.boolSetting("node.big_arrays.off_heap_pages", false, Property.NodeScope);
+
     /** Returns the next size to grow when working with parallel arrays that
      *  may have different page sizes or number of bytes per element. */
     public static long overSize(long minTargetSize) {
@@ -361,6 +371,7 @@ public class BigArrays {
     private final boolean checkBreaker;
     private final BigArrays circuitBreakingInstance;
     private final String breakerName;
+    private final boolean offHeapPages;
 
     public BigArrays(PageCacheRecycler recycler, @Nullable final CircuitBreakerService breakerService, String breakerName) {
         // Checking the breaker is disabled if not specified
@@ -369,14 +380,20 @@ public class BigArrays {
 
     protected BigArrays(PageCacheRecycler recycler, @Nullable final CircuitBreakerService breakerService, String breakerName,
                         boolean checkBreaker) {
+        this(recycler, breakerService, breakerName, checkBreaker, false);
+    }
+
+    private BigArrays(PageCacheRecycler recycler, @Nullable final CircuitBreakerService breakerService, String breakerName,
+                      boolean checkBreaker, boolean offHeapPages) {
         this.checkBreaker = checkBreaker;
         this.recycler = recycler;
         this.breakerService = breakerService;
         this.breakerName = breakerName;
+        this.offHeapPages = offHeapPages;
         if (checkBreaker) {
             this.circuitBreakingInstance = this;
         } else {
-            this.circuitBreakingInstance = new BigArrays(recycler, breakerService, breakerName, true);
+            this.circuitBreakingInstance = new BigArrays(recycler, breakerService, breakerName, true, offHeapPages);
         }
     }
 
@@ -425,6 +442,25 @@ public class BigArrays {
         return this.circuitBreakingInstance;
     }
 
+    /**
+     * Return an instance of this BigArrays class that neither checks nor adjusts the circuit breaker, for arrays whose
+     * memory is already accounted for elsewhere. Pages are still recycled.
+     */
+    public BigArrays withoutCircuitBreaker() {
+        return new BigArrays(recycler, null, breakerName, false, offHeapPages);
+    }
+
+    /**
+     * Return an instance of this BigArrays class that allocates the pages of large int, long and double
+     * arrays outside of the Java heap. Smaller arrays and other array types are still allocated on heap.
+     */
+    public BigArrays withOffHeapPages() {
+        if (offHeapPages) {
+            return this;
+        }
+        return new BigArrays(recycler, breakerService, breakerName, checkBreaker, true);
+    }
+
     public CircuitBreakerService breakerService() {
         return this.circuitBreakingInstance.breakerService;
     }
@@ -544,7 +580,10 @@ public class BigArrays {
      * @param clearOnResize whether values should be set to 0 on initialization and resize
      */
     public IntArray newIntArray(long size, boolean clearOnResize) {
-        if (size > PageCacheRecycler.INT_PAGE_SIZE) {
+        if (size > PageCacheRecycler.INT_PAGE_SIZE && offHeapPages) {
+            adjustBreaker(OffHeapIntArray.estimateRamBytes(size), false);
+            return new OffHeapIntArray(size, this, clearOnResize);
+        } else if (size > PageCacheRecycler.INT_PAGE_SIZE) {
             // when allocating big arrays, we want to first ensure we have the capacity by
             // checking with the circuit breaker before attempting to allocate
             adjustBreaker(BigIntArray.estimateRamBytes(size), false);
@@ -569,6 +608,8 @@ public class BigArrays {
     public IntArray resize(IntArray array, long size) {
         if (array instanceof BigIntArray) {
             return resizeInPlace((BigIntArray) array, size);
+        } else if (array instanceof OffHeapIntArray) {
+            return resizeInPlace((OffHeapIntArray) array, size);
         } else {
             AbstractArray arr = (AbstractArray) array;
             final IntArray newArray = newIntArray(size, arr.clearOnResize);
@@ -596,7 +637,10 @@ public class BigArrays {
      * @param clearOnResize whether values should be set to 0 on initialization and resize
      */
     public LongArray newLongArray(long size, boolean clearOnResize) {
-        if (size > PageCacheRecycler.LONG_PAGE_SIZE) {
+        if (size > PageCacheRecycler.LONG_PAGE_SIZE && offHeapPages) {
+            adjustBreaker(OffHeapLongArray.estimateRamBytes(size), false);
+            return new OffHeapLongArray(size, this, clearOnResize);
+        } else if (size > PageCacheRecycler.LONG_PAGE_SIZE) {
             // when allocating big arrays, we want to first ensure we have the capacity by
             // checking with the circuit breaker before attempting to allocate
             adjustBreaker(BigLongArray.estimateRamBytes(size), false);
@@ -621,6 +665,8 @@ public class BigArrays {
     public LongArray resize(LongArray array, long size) {
         if (array instanceof BigLongArray) {
             return resizeInPlace((BigLongArray) array, size);
+        } else if (array instanceof OffHeapLongArray) {
+            return resizeInPlace((OffHeapLongArray) array, size);
         } else {
             AbstractArray arr = (AbstractArray) array;
             final LongArray newArray = newLongArray(size, arr.clearOnResize);
@@ -648,7 +694,10 @@ public class BigArrays {
      * @param clearOnResize whether values should be set to 0 on initialization and resize
      */
     public DoubleArray newDoubleArray(long size, boolean clearOnResize) {
-        if (size > PageCacheRecycler.LONG_PAGE_SIZE) {
+        if (size > PageCacheRecycler.LONG_PAGE_SIZE && offHeapPages) {
+            adjustBreaker(OffHeapDoubleArray.estimateRamBytes(size), false);
+            return new OffHeapDoubleArray(size, this, clearOnResize);
+        } else if (size > PageCacheRecycler.LONG_PAGE_SIZE) {
             // when allocating big arrays, we want to first ensure we have the capacity by
             // checking with the circuit breaker before attempting to allocate
             adjustBreaker(BigDoubleArray.estimateRamBytes(size), false);
@@ -670,6 +719,8 @@ public class BigArrays {
     public DoubleArray resize(DoubleArray array, long size) {
         if (array instanceof BigDoubleArray) {
             return resizeInPlace((BigDoubleArray) array, size);
+        } else if (array instanceof OffHeapDoubleArray) {
+            return resizeInPlace((OffHeapDoubleArray) array, size);
         } else {
             AbstractArray arr = (AbstractArray) array;
             final DoubleArray newArray = newDoubleArray(size, arr.clearOnResize);
@@ -27,9 +27,15 @@ import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.monitor.jvm.JvmInfo;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
+import java.util.Deque;
 import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.elasticsearch.common.recycler.Recyclers.concurrent;
 import static org.elasticsearch.common.recycler.Recyclers.concurrentDeque;
@@ -52,6 +58,11 @@ public class PageCacheRecycler {
     // object pages are less useful to us so we give them a lower weight by default
     public static final Setting<Double> WEIGHT_OBJECTS_SETTING  =
         Setting.doubleSetting("cache.recycler.page.weight.objects", 0.1d, 0d, Property.NodeScope);
+    // direct pages live outside of the heap so they are bounded by the direct memory of the JVM, leaving room for the other users
+    // of direct memory such as the network layer
+    public static final Setting<ByteSizeValue> LIMIT_DIRECT_SETTING  =
+        Setting.byteSizeSetting("cache.recycler.page.limit.direct",
+            s -> new ByteSizeValue(JvmInfo.jvmInfo().getMem().getDirectMemoryMax().getBytes() / 2).getStringRep(), Property.NodeScope);
 
     /** Page size in bytes: 16KB */
     public static final int PAGE_SIZE_IN_BYTES = 1 << 14;
@@ -64,11 +75,19 @@ public class PageCacheRecycler {
     private final Recycler<int[]> intPage;
     private final Recycler<long[]> longPage;
     private final Recycler<Object[]> objectPage;
+    private final int maxDirectPageCount;
+    private final AtomicInteger directPageCount = new AtomicInteger();
+    private final Deque<ByteBuffer> directPages = new ConcurrentLinkedDeque<>();
+
+    private static final byte[] ZERO_PAGE = new byte[PAGE_SIZE_IN_BYTES];
 
     public static final PageCacheRecycler NON_RECYCLING_INSTANCE;
 
     static {
-        NON_RECYCLING_INSTANCE = new PageCacheRecycler(Settings.builder().put(LIMIT_HEAP_SETTING.getKey(), "0%").build());
+        NON_RECYCLING_INSTANCE = new PageCacheRecycler(Settings.builder()
+            .put(LIMIT_HEAP_SETTING.getKey(), "0%")
+            .put(LIMIT_DIRECT_SETTING.getKey(), "0b")
+            .build());
     }
 
     public PageCacheRecycler(Settings settings) {
@@ -146,6 +165,13 @@ public class PageCacheRecycler {
         });
 
         assert PAGE_SIZE_IN_BYTES * (maxBytePageCount + maxIntPageCount + maxLongPageCount + maxObjectPageCount) <= limit;
+
+        // Direct pages are only freed once their buffer is garbage collected, so released pages are always kept for reuse rather than
+        // left to the garbage collector, and no more pages are allocated than the direct limit allows. This limit can never be more
+        // than the direct memory of the JVM, so that pages can not run the JVM out of direct memory.
+        final long directLimit = Math.min(LIMIT_DIRECT_SETTING.get(settings).getBytes(),
+            JvmInfo.jvmInfo().getMem().getDirectMemoryMax().getBytes());
+        maxDirectPageCount = (int) Math.min(Integer.MAX_VALUE, directLimit / PAGE_SIZE_IN_BYTES);
     }
 
     public Recycler.V<byte[]> bytePage(boolean clear) {
@@ -177,6 +203,68 @@ public class PageCacheRecycler {
         return objectPage.obtain();
     }
 
+    /**
+     * Returns a page that lives outside of the Java heap if the direct limit allows, and a heap page otherwise. Released direct pages
+     * are kept for reuse while heap pages are left to the garbage collector.
+     */
+    public Recycler.V<ByteBuffer> directPage(boolean clear) {
+        final ByteBuffer recycled = directPages.pollFirst();
+        if (recycled != null) {
+            if (clear) {
+                final ByteBuffer page = recycled.duplicate();
+                page.clear();
+                page.put(ZERO_PAGE);
+            }
+            return new DirectPage(recycled, true);
+        }
+        if (directPageCount.incrementAndGet() <= maxDirectPageCount) {
+            return new DirectPage(ByteBuffer.allocateDirect(PAGE_SIZE_IN_BYTES).order(ByteOrder.nativeOrder()), false);
+        }
+        directPageCount.decrementAndGet();
+        final ByteBuffer heapPage = ByteBuffer.allocate(PAGE_SIZE_IN_BYTES).order(ByteOrder.nativeOrder());
+        return new Recycler.V<>() {
+            @Override
+            public ByteBuffer v() {
+                return heapPage;
+            }
+
+            @Override
+            public boolean isRecycled() {
+                return false;
+            }
+
+            @Override
+            public void close() {
+                // left to the garbage collector
+            }
+        };
+    }
+
+    private class DirectPage implements Recycler.V<ByteBuffer> {
+        private final ByteBuffer page;
+        private final boolean recycled;
+
+        DirectPage(ByteBuffer page, boolean recycled) {
+            this.page = page;
+            this.recycled = recycled;
+        }
+
+        @Override
+        public ByteBuffer v() {
+            return page;
+        }
+
+        @Override
+        public boolean isRecycled() {
+            return recycled;
+        }
+
+        @Override
+        public void close() {
+            directPages.addFirst(page);
+        }
+    }
+
     private static <T> Recycler<T> build(Type type, int limit, int availableProcessors, Recycler.C<T> c) {
         final Recycler<T> recycler;
         if (limit == 0) {
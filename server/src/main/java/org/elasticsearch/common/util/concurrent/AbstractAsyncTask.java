@@ -91,7 +91,7 @@ public abstract class AbstractAsyncTask implements Runnable, Closeable {
             if (logger.isTraceEnabled()) {
                 logger.trace("scheduling {} every {}", toString(), interval);
             }
-            cancellable = threadPool.schedule(this, interval, getThreadPool());
+            cancellable = threadPool.schedule(this, nextDelay(), getThreadPool());
             isScheduledOrRunning = true;
         } else {
             logger.trace("scheduled {} disabled", toString());
@@ -179,6 +179,14 @@ public abstract class AbstractAsyncTask implements Runnable, Closeable {
 
     protected abstract void runInternal();
 
+    /**
+     * The delay before the next run. Defaults to the configured interval,
+     * derived classes may return a shorter delay to shift the first run.
+     */
+    protected TimeValue nextDelay() {
+        return interval;
+    }
+
     /**
      * Use the same threadpool by default.
      * Derived classes can change this if required.
@@ -0,0 +1,36 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.xcontent;
+
+import java.util.Iterator;
+
+/**
+ * Objects that can render themselves as json/yaml/etc one chunk at a time, so that large responses can be serialized and sent
+ * incrementally instead of being materialized in full first. Implementations are usually also {@link ToXContent}, in which case
+ * serializing all the chunks returned by {@link #toXContentChunked()} in order to the same {@link XContentBuilder} must produce the
+ * same content as {@link ToXContent#toXContent(XContentBuilder, ToXContent.Params)}.
+ */
+public interface ChunkedToXContent {
+
+    /**
+     * Returns the chunks that make up this object. Each call returns a new iterator that starts from the beginning of the object.
+     */
+    Iterator<? extends ToXContent> toXContentChunked();
+}
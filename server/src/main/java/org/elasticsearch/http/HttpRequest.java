@@ -21,6 +21,7 @@ package org.elasticsearch.http;
 
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.rest.ChunkedRestResponseBody;
 import org.elasticsearch.rest.RestRequest;
 import org.elasticsearch.rest.RestStatus;
 
@@ -69,6 +70,17 @@ public interface HttpRequest {
      */
     HttpResponse createResponse(RestStatus status, BytesReference content);
 
+    /**
+     * Create an http response from this request and the supplied status and content, which is serialized and sent in chunks using
+     * the chunked transfer encoding. Returns {@code null} if the http implementation or the protocol version of this request do not
+     * support chunked responses, in which case the content must be sent in full through {@link #createResponse(RestStatus,
+     * BytesReference)}.
+     */
+    @Nullable
+    default HttpResponse createResponse(RestStatus status, ChunkedRestResponseBody content) {
+        return null;
+    }
+
     @Nullable
     Exception getInboundException();
 
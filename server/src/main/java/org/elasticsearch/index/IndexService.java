@@ -34,6 +34,7 @@ import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
 import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.CheckedFunction;
+import org.elasticsearch.common.Randomness;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
 import org.elasticsearch.common.settings.Setting;
@@ -44,6 +45,7 @@ import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.Maps;
 import org.elasticsearch.common.util.concurrent.AbstractAsyncTask;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.common.xcontent.NamedXContentRegistry;
 import org.elasticsearch.core.internal.io.IOUtils;
 import org.elasticsearch.env.NodeEnvironment;
@@ -75,6 +77,7 @@ import org.elasticsearch.index.shard.ShardPath;
 import org.elasticsearch.index.similarity.SimilarityService;
 import org.elasticsearch.index.store.Store;
 import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.indices.TranslogGroupCommitScheduler;
 import org.elasticsearch.indices.breaker.CircuitBreakerService;
 import org.elasticsearch.indices.cluster.IndicesClusterStateService;
 import org.elasticsearch.indices.fielddata.cache.IndicesFieldDataCache;
@@ -87,20 +90,29 @@ import org.elasticsearch.threadpool.ThreadPool;
 import java.io.Closeable;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.LongSupplier;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 
 import static java.util.Collections.emptyMap;
@@ -144,6 +156,8 @@ public class IndexService extends AbstractIndexComponent implements IndicesClust
     private final ClusterService clusterService;
     private final Client client;
     private final CircuitBreakerService circuitBreakerService;
+    @Nullable
+    private final TranslogGroupCommitScheduler translogGroupCommitScheduler;
     private final IndexNameExpressionResolver expressionResolver;
     private Supplier<Sort> indexSortSupplier;
     private ValuesSourceRegistry valuesSourceRegistry;
@@ -174,7 +188,8 @@ public class IndexService extends AbstractIndexComponent implements IndicesClust
             BooleanSupplier idFieldDataEnabled,
             BooleanSupplier allowExpensiveQueries,
             IndexNameExpressionResolver expressionResolver,
-            ValuesSourceRegistry valuesSourceRegistry) {
+            ValuesSourceRegistry valuesSourceRegistry,
+            @Nullable TranslogGroupCommitScheduler translogGroupCommitScheduler) {
         super(indexSettings);
         this.allowExpensiveQueries = allowExpensiveQueries;
         this.indexSettings = indexSettings;
@@ -182,6 +197,7 @@ public class IndexService extends AbstractIndexComponent implements IndicesClust
         this.similarityService = similarityService;
         this.namedWriteableRegistry = namedWriteableRegistry;
         this.circuitBreakerService = circuitBreakerService;
+        this.translogGroupCommitScheduler = translogGroupCommitScheduler;
         this.expressionResolver = expressionResolver;
         this.valuesSourceRegistry =  valuesSourceRegistry;
         if (needsMapperService(indexSettings, indexCreationContext)) {
@@ -474,7 +490,8 @@ public class IndexService extends AbstractIndexComponent implements IndicesClust
                     indexingOperationListeners,
                     () -> globalCheckpointSyncer.accept(shardId),
                     retentionLeaseSyncer,
-                    circuitBreakerService);
+                    circuitBreakerService,
+                    translogGroupCommitScheduler);
             eventListener.indexShardStateChanged(indexShard, null, indexShard.state(), "shard created");
             eventListener.afterIndexShardCreated(indexShard);
             shards = Maps.copyMapWithAddedEntry(shards, shardId.id(), indexShard);
@@ -830,13 +847,82 @@ public class IndexService extends AbstractIndexComponent implements IndicesClust
 
     private void maybeRefreshEngine(boolean force) {
         if (indexSettings.getRefreshInterval().millis() > 0 || force) {
-            for (IndexShard shard : this.shards.values()) {
+            final List<IndexShard> shards = searchActiveFirst(this.shards.values(), IndexShard::isSearchIdle);
+            refreshConcurrently(shards, threadPool.executor(ThreadPool.Names.REFRESH), threadPool.info(ThreadPool.Names.REFRESH).getMax(),
+                (shard, lagInNanos) -> {
+                    try {
+                        if (shard.scheduledRefresh()) {
+                            shard.addScheduledRefreshLag(lagInNanos);
+                        }
+                    } catch (IndexShardClosedException | AlreadyClosedException ex) {
+                        // fine - continue;
+                    }
+                });
+        }
+    }
+
+    /**
+     * Orders the shards that are searched first, search idle shards usually postpone their refresh anyway.
+     */
+    static <T> List<T> searchActiveFirst(Collection<T> shards, Predicate<T> isSearchIdle) {
+        final List<T> ordered = new ArrayList<>(shards.size());
+        final List<T> searchIdleShards = new ArrayList<>();
+        for (T shard : shards) {
+            if (isSearchIdle.test(shard)) {
+                searchIdleShards.add(shard);
+            } else {
+                ordered.add(shard);
+            }
+        }
+        ordered.addAll(searchIdleShards);
+        return ordered;
+    }
+
+    /**
+     * Refreshes the given shards in order. The calling thread refreshes shards itself and is helped by up to
+     * {@code maxThreads - 1} threads of the executor, so that a slow shard does not hold up the refresh of the other shards
+     * of this index. The refresh of each shard is given the time it waited since the refresh of the index started. A failure
+     * to refresh a shard does not prevent the refresh of the other shards, the first failure is rethrown once all shards
+     * are refreshed.
+     */
+    static <T> void refreshConcurrently(List<T> shards, Executor executor, int maxThreads, ObjLongConsumer<T> refresh) {
+        if (shards.isEmpty()) {
+            return;
+        }
+        final long startTimeNanos = System.nanoTime();
+        final AtomicInteger nextShard = new AtomicInteger();
+        final CountDownLatch refreshed = new CountDownLatch(shards.size());
+        final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        final Runnable refresher = () -> {
+            for (int i = nextShard.getAndIncrement(); i < shards.size(); i = nextShard.getAndIncrement()) {
                 try {
-                    shard.scheduledRefresh();
-                } catch (IndexShardClosedException | AlreadyClosedException ex) {
-                    // fine - continue;
+                    refresh.accept(shards.get(i), System.nanoTime() - startTimeNanos);
+                } catch (RuntimeException e) {
+                    if (failure.compareAndSet(null, e) == false) {
+                        failure.get().addSuppressed(e);
+                    }
+                } finally {
+                    refreshed.countDown();
                 }
             }
+        };
+        final int helpers = Math.min(shards.size(), maxThreads) - 1;
+        for (int i = 0; i < helpers; i++) {
+            try {
+                executor.execute(refresher);
+            } catch (EsRejectedExecutionException e) {
+                break; // the calling thread refreshes the remaining shards
+            }
+        }
+        refresher.run();
+        try {
+            // only waits for the shards that helpers already started to refresh
+            refreshed.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure.get() != null) {
+            throw failure.get();
         }
     }
 
@@ -956,8 +1042,19 @@ public class IndexService extends AbstractIndexComponent implements IndicesClust
         }
     }
 
+    /**
+     * Spreads the first refresh of an index over the refresh interval so that the indices created or recovered at the same
+     * time, like after a restart, do not keep refreshing all at once.
+     */
+    static TimeValue firstRefreshDelay(TimeValue interval, Random random) {
+        return TimeValue.timeValueMillis(1 + (long) (random.nextDouble() * (interval.millis() - 1)));
+    }
+
     final class AsyncRefreshTask extends BaseAsyncTask {
 
+        // not initialized in its declaration as it is first read from the constructor of the super class
+        private boolean scheduled;
+
         AsyncRefreshTask(IndexService indexService) {
             super(indexService, indexService.getIndexSettings().getRefreshInterval());
         }
@@ -967,6 +1064,16 @@ public class IndexService extends AbstractIndexComponent implements IndicesClust
             indexService.maybeRefreshEngine(false);
         }
 
+        @Override
+        protected TimeValue nextDelay() {
+            final TimeValue interval = getInterval();
+            if (scheduled == false) {
+                scheduled = true;
+                return firstRefreshDelay(interval, Randomness.get());
+            }
+            return interval;
+        }
+
         @Override
         protected String getThreadPool() {
             return ThreadPool.Names.REFRESH;
@@ -116,6 +116,14 @@ public final class EngineConfig {
         }
     }, Property.IndexScope, Property.NodeScope);
 
+    /**
+     * Index setting to hold the versions of un-refreshed documents in paged arrays instead of a map of objects, which reduces the
+     * pressure on the garbage collector of update heavy indices with long refresh intervals.
+     * This setting is <b>not</b> realtime updateable.
+     */
+    public static final Setting<Boolean> INDEX_VERSION_MAP_PAGED_SETTING =
+        Setting.boolSetting("index.version_map.paged", false, Property.IndexScope);
+
     private final TranslogConfig translogConfig;
 
     /**
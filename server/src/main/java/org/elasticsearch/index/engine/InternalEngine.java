@@ -138,7 +138,7 @@ public class InternalEngine extends Engine {
 
     // A uid (in the form of BytesRef) to the version map
     // we use the hashed variant since we iterate over it and check removal and additions on existing keys
-    private final LiveVersionMap versionMap = new LiveVersionMap();
+    private final LiveVersionMap versionMap;
 
     private volatile SegmentInfos lastCommittedSegmentInfos;
 
@@ -192,6 +192,11 @@ public class InternalEngine extends Engine {
             final EngineConfig engineConfig,
             final BiFunction<Long, Long, LocalCheckpointTracker> localCheckpointTrackerSupplier) {
         super(engineConfig);
+        if (engineConfig.getIndexSettings().getValue(EngineConfig.INDEX_VERSION_MAP_PAGED_SETTING)) {
+            versionMap = new LiveVersionMap(engineConfig.getTranslogConfig().getBigArrays());
+        } else {
+            versionMap = new LiveVersionMap();
+        }
         final TranslogDeletionPolicy translogDeletionPolicy = new TranslogDeletionPolicy();
         store.incRef();
         IndexWriter writer = null;
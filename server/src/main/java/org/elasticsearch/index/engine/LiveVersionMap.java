@@ -24,6 +24,7 @@ import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.RamUsageEstimator;
 import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.common.util.concurrent.KeyedLock;
 
@@ -38,15 +39,17 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
 
     private final KeyedLock<BytesRef> keyedLock = new KeyedLock<>();
 
-    private static final class VersionLookup {
+    /**
+     * Holds the versions of the documents that were changed while this lookup was active, see {@link Maps}.
+     */
+    abstract static class VersionLookup {
 
         /** Tracks bytes used by current map, i.e. what is freed on refresh. For deletes, which are also added to tombstones,
          *  we only account for the CHM entry here, and account for BytesRef/VersionValue against the tombstones, since refresh would not
          *  clear this RAM. */
         final AtomicLong ramBytesUsed = new AtomicLong();
 
-        private static final VersionLookup EMPTY = new VersionLookup(Collections.emptyMap());
-        private final Map<BytesRef, VersionValue> map;
+        private static final VersionLookup EMPTY = new HeapVersionLookup(Collections.emptyMap());
 
         // each version map has a notion of safe / unsafe which allows us to apply certain optimization in the auto-generated ID usecase
         // where we know that documents can't have any duplicates so we can skip the version map entirely. This reduces
@@ -64,24 +67,45 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
         // the tombstone
         private final AtomicLong minDeleteTimestamp = new AtomicLong(Long.MAX_VALUE);
 
-        private VersionLookup(Map<BytesRef, VersionValue> map) {
-            this.map = map;
-        }
+        abstract VersionValue get(BytesRef key);
 
-        VersionValue get(BytesRef key) {
-            return map.get(key);
-        }
+        /**
+         * Puts the version of the given uid and accounts for the RAM it uses.
+         */
+        abstract void put(BytesRef key, VersionValue value);
 
-        VersionValue put(BytesRef key, VersionValue value) {
-            return map.put(key, value);
-        }
+        /**
+         * Removes the version of the given uid and accounts for the RAM this frees, if any.
+         */
+        abstract void remove(BytesRef key);
 
-        boolean isEmpty() {
-            return map.isEmpty();
+        abstract boolean isEmpty();
+
+        abstract int size();
+
+        /**
+         * Returns a new empty lookup of the same kind, sized for the given number of entries.
+         */
+        abstract VersionLookup newLookup(int expectedSize);
+
+        /**
+         * Returns the versions held by this lookup as a map, only used for testing and assertions.
+         */
+        abstract Map<BytesRef, VersionValue> asMap();
+
+        /**
+         * Releases the resources held by this lookup once it is no longer used. Lookups that are still referenced by concurrent
+         * readers must return <code>null</code> from {@link #get} after this call, which is safe since lookups are only released
+         * once their operations are visible in the searcher.
+         */
+        void close() {
         }
 
-        int size() {
-            return map.size();
+        final void adjustRam(long value) {
+            if (value != 0) {
+                long v = ramBytesUsed.addAndGet(value);
+                assert v >= 0 : "bytes=" + v;
+            }
         }
 
         boolean isUnsafe() {
@@ -92,10 +116,6 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
             unsafe = true;
         }
 
-        public VersionValue remove(BytesRef uid) {
-            return map.remove(uid);
-        }
-
         public void updateMinDeletedTimestamp(DeleteVersionValue delete) {
             long time = delete.time;
             minDeleteTimestamp.updateAndGet(prev -> Math.min(time, prev));
@@ -103,6 +123,61 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
 
     }
 
+    /**
+     * The default {@link VersionLookup} that holds the versions in a {@link java.util.concurrent.ConcurrentHashMap}.
+     */
+    private static final class HeapVersionLookup extends VersionLookup {
+
+        private final Map<BytesRef, VersionValue> map;
+
+        private HeapVersionLookup(Map<BytesRef, VersionValue> map) {
+            this.map = map;
+        }
+
+        @Override
+        VersionValue get(BytesRef key) {
+            return map.get(key);
+        }
+
+        @Override
+        void put(BytesRef uid, VersionValue version) {
+            long uidRAMBytesUsed = BASE_BYTES_PER_BYTESREF + uid.bytes.length;
+            long ramAccounting = BASE_BYTES_PER_CHM_ENTRY + version.ramBytesUsed() + uidRAMBytesUsed;
+            VersionValue previousValue = map.put(uid, version);
+            ramAccounting += previousValue == null ? 0 : -(BASE_BYTES_PER_CHM_ENTRY + previousValue.ramBytesUsed() + uidRAMBytesUsed);
+            adjustRam(ramAccounting);
+        }
+
+        @Override
+        void remove(BytesRef uid) {
+            VersionValue previousValue = map.remove(uid);
+            if (previousValue != null) {
+                long uidRAMBytesUsed = BASE_BYTES_PER_BYTESREF + uid.bytes.length;
+                adjustRam(-(BASE_BYTES_PER_CHM_ENTRY + previousValue.ramBytesUsed() + uidRAMBytesUsed));
+            }
+        }
+
+        @Override
+        boolean isEmpty() {
+            return map.isEmpty();
+        }
+
+        @Override
+        int size() {
+            return map.size();
+        }
+
+        @Override
+        VersionLookup newLookup(int expectedSize) {
+            return new HeapVersionLookup(ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency(expectedSize));
+        }
+
+        @Override
+        Map<BytesRef, VersionValue> asMap() {
+            return map;
+        }
+    }
+
     private static final class Maps {
 
         // All writes (adds and deletes) go into here:
@@ -123,9 +198,8 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
             this.previousMapsNeededSafeAccess = previousMapsNeededSafeAccess;
         }
 
-        Maps() {
-            this(new VersionLookup(ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency()),
-                VersionLookup.EMPTY, false);
+        Maps(VersionLookup current) {
+            this(current, VersionLookup.EMPTY, false);
         }
 
         boolean isSafeAccessMode() {
@@ -143,8 +217,7 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
          * Builds a new map for the refresh transition this should be called in beforeRefresh()
          */
         Maps buildTransitionMap() {
-            return new Maps(new VersionLookup(ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency(current.size())), current,
-                shouldInheritSafeAccess());
+            return new Maps(current.newLookup(current.size()), current, shouldInheritSafeAccess());
         }
 
         /**
@@ -155,27 +228,12 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
         }
 
         void put(BytesRef uid, VersionValue version) {
-            long uidRAMBytesUsed = BASE_BYTES_PER_BYTESREF + uid.bytes.length;
-            long ramAccounting = BASE_BYTES_PER_CHM_ENTRY + version.ramBytesUsed() + uidRAMBytesUsed;
-            VersionValue previousValue = current.put(uid, version);
-            ramAccounting += previousValue == null ? 0 : -(BASE_BYTES_PER_CHM_ENTRY + previousValue.ramBytesUsed() + uidRAMBytesUsed);
-            adjustRam(ramAccounting);
-        }
-
-        void adjustRam(long value) {
-            if (value != 0) {
-                long v = current.ramBytesUsed.addAndGet(value);
-                assert v >= 0 : "bytes=" + v;
-            }
+            current.put(uid, version);
         }
 
         void remove(BytesRef uid, DeleteVersionValue deleted) {
-            VersionValue previousValue = current.remove(uid);
+            current.remove(uid);
             current.updateMinDeletedTimestamp(deleted);
-            if (previousValue != null) {
-                long uidRAMBytesUsed = BASE_BYTES_PER_BYTESREF + uid.bytes.length;
-                adjustRam(-(BASE_BYTES_PER_CHM_ENTRY + previousValue.ramBytesUsed() + uidRAMBytesUsed));
-            }
             if (old != VersionLookup.EMPTY) {
                 // we also need to remove it from the old map here to make sure we don't read this stale value while
                 // we are in the middle of a refresh. Most of the time the old map is an empty map so we can skip it there.
@@ -191,10 +249,30 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
     // All deletes also go here, and delete "tombstones" are retained after refresh:
     private final Map<BytesRef, DeleteVersionValue> tombstones = ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency();
 
-    private volatile Maps maps = new Maps();
+    // an empty lookup that new lookups are created from on refresh
+    private final VersionLookup emptyLookup;
+    private volatile Maps maps;
     // we maintain a second map that only receives the updates that we skip on the actual map (unsafe ops)
     // this map is only maintained if assertions are enabled
-    private volatile Maps unsafeKeysMap = new Maps();
+    private volatile Maps unsafeKeysMap = new Maps(VersionLookup.EMPTY.newLookup(0));
+
+    LiveVersionMap() {
+        this(VersionLookup.EMPTY);
+    }
+
+    /**
+     * Creates a version map that holds the versions of un-refreshed documents in paged arrays allocated from the given
+     * {@link BigArrays} rather than in a map of objects, see {@link PagedVersionLookup}. Like the map of objects, the arrays
+     * are accounted through {@link #ramBytesUsed()} by the indexing buffer rather than on a circuit breaker.
+     */
+    LiveVersionMap(BigArrays bigArrays) {
+        this(new PagedVersionLookup(bigArrays.withoutCircuitBreaker(), 0));
+    }
+
+    private LiveVersionMap(VersionLookup emptyLookup) {
+        this.emptyLookup = emptyLookup;
+        this.maps = new Maps(emptyLookup.newLookup(0));
+    }
 
     /**
      * Bytes consumed for each BytesRef UID:
@@ -242,7 +320,10 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
         // map.  While reopen is running, any lookup will first
         // try this new map, then fallback to old, then to the
         // current searcher:
-        maps = maps.buildTransitionMap();
+        final Maps previousMaps = maps;
+        maps = previousMaps.buildTransitionMap();
+        // the old map of the previous refresh, if any, is replaced by the map that is refreshing now
+        previousMaps.old.close();
         assert (unsafeKeysMap = unsafeKeysMap.buildTransitionMap()) != null;
         // This is not 100% correct, since concurrent indexing ops can change these counters in between our execution of the previous
         // line and this one, but that should be minor, and the error won't accumulate over time:
@@ -257,7 +338,9 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
         // reopen, and so any concurrent indexing requests can still sneak in a few additions to that current map that are in fact
         // reflected in the previous reader.   We don't touch tombstones here: they expire on their own index.gc_deletes timeframe:
 
-        maps = maps.invalidateOldMap();
+        final Maps previousMaps = maps;
+        maps = previousMaps.invalidateOldMap();
+        previousMaps.old.close();
         assert (unsafeKeysMap = unsafeKeysMap.invalidateOldMap()) != null;
 
     }
@@ -415,7 +498,10 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
      * Called when this index is closed.
      */
     synchronized void clear() {
-        maps = new Maps();
+        final Maps previousMaps = maps;
+        maps = new Maps(emptyLookup.newLookup(0));
+        previousMaps.current.close();
+        previousMaps.old.close();
         tombstones.clear();
         // NOTE: we can't zero this here, because a refresh thread could be calling InternalEngine.pruneDeletedTombstones at the same time,
         // and this will lead to an assert trip.  Presumably it's fine if our ramBytesUsedTombstones is non-zero after clear since the
@@ -454,7 +540,7 @@ final class LiveVersionMap implements ReferenceManager.RefreshListener, Accounta
      * Returns the current internal versions as a point in time snapshot
      */
     Map<BytesRef, VersionValue> getAllCurrent() {
-        return maps.current.map;
+        return maps.current.asMap();
     }
 
     /** Iterates over all deleted versions, including new ones (not yet exposed via reader) and old ones
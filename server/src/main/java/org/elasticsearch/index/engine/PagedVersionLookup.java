@@ -0,0 +1,257 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine;
+
+import com.carrotsearch.hppc.BitMixer;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.BytesRefHash;
+import org.elasticsearch.common.util.IntArray;
+import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.index.translog.Translog;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link LiveVersionMap.VersionLookup} that stores the uids and versions of un-refreshed documents in paged arrays allocated from
+ * {@link BigArrays} instead of a map of objects. Each entry costs the bytes of the uid and a few primitives, and the number of
+ * objects does not grow with the number of entries, which keeps the pressure on the garbage collector low for update heavy
+ * workloads with long refresh intervals. The versions are materialized into {@link IndexVersionValue} instances on lookup.
+ * <p>
+ * Entries are spread over a fixed number of stripes that are each guarded by their own lock. Removed entries are only marked as
+ * such since the whole lookup is released on refresh.
+ */
+final class PagedVersionLookup extends LiveVersionMap.VersionLookup {
+
+    private static final int NUM_STRIPES = 16;
+    private static final int STRIPE_SHIFT = Integer.SIZE - Integer.numberOfTrailingZeros(NUM_STRIPES);
+
+    /** The translog generation of an entry that has no translog location. */
+    private static final long NO_LOCATION = -1;
+    /** The translog generation of an entry that was removed. */
+    private static final long REMOVED = -2;
+
+    private final BigArrays bigArrays;
+    private final Stripe[] stripes;
+    private final AtomicInteger size = new AtomicInteger();
+
+    PagedVersionLookup(BigArrays bigArrays, int expectedSize) {
+        this.bigArrays = bigArrays;
+        this.stripes = new Stripe[NUM_STRIPES];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe(expectedSize / NUM_STRIPES);
+        }
+    }
+
+    private Stripe stripe(BytesRef uid) {
+        // the hash uses the low bits of the mixed hash code so we use the high bits to pick a stripe
+        return stripes[BitMixer.mix32(uid.hashCode()) >>> STRIPE_SHIFT];
+    }
+
+    @Override
+    VersionValue get(BytesRef uid) {
+        return stripe(uid).get(uid);
+    }
+
+    @Override
+    void put(BytesRef uid, VersionValue value) {
+        assert value instanceof IndexVersionValue : "only index versions are stored in the live maps but got " + value;
+        stripe(uid).put(uid, value);
+    }
+
+    @Override
+    void remove(BytesRef uid) {
+        stripe(uid).remove(uid);
+    }
+
+    @Override
+    boolean isEmpty() {
+        return size.get() == 0;
+    }
+
+    @Override
+    int size() {
+        return size.get();
+    }
+
+    @Override
+    LiveVersionMap.VersionLookup newLookup(int expectedSize) {
+        return new PagedVersionLookup(bigArrays, expectedSize);
+    }
+
+    @Override
+    Map<BytesRef, VersionValue> asMap() {
+        final Map<BytesRef, VersionValue> map = new HashMap<>();
+        for (Stripe stripe : stripes) {
+            stripe.copyTo(map);
+        }
+        return map;
+    }
+
+    @Override
+    void close() {
+        for (Stripe stripe : stripes) {
+            stripe.close();
+        }
+    }
+
+    private final class Stripe {
+
+        private final long initialCapacity;
+        private final BytesRef spare = new BytesRef();
+        // allocated on first use, so that idle shards don't hold any pages
+        private BytesRefHash uids;
+        private LongArray versions;
+        private LongArray seqNos;
+        private LongArray terms;
+        private LongArray locationGenerations;
+        private LongArray locationOffsets;
+        private IntArray locationSizes;
+        private boolean closed;
+
+        Stripe(long initialCapacity) {
+            this.initialCapacity = Math.max(1, initialCapacity);
+        }
+
+        synchronized VersionValue get(BytesRef uid) {
+            if (uids == null) {
+                return null;
+            }
+            final long id = uids.find(uid);
+            if (id < 0 || locationGenerations.get(id) == REMOVED) {
+                return null;
+            }
+            return value(id);
+        }
+
+        synchronized void put(BytesRef uid, VersionValue value) {
+            if (closed) {
+                // a concurrent refresh released this lookup, the operation is visible in the searcher
+                return;
+            }
+            final long ramBytesUsedBefore = ramBytesUsed();
+            if (uids == null) {
+                allocate();
+            }
+            long id = uids.add(uid);
+            final boolean added;
+            if (id < 0) {
+                id = -1 - id;
+                added = locationGenerations.get(id) == REMOVED;
+            } else {
+                versions = bigArrays.grow(versions, id + 1);
+                seqNos = bigArrays.grow(seqNos, id + 1);
+                terms = bigArrays.grow(terms, id + 1);
+                locationGenerations = bigArrays.grow(locationGenerations, id + 1);
+                locationOffsets = bigArrays.grow(locationOffsets, id + 1);
+                locationSizes = bigArrays.grow(locationSizes, id + 1);
+                added = true;
+            }
+            versions.set(id, value.version);
+            seqNos.set(id, value.seqNo);
+            terms.set(id, value.term);
+            final Translog.Location location = value.getLocation();
+            if (location == null) {
+                locationGenerations.set(id, NO_LOCATION);
+            } else {
+                assert location.generation >= 0 : location;
+                locationGenerations.set(id, location.generation);
+                locationOffsets.set(id, location.translogLocation);
+                locationSizes.set(id, location.size);
+            }
+            if (added) {
+                size.incrementAndGet();
+            }
+            adjustRam(ramBytesUsed() - ramBytesUsedBefore);
+        }
+
+        synchronized void remove(BytesRef uid) {
+            if (uids == null) {
+                return;
+            }
+            final long id = uids.find(uid);
+            if (id >= 0 && locationGenerations.get(id) != REMOVED) {
+                locationGenerations.set(id, REMOVED);
+                size.decrementAndGet();
+            }
+        }
+
+        synchronized void copyTo(Map<BytesRef, VersionValue> map) {
+            if (uids == null) {
+                return;
+            }
+            for (long id = 0; id < uids.size(); id++) {
+                if (locationGenerations.get(id) != REMOVED) {
+                    map.put(BytesRef.deepCopyOf(uids.get(id, spare)), value(id));
+                }
+            }
+        }
+
+        private VersionValue value(long id) {
+            final long locationGeneration = locationGenerations.get(id);
+            final Translog.Location location = locationGeneration == NO_LOCATION ? null
+                : new Translog.Location(locationGeneration, locationOffsets.get(id), locationSizes.get(id));
+            return new IndexVersionValue(location, versions.get(id), seqNos.get(id), terms.get(id));
+        }
+
+        private void allocate() {
+            boolean success = false;
+            try {
+                uids = new BytesRefHash(initialCapacity, bigArrays);
+                versions = bigArrays.newLongArray(initialCapacity, false);
+                seqNos = bigArrays.newLongArray(initialCapacity, false);
+                terms = bigArrays.newLongArray(initialCapacity, false);
+                locationGenerations = bigArrays.newLongArray(initialCapacity, false);
+                locationOffsets = bigArrays.newLongArray(initialCapacity, false);
+                locationSizes = bigArrays.newIntArray(initialCapacity, false);
+                success = true;
+            } finally {
+                if (success == false) {
+                    release();
+                }
+            }
+        }
+
+        private long ramBytesUsed() {
+            if (uids == null) {
+                return 0;
+            }
+            return uids.ramBytesUsed() + versions.ramBytesUsed() + seqNos.ramBytesUsed() + terms.ramBytesUsed()
+                + locationGenerations.ramBytesUsed() + locationOffsets.ramBytesUsed() + locationSizes.ramBytesUsed();
+        }
+
+        synchronized void close() {
+            if (closed == false) {
+                closed = true;
+                release();
+            }
+        }
+
+        private void release() {
+            Releasables.close(uids, versions, seqNos, terms, locationGenerations, locationOffsets, locationSizes);
+            uids = null;
+            versions = seqNos = terms = locationGenerations = locationOffsets = null;
+            locationSizes = null;
+        }
+    }
+}
@@ -50,6 +50,7 @@ import org.elasticsearch.search.sort.NestedSortBuilder;
 import org.elasticsearch.search.sort.SortOrder;
 
 import java.io.IOException;
+import java.util.concurrent.Executor;
 
 /**
  * Thread-safe utility class that allows to get per-segment values via the
@@ -264,5 +265,13 @@ public interface IndexFieldData<FD extends LeafFieldData> extends IndexComponent
 
         IndexFieldData<FD> localGlobalDirect(DirectoryReader indexReader) throws Exception;
 
+        /**
+         * Like {@link #localGlobalDirect(DirectoryReader)} but implementations may use the provided executor
+         * to load the segments in parallel.
+         */
+        default IndexFieldData<FD> localGlobalDirect(DirectoryReader indexReader, Executor executor) throws Exception {
+            return localGlobalDirect(indexReader);
+        }
+
     }
 }
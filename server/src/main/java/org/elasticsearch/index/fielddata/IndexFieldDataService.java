@@ -52,6 +52,13 @@ public class IndexFieldDataService extends AbstractIndexComponent implements Clo
                     throw new IllegalArgumentException("failed to parse [" + s + "] must be one of [node,none]");
             }
         }, Property.IndexScope);
+    /**
+     * The maximum number of terms of a segment that are copied in memory when global ordinals are built in parallel. The terms
+     * of segments that have more terms are read from the terms dictionary while merging. Defaults to {@code 0}, which never
+     * copies terms.
+     */
+    public static final Setting<Long> INDEX_FIELDDATA_GLOBAL_ORDINALS_MAX_LOADED_TERMS_SETTING =
+        Setting.longSetting("index.fielddata.global_ordinals.max_loaded_terms", 0, 0, Property.IndexScope);
 
     private final CircuitBreakerService circuitBreakerService;
 
@@ -23,6 +23,7 @@ import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.OrdinalMap;
 
+import java.util.concurrent.Executor;
 
 /**
  * Specialization of {@link IndexFieldData} for data that is indexed with ordinals.
@@ -42,6 +43,15 @@ public interface IndexOrdinalsFieldData extends IndexFieldData.Global<LeafOrdina
     @Override
     IndexOrdinalsFieldData localGlobalDirect(DirectoryReader indexReader) throws Exception;
 
+    /**
+     * Load a global view of the ordinals for the given {@link IndexReader}, possibly loading
+     * the segments in parallel on the provided executor.
+     */
+    @Override
+    default IndexOrdinalsFieldData localGlobalDirect(DirectoryReader indexReader, Executor executor) throws Exception {
+        return localGlobalDirect(indexReader);
+    }
+
     /**
      * Returns the underlying {@link OrdinalMap} for this fielddata
      * or null if global ordinals are not needed (constant value or single segment).
@@ -20,16 +20,29 @@
 package org.elasticsearch.index.fielddata.ordinals;
 
 import org.apache.logging.log4j.Logger;
+import org.apache.lucene.index.BaseTermsEnum;
 import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.ImpactsEnum;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.OrdinalMap;
+import org.apache.lucene.index.PostingsEnum;
 import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefArray;
+import org.apache.lucene.util.BytesRefBuilder;
+import org.apache.lucene.util.Counter;
 import org.apache.lucene.util.packed.PackedInts;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.common.CheckedConsumer;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.fielddata.LeafOrdinalsFieldData;
+import org.elasticsearch.index.fielddata.IndexFieldDataService;
 import org.elasticsearch.index.fielddata.IndexOrdinalsFieldData;
 import org.elasticsearch.index.fielddata.ScriptDocValues;
 import org.elasticsearch.index.fielddata.plain.AbstractLeafOrdinalsFieldData;
@@ -38,7 +51,12 @@ import org.elasticsearch.indices.breaker.CircuitBreakerService;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 
 /**
@@ -47,6 +65,11 @@ import java.util.function.Function;
 public enum GlobalOrdinalsBuilder {
     ;
 
+    /**
+     * How many bytes of terms of a segment are loaded in memory between two updates of the circuit breaker.
+     */
+    private static final long LOADED_TERMS_ACCOUNTING_BYTES = 1 << 20;
+
     /**
      * Build global ordinals for the provided {@link IndexReader}.
      */
@@ -63,6 +86,50 @@ public enum GlobalOrdinalsBuilder {
             subs[i] = atomicFD[i].getOrdinalsValues();
         }
         final OrdinalMap ordinalMap = OrdinalMap.build(null, subs, PackedInts.DEFAULT);
+        return newGlobalOrdinals(indexFieldData, indexSettings, breakerService, logger, scriptFunction, atomicFD, ordinalMap, startTimeNS);
+    }
+
+    /**
+     * Build global ordinals for the provided {@link IndexReader}, loading the field data of the segments in parallel on
+     * the provided executor. The calling thread takes part in the loading and only waits for segments that are already
+     * being loaded by another thread, so it is safe to call this method from a thread of the executor.
+     * Segments that have at most {@link IndexFieldDataService#INDEX_FIELDDATA_GLOBAL_ORDINALS_MAX_LOADED_TERMS_SETTING}
+     * terms also get their terms copied in memory in parallel, so that they don't need to be decoded while merging. The
+     * memory used by the copied terms is accounted on the field data circuit breaker until the {@link OrdinalMap} is built.
+     * The terms of the other segments are read from their terms dictionary while merging.
+     */
+    public static IndexOrdinalsFieldData build(final IndexReader indexReader, IndexOrdinalsFieldData indexFieldData,
+            IndexSettings indexSettings, CircuitBreakerService breakerService, Logger logger,
+            Function<SortedSetDocValues, ScriptDocValues<?>> scriptFunction, Executor executor) throws IOException {
+        assert indexReader.leaves().size() > 1;
+        long startTimeNS = System.nanoTime();
+
+        final long maxLoadedTerms = indexSettings.getValue(IndexFieldDataService.INDEX_FIELDDATA_GLOBAL_ORDINALS_MAX_LOADED_TERMS_SETTING);
+        final CircuitBreaker breaker = breakerService.getBreaker(CircuitBreaker.FIELDDATA);
+        final LeafOrdinalsFieldData[] atomicFD = new LeafOrdinalsFieldData[indexReader.leaves().size()];
+        final TermsEnum[] subs = new TermsEnum[indexReader.leaves().size()];
+        final long[] weights = new long[indexReader.leaves().size()];
+        final AtomicLong loadedTermsBytes = new AtomicLong();
+        final OrdinalMap ordinalMap;
+        try {
+            runConcurrently(indexReader.leaves().size(), executor, i -> {
+                atomicFD[i] = indexFieldData.load(indexReader.leaves().get(i));
+                final SortedSetDocValues values = atomicFD[i].getOrdinalsValues();
+                subs[i] = values.getValueCount() <= maxLoadedTerms
+                    ? loadTerms(values, breaker, loadedTermsBytes, indexFieldData.getFieldName())
+                    : values.termsEnum();
+                weights[i] = values.getValueCount();
+            });
+            ordinalMap = OrdinalMap.build(null, subs, weights, PackedInts.DEFAULT);
+        } finally {
+            breaker.addWithoutBreaking(-loadedTermsBytes.get());
+        }
+        return newGlobalOrdinals(indexFieldData, indexSettings, breakerService, logger, scriptFunction, atomicFD, ordinalMap, startTimeNS);
+    }
+
+    private static IndexOrdinalsFieldData newGlobalOrdinals(IndexOrdinalsFieldData indexFieldData, IndexSettings indexSettings,
+            CircuitBreakerService breakerService, Logger logger, Function<SortedSetDocValues, ScriptDocValues<?>> scriptFunction,
+            LeafOrdinalsFieldData[] atomicFD, OrdinalMap ordinalMap, long startTimeNS) {
         final long memorySizeInBytes = ordinalMap.ramBytesUsed();
         breakerService.getBreaker(CircuitBreaker.FIELDDATA).addWithoutBreaking(memorySizeInBytes);
 
@@ -114,4 +181,169 @@ public enum GlobalOrdinalsBuilder {
         );
     }
 
+    /**
+     * Runs {@code numTasks} tasks using the calling thread and as many threads of the executor as are available. Tasks
+     * are picked up in order by whichever thread is free first, so the calling thread never waits on a task that has not
+     * started yet.
+     */
+    static void runConcurrently(int numTasks, Executor executor, CheckedConsumer<Integer, IOException> task) throws IOException {
+        final AtomicInteger nextTask = new AtomicInteger();
+        final CountDownLatch completedTasks = new CountDownLatch(numTasks);
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        final Runnable worker = () -> {
+            int i;
+            while ((i = nextTask.getAndIncrement()) < numTasks) {
+                try {
+                    if (failure.get() == null) {
+                        task.accept(i);
+                    }
+                } catch (Exception e) {
+                    if (failure.compareAndSet(null, e) == false) {
+                        failure.get().addSuppressed(e);
+                    }
+                } finally {
+                    completedTasks.countDown();
+                }
+            }
+        };
+        for (int i = 1; i < numTasks && nextTask.get() < numTasks; i++) {
+            try {
+                executor.execute(worker);
+            } catch (EsRejectedExecutionException e) {
+                // the calling thread picks up the remaining tasks
+                break;
+            }
+        }
+        worker.run();
+        try {
+            completedTasks.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while building global ordinals", e);
+        }
+        final Exception e = failure.get();
+        if (e != null) {
+            if (e instanceof IOException) {
+                throw (IOException) e;
+            }
+            throw ExceptionsHelper.convertToRuntime(e);
+        }
+    }
+
+    /**
+     * Copies the terms of a segment in memory so that they don't need to be decoded again while merging.
+     */
+    private static TermsEnum loadTerms(SortedSetDocValues values, CircuitBreaker breaker, AtomicLong loadedTermsBytes,
+                                       String fieldName) throws IOException {
+        if (values.getValueCount() >= ArrayUtil.MAX_ARRAY_LENGTH) {
+            return values.termsEnum();
+        }
+        final Counter bytesUsed = Counter.newCounter();
+        final BytesRefArray terms = new BytesRefArray(bytesUsed);
+        long accountedBytes = 0;
+        final TermsEnum termsEnum = values.termsEnum();
+        for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+            terms.append(term);
+            if (bytesUsed.get() - accountedBytes >= LOADED_TERMS_ACCOUNTING_BYTES) {
+                final long delta = bytesUsed.get() - accountedBytes;
+                breaker.addEstimateBytesAndMaybeBreak(delta, fieldName);
+                loadedTermsBytes.addAndGet(delta);
+                accountedBytes += delta;
+            }
+        }
+        final long delta = bytesUsed.get() - accountedBytes;
+        breaker.addEstimateBytesAndMaybeBreak(delta, fieldName);
+        loadedTermsBytes.addAndGet(delta);
+        assert terms.size() == values.getValueCount();
+        return new LoadedTermsEnum(terms);
+    }
+
+    /**
+     * A {@link TermsEnum} over the terms of a segment that were loaded in memory. Only supports what
+     * {@link OrdinalMap} needs: iterating the terms in order along with their ordinals, and seeking.
+     */
+    static final class LoadedTermsEnum extends BaseTermsEnum {
+        private final BytesRefArray terms;
+        private final BytesRefBuilder spare = new BytesRefBuilder();
+        private int ord = -1;
+        private BytesRef term;
+
+        LoadedTermsEnum(BytesRefArray terms) {
+            this.terms = terms;
+        }
+
+        @Override
+        public BytesRef next() {
+            if (ord + 1 >= terms.size()) {
+                ord = terms.size();
+                term = null;
+            } else {
+                term = terms.get(spare, ++ord);
+            }
+            return term;
+        }
+
+        @Override
+        public SeekStatus seekCeil(BytesRef text) {
+            int low = 0;
+            int high = terms.size() - 1;
+            while (low <= high) {
+                final int mid = (low + high) >>> 1;
+                final int cmp = terms.get(spare, mid).compareTo(text);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    seekExact(mid);
+                    return SeekStatus.FOUND;
+                }
+            }
+            if (low == terms.size()) {
+                ord = terms.size();
+                term = null;
+                return SeekStatus.END;
+            }
+            seekExact(low);
+            return SeekStatus.NOT_FOUND;
+        }
+
+        @Override
+        public void seekExact(long ord) {
+            assert ord >= 0 && ord < terms.size();
+            this.ord = (int) ord;
+            this.term = terms.get(spare, this.ord);
+        }
+
+        @Override
+        public BytesRef term() {
+            return term;
+        }
+
+        @Override
+        public long ord() {
+            return ord;
+        }
+
+        @Override
+        public int docFreq() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long totalTermFreq() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public PostingsEnum postings(PostingsEnum reuse, int flags) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ImpactsEnum impacts(int flags) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
 }
@@ -37,6 +37,7 @@ import org.elasticsearch.indices.breaker.CircuitBreakerService;
 import org.elasticsearch.search.aggregations.support.ValuesSourceType;
 
 import java.io.IOException;
+import java.util.concurrent.Executor;
 
 public abstract class AbstractIndexOrdinalsFieldData extends AbstractIndexFieldData<LeafOrdinalsFieldData>
         implements IndexOrdinalsFieldData {
@@ -119,6 +120,12 @@ public abstract class AbstractIndexOrdinalsFieldData extends AbstractIndexFieldD
                 AbstractLeafOrdinalsFieldData.DEFAULT_SCRIPT_FUNCTION);
     }
 
+    @Override
+    public IndexOrdinalsFieldData localGlobalDirect(DirectoryReader indexReader, Executor executor) throws Exception {
+        return GlobalOrdinalsBuilder.build(indexReader, this, indexSettings, breakerService, logger,
+                AbstractLeafOrdinalsFieldData.DEFAULT_SCRIPT_FUNCTION, executor);
+    }
+
     @Override
     protected LeafOrdinalsFieldData empty(int maxDoc) {
         return AbstractLeafOrdinalsFieldData.empty();
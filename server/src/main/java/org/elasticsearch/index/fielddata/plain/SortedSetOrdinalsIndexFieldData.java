@@ -52,6 +52,7 @@ import org.elasticsearch.search.sort.BucketedSort;
 import org.elasticsearch.search.sort.SortOrder;
 
 import java.io.IOException;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 
 public class SortedSetOrdinalsIndexFieldData implements IndexOrdinalsFieldData {
@@ -214,6 +215,11 @@ public class SortedSetOrdinalsIndexFieldData implements IndexOrdinalsFieldData {
         return GlobalOrdinalsBuilder.build(indexReader, this, indexSettings, breakerService, logger, scriptFunction);
     }
 
+    @Override
+    public IndexOrdinalsFieldData localGlobalDirect(DirectoryReader indexReader, Executor executor) throws Exception {
+        return GlobalOrdinalsBuilder.build(indexReader, this, indexSettings, breakerService, logger, scriptFunction, executor);
+    }
+
     @Override
     public OrdinalMap getOrdinalMap() {
         return null;
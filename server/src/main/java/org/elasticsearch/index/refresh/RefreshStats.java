@@ -40,6 +40,11 @@ public class RefreshStats implements Writeable, ToXContentFragment {
 
     private long externalTotalTimeInMillis;
 
+    /**
+     * Total time scheduled refreshes waited for the refreshes of other shards of the same index before they started.
+     */
+    private long scheduledLagInMillis;
+
     /**
      * Number of waiting refresh listeners.
      */
@@ -56,6 +61,9 @@ public class RefreshStats implements Writeable, ToXContentFragment {
             externalTotalTimeInMillis = in.readVLong();
         }
         listeners = in.readVInt();
+        if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+            scheduledLagInMillis = in.readVLong();
+        }
     }
 
     @Override
@@ -67,14 +75,23 @@ public class RefreshStats implements Writeable, ToXContentFragment {
             out.writeVLong(externalTotalTimeInMillis);
         }
         out.writeVInt(listeners);
+        if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+            out.writeVLong(scheduledLagInMillis);
+        }
     }
 
     public RefreshStats(long total, long totalTimeInMillis, long externalTotal, long externalTotalTimeInMillis, int listeners) {
+        this(total, totalTimeInMillis, externalTotal, externalTotalTimeInMillis, listeners, 0);
+    }
+
+    public RefreshStats(long total, long totalTimeInMillis, long externalTotal, long externalTotalTimeInMillis, int listeners,
+                        long scheduledLagInMillis) {
         this.total = total;
         this.totalTimeInMillis = totalTimeInMillis;
         this.externalTotal = externalTotal;
         this.externalTotalTimeInMillis = externalTotalTimeInMillis;
         this.listeners = listeners;
+        this.scheduledLagInMillis = scheduledLagInMillis;
     }
 
     public void add(RefreshStats refreshStats) {
@@ -90,6 +107,7 @@ public class RefreshStats implements Writeable, ToXContentFragment {
         this.externalTotal += refreshStats.externalTotal;
         this.externalTotalTimeInMillis += refreshStats.externalTotalTimeInMillis;
         this.listeners += refreshStats.listeners;
+        this.scheduledLagInMillis += refreshStats.scheduledLagInMillis;
     }
 
     /**
@@ -131,6 +149,21 @@ public class RefreshStats implements Writeable, ToXContentFragment {
     public TimeValue getExternalTotalTime() {
         return new TimeValue(externalTotalTimeInMillis);
     }
+
+    /**
+     * The total time scheduled refreshes waited for the refreshes of other shards of the same index (in milliseconds).
+     */
+    public long getScheduledLagInMillis() {
+        return this.scheduledLagInMillis;
+    }
+
+    /**
+     * The total time scheduled refreshes waited for the refreshes of other shards of the same index.
+     */
+    public TimeValue getScheduledLag() {
+        return new TimeValue(scheduledLagInMillis);
+    }
+
     /**
      * The number of waiting refresh listeners.
      */
@@ -146,6 +179,7 @@ public class RefreshStats implements Writeable, ToXContentFragment {
         builder.field("external_total", externalTotal);
         builder.humanReadableField("external_total_time_in_millis", "external_total_time", getExternalTotalTime());
         builder.field("listeners", listeners);
+        builder.humanReadableField("scheduled_lag_in_millis", "scheduled_lag", getScheduledLag());
         builder.endObject();
         return builder;
     }
@@ -160,11 +194,12 @@ public class RefreshStats implements Writeable, ToXContentFragment {
                 && totalTimeInMillis == rhs.totalTimeInMillis
                 && externalTotal == rhs.externalTotal
                 && externalTotalTimeInMillis == rhs.externalTotalTimeInMillis
-                && listeners == rhs.listeners;
+                && listeners == rhs.listeners
+                && scheduledLagInMillis == rhs.scheduledLagInMillis;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(total, totalTimeInMillis, externalTotal, externalTotalTimeInMillis, listeners);
+        return Objects.hash(total, totalTimeInMillis, externalTotal, externalTotalTimeInMillis, listeners, scheduledLagInMillis);
     }
 }
@@ -140,6 +140,7 @@ import org.elasticsearch.index.warmer.ShardIndexWarmerService;
 import org.elasticsearch.index.warmer.WarmerStats;
 import org.elasticsearch.indices.IndexingMemoryController;
 import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.indices.TranslogGroupCommitScheduler;
 import org.elasticsearch.indices.breaker.CircuitBreakerService;
 import org.elasticsearch.indices.cluster.IndicesClusterStateService;
 import org.elasticsearch.indices.recovery.PeerRecoveryTargetService;
@@ -241,8 +242,12 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
     private final RecoveryStats recoveryStats = new RecoveryStats();
     private final MeanMetric refreshMetric = new MeanMetric();
     private final MeanMetric externalRefreshMetric = new MeanMetric();
+    private final CounterMetric scheduledRefreshLagMetric = new CounterMetric();
     private final MeanMetric flushMetric = new MeanMetric();
     private final CounterMetric periodicFlushMetric = new CounterMetric();
+    private final CounterMetric translogSyncBatchesMetric = new CounterMetric();
+    private final CounterMetric translogSyncRequestsMetric = new CounterMetric();
+    private final CounterMetric translogSyncWaitTimeInNanosMetric = new CounterMetric();
 
     private final ShardEventListener shardEventListener = new ShardEventListener();
 
@@ -296,7 +301,8 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
             final List<IndexingOperationListener> listeners,
             final Runnable globalCheckpointSyncer,
             final RetentionLeaseSyncer retentionLeaseSyncer,
-            final CircuitBreakerService circuitBreakerService) throws IOException {
+            final CircuitBreakerService circuitBreakerService,
+            final @Nullable TranslogGroupCommitScheduler translogGroupCommitScheduler) throws IOException {
         super(shardRouting.shardId(), indexSettings);
         assert shardRouting.initializing();
         this.shardRouting = shardRouting;
@@ -310,7 +316,9 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         this.indexSortSupplier = indexSortSupplier;
         this.indexEventListener = indexEventListener;
         this.threadPool = threadPool;
-        this.translogSyncProcessor = createTranslogSyncProcessor(logger, threadPool.getThreadContext(), this::getEngine);
+        this.translogSyncTarget = this::syncTranslog;
+        this.translogSyncProcessor = createTranslogSyncProcessor(threadPool.getThreadContext(), translogSyncTarget);
+        this.translogGroupCommitScheduler = translogGroupCommitScheduler;
         this.mapperService = mapperService;
         this.indexCache = indexCache;
         this.internalIndexingStats = new InternalIndexingStats();
@@ -748,29 +756,60 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
                                                            long ifSeqNo, long ifPrimaryTerm, long autoGeneratedTimestamp,
                                                            boolean isRetry)
         throws IOException {
+        return applyIndexOperationOnPrimary(version, versionType, sourceToParse, ifSeqNo, ifPrimaryTerm, autoGeneratedTimestamp,
+            isRetry, null);
+    }
+
+    /**
+     * Same as {@link #applyIndexOperationOnPrimary(long, VersionType, SourceToParse, long, long, long, boolean)} but uses the
+     * given document that was {@link #preParseDocument pre-parsed} from the same source if the mapping did not change since.
+     */
+    public Engine.IndexResult applyIndexOperationOnPrimary(long version, VersionType versionType, SourceToParse sourceToParse,
+                                                           long ifSeqNo, long ifPrimaryTerm, long autoGeneratedTimestamp,
+                                                           boolean isRetry, @Nullable PreParsedDocument preParsedDocument)
+        throws IOException {
         assert versionType.validateVersionForWrites(version);
         return applyIndexOperation(getEngine(), UNASSIGNED_SEQ_NO, getOperationPrimaryTerm(), version, versionType, ifSeqNo,
-            ifPrimaryTerm, autoGeneratedTimestamp, isRetry, Engine.Operation.Origin.PRIMARY, sourceToParse);
+            ifPrimaryTerm, autoGeneratedTimestamp, isRetry, Engine.Operation.Origin.PRIMARY, sourceToParse, preParsedDocument);
+    }
+
+    /**
+     * Parses the source of an index operation with the current mapping, ahead of its execution on the primary. This can be called
+     * from any thread, concurrently with the execution of other operations.
+     *
+     * @see #applyIndexOperationOnPrimary(long, VersionType, SourceToParse, long, long, long, boolean, PreParsedDocument)
+     */
+    public PreParsedDocument preParseDocument(SourceToParse sourceToParse) {
+        final DocumentMapperForType docMapper = docMapper();
+        return new PreParsedDocument(docMapper.getDocumentMapper(), parseDocument(docMapper, sourceToParse));
     }
 
     public Engine.IndexResult applyIndexOperationOnReplica(long seqNo, long opPrimaryTerm, long version, long autoGeneratedTimeStamp,
         boolean isRetry, SourceToParse sourceToParse)
         throws IOException {
         return applyIndexOperation(getEngine(), seqNo, opPrimaryTerm, version, null, UNASSIGNED_SEQ_NO, 0,
-            autoGeneratedTimeStamp, isRetry, Engine.Operation.Origin.REPLICA, sourceToParse);
+            autoGeneratedTimeStamp, isRetry, Engine.Operation.Origin.REPLICA, sourceToParse, null);
     }
 
     private Engine.IndexResult applyIndexOperation(Engine engine, long seqNo, long opPrimaryTerm, long version,
                                                    @Nullable VersionType versionType, long ifSeqNo, long ifPrimaryTerm,
                                                    long autoGeneratedTimeStamp, boolean isRetry, Engine.Operation.Origin origin,
-                                                   SourceToParse sourceToParse) throws IOException {
+                                                   SourceToParse sourceToParse,
+                                                   @Nullable PreParsedDocument preParsedDocument) throws IOException {
         assert opPrimaryTerm <= getOperationPrimaryTerm()
                 : "op term [ " + opPrimaryTerm + " ] > shard term [" + getOperationPrimaryTerm() + "]";
         ensureWriteAllowed(origin);
         Engine.Index operation;
         try {
-            operation = prepareIndex(docMapper(), sourceToParse,
-                seqNo, opPrimaryTerm, version, versionType, origin, autoGeneratedTimeStamp, isRetry, ifSeqNo, ifPrimaryTerm);
+            if (preParsedDocument != null && preParsedDocument.documentMapper == mapperService.documentMapper()) {
+                assert preParsedDocument.doc.id().equals(sourceToParse.id()) : preParsedDocument.doc.id() + " != " + sourceToParse.id();
+                operation = prepareIndex(preParsedDocument.doc, System.nanoTime(),
+                    seqNo, opPrimaryTerm, version, versionType, origin, autoGeneratedTimeStamp, isRetry, ifSeqNo, ifPrimaryTerm);
+            } else {
+                // the mapping changed since the document was parsed, parse it again
+                operation = prepareIndex(docMapper(), sourceToParse,
+                    seqNo, opPrimaryTerm, version, versionType, origin, autoGeneratedTimeStamp, isRetry, ifSeqNo, ifPrimaryTerm);
+            }
             Mapping update = operation.parsedDoc().dynamicMappingsUpdate();
             if (update != null) {
                 return new Engine.IndexResult(update);
@@ -792,15 +831,41 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
                                             long autoGeneratedIdTimestamp, boolean isRetry,
                                             long ifSeqNo, long ifPrimaryTerm) {
         long startTime = System.nanoTime();
+        ParsedDocument doc = parseDocument(docMapper, source);
+        return prepareIndex(doc, startTime, seqNo, primaryTerm, version, versionType, origin, autoGeneratedIdTimestamp, isRetry,
+            ifSeqNo, ifPrimaryTerm);
+    }
+
+    private static ParsedDocument parseDocument(DocumentMapperForType docMapper, SourceToParse source) {
         ParsedDocument doc = docMapper.getDocumentMapper().parse(source);
         if (docMapper.getMapping() != null) {
             doc.addDynamicMappingsUpdate(docMapper.getMapping());
         }
+        return doc;
+    }
+
+    private static Engine.Index prepareIndex(ParsedDocument doc, long startTime, long seqNo, long primaryTerm, long version,
+                                             VersionType versionType, Engine.Operation.Origin origin, long autoGeneratedIdTimestamp,
+                                             boolean isRetry, long ifSeqNo, long ifPrimaryTerm) {
         Term uid = new Term(IdFieldMapper.NAME, Uid.encodeId(doc.id()));
         return new Engine.Index(uid, doc, seqNo, primaryTerm, version, versionType, origin, startTime, autoGeneratedIdTimestamp, isRetry,
             ifSeqNo, ifPrimaryTerm);
     }
 
+    /**
+     * A document that was parsed ahead of the execution of its index operation, see {@link #preParseDocument}.
+     */
+    public static final class PreParsedDocument {
+        // the mapper that parsed the document, it can only be indexed if this mapper is still the current one
+        private final DocumentMapper documentMapper;
+        private final ParsedDocument doc;
+
+        private PreParsedDocument(DocumentMapper documentMapper, ParsedDocument doc) {
+            this.documentMapper = documentMapper;
+            this.doc = doc;
+        }
+    }
+
     private Engine.IndexResult index(Engine engine, Engine.Index index) throws IOException {
         active.set(true);
         final Engine.IndexResult result;
@@ -953,7 +1018,8 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
             TimeUnit.NANOSECONDS.toMillis(refreshMetric.sum()),
             externalRefreshMetric.count(),
             TimeUnit.NANOSECONDS.toMillis(externalRefreshMetric.sum()),
-            listeners);
+            listeners,
+            TimeUnit.NANOSECONDS.toMillis(scheduledRefreshLagMetric.count()));
     }
 
     public FlushStats flushStats() {
@@ -1035,7 +1101,10 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
     }
 
     public TranslogStats translogStats() {
-        return getEngine().getTranslogStats();
+        final TranslogStats translogStats = getEngine().getTranslogStats();
+        translogStats.addSyncStats(translogSyncBatchesMetric.count(), translogSyncRequestsMetric.count(),
+            TimeUnit.NANOSECONDS.toMillis(translogSyncWaitTimeInNanosMetric.count()));
+        return translogStats;
     }
 
     public CompletionStats completionStats(String... fields) {
@@ -1492,7 +1561,7 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
                 result = applyIndexOperation(engine, index.seqNo(), index.primaryTerm(), index.version(),
                     versionType, UNASSIGNED_SEQ_NO, 0, index.getAutoGeneratedIdTimestamp(), true, origin,
                     new SourceToParse(shardId.getIndexName(), index.id(), index.source(),
-                        XContentHelper.xContentType(index.source()), index.routing()));
+                        XContentHelper.xContentType(index.source()), index.routing()), null);
                 break;
             case DELETE:
                 final Translog.Delete delete = (Translog.Delete) operation;
@@ -3011,38 +3080,55 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         return indexShardOperationPermits.getActiveOperations();
     }
 
+    private final TranslogGroupCommitScheduler.Target translogSyncTarget;
     private final AsyncIOProcessor<Translog.Location> translogSyncProcessor;
+    @Nullable
+    private final TranslogGroupCommitScheduler translogGroupCommitScheduler;
 
-    private static AsyncIOProcessor<Translog.Location> createTranslogSyncProcessor(Logger logger, ThreadContext threadContext,
-                                                                                   Supplier<Engine> engineSupplier) {
+    private AsyncIOProcessor<Translog.Location> createTranslogSyncProcessor(ThreadContext threadContext,
+                                                                            TranslogGroupCommitScheduler.Target target) {
         return new AsyncIOProcessor<>(logger, 1024, threadContext) {
             @Override
             protected void write(List<Tuple<Translog.Location, Consumer<Exception>>> candidates) throws IOException {
-                try {
-                    engineSupplier.get().ensureTranslogSynced(candidates.stream().map(Tuple::v1));
-                } catch (AlreadyClosedException ex) {
-                    // that's fine since we already synced everything on engine close - this also is conform with the methods
-                    // documentation
-                } catch (IOException ex) { // if this fails we are in deep shit - fail the request
-                    logger.debug("failed to sync translog", ex);
-                    throw ex;
-                }
+                // the time the candidates waited for the previous batch to complete is not tracked
+                target.sync(candidates.stream().map(Tuple::v1).collect(Collectors.toList()), 0L);
             }
         };
     }
 
+    private void syncTranslog(List<Translog.Location> locations, long waitTimeInNanos) throws IOException {
+        try {
+            getEngine().ensureTranslogSynced(locations.stream());
+        } catch (AlreadyClosedException ex) {
+            // that's fine since we already synced everything on engine close - this also is conform with the methods
+            // documentation
+        } catch (IOException ex) { // if this fails we are in deep shit - fail the request
+            logger.debug("failed to sync translog", ex);
+            throw ex;
+        }
+        translogSyncBatchesMetric.inc();
+        translogSyncRequestsMetric.inc(locations.size());
+        translogSyncWaitTimeInNanosMetric.inc(waitTimeInNanos);
+    }
+
     /**
      * Syncs the given location with the underlying storage unless already synced. This method might return immediately without
      * actually fsyncing the location until the sync listener is called. Yet, unless there is already another thread fsyncing
      * the transaction log the caller thread will be hijacked to run the fsync for all pending fsync operations.
      * This method allows indexing threads to continue indexing without blocking on fsync calls. We ensure that there is only
      * one thread blocking on the sync an all others can continue indexing.
+     * If translog group commit is enabled on the node, the sync is batched with the syncs requested by other shards on the same data path
+     * instead, see {@link TranslogGroupCommitScheduler}.
      * NOTE: if the syncListener throws an exception when it's processed the exception will only be logged. Users should make sure that the
      * listener handles all exception cases internally.
      */
     public final void sync(Translog.Location location, Consumer<Exception> syncListener) {
         verifyNotClosed();
-        translogSyncProcessor.put(location, syncListener);
+        if (translogGroupCommitScheduler != null && translogGroupCommitScheduler.isEnabled()) {
+            translogGroupCommitScheduler.sync(path.getRootDataPath(), translogSyncTarget, location, syncListener);
+        } else {
+            translogSyncProcessor.put(location, syncListener);
+        }
     }
 
     public void sync() throws IOException {
@@ -3204,6 +3290,13 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
         return false;
     }
 
+    /**
+     * Records the time a scheduled refresh of this shard waited for the refreshes of other shards before it started.
+     */
+    public void addScheduledRefreshLag(long lagInNanos) {
+        scheduledRefreshLagMetric.inc(lagInNanos);
+    }
+
     /**
      * Returns true if this shards is search idle
      */
@@ -3368,7 +3461,7 @@ public class IndexShard extends AbstractIndexShardComponent implements IndicesCl
             : "resetting engine without blocking operations; active operations are [" + getActiveOperations() + ']';
         sync(); // persist the global checkpoint to disk
         final SeqNoStats seqNoStats = seqNoStats();
-        final TranslogStats translogStats = translogStats();
+        final TranslogStats translogStats = getEngine().getTranslogStats();
         // flush to make sure the latest commit, which will be opened by the read-only engine, includes all operations.
         flush(new FlushRequest().waitIfOngoing(true));
 
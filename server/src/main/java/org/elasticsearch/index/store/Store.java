@@ -496,6 +496,13 @@ public class Store extends AbstractIndexShardComponent implements Closeable, Ref
         }
     }
 
+    /**
+     * Returns a verifier for a file that is read in several parts, each part through its own input.
+     */
+    public static MultiPartVerifier multiPartVerifier(StoreFileMetadata metadata, int numberOfParts) {
+        return new MultiPartVerifier(metadata, numberOfParts);
+    }
+
     public boolean checkIntegrityNoException(StoreFileMetadata md) {
         return checkIntegrityNoException(md, directory());
     }
@@ -1207,16 +1214,28 @@ public class Store extends AbstractIndexShardComponent implements Closeable, Ref
         private final Checksum digest;
         private final long checksumPosition;
         private final byte[] checksum = new byte[8];
-        private long verifiedPosition = 0;
+        private final long startPosition;
+        private long verifiedPosition;
 
         VerifyingIndexInput(IndexInput input) {
             this(input, new BufferedChecksum(new CRC32()));
         }
 
         VerifyingIndexInput(IndexInput input, Checksum digest) {
+            this(input, digest, 0L);
+        }
+
+        /**
+         * Creates an input that only computes the checksum of the bytes that are read from the given start position on, the given input
+         * must already be positioned there.
+         */
+        VerifyingIndexInput(IndexInput input, Checksum digest, long startPosition) {
             super("VerifyingIndexInput(" + input + ")");
+            assert input.getFilePointer() == startPosition;
             this.input = input;
             this.digest = digest;
+            this.startPosition = startPosition;
+            this.verifiedPosition = startPosition;
             checksumPosition = input.length() - 8;
         }
 
@@ -1327,6 +1346,135 @@ public class Store extends AbstractIndexShardComponent implements Closeable, Ref
 
     }
 
+    /**
+     * Verifies the checksum of a file that is read in several parts, possibly concurrently, without reading the file a second time. Each
+     * part computes the CRC32 checksum of its own bytes and captures the footer bytes it reads; once all parts have been read their
+     * checksums are combined and compared with the footer and with the expected metadata.
+     */
+    public static final class MultiPartVerifier {
+
+        private final StoreFileMetadata metadata;
+        private final VerifyingIndexInput[] parts;
+
+        private MultiPartVerifier(StoreFileMetadata metadata, int numberOfParts) {
+            this.metadata = metadata;
+            this.parts = new VerifyingIndexInput[numberOfParts];
+        }
+
+        /**
+         * Opens an input positioned at the given offset to read the given part of the file. The bytes of the part must be read
+         * sequentially through the returned input before {@link #verify()} is called.
+         */
+        public IndexInput openPart(Directory directory, IOContext context, int part, long offset) throws IOException {
+            final IndexInput input = directory.openInput(metadata.name(), context);
+            boolean success = false;
+            try {
+                if (input.length() != metadata.length()) {
+                    throw new CorruptIndexException("expected length=" + metadata.length() + " != actual length: " + input.length() +
+                        " : file truncated?", input);
+                }
+                input.seek(offset);
+                final VerifyingIndexInput verifyingInput = new VerifyingIndexInput(input, new BufferedChecksum(new CRC32()), offset);
+                synchronized (this) {
+                    assert parts[part] == null : "part [" + part + "] of [" + metadata.name() + "] opened twice";
+                    parts[part] = verifyingInput;
+                }
+                success = true;
+                return verifyingInput;
+            } finally {
+                if (success == false) {
+                    IOUtils.closeWhileHandlingException(input);
+                }
+            }
+        }
+
+        /**
+         * Verifies the checksum of the whole file once all of its parts have been read.
+         */
+        public synchronized void verify() throws CorruptIndexException {
+            final long checksumPosition = metadata.length() - 8;
+            final byte[] footer = new byte[8];
+            long checksum = 0L;
+            long position = 0L;
+            for (VerifyingIndexInput part : parts) {
+                if (part == null || part.startPosition != position) {
+                    throw new CorruptIndexException("verification failed : file was not read entirely, missing bytes from position ["
+                        + position + "]", "MultiPartVerifier(" + metadata.name() + ")");
+                }
+                final long checksummedBytes = Math.min(part.verifiedPosition, checksumPosition) - Math.min(position, checksumPosition);
+                checksum = crc32Combine(checksum, part.getChecksum(), checksummedBytes);
+                for (long footerPosition = Math.max(position, checksumPosition); footerPosition < part.verifiedPosition; footerPosition++) {
+                    final int index = Math.toIntExact(footerPosition - checksumPosition);
+                    footer[index] = part.checksum[index];
+                }
+                position = part.verifiedPosition;
+            }
+            if (position != metadata.length()) {
+                throw new CorruptIndexException("verification failed : read length=" + position + " != expected length: "
+                    + metadata.length(), "MultiPartVerifier(" + metadata.name() + ")");
+            }
+            final String actualChecksum = digestToString(checksum);
+            final String footerChecksum = digestToString(new ByteArrayDataInput(footer).readLong());
+            if (actualChecksum.equals(footerChecksum) == false || actualChecksum.equals(metadata.checksum()) == false) {
+                throw new CorruptIndexException("verification failed : expected=" + metadata.checksum() + " actual=" + actualChecksum
+                    + " footer=" + footerChecksum, "MultiPartVerifier(" + metadata.name() + ")");
+            }
+        }
+    }
+
+    /**
+     * Returns the CRC32 checksum of the concatenation of two byte sequences given the checksum of each sequence and the length of the
+     * second one, see {@code crc32_combine} in zlib.
+     */
+    static long crc32Combine(long crc1, long crc2, long length2) {
+        if (length2 <= 0) {
+            return crc1;
+        }
+        final long[] even = new long[32]; // even-power-of-two zeros operator
+        final long[] odd = new long[32];  // odd-power-of-two zeros operator
+        odd[0] = 0xEDB88320L; // CRC32 polynomial
+        long row = 1;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+        gf2MatrixSquare(even, odd); // operator for two zero bits
+        gf2MatrixSquare(odd, even); // operator for four zero bits
+        // apply length2 zeros to crc1, the first squaring puts the operator for one zero byte (eight zero bits) in even
+        do {
+            gf2MatrixSquare(even, odd);
+            if ((length2 & 1) != 0) {
+                crc1 = gf2MatrixTimes(even, crc1);
+            }
+            length2 >>= 1;
+            if (length2 == 0) {
+                break;
+            }
+            gf2MatrixSquare(odd, even);
+            if ((length2 & 1) != 0) {
+                crc1 = gf2MatrixTimes(odd, crc1);
+            }
+            length2 >>= 1;
+        } while (length2 != 0);
+        return crc1 ^ crc2;
+    }
+
+    private static long gf2MatrixTimes(long[] matrix, long vector) {
+        long sum = 0;
+        for (int i = 0; vector != 0; i++, vector >>>= 1) {
+            if ((vector & 1) != 0) {
+                sum ^= matrix[i];
+            }
+        }
+        return sum;
+    }
+
+    private static void gf2MatrixSquare(long[] square, long[] matrix) {
+        for (int n = 0; n < 32; n++) {
+            square[n] = gf2MatrixTimes(matrix, matrix[n]);
+        }
+    }
+
     public void deleteQuiet(String... files) {
         ensureOpen();
         StoreDirectory directory = this.directory;
@@ -18,11 +18,13 @@
  */
 package org.elasticsearch.index.translog;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.ToXContentFragment;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 
@@ -35,6 +37,9 @@ public class TranslogStats implements Writeable, ToXContentFragment {
     private long uncommittedSizeInBytes;
     private int  uncommittedOperations;
     private long earliestLastModifiedAge;
+    private long syncBatches;
+    private long syncRequests;
+    private long syncWaitTimeInMillis;
 
     public TranslogStats() {
     }
@@ -45,6 +50,11 @@ public class TranslogStats implements Writeable, ToXContentFragment {
         uncommittedOperations = in.readVInt();
         uncommittedSizeInBytes = in.readVLong();
         earliestLastModifiedAge = in.readVLong();
+        if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+            syncBatches = in.readVLong();
+            syncRequests = in.readVLong();
+            syncWaitTimeInMillis = in.readVLong();
+        }
     }
 
     public TranslogStats(int numberOfOperations, long translogSizeInBytes, int uncommittedOperations, long uncommittedSizeInBytes,
@@ -82,6 +92,25 @@ public class TranslogStats implements Writeable, ToXContentFragment {
         this.uncommittedSizeInBytes += translogStats.uncommittedSizeInBytes;
         this.earliestLastModifiedAge =
             Math.min(this.earliestLastModifiedAge, translogStats.earliestLastModifiedAge);
+        this.syncBatches += translogStats.syncBatches;
+        this.syncRequests += translogStats.syncRequests;
+        this.syncWaitTimeInMillis += translogStats.syncWaitTimeInMillis;
+    }
+
+    /**
+     * Adds the statistics of the batches of translog syncs requested by indexing requests.
+     *
+     * @param syncBatches           the number of batches, each of which synced the translog once
+     * @param syncRequests          the number of sync requests served by these batches
+     * @param syncWaitTimeInMillis  the total time the sync requests waited for their batch to start
+     */
+    public void addSyncStats(long syncBatches, long syncRequests, long syncWaitTimeInMillis) {
+        if (syncBatches < 0 || syncRequests < 0 || syncWaitTimeInMillis < 0) {
+            throw new IllegalArgumentException("sync stats must be >= 0");
+        }
+        this.syncBatches += syncBatches;
+        this.syncRequests += syncRequests;
+        this.syncWaitTimeInMillis += syncWaitTimeInMillis;
     }
 
     public long getTranslogSizeInBytes() {
@@ -104,6 +133,21 @@ public class TranslogStats implements Writeable, ToXContentFragment {
 
     public long getEarliestLastModifiedAge() { return earliestLastModifiedAge; }
 
+    /** the number of batches of translog syncs requested by indexing requests, each batch syncs the translog once */
+    public long getSyncBatches() {
+        return syncBatches;
+    }
+
+    /** the number of translog sync requests served by the sync batches */
+    public long getSyncRequests() {
+        return syncRequests;
+    }
+
+    /** the total time translog sync requests waited for their batch to start */
+    public TimeValue getSyncWaitTime() {
+        return new TimeValue(syncWaitTimeInMillis);
+    }
+
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject("translog");
@@ -112,6 +156,9 @@ public class TranslogStats implements Writeable, ToXContentFragment {
         builder.field("uncommitted_operations", uncommittedOperations);
         builder.humanReadableField("uncommitted_size_in_bytes", "uncommitted_size", new ByteSizeValue(uncommittedSizeInBytes));
         builder.field("earliest_last_modified_age", earliestLastModifiedAge);
+        builder.field("sync_batches", syncBatches);
+        builder.field("sync_requests", syncRequests);
+        builder.humanReadableField("sync_wait_time_in_millis", "sync_wait_time", getSyncWaitTime());
         builder.endObject();
         return builder;
     }
@@ -128,5 +175,10 @@ public class TranslogStats implements Writeable, ToXContentFragment {
         out.writeVInt(uncommittedOperations);
         out.writeVLong(uncommittedSizeInBytes);
         out.writeVLong(earliestLastModifiedAge);
+        if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+            out.writeVLong(syncBatches);
+            out.writeVLong(syncRequests);
+            out.writeVLong(syncWaitTimeInMillis);
+        }
     }
 }
@@ -26,6 +26,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.RamUsageEstimator;
 import org.elasticsearch.common.CheckedSupplier;
@@ -51,6 +52,7 @@ import java.util.Iterator;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 /**
@@ -76,10 +78,22 @@ public final class IndicesRequestCache implements RemovalListener<IndicesRequest
      */
     public static final Setting<Boolean> INDEX_CACHE_REQUEST_ENABLED_SETTING =
         Setting.boolSetting("index.requests.cache.enable", true, Property.Dynamic, Property.IndexScope);
+    /**
+     * A setting to cache the results of eligible requests per segment rather than per shard, so that the results of
+     * the segments that did not change since the last refresh can be reused.
+     */
+    public static final Setting<Boolean> INDEX_CACHE_REQUEST_PER_SEGMENT_SETTING =
+        Setting.boolSetting("index.requests.cache.per_segment", false, Property.Dynamic, Property.IndexScope);
     public static final Setting<ByteSizeValue> INDICES_CACHE_QUERY_SIZE =
         Setting.memorySizeSetting("indices.requests.cache.size", "1%", Property.NodeScope);
     public static final Setting<TimeValue> INDICES_CACHE_QUERY_EXPIRE =
         Setting.positiveTimeSetting("indices.requests.cache.expire", new TimeValue(0), Property.NodeScope);
+    /**
+     * A setting to reject new entries that would evict more frequently used entries when the cache is full. Entries of readers
+     * that were closed, for instance by a refresh, are always evicted in favour of new entries.
+     */
+    public static final Setting<Boolean> INDICES_CACHE_QUERY_FREQUENCY_ADMISSION =
+        Setting.boolSetting("indices.requests.cache.frequency_admission", false, Property.NodeScope);
 
     private final ConcurrentMap<CleanupKey, Boolean> registeredClosedListeners = ConcurrentCollections.newConcurrentMap();
     private final Set<CleanupKey> keysToClean = ConcurrentCollections.newConcurrentSet();
@@ -92,7 +106,8 @@ public final class IndicesRequestCache implements RemovalListener<IndicesRequest
         this.expire = INDICES_CACHE_QUERY_EXPIRE.exists(settings) ? INDICES_CACHE_QUERY_EXPIRE.get(settings) : null;
         long sizeInBytes = size.getBytes();
         CacheBuilder<Key, BytesReference> cacheBuilder = CacheBuilder.<Key, BytesReference>builder()
-            .setMaximumWeight(sizeInBytes).weigher((k, v) -> k.ramBytesUsed() + v.ramBytesUsed()).removalListener(this);
+            .setMaximumWeight(sizeInBytes).weigher((k, v) -> k.ramBytesUsed() + v.ramBytesUsed()).removalListener(this)
+            .setFrequencyAdmission(INDICES_CACHE_QUERY_FREQUENCY_ADMISSION.get(settings)).setStaleKeys(this::isStale);
         if (expire != null) {
             cacheBuilder.setExpireAfterAccess(expire);
         }
@@ -104,6 +119,15 @@ public final class IndicesRequestCache implements RemovalListener<IndicesRequest
         cache.invalidateAll();
     }
 
+    /**
+     * Returns whether the given key belongs to a closed reader or shard and is only waiting for {@link #cleanCache()} to remove it.
+     */
+    private boolean isStale(Key key) {
+        return key.entity.isOpen() == false
+            || keysToClean.contains(new CleanupKey(key.entity, key.readerCacheKey))
+            || keysToClean.contains(new CleanupKey(key.entity, null));
+    }
+
     void clear(CacheEntity entity) {
         keysToClean.add(new CleanupKey(entity, null));
         cleanCache();
@@ -120,28 +144,48 @@ public final class IndicesRequestCache implements RemovalListener<IndicesRequest
     BytesReference getOrCompute(CacheEntity cacheEntity, CheckedSupplier<BytesReference, IOException> loader,
                                 DirectoryReader reader, BytesReference cacheKey, Supplier<String> cacheKeyRenderer) throws Exception {
         assert reader.getReaderCacheHelper() != null;
-        final Key key =  new Key(cacheEntity, reader.getReaderCacheHelper().getKey(), cacheKey);
+        return getOrCompute(cacheEntity, loader, reader.getReaderCacheHelper().getKey(),
+            cleanupKey -> ElasticsearchDirectoryReader.addReaderCloseListener(reader, cleanupKey),
+            () -> "reader version [" + reader.getVersion() + "], max_doc[" + reader.maxDoc() + "]", cacheKey, cacheKeyRenderer);
+    }
+
+    /**
+     * Same as {@link #getOrCompute(CacheEntity, CheckedSupplier, DirectoryReader, BytesReference, Supplier)} but for the result of a
+     * request on a single segment. The entry is keyed by the segment reader, including its deletes, so that it remains valid across
+     * refreshes that do not modify the segment and is cleaned up once the segment reader is closed.
+     */
+    BytesReference getOrCompute(CacheEntity cacheEntity, CheckedSupplier<BytesReference, IOException> loader,
+                                LeafReader reader, BytesReference cacheKey, Supplier<String> cacheKeyRenderer) throws Exception {
+        final IndexReader.CacheHelper cacheHelper = reader.getReaderCacheHelper();
+        assert cacheHelper != null;
+        return getOrCompute(cacheEntity, loader, cacheHelper.getKey(), cacheHelper::addClosedListener,
+            () -> "segment reader [" + reader + "], max_doc[" + reader.maxDoc() + "]", cacheKey, cacheKeyRenderer);
+    }
+
+    private BytesReference getOrCompute(CacheEntity cacheEntity, CheckedSupplier<BytesReference, IOException> loader,
+                                        IndexReader.CacheKey readerCacheKey, Consumer<CleanupKey> closeListenerRegistrar,
+                                        Supplier<String> readerRenderer, BytesReference cacheKey,
+                                        Supplier<String> cacheKeyRenderer) throws Exception {
+        final Key key =  new Key(cacheEntity, readerCacheKey, cacheKey);
         Loader cacheLoader = new Loader(cacheEntity, loader);
         BytesReference value = cache.computeIfAbsent(key, cacheLoader);
         if (cacheLoader.isLoaded()) {
             key.entity.onMiss();
             if (logger.isTraceEnabled()) {
-                logger.trace("Cache miss for reader version [{}], max_doc[{}] and request:\n {}",
-                    reader.getVersion(), reader.maxDoc(), cacheKeyRenderer.get());
+                logger.trace("Cache miss for {} and request:\n {}", readerRenderer.get(), cacheKeyRenderer.get());
             }
             // see if its the first time we see this reader, and make sure to register a cleanup key
-            CleanupKey cleanupKey = new CleanupKey(cacheEntity, reader.getReaderCacheHelper().getKey());
+            CleanupKey cleanupKey = new CleanupKey(cacheEntity, readerCacheKey);
             if (!registeredClosedListeners.containsKey(cleanupKey)) {
                 Boolean previous = registeredClosedListeners.putIfAbsent(cleanupKey, Boolean.TRUE);
                 if (previous == null) {
-                    ElasticsearchDirectoryReader.addReaderCloseListener(reader, cleanupKey);
+                    closeListenerRegistrar.accept(cleanupKey);
                 }
             }
         } else {
             key.entity.onHit();
             if (logger.isTraceEnabled()) {
-                logger.trace("Cache hit for reader version [{}], max_doc[{}] and request:\n {}",
-                    reader.getVersion(), reader.maxDoc(), cacheKeyRenderer.get());
+                logger.trace("Cache hit for {} and request:\n {}", readerRenderer.get(), cacheKeyRenderer.get());
             }
         }
         return value;
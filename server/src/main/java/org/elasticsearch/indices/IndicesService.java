@@ -23,6 +23,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.message.ParameterizedMessage;
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.IndexReader.CacheHelper;
 import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.util.CollectionUtil;
@@ -128,11 +129,13 @@ import org.elasticsearch.plugins.IndexStorePlugin;
 import org.elasticsearch.plugins.PluginsService;
 import org.elasticsearch.repositories.RepositoriesService;
 import org.elasticsearch.script.ScriptService;
+import org.elasticsearch.search.aggregations.InternalAggregation.ReduceContext;
 import org.elasticsearch.search.aggregations.support.ValuesSourceRegistry;
 import org.elasticsearch.search.internal.AliasFilter;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.internal.ShardSearchRequest;
 import org.elasticsearch.search.query.QueryPhase;
+import org.elasticsearch.search.query.QueryPhase.SegmentResult;
 import org.elasticsearch.search.query.QuerySearchResult;
 import org.elasticsearch.threadpool.ThreadPool;
 
@@ -218,6 +221,7 @@ public class IndicesService extends AbstractLifecycleComponent
     private final TimeValue cleanInterval;
     final IndicesRequestCache indicesRequestCache; // pkg-private for testing
     private final IndicesQueryCache indicesQueryCache;
+    private final TranslogGroupCommitScheduler translogGroupCommitScheduler;
     private final MetaStateService metaStateService;
     private final Collection<Function<IndexSettings, Optional<EngineFactory>>> engineFactoryProviders;
     private final Map<String, IndexStorePlugin.DirectoryFactory> directoryFactories;
@@ -257,6 +261,7 @@ public class IndicesService extends AbstractLifecycleComponent
         this.indexNameExpressionResolver = indexNameExpressionResolver;
         this.indicesRequestCache = new IndicesRequestCache(settings);
         this.indicesQueryCache = new IndicesQueryCache(settings);
+        this.translogGroupCommitScheduler = new TranslogGroupCommitScheduler(settings, clusterService.getClusterSettings(), threadPool);
         this.mapperRegistry = mapperRegistry;
         this.namedWriteableRegistry = namedWriteableRegistry;
         indexingMemoryController = new IndexingMemoryController(settings, threadPool,
@@ -277,7 +282,7 @@ public class IndicesService extends AbstractLifecycleComponent
                     "equal to 0 and not [" + sizeInBytes + "]";
                 circuitBreakerService.getBreaker(CircuitBreaker.FIELDDATA).addWithoutBreaking(-sizeInBytes);
             }
-        });
+        }, threadPool.executor(ThreadPool.Names.WARMER));
         this.cleanInterval = INDICES_CACHE_CLEAN_INTERVAL_SETTING.get(settings);
         this.cacheCleaner = new CacheCleaner(indicesFieldDataCache, indicesRequestCache,  logger, threadPool, this.cleanInterval);
         this.metaStateService = metaStateService;
@@ -663,7 +668,8 @@ public class IndicesService extends AbstractLifecycleComponent
                 indicesFieldDataCache,
                 namedWriteableRegistry,
                 this::isIdFieldDataEnabled,
-                valuesSourceRegistry
+                valuesSourceRegistry,
+                translogGroupCommitScheduler
         );
     }
 
@@ -1382,7 +1388,16 @@ public class IndicesService extends AbstractLifecycleComponent
         BytesReference bytesReference = cacheShardLevelResult(context.indexShard(), directoryReader, request.cacheKey(),
             () -> "Shard: " + request.shardId() + "\nSource:\n" + request.source(),
             out -> {
-            queryPhase.execute(context);
+            if (context.indexShard().indexSettings().getValue(IndicesRequestCache.INDEX_CACHE_REQUEST_PER_SEGMENT_SETTING)
+                    && QueryPhase.canExecuteBySegment(context)) {
+                queryPhase.executeBySegment(context,
+                    (leaf, loader) -> cacheSegmentLevelResult(context.indexShard(), leaf, request.cacheKey(),
+                        () -> "Shard: " + request.shardId() + "\nSegment: " + leaf.reader() + "\nSource:\n" + request.source(), loader),
+                    ReduceContext.forPartialReduction(bigArrays, scriptService,
+                        () -> request.source().aggregations().buildPipelineTree()));
+            } else {
+                queryPhase.execute(context);
+            }
             context.queryResult().writeToNoId(out);
             loadedFromCache[0] = false;
         });
@@ -1443,6 +1458,31 @@ public class IndicesService extends AbstractLifecycleComponent
         return indicesRequestCache.getOrCompute(cacheEntity, supplier, reader, cacheKey, cacheKeyRenderer);
     }
 
+    /**
+     * Cache the result of the query phase on a single segment, see {@link QueryPhase#executeBySegment}. Entries are accounted
+     * in the request cache of the shard like shard level results and are reused across refreshes until the segment changes.
+     */
+    private SegmentResult cacheSegmentLevelResult(IndexShard shard, LeafReaderContext leaf, BytesReference cacheKey,
+            Supplier<String> cacheKeyRenderer, CheckedSupplier<SegmentResult, IOException> loader) throws Exception {
+        if (leaf.reader().getReaderCacheHelper() == null) {
+            // the segment reader cannot tell when it changes, don't cache
+            return loader.get();
+        }
+        IndexShardCacheEntity cacheEntity = new IndexShardCacheEntity(shard);
+        CheckedSupplier<BytesReference, IOException> supplier = () -> {
+            // see #cacheShardLevelResult for the expected size
+            try (BytesStreamOutput out = new BytesStreamOutput(512)) {
+                loader.get().writeTo(out);
+                return out.bytes();
+            }
+        };
+        BytesReference bytesReference = indicesRequestCache.getOrCompute(cacheEntity, supplier, leaf.reader(), cacheKey,
+            cacheKeyRenderer);
+        try (StreamInput in = new NamedWriteableAwareStreamInput(bytesReference.streamInput(), namedWriteableRegistry)) {
+            return new SegmentResult(in);
+        }
+    }
+
     static final class IndexShardCacheEntity extends AbstractIndexShardCacheEntity {
         private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(IndexShardCacheEntity.class);
         private final IndexShard indexShard;
@@ -0,0 +1,283 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.AbstractRunnable;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.CountDown;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces the translog syncs requested by the shards of a node that are stored on the same data path. Without it every shard syncs
+ * its translog as soon as an indexing request with {@code request} durability completes, so a node with many actively indexing shards
+ * issues about as many fsyncs as there are concurrent bulk requests.
+ * <p>
+ * When a sync is requested and no batch ran on the data path during the last {@link #WINDOW_SETTING window}, the requesting thread
+ * syncs right away like it would without group commit. Otherwise the request joins a batch that runs once the window elapsed, which
+ * syncs the translog of each shard of the batch once, up to the furthest location requested for that shard. The latency added by
+ * group commit is therefore bounded by the window and only paid when the data path is busy.
+ */
+public class TranslogGroupCommitScheduler {
+
+    private static final Logger logger = LogManager.getLogger(TranslogGroupCommitScheduler.class);
+
+    /**
+     * The minimum delay between two batches of translog syncs on the same data path, {@code 0} disables group commit.
+     */
+    public static final Setting<TimeValue> WINDOW_SETTING = Setting.timeSetting("indices.translog.group_commit.window",
+        TimeValue.ZERO, TimeValue.ZERO, Property.Dynamic, Property.NodeScope);
+
+    /**
+     * A translog that can be synced by a batch.
+     */
+    public interface Target {
+
+        /**
+         * Syncs the translog up to the given locations.
+         *
+         * @param locations         the locations requested by the syncs of this batch
+         * @param waitTimeInNanos   the sum of the time the syncs of this batch waited for the batch to start
+         */
+        void sync(List<Translog.Location> locations, long waitTimeInNanos) throws IOException;
+    }
+
+    private final ThreadPool threadPool;
+    private final ConcurrentMap<Path, Batcher> batchers = ConcurrentCollections.newConcurrentMap();
+    private volatile long windowInNanos;
+
+    public TranslogGroupCommitScheduler(Settings settings, ClusterSettings clusterSettings, ThreadPool threadPool) {
+        this.threadPool = threadPool;
+        setWindow(WINDOW_SETTING.get(settings));
+        clusterSettings.addSettingsUpdateConsumer(WINDOW_SETTING, this::setWindow);
+    }
+
+    private void setWindow(TimeValue window) {
+        this.windowInNanos = window.nanos();
+    }
+
+    /**
+     * Returns whether syncs should be requested through this scheduler rather than performed by each shard on its own.
+     */
+    public boolean isEnabled() {
+        return windowInNanos > 0;
+    }
+
+    /**
+     * Syncs the translog of the given target up to the given location together with the syncs requested by other shards on the
+     * same data path. The listener is notified once the location is synced, or with the exception that prevented the sync.
+     */
+    public void sync(Path dataPath, Target target, Translog.Location location, Consumer<Exception> listener) {
+        batchers.computeIfAbsent(dataPath, Batcher::new).add(target, location, listener);
+    }
+
+    private static final class PendingSync {
+        final Translog.Location location;
+        final Consumer<Exception> listener;
+        final long startTimeInNanos;
+
+        PendingSync(Translog.Location location, Consumer<Exception> listener, long startTimeInNanos) {
+            this.location = location;
+            this.listener = listener;
+            this.startTimeInNanos = startTimeInNanos;
+        }
+    }
+
+    /**
+     * Collects the syncs requested on a data path and runs them in batches, one at a time. The translogs of a batch are synced
+     * concurrently on the {@link ThreadPool.Names#FLUSH} thread pool.
+     */
+    private final class Batcher extends AbstractRunnable {
+
+        private final Path dataPath;
+
+        // guarded by this
+        private Map<Target, List<PendingSync>> pending = new LinkedHashMap<>();
+        // guarded by this, whether a batch is running or scheduled
+        private boolean active;
+        // guarded by this
+        private long lastBatchStartTimeInNanos;
+        // guarded by this
+        private boolean ranBatch;
+
+        Batcher(Path dataPath) {
+            this.dataPath = dataPath;
+        }
+
+        void add(Target target, Translog.Location location, Consumer<Exception> listener) {
+            final long now = System.nanoTime();
+            final long delayInNanos;
+            synchronized (this) {
+                pending.computeIfAbsent(target, t -> new ArrayList<>())
+                    .add(new PendingSync(location, preserveContext(listener), now));
+                if (active) {
+                    return;
+                }
+                active = true;
+                delayInNanos = ranBatch ? lastBatchStartTimeInNanos + windowInNanos - now : 0L;
+            }
+            if (delayInNanos > 0) {
+                schedule(delayInNanos);
+            } else {
+                // the data path is idle, the requesting thread runs the batch itself
+                run();
+            }
+        }
+
+        @Override
+        protected void doRun() {
+            final Map<Target, List<PendingSync>> batch;
+            final long batchStartTimeInNanos = System.nanoTime();
+            synchronized (this) {
+                batch = pending;
+                pending = new LinkedHashMap<>();
+                lastBatchStartTimeInNanos = batchStartTimeInNanos;
+                ranBatch = true;
+            }
+            if (batch.isEmpty()) {
+                scheduleNextBatch();
+                return;
+            }
+            // the translogs of the batch are synced in parallel so that a batch takes as long as its slowest fsync rather than the
+            // sum of its fsyncs, the thread that completes the last sync schedules the next batch
+            final List<Map.Entry<Target, List<PendingSync>>> targets = new ArrayList<>(batch.entrySet());
+            final AtomicInteger nextTarget = new AtomicInteger();
+            final CountDown remainingTargets = new CountDown(targets.size());
+            final Runnable worker = () -> {
+                int i;
+                while ((i = nextTarget.getAndIncrement()) < targets.size()) {
+                    try {
+                        syncTarget(targets.get(i).getKey(), targets.get(i).getValue(), batchStartTimeInNanos);
+                    } finally {
+                        if (remainingTargets.countDown()) {
+                            scheduleNextBatch();
+                        }
+                    }
+                }
+            };
+            final int numForks = Math.min(targets.size() - 1, threadPool.info(ThreadPool.Names.FLUSH).getMax());
+            try (ThreadContext.StoredContext ignore = threadPool.getThreadContext().stashContext()) {
+                for (int i = 0; i < numForks && nextTarget.get() < targets.size(); i++) {
+                    threadPool.executor(ThreadPool.Names.FLUSH).execute(worker);
+                }
+            } catch (EsRejectedExecutionException e) {
+                // the current thread syncs the remaining translogs
+            }
+            worker.run();
+        }
+
+        private void syncTarget(Target target, List<PendingSync> syncs, long batchStartTimeInNanos) {
+            final List<Translog.Location> locations = new ArrayList<>(syncs.size());
+            long waitTimeInNanos = 0L;
+            for (PendingSync sync : syncs) {
+                locations.add(sync.location);
+                waitTimeInNanos += Math.max(0L, batchStartTimeInNanos - sync.startTimeInNanos);
+            }
+            Exception exception = null;
+            try {
+                target.sync(locations, waitTimeInNanos);
+            } catch (Exception e) {
+                logger.debug(() -> new ParameterizedMessage("failed to sync translog on [{}]", dataPath), e);
+                exception = e;
+            }
+            notifyListeners(syncs, exception);
+        }
+
+        private void scheduleNextBatch() {
+            final long delayInNanos;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    active = false;
+                    return;
+                }
+                delayInNanos = lastBatchStartTimeInNanos + windowInNanos - System.nanoTime();
+            }
+            schedule(Math.max(0L, delayInNanos));
+        }
+
+        private void schedule(long delayInNanos) {
+            // the listeners restore the context of the requests, the batch itself runs in the default context
+            try (ThreadContext.StoredContext ignore = threadPool.getThreadContext().stashContext()) {
+                threadPool.schedule(this, TimeValue.timeValueNanos(delayInNanos), ThreadPool.Names.FLUSH);
+            } catch (EsRejectedExecutionException e) {
+                onFailure(e);
+            }
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            // the batch could not be scheduled, most likely because the node is shutting down
+            final Map<Target, List<PendingSync>> failed;
+            synchronized (this) {
+                failed = pending;
+                pending = new LinkedHashMap<>();
+                active = false;
+            }
+            for (List<PendingSync> syncs : failed.values()) {
+                notifyListeners(syncs, e);
+            }
+        }
+
+        private void notifyListeners(List<PendingSync> syncs, Exception exception) {
+            for (PendingSync sync : syncs) {
+                try {
+                    sync.listener.accept(exception);
+                } catch (Exception e) {
+                    logger.warn("failed to notify callback", e);
+                }
+            }
+        }
+
+        private Consumer<Exception> preserveContext(Consumer<Exception> listener) {
+            final Supplier<ThreadContext.StoredContext> restorableContext = threadPool.getThreadContext().newRestorableContext(false);
+            return e -> {
+                try (ThreadContext.StoredContext ignore = restorableContext.get()) {
+                    listener.accept(e);
+                }
+            };
+        }
+
+        @Override
+        public String toString() {
+            return "translog group commit on [" + dataPath + "]";
+        }
+    }
+}
@@ -47,6 +47,7 @@ import org.elasticsearch.index.shard.ShardUtils;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.function.ToLongBiFunction;
 
 public class IndicesFieldDataCache implements RemovalListener<IndicesFieldDataCache.Key, Accountable>, Releasable{
@@ -57,9 +58,20 @@ public class IndicesFieldDataCache implements RemovalListener<IndicesFieldDataCa
         Setting.memorySizeSetting("indices.fielddata.cache.size", new ByteSizeValue(-1), Property.NodeScope);
     private final IndexFieldDataCache.Listener indicesFieldDataCacheListener;
     private final Cache<Key, Accountable> cache;
+    @Nullable
+    private final Executor globalOrdinalsExecutor;
 
     public IndicesFieldDataCache(Settings settings, IndexFieldDataCache.Listener indicesFieldDataCacheListener) {
+        this(settings, indicesFieldDataCacheListener, null);
+    }
+
+    /**
+     * @param globalOrdinalsExecutor if not null, global ordinals are built by loading the segments in parallel on this executor
+     */
+    public IndicesFieldDataCache(Settings settings, IndexFieldDataCache.Listener indicesFieldDataCacheListener,
+                                 @Nullable Executor globalOrdinalsExecutor) {
         this.indicesFieldDataCacheListener = indicesFieldDataCacheListener;
+        this.globalOrdinalsExecutor = globalOrdinalsExecutor;
         final long sizeInBytes = INDICES_FIELDDATA_CACHE_SIZE_KEY.get(settings).getBytes();
         CacheBuilder<Key, Accountable> cacheBuilder = CacheBuilder.<Key, Accountable>builder()
                 .removalListener(this);
@@ -75,7 +87,7 @@ public class IndicesFieldDataCache implements RemovalListener<IndicesFieldDataCa
     }
 
     public IndexFieldDataCache buildIndexFieldDataCache(IndexFieldDataCache.Listener listener, Index index, String fieldName) {
-        return new IndexFieldCache(logger, cache, index, fieldName, indicesFieldDataCacheListener, listener);
+        return new IndexFieldCache(logger, cache, index, fieldName, globalOrdinalsExecutor, indicesFieldDataCacheListener, listener);
     }
 
     public Cache<Key, Accountable> getCache() {
@@ -117,14 +129,18 @@ public class IndicesFieldDataCache implements RemovalListener<IndicesFieldDataCa
         final Index index;
         final String fieldName;
         private final Cache<Key, Accountable> cache;
+        @Nullable
+        private final Executor globalOrdinalsExecutor;
         private final Listener[] listeners;
 
-        IndexFieldCache(Logger logger,final Cache<Key, Accountable> cache, Index index, String fieldName, Listener... listeners) {
+        IndexFieldCache(Logger logger, final Cache<Key, Accountable> cache, Index index, String fieldName,
+                        @Nullable Executor globalOrdinalsExecutor, Listener... listeners) {
             this.logger = logger;
             this.listeners = listeners;
             this.index = index;
             this.fieldName = fieldName;
             this.cache = cache;
+            this.globalOrdinalsExecutor = globalOrdinalsExecutor;
         }
 
         @Override
@@ -167,7 +183,9 @@ public class IndicesFieldDataCache implements RemovalListener<IndicesFieldDataCa
             final Accountable accountable = cache.computeIfAbsent(key, k -> {
                 ElasticsearchDirectoryReader.addReaderCloseListener(indexReader, IndexFieldCache.this);
                 Collections.addAll(k.listeners, this.listeners);
-                final Accountable ifd = (Accountable) indexFieldData.localGlobalDirect(indexReader);
+                final Accountable ifd = (Accountable) (globalOrdinalsExecutor == null
+                    ? indexFieldData.localGlobalDirect(indexReader)
+                    : indexFieldData.localGlobalDirect(indexReader, globalOrdinalsExecutor));
                 for (Listener listener : k.listeners) {
                     try {
                         listener.onCache(shardId, fieldName, ifd);
@@ -51,6 +51,7 @@ import org.elasticsearch.common.lucene.store.InputStreamIndexInput;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.CancellableThreads;
+import org.elasticsearch.common.util.concurrent.CountDown;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.common.util.concurrent.FutureUtils;
 import org.elasticsearch.common.util.concurrent.ListenableFuture;
@@ -87,8 +88,10 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.function.IntSupplier;
+import java.util.function.Supplier;
 import java.util.stream.StreamSupport;
 
 /**
@@ -113,6 +116,7 @@ public class RecoverySourceHandler {
     private final int chunkSizeInBytes;
     private final RecoveryTargetHandler recoveryTarget;
     private final int maxConcurrentFileChunks;
+    private final int maxConcurrentFiles;
     private final ThreadPool threadPool;
     private final CancellableThreads cancellableThreads = new CancellableThreads();
     private final List<Closeable> resources = new CopyOnWriteArrayList<>();
@@ -120,6 +124,12 @@ public class RecoverySourceHandler {
 
     public RecoverySourceHandler(IndexShard shard, RecoveryTargetHandler recoveryTarget, ThreadPool threadPool,
                                  StartRecoveryRequest request, int fileChunkSizeInBytes, int maxConcurrentFileChunks) {
+        this(shard, recoveryTarget, threadPool, request, fileChunkSizeInBytes, maxConcurrentFileChunks, 1);
+    }
+
+    public RecoverySourceHandler(IndexShard shard, RecoveryTargetHandler recoveryTarget, ThreadPool threadPool,
+                                 StartRecoveryRequest request, int fileChunkSizeInBytes, int maxConcurrentFileChunks,
+                                 int maxConcurrentFiles) {
         this.shard = shard;
         this.recoveryTarget = recoveryTarget;
         this.threadPool = threadPool;
@@ -128,6 +138,7 @@ public class RecoverySourceHandler {
         this.logger = Loggers.getLogger(getClass(), request.shardId(), "recover to " + request.targetNode().getName());
         this.chunkSizeInBytes = fileChunkSizeInBytes;
         this.maxConcurrentFileChunks = maxConcurrentFileChunks;
+        this.maxConcurrentFiles = maxConcurrentFiles;
     }
 
     public StartRecoveryRequest getRequest() {
@@ -861,8 +872,58 @@ public class RecoverySourceHandler {
     void sendFiles(Store store, StoreFileMetadata[] files, IntSupplier translogOps, ActionListener<Void> listener) {
         ArrayUtil.timSort(files, Comparator.comparingLong(StoreFileMetadata::length)); // send smallest first
 
+        final int senders = Math.max(1, Math.min(maxConcurrentFiles, files.length));
+        if (senders == 1) {
+            sendFiles(store, Arrays.asList(files), translogOps, () -> null, listener);
+            return;
+        }
+        // Distribute the files round-robin so that each sender still sends its smallest files first and all senders have a similar
+        // number of bytes to send. Each sender has at most maxConcurrentFileChunks file chunk requests in flight.
+        final List<List<StoreFileMetadata>> filesPerSender = new ArrayList<>(senders);
+        for (int i = 0; i < senders; i++) {
+            filesPerSender.add(new ArrayList<>());
+        }
+        for (int i = 0; i < files.length; i++) {
+            filesPerSender.get(i % senders).add(files[i]);
+        }
+        // The first failure of a sender stops the other senders before their next file chunk, and the recovery is failed with it
+        // once all senders have completed. It is recorded before the other senders can see it, so it is never one of the failures
+        // the stopped senders complete with; those are added to it as suppressed.
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        final CountDown pendingSenders = new CountDown(senders);
+        final ActionListener<Void> sendersListener = new ActionListener<>() {
+            @Override
+            public void onResponse(Void aVoid) {
+                onSenderCompleted();
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                if (failure.compareAndSet(null, e) == false) {
+                    failure.get().addSuppressed(e);
+                }
+                onSenderCompleted();
+            }
+
+            private void onSenderCompleted() {
+                if (pendingSenders.countDown()) {
+                    if (failure.get() == null) {
+                        listener.onResponse(null);
+                    } else {
+                        listener.onFailure(failure.get());
+                    }
+                }
+            }
+        };
+        for (List<StoreFileMetadata> senderFiles : filesPerSender) {
+            sendFiles(store, senderFiles, translogOps, failure::get, sendersListener);
+        }
+    }
+
+    private void sendFiles(Store store, List<StoreFileMetadata> files, IntSupplier translogOps, Supplier<Exception> otherFailure,
+                           ActionListener<Void> listener) {
         final MultiFileTransfer<FileChunk> multiFileSender =
-            new MultiFileTransfer<>(logger, threadPool.getThreadContext(), listener, maxConcurrentFileChunks, Arrays.asList(files)) {
+            new MultiFileTransfer<>(logger, threadPool.getThreadContext(), listener, maxConcurrentFileChunks, files) {
 
                 final Deque<byte[]> buffers = new ConcurrentLinkedDeque<>();
                 InputStreamIndexInput currentInput = null;
@@ -885,6 +946,7 @@ public class RecoverySourceHandler {
                 protected FileChunk nextChunkRequest(StoreFileMetadata md) throws IOException {
                     assert Transports.assertNotTransportThread("read file chunk");
                     cancellableThreads.checkForCancel();
+                    ensureNoOtherFailure();
                     final byte[] buffer = Objects.requireNonNullElseGet(buffers.pollFirst(), () -> new byte[chunkSizeInBytes]);
                     final int bytesRead = currentInput.read(buffer);
                     if (bytesRead == -1) {
@@ -900,6 +962,7 @@ public class RecoverySourceHandler {
                 @Override
                 protected void executeChunkRequest(FileChunk request, ActionListener<Void> listener) {
                     cancellableThreads.checkForCancel();
+                    ensureNoOtherFailure();
                     recoveryTarget.writeFileChunk(
                         request.md, request.position, request.content, request.lastChunk, translogOps.getAsInt(),
                         ActionListener.runBefore(listener, request::close));
@@ -910,6 +973,12 @@ public class RecoverySourceHandler {
                     handleErrorOnSendFiles(store, e, new StoreFileMetadata[]{md});
                 }
 
+                private void ensureNoOtherFailure() {
+                    if (otherFailure.get() != null) {
+                        throw new IllegalStateException("stop sending files as sending another file of the recovery failed");
+                    }
+                }
+
                 @Override
                 public void close() throws IOException {
                     IOUtils.close(currentInput, () -> currentInput = null);
@@ -80,6 +80,7 @@ import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.CountDown;
 import org.elasticsearch.common.xcontent.LoggingDeprecationHandler;
 import org.elasticsearch.common.xcontent.NamedXContentRegistry;
 import org.elasticsearch.common.xcontent.XContentBuilder;
@@ -125,6 +126,7 @@ import java.nio.file.NoSuchFileException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -1733,7 +1735,7 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
             int indexTotalNumberOfFiles = 0;
             long indexIncrementalSize = 0;
             long indexTotalFileSize = 0;
-            final BlockingQueue<BlobStoreIndexShardSnapshot.FileInfo> filesToSnapshot = new LinkedBlockingQueue<>();
+            final BlockingQueue<FilePartSnapshot> filesToSnapshot = new LinkedBlockingQueue<>();
             // If we did not find a set of files that is equal to the current commit we determine the files to upload by comparing files
             // in the commit with files already in the repository
             if (filesFromSegmentInfos == null) {
@@ -1788,7 +1790,7 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
                                 md, chunkSize());
                         indexCommitPointFiles.add(snapshotFileInfo);
                         if (needsWrite) {
-                            filesToSnapshot.add(snapshotFileInfo);
+                            FilePartSnapshot.addParts(filesToSnapshot, snapshotFileInfo);
                         }
                         assert needsWrite || assertFileContentsMatchHash(snapshotFileInfo, store);
                     } else {
@@ -1871,8 +1873,11 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
                 return;
             }
             final Executor executor = threadPool.executor(ThreadPool.Names.SNAPSHOT);
-            // Start as many workers as fit into the snapshot pool at once at the most
-            final int workers = Math.min(threadPool.info(ThreadPool.Names.SNAPSHOT).getMax(), indexIncrementalFileCount);
+            // Start as many workers as fit into the snapshot pool at once at the most, the parts of large files are uploaded concurrently
+            final int workers = Math.min(
+                threadPool.info(ThreadPool.Names.SNAPSHOT).getMax(),
+                Math.max(indexIncrementalFileCount, filesToSnapshot.size())
+            );
             final ActionListener<Void> filesListener = fileQueueListener(filesToSnapshot, workers, allFilesUploadedListener);
             for (int i = 0; i < workers; ++i) {
                 executeOneFileSnapshot(store, snapshotId, indexId, snapshotStatus, filesToSnapshot, executor, filesListener);
@@ -1883,16 +1888,20 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
     }
 
     private void executeOneFileSnapshot(Store store, SnapshotId snapshotId, IndexId indexId, IndexShardSnapshotStatus snapshotStatus,
-                                        BlockingQueue<BlobStoreIndexShardSnapshot.FileInfo> filesToSnapshot, Executor executor,
+                                        BlockingQueue<FilePartSnapshot> filesToSnapshot, Executor executor,
                                         ActionListener<Void> listener) throws InterruptedException {
         final ShardId shardId = store.shardId();
-        final BlobStoreIndexShardSnapshot.FileInfo snapshotFileInfo = filesToSnapshot.poll(0L, TimeUnit.MILLISECONDS);
-        if (snapshotFileInfo == null) {
+        final FilePartSnapshot filePart = filesToSnapshot.poll(0L, TimeUnit.MILLISECONDS);
+        if (filePart == null) {
             listener.onResponse(null);
         } else {
             executor.execute(ActionRunnable.wrap(listener, l -> {
                 try (Releasable ignored = incrementStoreRef(store, snapshotStatus, shardId)) {
-                    snapshotFile(snapshotFileInfo, indexId, shardId, snapshotId, snapshotStatus, store);
+                    if (filePart.remainingParts == null) {
+                        snapshotFile(filePart.fileInfo, indexId, shardId, snapshotId, snapshotStatus, store);
+                    } else {
+                        snapshotFilePart(filePart, indexId, shardId, snapshotId, snapshotStatus, store);
+                    }
                     executeOneFileSnapshot(store, snapshotId, indexId, snapshotStatus, filesToSnapshot, executor, l);
                 }
             }));
@@ -1943,7 +1952,10 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
                         // Start as many workers as fit into the snapshot pool at once at the most
                         final int workers =
                             Math.min(threadPool.info(ThreadPool.Names.SNAPSHOT).getMax(), snapshotFiles.indexFiles().size());
-                        final BlockingQueue<BlobStoreIndexShardSnapshot.FileInfo> files = new LinkedBlockingQueue<>(filesToRecover);
+                        // Restore the largest files first so that their sequential download overlaps with the restore of the smaller ones
+                        final List<BlobStoreIndexShardSnapshot.FileInfo> sortedFiles = new ArrayList<>(filesToRecover);
+                        sortedFiles.sort(Comparator.comparingLong(BlobStoreIndexShardSnapshot.FileInfo::length).reversed());
+                        final BlockingQueue<BlobStoreIndexShardSnapshot.FileInfo> files = new LinkedBlockingQueue<>(sortedFiles);
                         final ActionListener<Void> allFilesListener =
                             fileQueueListener(files, workers, ActionListener.map(listener, v -> null));
                         // restore the files from the snapshot to the Lucene store
@@ -2019,8 +2031,8 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
         }));
     }
 
-    private static ActionListener<Void> fileQueueListener(BlockingQueue<BlobStoreIndexShardSnapshot.FileInfo> files, int workers,
-                                                          ActionListener<Collection<Void>> listener) {
+    private static <T> ActionListener<Void> fileQueueListener(BlockingQueue<T> files, int workers,
+                                                              ActionListener<Collection<Void>> listener) {
         return ActionListener.delegateResponse(new GroupedActionListener<>(listener, workers), (l, e) -> {
             files.clear(); // Stop uploading the remaining files if we run into any exception
             l.onFailure(e);
@@ -2215,35 +2227,7 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
         final String file = fileInfo.physicalName();
         try (IndexInput indexInput = store.openVerifyingInput(file, IOContext.READONCE, fileInfo.metadata())) {
             for (int i = 0; i < fileInfo.numberOfParts(); i++) {
-                final long partBytes = fileInfo.partBytes(i);
-
-                // Make reads abortable by mutating the snapshotStatus object
-                final InputStream inputStream = new FilterInputStream(maybeRateLimitSnapshots(
-                    new InputStreamIndexInput(indexInput, partBytes))) {
-                    @Override
-                    public int read() throws IOException {
-                        checkAborted();
-                        return super.read();
-                    }
-
-                    @Override
-                    public int read(byte[] b, int off, int len) throws IOException {
-                        checkAborted();
-                        return super.read(b, off, len);
-                    }
-
-                    private void checkAborted() {
-                        if (snapshotStatus.isAborted()) {
-                            logger.debug("[{}] [{}] Aborted on the file [{}], exiting", shardId,
-                                snapshotId, fileInfo.physicalName());
-                            throw new AbortedSnapshotException();
-                        }
-                    }
-                };
-                final String partName = fileInfo.partName(i);
-                logger.trace(() ->
-                        new ParameterizedMessage("[{}] Writing [{}] to [{}]", metadata.name(), partName, shardContainer.path()));
-                shardContainer.writeBlob(partName, inputStream, partBytes, true);
+                writeFilePart(shardContainer, fileInfo, i, indexInput, shardId, snapshotId, snapshotStatus);
             }
             Store.verify(indexInput);
             snapshotStatus.addProcessedFile(fileInfo.length());
@@ -2254,6 +2238,74 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
         }
     }
 
+    /**
+     * Snapshot a single part of a file that is split in several parts. Each part is read from its own input so that the parts of the file
+     * can be uploaded concurrently. The checksum of each part is computed from the bytes that are uploaded and the checksums of all parts
+     * are combined and verified against the footer once the last part has been uploaded, without reading the file a second time.
+     * @param filePart part of the file to be snapshotted
+     */
+    private void snapshotFilePart(FilePartSnapshot filePart, IndexId indexId, ShardId shardId, SnapshotId snapshotId,
+                                  IndexShardSnapshotStatus snapshotStatus, Store store) throws IOException {
+        final BlobStoreIndexShardSnapshot.FileInfo fileInfo = filePart.fileInfo;
+        final BlobContainer shardContainer = shardContainer(indexId, shardId);
+        boolean lastPart = false;
+        try {
+            try (IndexInput indexInput = filePart.verifier.openPart(store.directory(), IOContext.READONCE, filePart.part,
+                    filePart.part * fileInfo.partSize().getBytes())) {
+                writeFilePart(shardContainer, fileInfo, filePart.part, indexInput, shardId, snapshotId, snapshotStatus);
+            }
+            lastPart = filePart.remainingParts.countDown();
+            if (lastPart) {
+                filePart.verifier.verify();
+                snapshotStatus.addProcessedFile(fileInfo.length());
+            }
+        } catch (Exception t) {
+            failStoreIfCorrupted(store, t);
+            // only account for the failed file once, the other parts are not uploaded anymore
+            if (lastPart || filePart.remainingParts.fastForward()) {
+                snapshotStatus.addProcessedFile(0);
+            }
+            throw t;
+        }
+    }
+
+    /**
+     * Writes a part of a file to the repository, reading the part from the current position of the given input.
+     */
+    private void writeFilePart(BlobContainer shardContainer, BlobStoreIndexShardSnapshot.FileInfo fileInfo, int part,
+                               IndexInput indexInput, ShardId shardId, SnapshotId snapshotId,
+                               IndexShardSnapshotStatus snapshotStatus) throws IOException {
+        final long partBytes = fileInfo.partBytes(part);
+
+        // Make reads abortable by mutating the snapshotStatus object
+        final InputStream inputStream = new FilterInputStream(maybeRateLimitSnapshots(
+            new InputStreamIndexInput(indexInput, partBytes))) {
+            @Override
+            public int read() throws IOException {
+                checkAborted();
+                return super.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                checkAborted();
+                return super.read(b, off, len);
+            }
+
+            private void checkAborted() {
+                if (snapshotStatus.isAborted()) {
+                    logger.debug("[{}] [{}] Aborted on the file [{}], exiting", shardId,
+                        snapshotId, fileInfo.physicalName());
+                    throw new AbortedSnapshotException();
+                }
+            }
+        };
+        final String partName = fileInfo.partName(part);
+        logger.trace(() ->
+                new ParameterizedMessage("[{}] Writing [{}] to [{}]", metadata.name(), partName, shardContainer.path()));
+        shardContainer.writeBlob(partName, inputStream, partBytes, true);
+    }
+
     private static void failStoreIfCorrupted(Store store, Exception e) {
         if (Lucene.isCorruptionException(e)) {
             try {
@@ -2265,6 +2317,45 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
         }
     }
 
+    /**
+     * A part of a file to upload to the repository. The parts of a file that is split in several parts are uploaded concurrently.
+     */
+    private static final class FilePartSnapshot {
+
+        private final BlobStoreIndexShardSnapshot.FileInfo fileInfo;
+
+        private final int part;
+
+        // Number of parts of the file that remain to be uploaded, null if the file has a single part and is uploaded sequentially
+        @Nullable
+        private final CountDown remainingParts;
+
+        // Verifies the checksum of the file from the bytes of all its parts, null if the file has a single part
+        @Nullable
+        private final Store.MultiPartVerifier verifier;
+
+        private FilePartSnapshot(BlobStoreIndexShardSnapshot.FileInfo fileInfo, int part, @Nullable CountDown remainingParts,
+                                 @Nullable Store.MultiPartVerifier verifier) {
+            this.fileInfo = fileInfo;
+            this.part = part;
+            this.remainingParts = remainingParts;
+            this.verifier = verifier;
+        }
+
+        static void addParts(BlockingQueue<FilePartSnapshot> queue, BlobStoreIndexShardSnapshot.FileInfo fileInfo) {
+            final int numberOfParts = Math.toIntExact(fileInfo.numberOfParts());
+            if (numberOfParts == 1) {
+                queue.add(new FilePartSnapshot(fileInfo, 0, null, null));
+            } else {
+                final CountDown remainingParts = new CountDown(numberOfParts);
+                final Store.MultiPartVerifier verifier = Store.multiPartVerifier(fileInfo.metadata(), numberOfParts);
+                for (int i = 0; i < numberOfParts; i++) {
+                    queue.add(new FilePartSnapshot(fileInfo, i, remainingParts, verifier));
+                }
+            }
+        }
+    }
+
     /**
      * The result of removing a snapshot from a shard folder in the repository.
      */
@@ -0,0 +1,135 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest;
+
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
+import org.elasticsearch.common.io.stream.BytesStream;
+import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.xcontent.ChunkedToXContent;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+/**
+ * The body of a {@link RestResponse} that is serialized one chunk at a time, as the http channel becomes ready to send more bytes,
+ * rather than being materialized in full before the response is sent.
+ */
+public interface ChunkedRestResponseBody {
+
+    /**
+     * @return true once the whole body has been serialized by {@link #encodeChunk}
+     */
+    boolean isDone();
+
+    /**
+     * Serializes the next chunk of the body. The returned bytes must be released by the caller once they have been sent.
+     *
+     * @param sizeHint  the number of bytes the chunk should roughly hold, it may hold more since the elements of the body are not split
+     * @param bigArrays the big arrays to allocate the pages holding the chunk from
+     * @return the serialized chunk
+     */
+    ReleasableBytesReference encodeChunk(int sizeHint, BigArrays bigArrays) throws IOException;
+
+    /**
+     * @return the content type of the body
+     */
+    String getResponseContentTypeString();
+
+    /**
+     * Creates a body that serializes the given chunked object with a builder obtained from the given channel, so that the
+     * response format, {@code filter_path}, {@code pretty} and {@code human} parameters of the request apply as they do for
+     * fully materialized responses.
+     */
+    static ChunkedRestResponseBody fromXContent(ChunkedToXContent chunkedToXContent, ToXContent.Params params,
+                                                RestChannel channel) throws IOException {
+        return new ChunkedRestResponseBody() {
+
+            private BytesStream target;
+
+            // forwards the bytes written by the builder to the chunk currently being serialized
+            private final OutputStream out = new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    target.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    target.write(b, off, len);
+                }
+
+                @Override
+                public void close() {
+                    // the chunks are released by whoever sends them
+                }
+            };
+
+            private final XContentBuilder builder = channel.newBuilder(channel.request().getXContentType(), null, true, out);
+
+            private final Iterator<? extends ToXContent> serialization = chunkedToXContent.toXContentChunked();
+
+            private boolean done = false;
+
+            @Override
+            public boolean isDone() {
+                return done;
+            }
+
+            @Override
+            public ReleasableBytesReference encodeChunk(int sizeHint, BigArrays bigArrays) throws IOException {
+                assert done == false : "body has already been serialized";
+                final ReleasableBytesStreamOutput chunk = new ReleasableBytesStreamOutput(bigArrays);
+                boolean success = false;
+                try {
+                    target = chunk;
+                    while (serialization.hasNext()) {
+                        serialization.next().toXContent(builder, params);
+                        if (chunk.size() >= sizeHint) {
+                            break;
+                        }
+                    }
+                    if (serialization.hasNext() == false) {
+                        builder.close();
+                        done = true;
+                    } else {
+                        builder.flush();
+                    }
+                    target = null;
+                    final ReleasableBytesReference result = new ReleasableBytesReference(chunk.bytes(), chunk);
+                    success = true;
+                    return result;
+                } finally {
+                    if (success == false) {
+                        chunk.close();
+                    }
+                }
+            }
+
+            @Override
+            public String getResponseContentTypeString() {
+                return builder.contentType().mediaType();
+            }
+        };
+    }
+}
@@ -20,6 +20,7 @@
 package org.elasticsearch.rest;
 
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.bytes.BytesReference;
 
 import java.util.ArrayList;
@@ -44,6 +45,15 @@ public abstract class RestResponse {
      */
     public abstract BytesReference content();
 
+    /**
+     * The response content as a body that can be serialized and sent one chunk at a time, or {@code null} if the response content is
+     * only available in full through {@link #content()}.
+     */
+    @Nullable
+    public ChunkedRestResponseBody chunkedContent() {
+        return null;
+    }
+
     /**
      * The rest status code.
      */
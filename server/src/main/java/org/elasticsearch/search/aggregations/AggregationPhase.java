@@ -18,7 +18,9 @@
  */
 package org.elasticsearch.search.aggregations;
 
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.MultiCollector;
 import org.apache.lucene.search.Query;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lucene.search.Queries;
@@ -31,6 +33,7 @@ import org.elasticsearch.search.query.QueryPhaseExecutionException;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -136,4 +139,33 @@ public class AggregationPhase implements SearchPhase {
         context.aggregations(null);
         context.queryCollectors().remove(AggregationPhase.class);
     }
+
+    /**
+     * Collects the aggregations of the request on a single segment and builds their results. New aggregators are created for
+     * each call so that the results only reflect the given segment, and can be cached and reduced with the results of other
+     * segments. The aggregations must not contain {@link GlobalAggregator global} aggregations.
+     *
+     * @param collector a collector that is run on the segment alongside the aggregators
+     */
+    public InternalAggregations executeOnSegment(SearchContext context, LeafReaderContext leaf, Collector collector) throws IOException {
+        final Aggregator[] aggregators = context.aggregations().factories().createTopLevelAggregators(context);
+        final BucketCollector aggregationsCollector = MultiBucketCollector.wrap(Arrays.asList(aggregators));
+        aggregationsCollector.preCollection();
+        assert aggregationsCollector.scoreMode().needsScores() == false : "scores depend on the other segments of the shard";
+        final Collector segmentCollector = MultiCollector.wrap(collector, aggregationsCollector);
+        context.searcher().searchSegment(leaf, context.query(), segmentCollector);
+
+        List<InternalAggregation> aggregations = new ArrayList<>(aggregators.length);
+        context.aggregations().resetBucketMultiConsumer();
+        for (Aggregator aggregator : aggregators) {
+            assert aggregator instanceof GlobalAggregator == false;
+            try {
+                aggregator.postCollection();
+                aggregations.add(aggregator.buildTopLevel());
+            } catch (IOException e) {
+                throw new AggregationExecutionException("Failed to build aggregation [" + aggregator.name() + "]", e);
+            }
+        }
+        return InternalAggregations.from(aggregations);
+    }
 }
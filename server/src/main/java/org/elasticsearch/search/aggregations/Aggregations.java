@@ -20,6 +20,9 @@ package org.elasticsearch.search.aggregations;
 
 import org.apache.lucene.util.SetOnce;
 import org.elasticsearch.common.ParsingException;
+import org.elasticsearch.common.collect.Iterators;
+import org.elasticsearch.common.xcontent.ChunkedToXContent;
+import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.ToXContentFragment;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentParser;
@@ -41,7 +44,7 @@ import static org.elasticsearch.common.xcontent.XContentParserUtils.parseTypedKe
 /**
  * Represents a set of {@link Aggregation}s
  */
-public class Aggregations implements Iterable<Aggregation>, ToXContentFragment {
+public class Aggregations implements Iterable<Aggregation>, ToXContentFragment, ChunkedToXContent {
 
     public static final String AGGREGATIONS_FIELD = "aggregations";
 
@@ -122,6 +125,22 @@ public class Aggregations implements Iterable<Aggregation>, ToXContentFragment {
         return builder.endObject();
     }
 
+    /**
+     * Renders the aggregations one at a time, letting each {@link ChunkedToXContent} aggregation split itself into further chunks.
+     */
+    @Override
+    public Iterator<? extends ToXContent> toXContentChunked() {
+        if (aggregations.isEmpty()) {
+            return Collections.emptyIterator();
+        }
+        return Iterators.<ToXContent>concat(
+            Collections.<ToXContent>singleton((builder, params) -> builder.startObject(AGGREGATIONS_FIELD)).iterator(),
+            Iterators.<Aggregation, ToXContent>flatMap(aggregations.iterator(), aggregation -> aggregation instanceof ChunkedToXContent
+                ? ((ChunkedToXContent) aggregation).toXContentChunked()
+                : Collections.singleton(aggregation).iterator()),
+            Collections.<ToXContent>singleton((builder, params) -> builder.endObject()).iterator());
+    }
+
     /**
      * Directly write all the aggregations without their bounding object. Used by sub-aggregations (non top level aggs)
      */
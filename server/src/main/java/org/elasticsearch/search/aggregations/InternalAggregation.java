@@ -23,6 +23,8 @@ import org.elasticsearch.common.io.stream.NamedWriteable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.xcontent.ChunkedToXContent;
+import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.rest.action.search.RestSearchAction;
 import org.elasticsearch.script.ScriptService;
@@ -31,6 +33,7 @@ import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator.Pipelin
 import org.elasticsearch.search.aggregations.support.AggregationPath;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -45,7 +48,7 @@ import static java.util.Objects.requireNonNull;
 /**
  * An internal implementation of {@link Aggregation}. Serves as a base class for all aggregation implementations.
  */
-public abstract class InternalAggregation implements Aggregation, NamedWriteable {
+public abstract class InternalAggregation implements Aggregation, NamedWriteable, ChunkedToXContent {
     /**
      * Builds {@link ReduceContext}.
      */
@@ -278,6 +281,16 @@ public abstract class InternalAggregation implements Aggregation, NamedWriteable
 
     @Override
     public final XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        startXContent(builder, params);
+        doXContentBody(builder, params);
+        builder.endObject();
+        return builder;
+    }
+
+    /**
+     * Starts the object holding this aggregation and writes its metadata. The caller is responsible for ending the object.
+     */
+    protected final XContentBuilder startXContent(XContentBuilder builder, Params params) throws IOException {
         if (params.paramAsBoolean(RestSearchAction.TYPED_KEYS_PARAM, false)) {
             // Concatenates the type and the name of the aggregation (ex: top_hits#foo)
             builder.startObject(String.join(TYPED_KEYS_DELIMITER, getType(), getName()));
@@ -288,11 +301,18 @@ public abstract class InternalAggregation implements Aggregation, NamedWriteable
             builder.field(CommonFields.META.getPreferredName());
             builder.map(this.metadata);
         }
-        doXContentBody(builder, params);
-        builder.endObject();
         return builder;
     }
 
+    /**
+     * Renders this aggregation as a single chunk. Aggregations that may hold many buckets should override this to render each
+     * bucket as its own chunk so that the response can be sent while it is being serialized.
+     */
+    @Override
+    public Iterator<? extends ToXContent> toXContentChunked() {
+        return Collections.singleton(this).iterator();
+    }
+
     public abstract XContentBuilder doXContentBody(XContentBuilder builder, Params params) throws IOException;
 
     @Override
@@ -19,13 +19,17 @@
 
 package org.elasticsearch.search.aggregations.bucket.terms;
 
+import org.elasticsearch.common.collect.Iterators;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.BucketOrder;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -137,4 +141,15 @@ public abstract class InternalMappedTerms<A extends InternalTerms<A, B>, B exten
     public final XContentBuilder doXContentBody(XContentBuilder builder, Params params) throws IOException {
         return doXContentCommon(builder, params, docCountError, otherDocCount, buckets);
     }
+
+    @Override
+    public Iterator<? extends ToXContent> toXContentChunked() {
+        return Iterators.<ToXContent>concat(
+            Collections.<ToXContent>singleton((builder, params) -> {
+                startXContent(builder, params);
+                return startBucketsXContent(builder, docCountError, otherDocCount);
+            }).iterator(),
+            buckets.iterator(),
+            Collections.<ToXContent>singleton((builder, params) -> builder.endArray().endObject()).iterator());
+    }
 }
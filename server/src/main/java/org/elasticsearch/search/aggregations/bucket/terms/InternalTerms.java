@@ -362,13 +362,20 @@ public abstract class InternalTerms<A extends InternalTerms<A, B>, B extends Int
 
     protected static XContentBuilder doXContentCommon(XContentBuilder builder, Params params,
                                                long docCountError, long otherDocCount, List<? extends Bucket> buckets) throws IOException {
-        builder.field(DOC_COUNT_ERROR_UPPER_BOUND_FIELD_NAME.getPreferredName(), docCountError);
-        builder.field(SUM_OF_OTHER_DOC_COUNTS.getPreferredName(), otherDocCount);
-        builder.startArray(CommonFields.BUCKETS.getPreferredName());
+        startBucketsXContent(builder, docCountError, otherDocCount);
         for (Bucket bucket : buckets) {
             bucket.toXContent(builder, params);
         }
         builder.endArray();
         return builder;
     }
+
+    /**
+     * Writes the fields shared by all terms aggregations and starts the array of buckets.
+     */
+    static XContentBuilder startBucketsXContent(XContentBuilder builder, long docCountError, long otherDocCount) throws IOException {
+        builder.field(DOC_COUNT_ERROR_UPPER_BOUND_FIELD_NAME.getPreferredName(), docCountError);
+        builder.field(SUM_OF_OTHER_DOC_COUNTS.getPreferredName(), otherDocCount);
+        return builder.startArray(CommonFields.BUCKETS.getPreferredName());
+    }
 }
@@ -46,6 +46,23 @@ class AvgAggregator extends NumericMetricsAggregator.SingleValue {
     DoubleArray compensations;
     DocValueFormat format;
 
+    private final BufferedDoubleValues buffer = new BufferedDoubleValues() {
+        private final CompensatedSum kahanSummation = new CompensatedSum(0, 0);
+
+        @Override
+        protected void reduce(long bucket, double[] values, int size) {
+            counts.increment(bucket, size);
+            // Compute the sum of double values with Kahan summation algorithm which is more
+            // accurate than naive summation.
+            kahanSummation.reset(sums.get(bucket), compensations.get(bucket));
+            for (int i = 0; i < size; i++) {
+                kahanSummation.add(values[i]);
+            }
+            sums.set(bucket, kahanSummation.value());
+            compensations.set(bucket, kahanSummation.delta());
+        }
+    };
+
     AvgAggregator(String name, ValuesSourceConfig valuesSourceConfig, SearchContext context,
                   Aggregator parent, Map<String, Object> metadata) throws IOException {
         super(name, context, parent, metadata);
@@ -73,7 +90,6 @@ class AvgAggregator extends NumericMetricsAggregator.SingleValue {
         }
         final BigArrays bigArrays = context.bigArrays();
         final SortedNumericDoubleValues values = valuesSource.doubleValues(ctx);
-        final CompensatedSum kahanSummation = new CompensatedSum(0, 0);
 
         return new LeafBucketCollectorBase(sub, values) {
             @Override
@@ -83,22 +99,7 @@ class AvgAggregator extends NumericMetricsAggregator.SingleValue {
                 compensations = bigArrays.grow(compensations, bucket + 1);
 
                 if (values.advanceExact(doc)) {
-                    final int valueCount = values.docValueCount();
-                    counts.increment(bucket, valueCount);
-                    // Compute the sum of double values with Kahan summation algorithm which is more
-                    // accurate than naive summation.
-                    double sum = sums.get(bucket);
-                    double compensation = compensations.get(bucket);
-
-                    kahanSummation.reset(sum, compensation);
-
-                    for (int i = 0; i < valueCount; i++) {
-                        double value = values.nextValue();
-                        kahanSummation.add(value);
-                    }
-
-                    sums.set(bucket, kahanSummation.value());
-                    compensations.set(bucket, kahanSummation.delta());
+                    buffer.collect(bucket, values);
                 }
             }
         };
@@ -106,6 +107,7 @@ class AvgAggregator extends NumericMetricsAggregator.SingleValue {
 
     @Override
     public double metric(long owningBucketOrd) {
+        buffer.flush();
         if (valuesSource == null || owningBucketOrd >= sums.size()) {
             return Double.NaN;
         }
@@ -114,6 +116,7 @@ class AvgAggregator extends NumericMetricsAggregator.SingleValue {
 
     @Override
     public InternalAggregation buildAggregation(long bucket) {
+        buffer.flush();
         if (valuesSource == null || bucket >= sums.size()) {
             return buildEmptyAggregation();
         }
@@ -0,0 +1,82 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.metrics;
+
+import org.apache.lucene.util.ArrayUtil;
+import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
+
+import java.io.IOException;
+
+/**
+ * Buffers the values collected for consecutive documents of the same bucket so that numeric metrics
+ * aggregators can reduce them in a tight loop over a primitive array, rather than reading and writing
+ * their per-bucket state for every document. Aggregators must {@link #flush()} before they read that state.
+ */
+abstract class BufferedDoubleValues {
+
+    static final int BUFFER_SIZE = 512;
+
+    private double[] values = new double[BUFFER_SIZE];
+    private int size;
+    private long bucket = -1;
+
+    /**
+     * Adds the given values, in order, to the state of {@code bucket}.
+     */
+    protected abstract void reduce(long bucket, double[] values, int size);
+
+    /**
+     * Buffers all values of the document that {@code docValues} is positioned on.
+     */
+    final void collect(long bucket, SortedNumericDoubleValues docValues) throws IOException {
+        final int count = docValues.docValueCount();
+        if (bucket != this.bucket || size + count > values.length) {
+            flush();
+            this.bucket = bucket;
+            if (count > values.length) {
+                values = ArrayUtil.grow(values, count);
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            values[size++] = docValues.nextValue();
+        }
+    }
+
+    /**
+     * Buffers a single value.
+     */
+    final void collect(long bucket, double value) {
+        if (bucket != this.bucket || size == values.length) {
+            flush();
+            this.bucket = bucket;
+        }
+        values[size++] = value;
+    }
+
+    /**
+     * Reduces the buffered values into the state of their bucket.
+     */
+    final void flush() {
+        if (size > 0) {
+            reduce(bucket, values, size);
+            size = 0;
+        }
+    }
+}
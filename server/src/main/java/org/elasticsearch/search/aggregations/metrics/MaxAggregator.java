@@ -56,6 +56,17 @@ class MaxAggregator extends NumericMetricsAggregator.SingleValue {
 
     DoubleArray maxes;
 
+    private final BufferedDoubleValues buffer = new BufferedDoubleValues() {
+        @Override
+        protected void reduce(long bucket, double[] values, int size) {
+            double max = maxes.get(bucket);
+            for (int i = 0; i < size; i++) {
+                max = Math.max(max, values[i]);
+            }
+            maxes.set(bucket, max);
+        }
+    };
+
     MaxAggregator(String name,
                     ValuesSourceConfig config,
                     SearchContext context,
@@ -95,6 +106,7 @@ class MaxAggregator extends NumericMetricsAggregator.SingleValue {
         if (pointConverter != null) {
             Number segMax = findLeafMaxValue(ctx.reader(), pointField, pointConverter);
             if (segMax != null) {
+                buffer.flush();
                 /*
                  * There is no parent aggregator (see {@link MinAggregator#getPointReaderOrNull}
                  * so the ordinal for the bucket is always 0.
@@ -120,10 +132,7 @@ class MaxAggregator extends NumericMetricsAggregator.SingleValue {
                     maxes.fill(from, maxes.size(), Double.NEGATIVE_INFINITY);
                 }
                 if (values.advanceExact(doc)) {
-                    final double value = values.doubleValue();
-                    double max = maxes.get(bucket);
-                    max = Math.max(max, value);
-                    maxes.set(bucket, max);
+                    buffer.collect(bucket, values.doubleValue());
                 }
             }
 
@@ -132,6 +141,7 @@ class MaxAggregator extends NumericMetricsAggregator.SingleValue {
 
     @Override
     public double metric(long owningBucketOrd) {
+        buffer.flush();
         if (valuesSource == null || owningBucketOrd >= maxes.size()) {
             return Double.NEGATIVE_INFINITY;
         }
@@ -140,6 +150,7 @@ class MaxAggregator extends NumericMetricsAggregator.SingleValue {
 
     @Override
     public InternalAggregation buildAggregation(long bucket) {
+        buffer.flush();
         if (valuesSource == null || bucket >= maxes.size()) {
             return buildEmptyAggregation();
         }
@@ -58,6 +58,17 @@ class MinAggregator extends NumericMetricsAggregator.SingleValue {
 
     DoubleArray mins;
 
+    private final BufferedDoubleValues buffer = new BufferedDoubleValues() {
+        @Override
+        protected void reduce(long bucket, double[] values, int size) {
+            double min = mins.get(bucket);
+            for (int i = 0; i < size; i++) {
+                min = Math.min(min, values[i]);
+            }
+            mins.set(bucket, min);
+        }
+    };
+
     MinAggregator(String name,
                     ValuesSourceConfig config,
                     SearchContext context,
@@ -98,6 +109,7 @@ class MinAggregator extends NumericMetricsAggregator.SingleValue {
         if (pointConverter != null) {
             Number segMin = findLeafMinValue(ctx.reader(), pointField, pointConverter);
             if (segMin != null) {
+                buffer.flush();
                 /*
                  * There is no parent aggregator (see {@link MinAggregator#getPointReaderOrNull}
                  * so the ordinal for the bucket is always 0.
@@ -122,10 +134,7 @@ class MinAggregator extends NumericMetricsAggregator.SingleValue {
                     mins.fill(from, mins.size(), Double.POSITIVE_INFINITY);
                 }
                 if (values.advanceExact(doc)) {
-                    final double value = values.doubleValue();
-                    double min = mins.get(bucket);
-                    min = Math.min(min, value);
-                    mins.set(bucket, min);
+                    buffer.collect(bucket, values.doubleValue());
                 }
             }
 
@@ -134,6 +143,7 @@ class MinAggregator extends NumericMetricsAggregator.SingleValue {
 
     @Override
     public double metric(long owningBucketOrd) {
+        buffer.flush();
         if (valuesSource == null || owningBucketOrd >= mins.size()) {
             return Double.POSITIVE_INFINITY;
         }
@@ -142,6 +152,7 @@ class MinAggregator extends NumericMetricsAggregator.SingleValue {
 
     @Override
     public InternalAggregation buildAggregation(long bucket) {
+        buffer.flush();
         if (valuesSource == null || bucket >= mins.size()) {
             return buildEmptyAggregation();
         }
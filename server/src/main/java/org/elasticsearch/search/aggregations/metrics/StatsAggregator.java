@@ -48,6 +48,31 @@ class StatsAggregator extends NumericMetricsAggregator.MultiValue {
     DoubleArray mins;
     DoubleArray maxes;
 
+    private final BufferedDoubleValues buffer = new BufferedDoubleValues() {
+        private final CompensatedSum kahanSummation = new CompensatedSum(0, 0);
+
+        @Override
+        protected void reduce(long bucket, double[] values, int size) {
+            counts.increment(bucket, size);
+            // Compute the sum of double values with Kahan summation algorithm which is more
+            // accurate than naive summation.
+            kahanSummation.reset(sums.get(bucket), compensations.get(bucket));
+            for (int i = 0; i < size; i++) {
+                kahanSummation.add(values[i]);
+            }
+            sums.set(bucket, kahanSummation.value());
+            compensations.set(bucket, kahanSummation.delta());
+            double min = mins.get(bucket);
+            double max = maxes.get(bucket);
+            for (int i = 0; i < size; i++) {
+                min = Math.min(min, values[i]);
+                max = Math.max(max, values[i]);
+            }
+            mins.set(bucket, min);
+            maxes.set(bucket, max);
+        }
+    };
+
     StatsAggregator(
         String name,
         ValuesSourceConfig valuesSourceConfig,
@@ -84,7 +109,6 @@ class StatsAggregator extends NumericMetricsAggregator.MultiValue {
         }
         final BigArrays bigArrays = context.bigArrays();
         final SortedNumericDoubleValues values = valuesSource.doubleValues(ctx);
-        final CompensatedSum kahanSummation = new CompensatedSum(0, 0);
 
         return new LeafBucketCollectorBase(sub, values) {
             @Override
@@ -102,26 +126,7 @@ class StatsAggregator extends NumericMetricsAggregator.MultiValue {
                 }
 
                 if (values.advanceExact(doc)) {
-                    final int valuesCount = values.docValueCount();
-                    counts.increment(bucket, valuesCount);
-                    double min = mins.get(bucket);
-                    double max = maxes.get(bucket);
-                    // Compute the sum of double values with Kahan summation algorithm which is more
-                    // accurate than naive summation.
-                    double sum = sums.get(bucket);
-                    double compensation = compensations.get(bucket);
-                    kahanSummation.reset(sum, compensation);
-
-                    for (int i = 0; i < valuesCount; i++) {
-                        double value = values.nextValue();
-                        kahanSummation.add(value);
-                        min = Math.min(min, value);
-                        max = Math.max(max, value);
-                    }
-                    sums.set(bucket, kahanSummation.value());
-                    compensations.set(bucket, kahanSummation.delta());
-                    mins.set(bucket, min);
-                    maxes.set(bucket, max);
+                    buffer.collect(bucket, values);
                 }
             }
         };
@@ -139,6 +144,7 @@ class StatsAggregator extends NumericMetricsAggregator.MultiValue {
 
     @Override
     public double metric(String name, long owningBucketOrd) {
+        buffer.flush();
         if (valuesSource == null || owningBucketOrd >= counts.size()) {
             switch(InternalStats.Metrics.resolve(name)) {
                 case count: return 0;
@@ -163,6 +169,7 @@ class StatsAggregator extends NumericMetricsAggregator.MultiValue {
 
     @Override
     public InternalAggregation buildAggregation(long bucket) {
+        buffer.flush();
         if (valuesSource == null || bucket >= sums.size()) {
             return buildEmptyAggregation();
         }
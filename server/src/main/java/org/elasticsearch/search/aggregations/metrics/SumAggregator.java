@@ -44,6 +44,22 @@ public class SumAggregator extends NumericMetricsAggregator.SingleValue {
     private DoubleArray sums;
     private DoubleArray compensations;
 
+    private final BufferedDoubleValues buffer = new BufferedDoubleValues() {
+        private final CompensatedSum kahanSummation = new CompensatedSum(0, 0);
+
+        @Override
+        protected void reduce(long bucket, double[] values, int size) {
+            // Compute the sum of double values with Kahan summation algorithm which is more
+            // accurate than naive summation.
+            kahanSummation.reset(sums.get(bucket), compensations.get(bucket));
+            for (int i = 0; i < size; i++) {
+                kahanSummation.add(values[i]);
+            }
+            compensations.set(bucket, kahanSummation.delta());
+            sums.set(bucket, kahanSummation.value());
+        }
+    };
+
     SumAggregator(
         String name,
         ValuesSourceConfig valuesSourceConfig,
@@ -74,7 +90,6 @@ public class SumAggregator extends NumericMetricsAggregator.SingleValue {
         }
         final BigArrays bigArrays = context.bigArrays();
         final SortedNumericDoubleValues values = valuesSource.doubleValues(ctx);
-        final CompensatedSum kahanSummation = new CompensatedSum(0, 0);
         return new LeafBucketCollectorBase(sub, values) {
             @Override
             public void collect(int doc, long bucket) throws IOException {
@@ -82,20 +97,7 @@ public class SumAggregator extends NumericMetricsAggregator.SingleValue {
                 compensations = bigArrays.grow(compensations, bucket + 1);
 
                 if (values.advanceExact(doc)) {
-                    final int valuesCount = values.docValueCount();
-                    // Compute the sum of double values with Kahan summation algorithm which is more
-                    // accurate than naive summation.
-                    double sum = sums.get(bucket);
-                    double compensation = compensations.get(bucket);
-                    kahanSummation.reset(sum, compensation);
-
-                    for (int i = 0; i < valuesCount; i++) {
-                        double value = values.nextValue();
-                        kahanSummation.add(value);
-                    }
-
-                    compensations.set(bucket, kahanSummation.delta());
-                    sums.set(bucket, kahanSummation.value());
+                    buffer.collect(bucket, values);
                 }
             }
         };
@@ -103,6 +105,7 @@ public class SumAggregator extends NumericMetricsAggregator.SingleValue {
 
     @Override
     public double metric(long owningBucketOrd) {
+        buffer.flush();
         if (valuesSource == null || owningBucketOrd >= sums.size()) {
             return 0.0;
         }
@@ -111,6 +114,7 @@ public class SumAggregator extends NumericMetricsAggregator.SingleValue {
 
     @Override
     public InternalAggregation buildAggregation(long bucket) {
+        buffer.flush();
         if (valuesSource == null || bucket >= sums.size()) {
             return buildEmptyAggregation();
         }
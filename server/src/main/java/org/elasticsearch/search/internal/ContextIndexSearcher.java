@@ -40,6 +40,7 @@ import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.ScoreMode;
 import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.TermStatistics;
+import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TopFieldDocs;
 import org.apache.lucene.search.TotalHits;
 import org.apache.lucene.search.Weight;
@@ -49,6 +50,7 @@ import org.apache.lucene.util.BitSetIterator;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.CombinedBitSet;
 import org.apache.lucene.util.SparseFixedBitSet;
+import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.common.lucene.search.TopDocsAndMaxScore;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.dfs.AggregatedDfs;
@@ -62,10 +64,15 @@ import org.elasticsearch.search.query.QuerySearchResult;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 /**
  * Context-aware extension of {@link IndexSearcher}.
@@ -77,25 +84,45 @@ public class ContextIndexSearcher extends IndexSearcher {
      */
     private static int CHECK_CANCELLED_SCORER_INTERVAL = 1 << 11;
 
+    /**
+     * The maximum number of slices the leaves of a shard are split into when searching concurrently.
+     */
+    static final int MAX_SLICES = 8;
+
     private AggregatedDfs aggregatedDfs;
     private QueryProfiler profiler;
     private MutableQueryTimeout cancellable;
+    private final Executor executor;
 
     public ContextIndexSearcher(IndexReader reader, Similarity similarity,
                                 QueryCache queryCache, QueryCachingPolicy queryCachingPolicy,
                                 boolean wrapWithExitableDirectoryReader) throws IOException {
-        this(reader, similarity, queryCache, queryCachingPolicy, new MutableQueryTimeout(), wrapWithExitableDirectoryReader);
+        this(reader, similarity, queryCache, queryCachingPolicy, wrapWithExitableDirectoryReader, null);
+    }
+
+    /**
+     * Creates a searcher that may search slices of the leaves of the provided reader concurrently on the
+     * given {@link Executor}. A <code>null</code> executor means that all leaves are searched sequentially
+     * on the calling thread. Only searches with a {@link CollectorManager} are parallelized, which the query
+     * phase uses for hits sorted by score or by a rewritten long sort. Searches with a single {@link Collector},
+     * which includes aggregations and profiled queries, always run sequentially.
+     */
+    public ContextIndexSearcher(IndexReader reader, Similarity similarity,
+                                QueryCache queryCache, QueryCachingPolicy queryCachingPolicy,
+                                boolean wrapWithExitableDirectoryReader, Executor executor) throws IOException {
+        this(reader, similarity, queryCache, queryCachingPolicy, new MutableQueryTimeout(), wrapWithExitableDirectoryReader, executor);
     }
 
     private ContextIndexSearcher(IndexReader reader, Similarity similarity,
                                  QueryCache queryCache, QueryCachingPolicy queryCachingPolicy,
                                  MutableQueryTimeout cancellable,
-                                 boolean wrapWithExitableDirectoryReader) throws IOException {
+                                 boolean wrapWithExitableDirectoryReader, Executor executor) throws IOException {
         super(wrapWithExitableDirectoryReader ? new ExitableDirectoryReader((DirectoryReader) reader, cancellable) : reader);
         setSimilarity(similarity);
         setQueryCache(queryCache);
         setQueryCachingPolicy(queryCachingPolicy);
         this.cancellable = cancellable;
+        this.executor = executor;
     }
 
     public void setProfiler(QueryProfiler profiler) {
@@ -163,21 +190,114 @@ public class ContextIndexSearcher extends IndexSearcher {
     public void search(List<LeafReaderContext> leaves, Weight weight, CollectorManager manager,
             QuerySearchResult result, DocValueFormat[] formats, TotalHits totalHits) throws IOException {
         final List<Collector> collectors = new ArrayList<>(leaves.size());
-        for (LeafReaderContext ctx : leaves) {
-            final Collector collector = manager.newCollector();
-            searchLeaf(ctx, weight, collector);
-            collectors.add(collector);
+        for (int i = 0; i < leaves.size(); i++) {
+            collectors.add(manager.newCollector());
+        }
+        if (executor == null || leaves.size() < 2) {
+            searchSlice(leaves, collectors, weight, 0, leaves.size());
+        } else {
+            searchConcurrently(leaves, collectors, weight);
         }
-        TopFieldDocs mergedTopDocs = (TopFieldDocs) manager.reduce(collectors);
+        TopDocs mergedTopDocs = (TopDocs) manager.reduce(collectors);
         // Lucene sets shards indexes during merging of topDocs from different collectors
         // We need to reset shard index; ES will set shard index later during reduce stage
         for (ScoreDoc scoreDoc : mergedTopDocs.scoreDocs) {
             scoreDoc.shardIndex = -1;
         }
         if (totalHits != null) { // we have already precalculated totalHits for the whole index
-            mergedTopDocs = new TopFieldDocs(totalHits, mergedTopDocs.scoreDocs, mergedTopDocs.fields);
+            if (mergedTopDocs instanceof TopFieldDocs) {
+                mergedTopDocs = new TopFieldDocs(totalHits, mergedTopDocs.scoreDocs, ((TopFieldDocs) mergedTopDocs).fields);
+            } else {
+                mergedTopDocs = new TopDocs(totalHits, mergedTopDocs.scoreDocs);
+            }
+        }
+        final float maxScore;
+        if (mergedTopDocs instanceof TopFieldDocs || mergedTopDocs.scoreDocs.length == 0) {
+            maxScore = Float.NaN;
+        } else {
+            // hits sorted by score, the first one has the max score
+            maxScore = mergedTopDocs.scoreDocs[0].score;
         }
-        result.topDocs(new TopDocsAndMaxScore(mergedTopDocs, Float.NaN), formats);
+        result.topDocs(new TopDocsAndMaxScore(mergedTopDocs, maxScore), formats);
+    }
+
+    /**
+     * Returns whether this searcher searches slices of the leaves concurrently when searching with a {@link CollectorManager}.
+     */
+    public boolean searchesConcurrently() {
+        return executor != null && getIndexReader().leaves().size() > 1;
+    }
+
+    /**
+     * Splits the leaves into contiguous slices, preserving their order, and searches every slice but the first one on
+     * the executor while the calling thread searches the first slice. Each leaf is collected by its own collector so
+     * that the reduced top docs are identical to the ones of a sequential search.
+     */
+    private void searchConcurrently(List<LeafReaderContext> leaves, List<Collector> collectors, Weight weight) throws IOException {
+        final int[] bounds = sliceBounds(leaves.size(), MAX_SLICES);
+        final List<FutureTask<Void>> tasks = new ArrayList<>(bounds.length - 2);
+        for (int i = 1; i < bounds.length - 1; i++) {
+            final int from = bounds[i];
+            final int to = bounds[i + 1];
+            final FutureTask<Void> task = new FutureTask<>(() -> {
+                searchSlice(leaves, collectors, weight, from, to);
+                return null;
+            });
+            tasks.add(task);
+            executor.execute(task);
+        }
+        Exception failure = null;
+        try {
+            searchSlice(leaves, collectors, weight, bounds[0], bounds[1]);
+        } catch (Exception e) {
+            failure = e;
+        }
+        for (FutureTask<Void> task : tasks) {
+            if (failure != null) {
+                // no need to keep searching the slices that did not start yet
+                task.cancel(false);
+            }
+            try {
+                task.get();
+            } catch (ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                failure = ExceptionsHelper.useOrSuppress(failure, (Exception) cause);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = ExceptionsHelper.useOrSuppress(failure, e);
+            } catch (CancellationException e) {
+                // cancelled because of a previous failure which is reported instead
+            }
+        }
+        if (failure != null) {
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            }
+            throw ExceptionsHelper.convertToRuntime(failure);
+        }
+    }
+
+    private void searchSlice(List<LeafReaderContext> leaves, List<Collector> collectors, Weight weight,
+                             int from, int to) throws IOException {
+        for (int i = from; i < to; i++) {
+            searchLeaf(leaves.get(i), weight, collectors.get(i));
+        }
+    }
+
+    /**
+     * Returns the boundaries of at most <code>maxSlices</code> contiguous slices over <code>numLeaves</code> leaves,
+     * slice <code>i</code> spanning the leaves in <code>[bounds[i], bounds[i + 1])</code>.
+     */
+    static int[] sliceBounds(int numLeaves, int maxSlices) {
+        final int numSlices = Math.max(1, Math.min(numLeaves, maxSlices));
+        final int[] bounds = new int[numSlices + 1];
+        for (int i = 0; i <= numSlices; i++) {
+            bounds[i] = (int) ((long) numLeaves * i / numSlices);
+        }
+        return bounds;
     }
 
     @Override
@@ -187,6 +307,14 @@ public class ContextIndexSearcher extends IndexSearcher {
         }
     }
 
+    /**
+     * Searches a single segment of the reader, used to compute results that only reflect this segment.
+     */
+    public void searchSegment(LeafReaderContext leaf, Query query, Collector collector) throws IOException {
+        final Weight weight = createWeight(rewrite(query), collector.scoreMode(), 1f);
+        search(Collections.singletonList(leaf), weight, collector);
+    }
+
     /**
      * Lower-level search API.
      *
@@ -41,13 +41,21 @@ import org.apache.lucene.search.ScoreMode;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopDocsCollector;
 import org.apache.lucene.search.TopFieldCollector;
 import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.search.TotalHitCountCollector;
 import org.apache.lucene.search.TotalHits;
 import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.FixedBitSet;
 import org.elasticsearch.action.search.SearchShardTask;
 import org.elasticsearch.common.Booleans;
 import org.elasticsearch.common.CheckedConsumer;
+import org.elasticsearch.common.CheckedSupplier;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.lucene.search.TopDocsAndMaxScore;
 import org.elasticsearch.common.util.concurrent.EWMATrackingEsThreadPoolExecutor;
@@ -58,14 +66,39 @@ import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.SearchPhase;
 import org.elasticsearch.search.SearchService;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
 import org.elasticsearch.search.aggregations.AggregationPhase;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.MultiBucketCollector;
+import org.elasticsearch.search.aggregations.bucket.filter.FilterAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.filter.FiltersAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.histogram.HistogramAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.missing.MissingAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.range.DateRangeAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.range.RangeAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.AvgAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.CardinalityAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.ExtendedStatsAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.MaxAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.MinAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.PercentileRanksAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.PercentilesAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.StatsAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.SumAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.ValueCountAggregationBuilder;
+import org.elasticsearch.search.aggregations.support.ValuesSourceAggregationBuilder;
 import org.elasticsearch.search.internal.ContextIndexSearcher;
 import org.elasticsearch.search.internal.ScrollContext;
 import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.search.internal.ShardSearchRequest;
 import org.elasticsearch.search.profile.ProfileShardResult;
 import org.elasticsearch.search.profile.SearchProfileShardResults;
 import org.elasticsearch.search.profile.query.InternalProfileCollector;
 import org.elasticsearch.search.rescore.RescorePhase;
+import org.elasticsearch.search.sort.FieldSortBuilder;
 import org.elasticsearch.search.sort.SortAndFormats;
 import org.elasticsearch.search.suggest.SuggestPhase;
 import org.elasticsearch.tasks.TaskCancelledException;
@@ -74,10 +107,12 @@ import org.elasticsearch.threadpool.ThreadPool;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 
 import static org.elasticsearch.search.query.QueryCollectorContext.createEarlyTerminationCollectorContext;
@@ -97,6 +132,17 @@ public class QueryPhase implements SearchPhase {
     // TODO: remove this property in 8.0
     public static final boolean SYS_PROP_REWRITE_SORT = Booleans.parseBoolean(System.getProperty("es.search.rewrite_sort", "true"));
 
+    /**
+     * The aggregations whose results on the segments of a shard reduce to the same result as if they were computed on the
+     * whole shard at once, see {@link #executeBySegment}.
+     */
+    private static final Set<String> SEGMENT_REDUCIBLE_AGGREGATIONS = Set.of(
+        AvgAggregationBuilder.NAME, CardinalityAggregationBuilder.NAME, ExtendedStatsAggregationBuilder.NAME,
+        MaxAggregationBuilder.NAME, MinAggregationBuilder.NAME, PercentileRanksAggregationBuilder.NAME,
+        PercentilesAggregationBuilder.NAME, StatsAggregationBuilder.NAME, SumAggregationBuilder.NAME, ValueCountAggregationBuilder.NAME,
+        DateHistogramAggregationBuilder.NAME, DateRangeAggregationBuilder.NAME, FilterAggregationBuilder.NAME,
+        FiltersAggregationBuilder.NAME, HistogramAggregationBuilder.NAME, MissingAggregationBuilder.NAME, RangeAggregationBuilder.NAME);
+
     private final AggregationPhase aggregationPhase;
     private final SuggestPhase suggestPhase;
     private final RescorePhase rescorePhase;
@@ -162,6 +208,125 @@ public class QueryPhase implements SearchPhase {
         }
     }
 
+    /**
+     * Returns whether the query phase of the given context can be executed {@link #executeBySegment segment by segment}: the
+     * request must only compute hit counts and aggregations whose results on segments can be reduced to the shard result.
+     * The aggregations must not need scores either: the scores of a segment depend on the statistics of the whole shard,
+     * so a cached segment result would go stale whenever another segment of the shard changes.
+     */
+    public static boolean canExecuteBySegment(SearchContext searchContext) throws IOException {
+        if (searchContext.aggregations() == null
+                || searchContext.size() != 0
+                || searchContext.suggest() != null
+                || searchContext.rescore().isEmpty() == false
+                || searchContext.parsedPostFilter() != null
+                || searchContext.minimumScore() != null
+                || searchContext.terminateAfter() != SearchContext.DEFAULT_TERMINATE_AFTER
+                || searchContext.scrollContext() != null
+                || searchContext.collapse() != null
+                || searchContext.getProfilers() != null
+                || (searchContext.timeout() != null && searchContext.timeout().equals(SearchService.NO_TIMEOUT) == false)
+                || searchContext.searcher().getIndexReader().leaves().isEmpty()) {
+            return false;
+        }
+        if (searchContext.request().source() == null || searchContext.request().source().aggregations() == null) {
+            return false;
+        }
+        if (isSegmentReducible(searchContext.request().source().aggregations().getAggregatorFactories()) == false) {
+            return false;
+        }
+        final Aggregator[] aggregators = searchContext.aggregations().factories().createTopLevelAggregators(searchContext);
+        return MultiBucketCollector.wrap(Arrays.asList(aggregators)).scoreMode().needsScores() == false;
+    }
+
+    private static boolean isSegmentReducible(Collection<AggregationBuilder> aggregations) {
+        for (AggregationBuilder aggregation : aggregations) {
+            if (SEGMENT_REDUCIBLE_AGGREGATIONS.contains(aggregation.getType()) == false
+                    // scripts can use the score of the documents
+                    || (aggregation instanceof ValuesSourceAggregationBuilder
+                        && ((ValuesSourceAggregationBuilder<?>) aggregation).script() != null)
+                    || isSegmentReducible(aggregation.getSubAggregations()) == false) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Executes the query phase one segment at a time so that the results of the segments that did not change since a previous
+     * execution can be loaded from the given cache. The hit counts of the segments are summed and their aggregations are reduced
+     * like the coordinating node reduces the results of shards. Only valid if {@link #canExecuteBySegment} returns
+     * <code>true</code>.
+     *
+     * @param reduceContext the context to partially reduce the aggregations of the segments
+     */
+    public void executeBySegment(SearchContext searchContext, SegmentResultCache cache,
+                                 InternalAggregation.ReduceContext reduceContext) throws QueryPhaseExecutionException {
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("{}", new SearchContextSourcePrinter(searchContext));
+        }
+        final QuerySearchResult queryResult = searchContext.queryResult();
+        queryResult.searchTimedOut(false);
+        queryResult.from(searchContext.from());
+        queryResult.size(searchContext.size());
+        final Runnable cancellation;
+        if (searchContext.lowLevelCancellation()) {
+            cancellation = searchContext.searcher().addQueryCancellation(() -> {
+                SearchShardTask task = searchContext.getTask();
+                if (task != null && task.isCancelled()) {
+                    throw new TaskCancelledException("cancelled");
+                }
+            });
+        } else {
+            cancellation = null;
+        }
+
+        long totalHitCount = 0;
+        final List<InternalAggregations> aggregations = new ArrayList<>();
+        try {
+            for (LeafReaderContext leaf : searchContext.searcher().getIndexReader().leaves()) {
+                final SegmentResult result = cache.getOrCompute(leaf, () -> {
+                    final TotalHitCountCollector hitCountCollector = new TotalHitCountCollector();
+                    try {
+                        InternalAggregations segmentAggregations =
+                            aggregationPhase.executeOnSegment(searchContext, leaf, hitCountCollector);
+                        return new SegmentResult(hitCountCollector.getTotalHits(), segmentAggregations);
+                    } finally {
+                        searchContext.clearReleasables(SearchContext.Lifetime.COLLECTION);
+                    }
+                });
+                totalHitCount += result.getTotalHitCount();
+                aggregations.add(result.getAggregations());
+            }
+        } catch (Exception e) {
+            throw new QueryPhaseExecutionException(searchContext.shardTarget(), "Failed to execute main query", e);
+        } finally {
+            if (cancellation != null) {
+                searchContext.searcher().removeQueryCancellation(cancellation);
+            }
+        }
+
+        final int trackTotalHitsUpTo = searchContext.trackTotalHitsUpTo();
+        final TotalHits totalHits;
+        if (trackTotalHitsUpTo == SearchContext.TRACK_TOTAL_HITS_DISABLED) {
+            // for bwc hit count is set to 0, it will be converted to -1 by the coordinating node
+            totalHits = new TotalHits(0, TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO);
+        } else if (totalHitCount > trackTotalHitsUpTo) {
+            // report the hit count like a whole shard search that stops counting at the threshold
+            totalHits = new TotalHits(trackTotalHitsUpTo, TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO);
+        } else {
+            totalHits = new TotalHits(totalHitCount, TotalHits.Relation.EQUAL_TO);
+        }
+        final TopDocs topDocs = searchContext.sort() == null
+            ? new TopDocs(totalHits, Lucene.EMPTY_SCORE_DOCS)
+            : new TopFieldDocs(totalHits, Lucene.EMPTY_SCORE_DOCS, searchContext.sort().sort.getSort());
+        queryResult.topDocs(new TopDocsAndMaxScore(topDocs, Float.NaN), null);
+        queryResult.aggregations(InternalAggregations.topLevelReduce(aggregations, reduceContext));
+        setQueueStats(searchContext, queryResult);
+        // disable aggregations so that they don't run again on this context
+        searchContext.aggregations(null);
+    }
+
     /**
      * In a package-private method so that it can be tested without having to
      * wire everything (mapperService, etc.)
@@ -262,6 +427,9 @@ public class QueryPhase implements SearchPhase {
                 }
             }
 
+            // skip the segments that cannot produce hits that compete with the ones already returned by other shards
+            query = tryRewriteSkipNonCompetitiveSegments(searchContext, reader, query);
+
             boolean timeoutSet = scrollContext == null && searchContext.timeout() != null &&
                 searchContext.timeout().equals(SearchService.NO_TIMEOUT) == false;
 
@@ -294,6 +462,8 @@ public class QueryPhase implements SearchPhase {
                 // if we are optimizing sort and there are no other collectors
                 if (sortAndFormatsForRewrittenNumericSort != null && collectors.size() == 0 && searchContext.getProfilers() == null) {
                     shouldRescore = searchWithCollectorManager(searchContext, searcher, query, leafSorter, timeoutSet);
+                } else if (canSearchTopScoreDocsConcurrently(searchContext, collectors)) {
+                    shouldRescore = searchWithCollectorManager(searchContext, searcher, query, l -> {}, timeoutSet);
                 } else {
                     shouldRescore = searchWithCollector(searchContext, searcher, query, collectors, hasFilterCollector, timeoutSet);
                 }
@@ -304,16 +474,7 @@ public class QueryPhase implements SearchPhase {
                     restoreTopFieldDocs(queryResult, sortAndFormatsForRewrittenNumericSort);
                 }
 
-                ExecutorService executor = searchContext.indexShard().getThreadPool().executor(ThreadPool.Names.SEARCH);
-                assert executor instanceof EWMATrackingEsThreadPoolExecutor ||
-                    (executor instanceof EsThreadPoolExecutor == false /* in case thread pool is mocked out in tests */) :
-                    "SEARCH threadpool should have an executor that exposes EWMA metrics, but is of type " + executor.getClass();
-                if (executor instanceof EWMATrackingEsThreadPoolExecutor) {
-                    EWMATrackingEsThreadPoolExecutor rExecutor = (EWMATrackingEsThreadPoolExecutor) executor;
-                    queryResult.nodeQueueSize(rExecutor.getCurrentQueueSize());
-                    queryResult.serviceTimeEWMA((long) rExecutor.getTaskExecutionEWMA());
-                }
-
+                setQueueStats(searchContext, queryResult);
                 return shouldRescore;
             } finally {
                 // Search phase has finished, no longer need to check for timeout
@@ -327,6 +488,18 @@ public class QueryPhase implements SearchPhase {
         }
     }
 
+    private static void setQueueStats(SearchContext searchContext, QuerySearchResult queryResult) {
+        ExecutorService executor = searchContext.indexShard().getThreadPool().executor(ThreadPool.Names.SEARCH);
+        assert executor instanceof EWMATrackingEsThreadPoolExecutor ||
+            (executor instanceof EsThreadPoolExecutor == false /* in case thread pool is mocked out in tests */) :
+            "SEARCH threadpool should have an executor that exposes EWMA metrics, but is of type " + executor.getClass();
+        if (executor instanceof EWMATrackingEsThreadPoolExecutor) {
+            EWMATrackingEsThreadPoolExecutor rExecutor = (EWMATrackingEsThreadPoolExecutor) executor;
+            queryResult.nodeQueueSize(rExecutor.getCurrentQueueSize());
+            queryResult.serviceTimeEWMA((long) rExecutor.getTaskExecutionEWMA());
+        }
+    }
+
     private static boolean searchWithCollector(SearchContext searchContext, ContextIndexSearcher searcher, Query query,
             LinkedList<QueryCollectorContext> collectors, boolean hasFilterCollector, boolean timeoutSet) throws IOException {
         // create the top docs collector last when the other collectors are known
@@ -367,11 +540,30 @@ public class QueryPhase implements SearchPhase {
     }
 
 
+    /**
+     * Returns whether the top hits sorted by score can be collected with a collector per segment so that the
+     * {@link ContextIndexSearcher} searches the segments concurrently. Like for the sort optimization, there must be no
+     * other collectors and no parameters that need a single collector for the whole shard.
+     */
+    static boolean canSearchTopScoreDocsConcurrently(SearchContext searchContext, List<QueryCollectorContext> collectors) {
+        return searchContext.searcher().searchesConcurrently()
+            && collectors.isEmpty()
+            && searchContext.getProfilers() == null
+            && searchContext.sort() == null
+            && searchContext.size() > 0
+            && searchContext.scrollContext() == null
+            && searchContext.collapse() == null
+            && searchContext.searchAfter() == null
+            && searchContext.rescore().isEmpty();
+    }
+
     /*
      * We use collectorManager during sort optimization, where
      * we have already checked that there are no other collectors, no filters,
      * no search after, no scroll, no collapse, no track scores.
      * Absence of all other collectors and parameters allows us to use TopFieldCollector directly.
+     * It is also used to collect the top hits sorted by score when the segments are searched
+     * concurrently, see #canSearchTopScoreDocsConcurrently.
      */
     private static boolean searchWithCollectorManager(SearchContext searchContext, ContextIndexSearcher searcher, Query query,
             CheckedConsumer<List<LeafReaderContext>, IOException> leafSorter, boolean timeoutSet) throws IOException {
@@ -395,14 +587,26 @@ public class QueryPhase implements SearchPhase {
             }
         }
 
-        CollectorManager<TopFieldCollector, TopFieldDocs> sharedManager = TopFieldCollector.createSharedManager(
-            sortAndFormats.sort, numHits, null, totalHitsThreshold);
+        final CollectorManager<? extends TopDocsCollector<?>, ? extends TopDocs> sharedManager;
+        if (sortAndFormats == null) {
+            if (TopDocsCollectorContext.hasInfMaxScore(query)) {
+                // disable max score optimization since we have a mandatory clause
+                // that doesn't track the maximum score
+                totalHitsThreshold = Integer.MAX_VALUE;
+                totalHits = null;
+            }
+            sharedManager = TopScoreDocCollector.createSharedManager(numHits, null, totalHitsThreshold);
+        } else {
+            sharedManager = TopFieldCollector.createSharedManager(sortAndFormats.sort, numHits, null, totalHitsThreshold);
+        }
+        final ScoreMode scoreMode = totalHitsThreshold == Integer.MAX_VALUE ? ScoreMode.COMPLETE : ScoreMode.TOP_SCORES;
 
         List<LeafReaderContext> leaves = new ArrayList<>(searcher.getIndexReader().leaves());
         leafSorter.accept(leaves);
         try {
-            Weight weight = searcher.createWeight(searcher.rewrite(query), ScoreMode.TOP_SCORES, 1f);
-            searcher.search(leaves, weight, sharedManager, searchContext.queryResult(), sortAndFormats.formats, totalHits);
+            Weight weight = searcher.createWeight(searcher.rewrite(query), scoreMode, 1f);
+            searcher.search(leaves, weight, sharedManager, searchContext.queryResult(),
+                sortAndFormats == null ? null : sortAndFormats.formats, totalHits);
         } catch (TimeExceededException e) {
             assert timeoutSet : "TimeExceededException thrown even though timeout wasn't set";
             if (searchContext.request().allowPartialSearchResults() == false) {
@@ -527,6 +731,42 @@ public class QueryPhase implements SearchPhase {
         };
     }
 
+    /**
+     * Wraps the query so that it skips the segments whose values of the primary sort field cannot compete with the
+     * bottom sort values of the top hits that were already returned by other shards, similarly to how shards are
+     * skipped when the coordinating node forwards these bottom sort values. Segments are only skipped when their
+     * documents are not needed by anything but the top hits.
+     */
+    static Query tryRewriteSkipNonCompetitiveSegments(SearchContext searchContext, IndexReader reader, Query query) throws IOException {
+        final ShardSearchRequest request = searchContext.request();
+        if (request == null
+                || request.getBottomSortValues() == null
+                || reader.leaves().size() < 2
+                || searchContext.trackTotalHitsUpTo() != SearchContext.TRACK_TOTAL_HITS_DISABLED
+                || searchContext.queryCollectors().isEmpty() == false
+                || searchContext.terminateAfter() != SearchContext.DEFAULT_TERMINATE_AFTER
+                || searchContext.scrollContext() != null
+                || searchContext.collapse() != null
+                || searchContext.rescore().isEmpty() == false
+                || searchContext.getProfilers() != null) {
+            return query;
+        }
+        final FieldSortBuilder primarySort = FieldSortBuilder.getPrimaryFieldSortOrNull(request.source());
+        if (primarySort == null) {
+            return query;
+        }
+        FixedBitSet skippedLeaves = null;
+        for (LeafReaderContext leaf : reader.leaves()) {
+            if (primarySort.isBottomSortDisjoint(searchContext.getQueryShardContext(), leaf.reader(), request.getBottomSortValues())) {
+                if (skippedLeaves == null) {
+                    skippedLeaves = new FixedBitSet(reader.leaves().size());
+                }
+                skippedLeaves.set(leaf.ord);
+            }
+        }
+        return skippedLeaves == null ? query : new SkipSegmentsQuery(query, skippedLeaves);
+    }
+
     /**
      * Restore fieldsDocs to remove the first _score
      */
@@ -653,4 +893,48 @@ public class QueryPhase implements SearchPhase {
     }
 
     private static class TimeExceededException extends RuntimeException {}
+
+    /**
+     * Caches the results of the query phase on individual segments, see {@link #executeBySegment}.
+     */
+    @FunctionalInterface
+    public interface SegmentResultCache {
+
+        /**
+         * Returns the result of the query phase on the given segment, computing it with the given loader if it is not cached.
+         */
+        SegmentResult getOrCompute(LeafReaderContext leaf, CheckedSupplier<SegmentResult, IOException> loader) throws Exception;
+    }
+
+    /**
+     * The hit count and aggregations of the query phase on a single segment.
+     */
+    public static final class SegmentResult implements Writeable {
+        private final long totalHitCount;
+        private final InternalAggregations aggregations;
+
+        public SegmentResult(long totalHitCount, InternalAggregations aggregations) {
+            this.totalHitCount = totalHitCount;
+            this.aggregations = aggregations;
+        }
+
+        public SegmentResult(StreamInput in) throws IOException {
+            totalHitCount = in.readVLong();
+            aggregations = InternalAggregations.readFrom(in);
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeVLong(totalHitCount);
+            aggregations.writeTo(out);
+        }
+
+        public long getTotalHitCount() {
+            return totalHitCount;
+        }
+
+        public InternalAggregations getAggregations() {
+            return aggregations;
+        }
+    }
 }
@@ -0,0 +1,125 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.query;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BulkScorer;
+import org.apache.lucene.search.Explanation;
+import org.apache.lucene.search.FilterWeight;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.ScorerSupplier;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.FixedBitSet;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * A {@link Query} that runs the wrapped query on all segments except the skipped ones, which
+ * are identified by their {@link LeafReaderContext#ord}. It is used to avoid searching segments
+ * that cannot produce competitive hits, so it is only valid for the reader it was built for.
+ */
+final class SkipSegmentsQuery extends Query {
+    private final Query query;
+    private final FixedBitSet skippedLeaves;
+
+    SkipSegmentsQuery(Query query, FixedBitSet skippedLeaves) {
+        this.query = Objects.requireNonNull(query);
+        this.skippedLeaves = Objects.requireNonNull(skippedLeaves);
+    }
+
+    Query getQuery() {
+        return query;
+    }
+
+    boolean isSkipped(LeafReaderContext context) {
+        return context.ord < skippedLeaves.length() && skippedLeaves.get(context.ord);
+    }
+
+    @Override
+    public Query rewrite(IndexReader reader) throws IOException {
+        Query rewritten = query.rewrite(reader);
+        if (rewritten != query) {
+            return new SkipSegmentsQuery(rewritten, skippedLeaves);
+        }
+        return this;
+    }
+
+    @Override
+    public Weight createWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost) throws IOException {
+        final Weight weight = searcher.createWeight(query, scoreMode, boost);
+        return new FilterWeight(this, weight) {
+            @Override
+            public Scorer scorer(LeafReaderContext context) throws IOException {
+                return isSkipped(context) ? null : in.scorer(context);
+            }
+
+            @Override
+            public ScorerSupplier scorerSupplier(LeafReaderContext context) throws IOException {
+                return isSkipped(context) ? null : in.scorerSupplier(context);
+            }
+
+            @Override
+            public BulkScorer bulkScorer(LeafReaderContext context) throws IOException {
+                return isSkipped(context) ? null : in.bulkScorer(context);
+            }
+
+            @Override
+            public Explanation explain(LeafReaderContext context, int doc) throws IOException {
+                return isSkipped(context) ? Explanation.noMatch("segment is skipped") : in.explain(context, doc);
+            }
+
+            @Override
+            public boolean isCacheable(LeafReaderContext ctx) {
+                // matches depend on the reader the skipped segments were computed for
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public void visit(QueryVisitor visitor) {
+        query.visit(visitor.getSubVisitor(BooleanClause.Occur.MUST, this));
+    }
+
+    @Override
+    public String toString(String field) {
+        return "SkipSegmentsQuery(query=" + query.toString(field) + ", skipped=" + skippedLeaves.cardinality() + ")";
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (sameClassAs(obj) == false) {
+            return false;
+        }
+        SkipSegmentsQuery that = (SkipSegmentsQuery) obj;
+        return query.equals(that.query) && skippedLeaves.equals(that.skippedLeaves);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(classHash(), query, skippedLeaves);
+    }
+}
@@ -361,6 +361,15 @@ public class FieldSortBuilder extends SortBuilder<FieldSortBuilder> {
      * primary sort value provided in the <code>bottomSortValues</code>.
      */
     public boolean isBottomSortShardDisjoint(QueryShardContext context, SearchSortValuesAndFormats bottomSortValues) throws IOException {
+        return isBottomSortDisjoint(context, context.getIndexReader(), bottomSortValues);
+    }
+
+    /**
+     * Returns whether some values of the given <code>reader</code> are within the primary sort value
+     * provided in the <code>bottomSortValues</code>. The reader can be a single segment of the shard.
+     */
+    public boolean isBottomSortDisjoint(QueryShardContext context, IndexReader reader,
+                                        SearchSortValuesAndFormats bottomSortValues) throws IOException {
         if (bottomSortValues == null || bottomSortValues.getRawSortValues().length == 0) {
             return false;
         }
@@ -392,7 +401,7 @@ public class FieldSortBuilder extends SortBuilder<FieldSortBuilder> {
         Object minValue = order() == SortOrder.DESC ? bottomSortValue : null;
         Object maxValue = order() == SortOrder.DESC ? null : bottomSortValue;
         try {
-            MappedFieldType.Relation relation = fieldType.isFieldWithinQuery(context.getIndexReader(), minValue, maxValue,
+            MappedFieldType.Relation relation = fieldType.isFieldWithinQuery(reader, minValue, maxValue,
                 true, true, null, dateMathParser, context);
             return relation == MappedFieldType.Relation.DISJOINT;
         } catch (ElasticsearchParseException exc) {
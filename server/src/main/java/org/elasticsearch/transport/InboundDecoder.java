@@ -37,6 +37,7 @@ public class InboundDecoder implements Releasable {
 
     private final Version version;
     private final PageCacheRecycler recycler;
+    private boolean isCompressed = false;
     private TransportDecompressor decompressor;
     private int totalNetworkSize = -1;
     private int bytesConsumed = 0;
@@ -74,9 +75,7 @@ public class InboundDecoder implements Releasable {
 
                     Header header = readHeader(version, messageLength, reference);
                     bytesConsumed += headerBytesToRead;
-                    if (header.isCompressed()) {
-                        decompressor = new TransportDecompressor(recycler);
-                    }
+                    isCompressed = header.isCompressed();
                     fragmentConsumer.accept(header);
 
                     if (isDone()) {
@@ -86,9 +85,12 @@ public class InboundDecoder implements Releasable {
                 }
             }
         } else {
-            // There are a minimum number of bytes required to start decompression
-            if (decompressor != null && decompressor.canDecompress(reference.length()) == false) {
-                return 0;
+            if (isCompressed && decompressor == null) {
+                // There are a minimum number of bytes required to detect the compression scheme
+                if (reference.length() < TransportDecompressor.HEADER_LENGTH) {
+                    return 0;
+                }
+                decompressor = TransportDecompressor.getDecompressor(recycler, reference);
             }
             int bytesToConsume = Math.min(reference.length(), totalNetworkSize - bytesConsumed);
             bytesConsumed += bytesToConsume;
@@ -129,6 +131,7 @@ public class InboundDecoder implements Releasable {
     private void cleanDecodeState() {
         IOUtils.closeWhileHandlingException(decompressor);
         decompressor = null;
+        isCompressed = false;
         totalNetworkSize = -1;
         bytesConsumed = 0;
     }
@@ -0,0 +1,128 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.transport;
+
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefIterator;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.compress.CompressorFactory;
+import org.elasticsearch.common.compress.LZ4;
+import org.elasticsearch.common.compress.LZ4Compressor;
+import org.elasticsearch.common.util.PageCacheRecycler;
+
+import java.io.IOException;
+
+/**
+ * Decompresses transport messages that were compressed with {@link CompressorFactory#LZ4}. Compressed blocks may span
+ * several network reads so the bytes of a block are buffered until the block is complete.
+ */
+public class LZ4TransportDecompressor extends TransportDecompressor {
+
+    private final byte[] header = new byte[CompressorFactory.LZ4.headerLength()];
+    private int headerBytesRead = 0;
+    private final byte[] blockHeader = new byte[LZ4Compressor.BLOCK_HEADER_LENGTH];
+    private int blockHeaderBytesRead = 0;
+    private int compressedLength;
+    private int decompressedLength;
+    private byte[] compressed;
+    private int compressedBytesRead;
+    private byte[] decompressed;
+    private boolean eos = false;
+
+    public LZ4TransportDecompressor(PageCacheRecycler recycler) {
+        super(recycler);
+    }
+
+    @Override
+    public int decompress(BytesReference bytesReference) throws IOException {
+        int bytesConsumed = 0;
+        BytesRefIterator refIterator = bytesReference.iterator();
+        BytesRef ref;
+        while (eos == false && (ref = refIterator.next()) != null) {
+            int offset = ref.offset;
+            final int end = ref.offset + ref.length;
+            while (eos == false && offset < end) {
+                offset = consume(ref.bytes, offset, end);
+            }
+            bytesConsumed += offset - ref.offset;
+        }
+        return bytesConsumed;
+    }
+
+    private int consume(byte[] bytes, int offset, int end) throws IOException {
+        if (headerBytesRead < header.length) {
+            final int toCopy = Math.min(header.length - headerBytesRead, end - offset);
+            System.arraycopy(bytes, offset, header, headerBytesRead, toCopy);
+            headerBytesRead += toCopy;
+            if (headerBytesRead == header.length && CompressorFactory.LZ4.isCompressed(new BytesArray(header)) == false) {
+                throw new IllegalStateException("stream marked as compressed, but is missing lz4 header");
+            }
+            return offset + toCopy;
+        }
+        if (blockHeaderBytesRead < LZ4Compressor.BLOCK_HEADER_LENGTH) {
+            // the end of stream marker only has the compressed length
+            final int limit = blockHeaderBytesRead < 4 ? 4 : LZ4Compressor.BLOCK_HEADER_LENGTH;
+            final int toCopy = Math.min(limit - blockHeaderBytesRead, end - offset);
+            System.arraycopy(bytes, offset, blockHeader, blockHeaderBytesRead, toCopy);
+            blockHeaderBytesRead += toCopy;
+            if (blockHeaderBytesRead == 4 && LZ4Compressor.readBlockInt(blockHeader, 0) == 0) {
+                eos = true;
+            } else if (blockHeaderBytesRead == LZ4Compressor.BLOCK_HEADER_LENGTH) {
+                startBlock();
+            }
+            return offset + toCopy;
+        }
+        final int toCopy = Math.min(compressedLength - compressedBytesRead, end - offset);
+        System.arraycopy(bytes, offset, compressed, compressedBytesRead, toCopy);
+        compressedBytesRead += toCopy;
+        if (compressedBytesRead == compressedLength) {
+            if (compressedLength == decompressedLength) {
+                addDecompressed(compressed, 0, compressedLength);
+            } else {
+                if (decompressed == null) {
+                    decompressed = new byte[LZ4Compressor.BLOCK_SIZE];
+                }
+                LZ4.decompress(compressed, 0, compressedLength, decompressed, 0, decompressedLength);
+                addDecompressed(decompressed, 0, decompressedLength);
+            }
+            blockHeaderBytesRead = 0;
+        }
+        return offset + toCopy;
+    }
+
+    private void startBlock() throws IOException {
+        compressedLength = LZ4Compressor.readBlockInt(blockHeader, 0);
+        decompressedLength = LZ4Compressor.readBlockInt(blockHeader, 4);
+        if (compressedLength < 0 || decompressedLength <= 0 || decompressedLength > LZ4Compressor.BLOCK_SIZE
+            || compressedLength > LZ4.maxCompressedLength(decompressedLength)) {
+            throw new IOException("Corrupt LZ4 stream: invalid block lengths [" + compressedLength + "/" + decompressedLength + "]");
+        }
+        if (compressed == null) {
+            compressed = new byte[LZ4.maxCompressedLength(LZ4Compressor.BLOCK_SIZE)];
+        }
+        compressedBytesRead = 0;
+    }
+
+    @Override
+    public boolean isEOS() {
+        return eos;
+    }
+}
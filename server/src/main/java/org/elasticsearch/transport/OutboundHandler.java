@@ -28,6 +28,7 @@ import org.elasticsearch.action.NotifyOnceListener;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.CheckedSupplier;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.compress.Compressor;
 import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
 import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.lease.Releasables;
@@ -50,14 +51,17 @@ public final class OutboundHandler {
     private final StatsTracker statsTracker;
     private final ThreadPool threadPool;
     private final BigArrays bigArrays;
+    private final Compressor compressionScheme;
     private volatile TransportMessageListener messageListener = TransportMessageListener.NOOP_LISTENER;
 
-    OutboundHandler(String nodeName, Version version, StatsTracker statsTracker, ThreadPool threadPool, BigArrays bigArrays) {
+    OutboundHandler(String nodeName, Version version, StatsTracker statsTracker, ThreadPool threadPool, BigArrays bigArrays,
+                    Compressor compressionScheme) {
         this.nodeName = nodeName;
         this.version = version;
         this.statsTracker = statsTracker;
         this.threadPool = threadPool;
         this.bigArrays = bigArrays;
+        this.compressionScheme = compressionScheme;
     }
 
     void sendBytes(TcpChannel channel, BytesReference bytes, ActionListener<Void> listener) {
@@ -74,7 +78,8 @@ public final class OutboundHandler {
                      final boolean compressRequest, final boolean isHandshake) throws IOException, TransportException {
         Version version = Version.min(this.version, channelVersion);
         OutboundMessage.Request message =
-            new OutboundMessage.Request(threadPool.getThreadContext(), request, version, action, requestId, isHandshake, compressRequest);
+            new OutboundMessage.Request(threadPool.getThreadContext(), request, version, action, requestId, isHandshake, compressRequest,
+                compressionScheme);
         ActionListener<Void> listener = ActionListener.wrap(() ->
             messageListener.onRequestSent(node, requestId, action, request, options));
         sendMessage(channel, message, listener);
@@ -82,7 +87,8 @@ public final class OutboundHandler {
 
     /**
      * Sends the response to the given channel. This method should be used to send {@link TransportResponse}
-     * objects back to the caller.
+     * objects back to the caller. If the response is {@link Releasable} it is released once it has been serialized, or once the send
+     * has failed if it never was, since serialization may be deferred until the channel becomes writable.
      *
      * @see #sendErrorResponse(Version, TcpChannel, long, String, Exception) for sending error responses
      */
@@ -90,9 +96,9 @@ public final class OutboundHandler {
                       final TransportResponse response, final boolean compress, final boolean isHandshake) throws IOException {
         Version version = Version.min(this.version, nodeVersion);
         OutboundMessage.Response message = new OutboundMessage.Response(threadPool.getThreadContext(), response, version,
-            requestId, isHandshake, compress);
+            requestId, isHandshake, compress, compressionScheme);
         ActionListener<Void> listener = ActionListener.wrap(() -> messageListener.onResponseSent(requestId, action, response));
-        sendMessage(channel, message, listener);
+        sendMessage(channel, message, listener, response instanceof Releasable ? (Releasable) response : null);
     }
 
     /**
@@ -110,7 +116,12 @@ public final class OutboundHandler {
     }
 
     private void sendMessage(TcpChannel channel, OutboundMessage networkMessage, ActionListener<Void> listener) throws IOException {
-        MessageSerializer serializer = new MessageSerializer(networkMessage, bigArrays);
+        sendMessage(channel, networkMessage, listener, null);
+    }
+
+    private void sendMessage(TcpChannel channel, OutboundMessage networkMessage, ActionListener<Void> listener,
+                             Releasable messageReleasable) throws IOException {
+        MessageSerializer serializer = new MessageSerializer(networkMessage, bigArrays, messageReleasable);
         SendContext sendContext = new SendContext(channel, serializer, listener, serializer);
         internalSend(channel, sendContext);
     }
@@ -140,11 +151,14 @@ public final class OutboundHandler {
 
         private OutboundMessage message;
         private final BigArrays bigArrays;
+        // releases the resources held by the message, which must stay valid until the message has been serialized
+        private final Releasable messageRelease;
         private volatile ReleasableBytesStreamOutput bytesStreamOutput;
 
-        private MessageSerializer(OutboundMessage message, BigArrays bigArrays) {
+        private MessageSerializer(OutboundMessage message, BigArrays bigArrays, Releasable messageReleasable) {
             this.message = message;
             this.bigArrays = bigArrays;
+            this.messageRelease = messageReleasable == null ? () -> {} : Releasables.releaseOnce(messageReleasable);
         }
 
         @Override
@@ -154,12 +168,17 @@ public final class OutboundHandler {
                 return message.serialize(bytesStreamOutput);
             } finally {
                 message = null;
+                messageRelease.close();
             }
         }
 
         @Override
         public void close() {
-            IOUtils.closeWhileHandlingException(bytesStreamOutput);
+            try {
+                IOUtils.closeWhileHandlingException(bytesStreamOutput);
+            } finally {
+                messageRelease.close();
+            }
         }
     }
 
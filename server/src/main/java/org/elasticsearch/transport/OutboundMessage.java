@@ -23,6 +23,8 @@ import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.bytes.CompositeBytesReference;
+import org.elasticsearch.common.compress.Compressor;
+import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
@@ -32,11 +34,33 @@ import java.io.IOException;
 
 abstract class OutboundMessage extends NetworkMessage {
 
+    /**
+     * The first version that can decompress transport messages compressed with {@link CompressorFactory#LZ4}. Messages to
+     * nodes of older versions are always compressed with {@link CompressorFactory#DEFLATE}.
+     */
+    static final Version LZ4_COMPRESSION_VERSION = Version.V_8_0_0;
+
     private final Writeable message;
+    private final Compressor compressionScheme;
 
-    OutboundMessage(ThreadContext threadContext, Version version, byte status, long requestId, Writeable message) {
+    OutboundMessage(ThreadContext threadContext, Version version, byte status, long requestId, Writeable message,
+                    Compressor compressionScheme) {
         super(threadContext, version, status, requestId);
         this.message = message;
+        this.compressionScheme = compressionScheme;
+    }
+
+    /**
+     * Returns the compressor to use for this message, or <code>null</code> if it should not be compressed.
+     */
+    Compressor compressor() {
+        if (TransportStatus.isCompress(status) == false) {
+            return null;
+        } else if (compressionScheme == CompressorFactory.LZ4 && version.onOrAfter(LZ4_COMPRESSION_VERSION)) {
+            return CompressorFactory.LZ4;
+        } else {
+            return CompressorFactory.DEFLATE;
+        }
     }
 
     BytesReference serialize(BytesStreamOutput bytesStream) throws IOException {
@@ -53,8 +77,7 @@ abstract class OutboundMessage extends NetworkMessage {
             variableHeaderLength = Math.toIntExact(bytesStream.position() - preHeaderPosition);
         }
 
-        try (CompressibleBytesOutputStream stream =
-                 new CompressibleBytesOutputStream(bytesStream, TransportStatus.isCompress(status))) {
+        try (CompressibleBytesOutputStream stream = new CompressibleBytesOutputStream(bytesStream, compressor())) {
             stream.setVersion(version);
             if (variableHeaderLength == -1) {
                 writeVariableHeader(stream);
@@ -104,7 +127,12 @@ abstract class OutboundMessage extends NetworkMessage {
 
         Request(ThreadContext threadContext, Writeable message, Version version, String action, long requestId,
                 boolean isHandshake, boolean compress) {
-            super(threadContext, version, setStatus(compress, isHandshake, message), requestId, message);
+            this(threadContext, message, version, action, requestId, isHandshake, compress, CompressorFactory.DEFLATE);
+        }
+
+        Request(ThreadContext threadContext, Writeable message, Version version, String action, long requestId,
+                boolean isHandshake, boolean compress, Compressor compressionScheme) {
+            super(threadContext, version, setStatus(compress, isHandshake, message), requestId, message, compressionScheme);
             this.action = action;
         }
 
@@ -135,7 +163,12 @@ abstract class OutboundMessage extends NetworkMessage {
     static class Response extends OutboundMessage {
 
         Response(ThreadContext threadContext, Writeable message, Version version, long requestId, boolean isHandshake, boolean compress) {
-            super(threadContext, version, setStatus(compress, isHandshake, message), requestId, message);
+            this(threadContext, message, version, requestId, isHandshake, compress, CompressorFactory.DEFLATE);
+        }
+
+        Response(ThreadContext threadContext, Writeable message, Version version, long requestId, boolean isHandshake, boolean compress,
+                 Compressor compressionScheme) {
+            super(threadContext, version, setStatus(compress, isHandshake, message), requestId, message, compressionScheme);
         }
 
         private static byte setStatus(boolean compress, boolean isHandshake, Writeable message) {
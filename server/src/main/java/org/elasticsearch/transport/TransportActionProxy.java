@@ -19,9 +19,12 @@
 package org.elasticsearch.transport;
 
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.tasks.Task;
 import org.elasticsearch.threadpool.ThreadPool;
 
@@ -56,28 +59,39 @@ public final class TransportActionProxy {
             DiscoveryNode targetNode = request.targetNode;
             TransportRequest wrappedRequest = request.wrapped;
             service.sendRequest(targetNode, action, wrappedRequest,
-                    new ProxyResponseHandler<>(channel, responseFunction.apply(wrappedRequest)));
+                    new ProxyResponseHandler(channel, responseFunction.apply(wrappedRequest)));
         }
     }
 
-    private static class ProxyResponseHandler<T extends TransportResponse> implements TransportResponseHandler<T> {
+    private static class ProxyResponseHandler implements TransportResponseHandler<TransportResponse> {
 
-        private final Writeable.Reader<T> reader;
+        private final Writeable.Reader<? extends TransportResponse> reader;
         private final TransportChannel channel;
 
-        ProxyResponseHandler(TransportChannel channel, Writeable.Reader<T> reader) {
+        ProxyResponseHandler(TransportChannel channel, Writeable.Reader<? extends TransportResponse> reader) {
             this.reader = reader;
             this.channel = channel;
         }
 
         @Override
-        public T read(StreamInput in) throws IOException {
+        public TransportResponse read(StreamInput in) throws IOException {
+            if (canPassThrough(in)) {
+                // the response is sent back in the same wire format it was received in, so we can forward the inbound bytes as they are
+                // instead of deserializing the response just to serialize it again
+                return new PassThroughResponse(in.readReleasableBytesReference(in.available()));
+            }
             return reader.read(in);
         }
 
+        private boolean canPassThrough(StreamInput in) {
+            return "transport".equals(channel.getChannelType()) && in.getVersion().equals(channel.getVersion());
+        }
+
         @Override
-        public void handleResponse(T response) {
+        public void handleResponse(TransportResponse response) {
             try {
+                // a pass-through response is released by the outbound handler once it has been serialized, which may only happen after
+                // this method returns if the channel is not writable
                 channel.sendResponse(response);
             } catch (IOException e) {
                 throw new UncheckedIOException(e);
@@ -99,6 +113,34 @@ public final class TransportActionProxy {
         }
     }
 
+    /**
+     * A response that holds on to the serialized bytes of a proxied response and writes them back verbatim. The bytes are a retained
+     * slice of the inbound network buffer; they are released by the {@link OutboundHandler} once the response has been serialized or
+     * the send has failed.
+     */
+    static final class PassThroughResponse extends TransportResponse implements Releasable {
+
+        private final ReleasableBytesReference bytes;
+
+        PassThroughResponse(ReleasableBytesReference bytes) {
+            this.bytes = bytes;
+        }
+
+        BytesReference bytes() {
+            return bytes;
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            bytes.writeTo(out);
+        }
+
+        @Override
+        public void close() {
+            bytes.close();
+        }
+    }
+
     static class ProxyRequest<T extends TransportRequest> extends TransportRequest {
         final T wrapped;
         final DiscoveryNode targetNode;
@@ -19,11 +19,10 @@
 
 package org.elasticsearch.transport;
 
-import org.apache.lucene.util.BytesRef;
-import org.apache.lucene.util.BytesRefIterator;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.bytes.ReleasableBytesReference;
+import org.elasticsearch.common.compress.Compressor;
 import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.recycler.Recycler;
 import org.elasticsearch.common.util.PageCacheRecycler;
@@ -31,93 +30,75 @@ import org.elasticsearch.common.util.PageCacheRecycler;
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.ArrayDeque;
-import java.util.zip.DataFormatException;
-import java.util.zip.Inflater;
 
-public class TransportDecompressor implements Closeable {
+/**
+ * Incrementally decompresses the content of a compressed transport message into recycled pages.
+ */
+public abstract class TransportDecompressor implements Closeable {
+
+    /**
+     * The number of bytes that are required to detect the compression scheme, see {@link #getDecompressor}.
+     */
+    public static final int HEADER_LENGTH = Math.max(CompressorFactory.DEFLATE.headerLength(), CompressorFactory.LZ4.headerLength());
 
-    private final Inflater inflater;
-    private final PageCacheRecycler recycler;
-    private final ArrayDeque<Recycler.V<byte[]>> pages;
-    private int pageOffset = PageCacheRecycler.BYTE_PAGE_SIZE;
-    private boolean hasReadHeader = false;
+    protected final PageCacheRecycler recycler;
+    protected final ArrayDeque<Recycler.V<byte[]>> pages;
+    protected int pageOffset = PageCacheRecycler.BYTE_PAGE_SIZE;
 
-    public TransportDecompressor(PageCacheRecycler recycler) {
+    protected TransportDecompressor(PageCacheRecycler recycler) {
         this.recycler = recycler;
-        inflater = new Inflater(true);
         pages = new ArrayDeque<>(4);
     }
 
-    public int decompress(BytesReference bytesReference) throws IOException {
-        int bytesConsumed = 0;
-        if (hasReadHeader == false) {
-            if (CompressorFactory.COMPRESSOR.isCompressed(bytesReference) == false) {
-                int maxToRead = Math.min(bytesReference.length(), 10);
-                StringBuilder sb = new StringBuilder("stream marked as compressed, but no compressor found, first [")
-                    .append(maxToRead).append("] content bytes out of [").append(bytesReference.length())
-                    .append("] readable bytes with message size [").append(bytesReference.length()).append("] ").append("] are [");
-                for (int i = 0; i < maxToRead; i++) {
-                    sb.append(bytesReference.get(i)).append(",");
-                }
-                sb.append("]");
-                throw new IllegalStateException(sb.toString());
-            }
-            hasReadHeader = true;
-            int headerLength = CompressorFactory.COMPRESSOR.headerLength();
-            bytesReference = bytesReference.slice(headerLength, bytesReference.length() - headerLength);
-            bytesConsumed += headerLength;
+    /**
+     * Returns a decompressor for the compression scheme identified by the header of the given bytes, which must contain
+     * at least {@link #HEADER_LENGTH} bytes.
+     */
+    public static TransportDecompressor getDecompressor(PageCacheRecycler recycler, BytesReference bytes) {
+        final Compressor compressor = CompressorFactory.compressorForHeader(bytes);
+        if (compressor == CompressorFactory.DEFLATE) {
+            return new DeflateTransportDecompressor(recycler);
+        } else if (compressor == CompressorFactory.LZ4) {
+            return new LZ4TransportDecompressor(recycler);
         }
-
-        BytesRefIterator refIterator = bytesReference.iterator();
-        BytesRef ref;
-        while ((ref = refIterator.next()) != null) {
-            inflater.setInput(ref.bytes, ref.offset, ref.length);
-            bytesConsumed += ref.length;
-            boolean continueInflating = true;
-            while (continueInflating) {
-                final Recycler.V<byte[]> page;
-                final boolean isNewPage = pageOffset == PageCacheRecycler.BYTE_PAGE_SIZE;
-                if (isNewPage) {
-                    pageOffset = 0;
-                    page = recycler.bytePage(false);
-                } else {
-                    page = pages.getLast();
-                }
-                byte[] output = page.v();
-                try {
-                    int bytesInflated = inflater.inflate(output, pageOffset, PageCacheRecycler.BYTE_PAGE_SIZE - pageOffset);
-                    pageOffset += bytesInflated;
-                    if (isNewPage) {
-                        if (bytesInflated == 0) {
-                            page.close();
-                            pageOffset = PageCacheRecycler.BYTE_PAGE_SIZE;
-                        } else {
-                            pages.add(page);
-                        }
-                    }
-                } catch (DataFormatException e) {
-                    throw new IOException("Exception while inflating bytes", e);
-                }
-                if (inflater.needsInput()) {
-                    continueInflating = false;
-                }
-                if (inflater.finished()) {
-                    bytesConsumed -= inflater.getRemaining();
-                    continueInflating = false;
-                }
-                assert inflater.needsDictionary() == false;
-            }
+        int maxToRead = Math.min(bytes.length(), 10);
+        StringBuilder sb = new StringBuilder("stream marked as compressed, but no compressor found, first [")
+            .append(maxToRead).append("] content bytes out of [").append(bytes.length())
+            .append("] readable bytes with message size [").append(bytes.length()).append("] ").append("] are [");
+        for (int i = 0; i < maxToRead; i++) {
+            sb.append(bytes.get(i)).append(",");
         }
-
-        return bytesConsumed;
+        sb.append("]");
+        throw new IllegalStateException(sb.toString());
     }
 
-    public boolean canDecompress(int bytesAvailable) {
-        return hasReadHeader || bytesAvailable >= CompressorFactory.COMPRESSOR.headerLength();
-    }
+    /**
+     * Decompresses the given bytes and returns how many of them were consumed, which is less than the number of
+     * bytes available only if the end of the compressed stream was reached.
+     */
+    public abstract int decompress(BytesReference bytesReference) throws IOException;
+
+    /**
+     * Returns <code>true</code> once the end of the compressed stream was reached.
+     */
+    public abstract boolean isEOS();
 
-    public boolean isEOS() {
-        return inflater.finished();
+    /**
+     * Copies decompressed bytes to the pages.
+     */
+    protected void addDecompressed(byte[] bytes, int offset, int length) {
+        while (length > 0) {
+            if (pageOffset == PageCacheRecycler.BYTE_PAGE_SIZE) {
+                pageOffset = 0;
+                pages.add(recycler.bytePage(false));
+            }
+            final byte[] page = pages.getLast().v();
+            final int toCopy = Math.min(length, PageCacheRecycler.BYTE_PAGE_SIZE - pageOffset);
+            System.arraycopy(bytes, offset, page, pageOffset, toCopy);
+            pageOffset += toCopy;
+            offset += toCopy;
+            length -= toCopy;
+        }
     }
 
     public ReleasableBytesReference pollDecompressedPage() {
@@ -140,7 +121,6 @@ public class TransportDecompressor implements Closeable {
 
     @Override
     public void close() {
-        inflater.end();
         for (Recycler.V<byte[]> page : pages) {
             page.close();
         }
@@ -18,6 +18,8 @@
  */
 package org.elasticsearch.transport;
 
+import org.elasticsearch.common.compress.Compressor;
+import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.network.NetworkService;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
@@ -62,6 +64,9 @@ public final class TransportSettings {
         key -> intSetting(key, -1, -1, Setting.Property.NodeScope));
     public static final Setting<Boolean> TRANSPORT_COMPRESS =
         boolSetting("transport.compress", false, Setting.Property.NodeScope);
+    // the compression scheme used for compressed transport messages, nodes of versions that do not support lz4 always get deflate
+    public static final Setting<Compressor> TRANSPORT_COMPRESSION_SCHEME =
+        new Setting<>("transport.compression_scheme", "deflate", CompressorFactory::compressor, Setting.Property.NodeScope);
     // the scheduled internal ping interval setting, defaults to disabled (-1)
     public static final Setting<TimeValue> PING_SCHEDULE =
         timeSetting("transport.ping_schedule", TimeValue.timeValueSeconds(-1), Setting.Property.NodeScope);
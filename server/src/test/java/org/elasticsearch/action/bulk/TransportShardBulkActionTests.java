@@ -59,7 +59,9 @@ import org.elasticsearch.threadpool.TestThreadPool;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.BrokenBarrierException;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
@@ -71,6 +73,8 @@ import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.Matchers.arrayWithSize;
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.nullValue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyBoolean;
@@ -231,6 +235,69 @@ public class TransportShardBulkActionTests extends IndexShardTestCase {
         latch.await();
     }
 
+    public void testPerformOnPrimaryWithParseAhead() throws Exception {
+        IndexShard shard = newStartedShard(true);
+
+        BulkItemRequest[] items = new BulkItemRequest[randomIntBetween(2, 50)];
+        for (int i = 0; i < items.length; i++) {
+            DocWriteRequest<IndexRequest> writeRequest = new IndexRequest("index").id("id_" + i)
+                .source(Requests.INDEX_CONTENT_TYPE)
+                .opType(randomFrom(DocWriteRequest.OpType.INDEX, DocWriteRequest.OpType.CREATE));
+            items[i] = new BulkItemRequest(i, writeRequest);
+        }
+        BulkShardRequest bulkShardRequest = new BulkShardRequest(shardId, RefreshPolicy.NONE, items);
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        TransportShardBulkAction.performOnPrimary(
+            bulkShardRequest, shard, null, threadPool::absoluteTimeInMillis, new NoopMappingUpdatePerformer(),
+            listener -> {}, ActionListener.runAfter(
+                ActionTestUtils.assertNoFailureListener(result -> {
+                    assertThat(result.finalResponseIfSuccessful.getResponses(), arrayWithSize(items.length));
+                    // the items are executed in order even though their documents are parsed concurrently
+                    for (int i = 0; i < items.length; i++) {
+                        BulkItemResponse response = result.finalResponseIfSuccessful.getResponses()[i];
+                        assertFalse(response.isFailed());
+                        assertThat(response.getId(), equalTo("id_" + i));
+                        assertThat(response.getResponse().getSeqNo(), equalTo((long) i));
+                    }
+                }), latch::countDown), threadPool, randomIntBetween(1, 10));
+        latch.await();
+
+        assertDocCount(shard, items.length);
+        closeShards(shard);
+    }
+
+    public void testParseAheadParsesTheFollowingItems() throws Exception {
+        IndexShard shard = newStartedShard(true);
+
+        BulkItemRequest[] items = new BulkItemRequest[randomIntBetween(2, 20)];
+        for (int i = 0; i < items.length; i++) {
+            items[i] = new BulkItemRequest(i, new IndexRequest("index").id("id_" + i).source(Requests.INDEX_CONTENT_TYPE));
+        }
+        final int window = randomIntBetween(1, items.length);
+        final List<Runnable> tasks = new ArrayList<>();
+        BulkParseAhead bulkParseAhead = new BulkParseAhead(shard, items, tasks::add, window);
+
+        // the first item is executed right away, parsing it ahead would not help
+        assertThat(bulkParseAhead.take(0), nullValue());
+        assertThat(tasks, hasSize(Math.min(window, items.length - 1)));
+        for (int i = 1; i < items.length; i++) {
+            // the items within the window of the previous item were submitted for parsing, so their documents are parsed
+            tasks.forEach(Runnable::run);
+            tasks.clear();
+            assertThat(bulkParseAhead.take(i), notNullValue());
+        }
+        assertThat(tasks, empty());
+
+        // an item that is taken before its parsing task ran is parsed inline, and the late task is a no-op
+        bulkParseAhead = new BulkParseAhead(shard, items, tasks::add, window);
+        bulkParseAhead.take(0);
+        assertThat(bulkParseAhead.take(1), nullValue());
+        tasks.forEach(Runnable::run);
+        assertThat(bulkParseAhead.take(1), nullValue());
+        closeShards(shard);
+    }
+
     public void testExecuteBulkIndexRequestWithMappingUpdates() throws Exception {
 
         BulkItemRequest[] items = new BulkItemRequest[1];
@@ -33,6 +33,9 @@ import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.action.OriginalIndices;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.UUIDs;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
 import org.elasticsearch.common.io.stream.DelayableWriteable;
 import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
 import org.elasticsearch.common.lucene.Lucene;
@@ -78,6 +81,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -87,6 +91,7 @@ import static java.util.Collections.emptyMap;
 import static java.util.Collections.singletonList;
 import static org.elasticsearch.action.search.SearchProgressListener.NOOP;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.lessThan;
@@ -434,7 +439,7 @@ public class SearchPhaseControllerTests extends ESTestCase {
             assertThat(consumer, instanceOf(SearchPhaseController.QueryPhaseResultConsumer.class));
             if (bufferSize == 2) {
                 assertEquals(1, ((SearchPhaseController.QueryPhaseResultConsumer) consumer).getNumReducePhases());
-                assertEquals(2, ((SearchPhaseController.QueryPhaseResultConsumer) consumer).getNumBuffered());
+                assertEquals(1, ((SearchPhaseController.QueryPhaseResultConsumer) consumer).getNumBuffered());
                 assertEquals(1, reductions.size());
                 assertEquals(false, reductions.get(0));
                 numTotalReducePhases = 2;
@@ -510,6 +515,120 @@ public class SearchPhaseControllerTests extends ESTestCase {
         assertNull(reduce.sortedTopDocs.collapseValues);
     }
 
+    public void testPartialReduceOnExecutor() {
+        AssertingCircuitBreaker circuitBreaker = new AssertingCircuitBreaker(CircuitBreaker.REQUEST);
+        SearchPhaseController controller = new SearchPhaseController(writableRegistry(),
+            s -> InternalAggregationTestCase.emptyReduceContextBuilder(), circuitBreaker);
+        int expectedNumResults = randomIntBetween(3, 100);
+        int bufferSize = randomIntBetween(2, expectedNumResults - 1);
+        SearchRequest request = randomSearchRequest();
+        request.source(new SearchSourceBuilder().aggregation(AggregationBuilders.avg("foo")));
+        request.setBatchedReduceSize(bufferSize);
+        List<Runnable> scheduledMerges = new ArrayList<>();
+        ArraySearchPhaseResults<SearchPhaseResult> consumer =
+            controller.newSearchPhaseResults(scheduledMerges::add, NOOP, request, expectedNumResults);
+        assertThat(consumer, instanceOf(SearchPhaseController.QueryPhaseResultConsumer.class));
+        int max = 0;
+        for (int i = 0; i < expectedNumResults; i++) {
+            int number = randomIntBetween(1, 1000);
+            max = Math.max(max, number);
+            consumer.consumeResult(newQueryResult(i, number));
+        }
+        // a single merge is scheduled at a time and it picks up all the batches that are pending
+        assertEquals(1, scheduledMerges.size());
+        assertThat(circuitBreaker.getUsed(), greaterThan(0L));
+        boolean runMerge = randomBoolean();
+        if (runMerge) {
+            scheduledMerges.remove(0).run();
+            assertEquals((expectedNumResults - 1) / bufferSize,
+                ((SearchPhaseController.QueryPhaseResultConsumer) consumer).getNumReducePhases());
+        }
+        SearchPhaseController.ReducedQueryPhase reduce = consumer.reduce();
+        InternalMax internalMax = (InternalMax) reduce.aggregations.asList().get(0);
+        assertEquals(max, internalMax.getValue(), 0.0D);
+        assertEquals(max, reduce.maxScore, 0.0f);
+        assertEquals(expectedNumResults, reduce.totalHits.value);
+        assertEquals(runMerge ? (expectedNumResults - 1) / bufferSize + 1 : 1, reduce.numReducePhases);
+        assertEquals(0L, circuitBreaker.getUsed());
+        // merges that are executed after the final reduce are no-ops
+        scheduledMerges.forEach(Runnable::run);
+        assertEquals(0L, circuitBreaker.getUsed());
+        assertEquals(reduce.numReducePhases - 1, ((SearchPhaseController.QueryPhaseResultConsumer) consumer).getNumReducePhases());
+    }
+
+    public void testPartialReduceCircuitBreaker() {
+        AssertingCircuitBreaker circuitBreaker = new AssertingCircuitBreaker(CircuitBreaker.REQUEST);
+        SearchPhaseController controller = new SearchPhaseController(writableRegistry(),
+            s -> InternalAggregationTestCase.emptyReduceContextBuilder(), circuitBreaker);
+        int expectedNumResults = randomIntBetween(3, 100);
+        int bufferSize = randomIntBetween(2, expectedNumResults - 1);
+        SearchRequest request = randomSearchRequest();
+        request.source(new SearchSourceBuilder().aggregation(AggregationBuilders.avg("foo")));
+        request.setBatchedReduceSize(bufferSize);
+        ArraySearchPhaseResults<SearchPhaseResult> consumer = controller.newSearchPhaseResults(NOOP, request, expectedNumResults);
+        int breakAt = randomIntBetween(0, expectedNumResults - 1);
+        for (int i = 0; i < expectedNumResults; i++) {
+            if (i == breakAt) {
+                circuitBreaker.shouldBreak = true;
+            }
+            consumer.consumeResult(newQueryResult(i, randomIntBetween(1, 1000)));
+        }
+        // the buffered results are dropped as soon as the breaker trips
+        assertEquals(0, ((SearchPhaseController.QueryPhaseResultConsumer) consumer).getNumBuffered());
+        expectThrows(CircuitBreakingException.class, consumer::reduce);
+        assertEquals(0L, circuitBreaker.getUsed());
+        consumer.close();
+        assertEquals(0L, circuitBreaker.getUsed());
+    }
+
+    private static QuerySearchResult newQueryResult(int shardIndex, int number) {
+        QuerySearchResult result = new QuerySearchResult(new SearchContextId(UUIDs.randomBase64UUID(), shardIndex),
+            new SearchShardTarget("node", new ShardId("a", "b", shardIndex), null, OriginalIndices.NONE));
+        result.topDocs(new TopDocsAndMaxScore(
+            new TopDocs(new TotalHits(1, TotalHits.Relation.EQUAL_TO), new ScoreDoc[] {new ScoreDoc(0, number)}), number),
+            new DocValueFormat[0]);
+        InternalAggregations aggs = InternalAggregations.from(Collections.singletonList(new InternalMax("test", (double) number,
+            DocValueFormat.RAW, Collections.emptyMap())));
+        result.aggregations(aggs);
+        result.setShardIndex(shardIndex);
+        result.size(1);
+        return result;
+    }
+
+    /**
+     * A circuit breaker that tracks the used bytes and fails if they ever become negative.
+     */
+    private static class AssertingCircuitBreaker extends NoopCircuitBreaker {
+        private final AtomicLong used = new AtomicLong();
+        private volatile boolean shouldBreak;
+
+        AssertingCircuitBreaker(String name) {
+            super(name);
+        }
+
+        @Override
+        public double addEstimateBytesAndMaybeBreak(long bytes, String label) throws CircuitBreakingException {
+            assert bytes >= 0;
+            if (shouldBreak) {
+                throw new CircuitBreakingException(label, getDurability());
+            }
+            used.addAndGet(bytes);
+            return 0;
+        }
+
+        @Override
+        public long addWithoutBreaking(long bytes) {
+            long total = used.addAndGet(bytes);
+            assertThat(total, greaterThanOrEqualTo(0L));
+            return total;
+        }
+
+        @Override
+        public long getUsed() {
+            return used.get();
+        }
+    }
+
     public void testConsumerOnlyAggs() {
         int expectedNumResults = randomIntBetween(1, 100);
         int bufferSize = randomIntBetween(2, 200);
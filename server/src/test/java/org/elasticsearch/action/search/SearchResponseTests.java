@@ -23,15 +23,24 @@ import org.apache.lucene.search.TotalHits;
 import org.elasticsearch.Version;
 import org.elasticsearch.cluster.metadata.IndexMetadata;
 import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.MockBigArrays;
+import org.elasticsearch.common.util.MockPageCacheRecycler;
 import org.elasticsearch.common.xcontent.NamedXContentRegistry;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+import org.elasticsearch.rest.ChunkedRestResponseBody;
+import org.elasticsearch.rest.RestRequest;
 import org.elasticsearch.rest.action.search.RestSearchAction;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
@@ -46,13 +55,17 @@ import org.elasticsearch.search.suggest.Suggest;
 import org.elasticsearch.search.suggest.SuggestTests;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.test.InternalAggregationTestCase;
+import org.elasticsearch.test.rest.FakeRestChannel;
+import org.elasticsearch.test.rest.FakeRestRequest;
 import org.junit.After;
 import org.junit.Before;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonMap;
@@ -276,6 +289,35 @@ public class SearchResponseTests extends ESTestCase {
         }
     }
 
+    public void testChunkedToXContent() throws IOException {
+        SearchResponse response = createTestItem(false);
+        Map<String, String> params = new HashMap<>();
+        params.put("format", randomFrom(XContentType.values()).shortName());
+        params.put("pretty", Boolean.toString(randomBoolean()));
+        params.put(RestSearchAction.TYPED_KEYS_PARAM, Boolean.toString(randomBoolean()));
+        if (randomBoolean()) {
+            params.put("filter_path", randomFrom("took", "hits.hits._id", "-aggregations", "aggregations.*"));
+        }
+        RestRequest request = new FakeRestRequest.Builder(xContentRegistry()).withParams(params).build();
+        FakeRestChannel channel = new FakeRestChannel(request, randomBoolean(), 1);
+
+        final BytesReference expected;
+        try (XContentBuilder builder = channel.newBuilder()) {
+            response.toXContent(builder, request);
+            expected = new BytesArray(BytesReference.toBytes(BytesReference.bytes(builder)));
+        }
+
+        BigArrays bigArrays = new MockBigArrays(new MockPageCacheRecycler(Settings.EMPTY), new NoneCircuitBreakerService());
+        ChunkedRestResponseBody body = ChunkedRestResponseBody.fromXContent(response, request, channel);
+        BytesStreamOutput actual = new BytesStreamOutput();
+        while (body.isDone() == false) {
+            try (ReleasableBytesReference chunk = body.encodeChunk(randomIntBetween(1, 8192), bigArrays)) {
+                chunk.writeTo(actual);
+            }
+        }
+        assertEquals(expected, actual.bytes());
+    }
+
     public void testSerialization() throws IOException {
         SearchResponse searchResponse = createTestItem(false);
         SearchResponse deserialized = copyWriteable(searchResponse, namedWriteableRegistry, SearchResponse::new, Version.CURRENT);
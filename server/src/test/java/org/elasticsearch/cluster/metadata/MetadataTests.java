@@ -1083,6 +1083,39 @@ public class MetadataTests extends ESTestCase {
         assertTrue(Metadata.isGlobalStateEquals(orig, fromStreamMeta));
     }
 
+    public void testDiffWithoutIndexChangesReusesIndicesLookup() throws IOException {
+        final Metadata before = Metadata.builder()
+            .put(IndexMetadata.builder("index").settings(settings(Version.CURRENT)).numberOfShards(1).numberOfReplicas(0)
+                .putAlias(AliasMetadata.builder("alias")))
+            .build();
+        final Metadata settingsOnly = Metadata.builder(before)
+            .persistentSettings(Settings.builder().put("setting", randomAlphaOfLength(5)).build())
+            .build();
+
+        Metadata after = applyDiff(before, settingsOnly);
+        assertSame(before.getIndicesLookup(), after.getIndicesLookup());
+        assertSame(before.indices(), after.indices());
+        assertArrayEquals(before.getConcreteAllIndices(), after.getConcreteAllIndices());
+        assertEquals(settingsOnly.persistentSettings(), after.persistentSettings());
+
+        final Metadata withNewIndex = Metadata.builder(settingsOnly)
+            .put(IndexMetadata.builder("other").settings(settings(Version.CURRENT)).numberOfShards(1).numberOfReplicas(0)
+                .putAlias(AliasMetadata.builder("alias")))
+            .build();
+        after = applyDiff(after, withNewIndex);
+        assertNotSame(before.getIndicesLookup(), after.getIndicesLookup());
+        assertEquals(2, after.getIndicesLookup().get("alias").getIndices().size());
+        assertThat(after.getConcreteAllIndices().length, equalTo(2));
+    }
+
+    private static Metadata applyDiff(Metadata before, Metadata after) throws IOException {
+        final BytesStreamOutput out = new BytesStreamOutput();
+        after.diff(before).writeTo(out);
+        NamedWriteableRegistry namedWriteableRegistry = new NamedWriteableRegistry(ClusterModule.getNamedWriteables());
+        return Metadata.readDiffFrom(new NamedWriteableAwareStreamInput(out.bytes().streamInput(), namedWriteableRegistry))
+            .apply(before);
+    }
+
     public void testValidateDataStreamsNoConflicts() {
         Metadata metadata = createIndices(5, 10, "foo-datastream").metadata;
         // don't expect any exception when validating a system without indices that would conflict with future backing indices
@@ -0,0 +1,93 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cluster.routing.allocation.allocator;
+
+import org.elasticsearch.cluster.routing.allocation.allocator.BalancedShardsAllocator.ModelNode;
+import org.elasticsearch.cluster.routing.allocation.allocator.BalancedShardsAllocator.NodeSorter;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class NodeSorterTests extends ESTestCase {
+
+    public void testResortMatchesFullSort() {
+        final int numNodes = randomIntBetween(1, 50);
+        final ModelNode[] nodes = new ModelNode[numNodes];
+        for (int i = 0; i < numNodes; i++) {
+            nodes[i] = new ModelNode(null);
+        }
+        final NodeSorter sorter = new NodeSorter(nodes, null, null);
+        // only a few distinct weights so that many nodes tie
+        final int numWeights = randomIntBetween(1, 5);
+        for (int i = 0; i < numNodes; i++) {
+            sorter.weights[i] = randomIntBetween(0, numWeights - 1);
+        }
+        sorter.sort(0, numNodes);
+
+        final int iters = randomIntBetween(1, 20);
+        for (int iter = 0; iter < iters; iter++) {
+            // like after a relocation, the weights of two of the relevant nodes change
+            final int relevantNodes = randomIntBetween(1, numNodes);
+            sorter.weights[randomIntBetween(0, relevantNodes - 1)] = randomIntBetween(0, numWeights - 1);
+            sorter.weights[randomIntBetween(0, relevantNodes - 1)] = randomIntBetween(0, numWeights - 1);
+
+            final ModelNode[] nodesBefore = sorter.modelNodes.clone();
+            final Map<ModelNode, Float> weightsBefore = new IdentityHashMap<>();
+            for (int i = 0; i < numNodes; i++) {
+                weightsBefore.put(sorter.modelNodes[i], sorter.weights[i]);
+            }
+            final NodeSorter fullSorter = new NodeSorter(nodesBefore.clone(), null, null);
+            System.arraycopy(sorter.weights, 0, fullSorter.weights, 0, numNodes);
+            fullSorter.sort(0, relevantNodes);
+
+            sorter.resort(0, relevantNodes);
+
+            // the weights end up in the same order as with a full sort
+            assertArrayEquals(fullSorter.weights, sorter.weights, 0f);
+            for (int i = 0; i < numNodes; i++) {
+                assertThat(sorter.weights[i], equalTo(weightsBefore.get(sorter.modelNodes[i])));
+            }
+            // the nodes that are not relevant are left untouched
+            for (int i = relevantNodes; i < numNodes; i++) {
+                assertThat(sorter.modelNodes[i], sameInstance(nodesBefore[i]));
+            }
+            // unlike a full sort, nodes with the same weight keep their relative order
+            for (int i = 1; i < relevantNodes; i++) {
+                if (sorter.weights[i - 1] == sorter.weights[i]) {
+                    assertThat(indexOf(nodesBefore, sorter.modelNodes[i - 1]), lessThan(indexOf(nodesBefore, sorter.modelNodes[i])));
+                }
+            }
+        }
+    }
+
+    private static int indexOf(ModelNode[] nodes, ModelNode node) {
+        for (int i = 0; i < nodes.length; i++) {
+            if (nodes[i] == node) {
+                return i;
+            }
+        }
+        throw new AssertionError("node not found");
+    }
+}
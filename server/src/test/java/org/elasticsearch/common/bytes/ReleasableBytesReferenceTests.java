@@ -21,12 +21,15 @@ package org.elasticsearch.common.bytes;
 
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.util.ByteArray;
 import org.hamcrest.Matchers;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 
@@ -98,4 +101,27 @@ public class ReleasableBytesReferenceTests extends AbstractBytesReferenceTestCas
     public void testSliceToBytesRef() throws IOException {
         // CompositeBytesReference shifts offsets
     }
+
+    public void testReadReleasableBytesReferenceRetainsSlice() throws IOException {
+        final int length = randomIntBetween(1, PAGE_SIZE * 3);
+        final AtomicBoolean released = new AtomicBoolean();
+        final BytesReference delegate = newBytesReference(length);
+        final ReleasableBytesReference reference = new ReleasableBytesReference(delegate, () -> released.set(true));
+        final int offset = randomIntBetween(0, length - 1);
+        final int sliceLength = randomIntBetween(0, length - offset);
+        final ReleasableBytesReference slice;
+        try (StreamInput in = reference.streamInput()) {
+            in.skip(offset);
+            slice = in.readReleasableBytesReference(sliceLength);
+            assertEquals(length - offset - sliceLength, in.available());
+            expectThrows(EOFException.class, () -> in.readReleasableBytesReference(in.available() + 1));
+        }
+        assertEquals(delegate.slice(offset, sliceLength), slice);
+        assertEquals(2, reference.refCount());
+
+        reference.close();
+        assertFalse(released.get());
+        slice.close();
+        assertTrue(released.get());
+    }
 }
@@ -411,6 +411,97 @@ public class CacheTests extends ESTestCase {
     }
 
 
+    // cache some entries that are accessed frequently, then scan entries that are accessed only once and check that the
+    // frequently accessed entries were not evicted
+    public void testFrequencyAdmission() {
+        int maximumWeight = randomIntBetween(2, 15);
+        Set<Integer> evictedKeys = new HashSet<>();
+        Cache<Integer, String> cache =
+                CacheBuilder.<Integer, String>builder()
+                        .setMaximumWeight(maximumWeight)
+                        .setFrequencyAdmission(true)
+                        .removalListener(notification -> {
+                            assertEquals(RemovalNotification.RemovalReason.EVICTED, notification.getRemovalReason());
+                            evictedKeys.add(notification.getKey());
+                        })
+                        .build();
+        for (int i = 0; i < maximumWeight; i++) {
+            cache.put(i, Integer.toString(i));
+        }
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < maximumWeight; i++) {
+                assertNotNull(cache.get(i));
+            }
+        }
+        int scanned = randomIntBetween(1, maximumWeight);
+        for (int i = maximumWeight; i < maximumWeight + scanned; i++) {
+            cache.put(i, Integer.toString(i));
+        }
+        assertEquals(maximumWeight, cache.count());
+        assertEquals(scanned, evictedKeys.size());
+        for (int i = 0; i < maximumWeight; i++) {
+            assertNotNull(cache.get(i));
+            assertFalse(evictedKeys.contains(i));
+        }
+    }
+
+    // cache some entries that are accessed frequently, mark them as stale, then check that new entries that are accessed only
+    // once are admitted in place of the stale entries
+    public void testFrequencyAdmissionEvictsStaleKeys() {
+        int maximumWeight = randomIntBetween(2, 15);
+        Set<Integer> staleKeys = new HashSet<>();
+        Cache<Integer, String> cache =
+                CacheBuilder.<Integer, String>builder()
+                        .setMaximumWeight(maximumWeight)
+                        .setFrequencyAdmission(true)
+                        .setStaleKeys(staleKeys::contains)
+                        .build();
+        for (int i = 0; i < maximumWeight; i++) {
+            cache.put(i, Integer.toString(i));
+        }
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < maximumWeight; i++) {
+                assertNotNull(cache.get(i));
+            }
+        }
+        int numStale = randomIntBetween(1, maximumWeight);
+        for (int i = 0; i < numStale; i++) {
+            staleKeys.add(i);
+        }
+        for (int i = maximumWeight; i < maximumWeight + numStale; i++) {
+            cache.put(i, Integer.toString(i));
+        }
+        assertEquals(maximumWeight, cache.count());
+        for (int i = 0; i < maximumWeight + numStale; i++) {
+            if (i < numStale) {
+                assertNull(cache.get(i));
+            } else {
+                assertNotNull(cache.get(i));
+            }
+        }
+    }
+
+    // without frequency-based admission the least recently used entries are evicted even if they were accessed frequently
+    public void testLeastRecentlyUsedWithoutFrequencyAdmission() {
+        int maximumWeight = randomIntBetween(2, 15);
+        Cache<Integer, String> cache =
+                CacheBuilder.<Integer, String>builder()
+                        .setMaximumWeight(maximumWeight)
+                        .build();
+        for (int i = 0; i < maximumWeight; i++) {
+            cache.put(i, Integer.toString(i));
+            assertNotNull(cache.get(i));
+            assertNotNull(cache.get(i));
+        }
+        for (int i = maximumWeight; i < 2 * maximumWeight; i++) {
+            cache.put(i, Integer.toString(i));
+        }
+        for (int i = 0; i < maximumWeight; i++) {
+            assertNull(cache.get(i));
+            assertNotNull(cache.get(maximumWeight + i));
+        }
+    }
+
     // randomly invalidate some cached entries, then check that a lookup for each of those and only those keys is null
     public void testInvalidate() {
         Cache<Integer, String> cache = CacheBuilder.<Integer, String>builder().build();
@@ -0,0 +1,73 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.cache;
+
+import org.elasticsearch.test.ESTestCase;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class FrequencySketchTests extends ESTestCase {
+
+    public void testFrequency() {
+        FrequencySketch sketch = new FrequencySketch(randomIntBetween(0, 1024));
+        int hashCode = randomInt();
+        assertThat(sketch.frequency(hashCode), equalTo(0));
+        int increments = randomIntBetween(1, 15);
+        for (int i = 0; i < increments; i++) {
+            sketch.increment(hashCode);
+        }
+        // the sketch may only over-estimate frequencies
+        assertThat(sketch.frequency(hashCode), greaterThanOrEqualTo(increments));
+    }
+
+    public void testFrequencyIsCapped() {
+        FrequencySketch sketch = new FrequencySketch(1024);
+        int hashCode = randomInt();
+        for (int i = 0; i < 100; i++) {
+            sketch.increment(hashCode);
+        }
+        assertThat(sketch.frequency(hashCode), equalTo(15));
+    }
+
+    public void testAging() {
+        FrequencySketch sketch = new FrequencySketch(16);
+        int hashCode = randomInt();
+        for (int i = 0; i < 15; i++) {
+            sketch.increment(hashCode);
+        }
+        // the sketch is reset after 10 increments per counter of capacity, which halves all frequencies
+        for (int i = 0; i < 16 * 10; i++) {
+            sketch.increment(i * 31 + 7);
+        }
+        assertThat(sketch.frequency(hashCode), lessThanOrEqualTo(8));
+    }
+
+    public void testEnsureCapacityResetsFrequencies() {
+        FrequencySketch sketch = new FrequencySketch(16);
+        int hashCode = randomInt();
+        sketch.increment(hashCode);
+        sketch.ensureCapacity(16);
+        assertThat(sketch.frequency(hashCode), greaterThanOrEqualTo(1));
+        sketch.ensureCapacity(1024);
+        assertThat(sketch.frequency(hashCode), equalTo(0));
+    }
+}
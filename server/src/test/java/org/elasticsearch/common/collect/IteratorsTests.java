@@ -143,6 +143,17 @@ public class IteratorsTests extends ESTestCase {
         };
     }
 
+    public void testFlatMap() {
+        List<Integer> sizes = Arrays.asList(2, 0, 3, 0, 1);
+        Iterator<Integer> flatMapped = Iterators.flatMap(sizes.iterator(), size -> Collections.nCopies(size, size).iterator());
+        assertContainsInOrder(flatMapped, 2, 2, 3, 3, 3, 1);
+    }
+
+    public void testEmptyFlatMap() {
+        assertEmptyIterator(Iterators.flatMap(Collections.<Integer>emptyIterator(), i -> Collections.singleton(i).iterator()));
+        assertEmptyIterator(Iterators.flatMap(Arrays.asList(1, 2).iterator(), i -> Collections.<Integer>emptyIterator()));
+    }
+
     private <T> void assertContainsInOrder(Iterator<T> iterator, T... values) {
         for (T value : values) {
             assertTrue(iterator.hasNext());
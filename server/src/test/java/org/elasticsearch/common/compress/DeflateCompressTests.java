@@ -39,7 +39,9 @@ import java.util.concurrent.CountDownLatch;
  */
 public class DeflateCompressTests extends ESTestCase {
 
-    private final Compressor compressor = new DeflateCompressor();
+    protected Compressor compressor() {
+        return new DeflateCompressor();
+    }
 
     public void testRandom() throws IOException {
         Random r = random();
@@ -386,7 +388,7 @@ public class DeflateCompressTests extends ESTestCase {
     private void doTest(byte bytes[]) throws IOException {
         ByteBuffer bb = ByteBuffer.wrap(bytes);
         StreamInput rawIn = new ByteBufferStreamInput(bb);
-        Compressor c = compressor;
+        Compressor c = compressor();
 
         ByteArrayOutputStream bos = new ByteArrayOutputStream();
         OutputStreamStreamOutput rawOs = new OutputStreamStreamOutput(bos);
@@ -0,0 +1,75 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.compress;
+
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.lessThan;
+
+/**
+ * Runs the streaming compression tests against {@link LZ4Compressor}.
+ */
+public class LZ4CompressTests extends DeflateCompressTests {
+
+    @Override
+    protected Compressor compressor() {
+        return new LZ4Compressor();
+    }
+
+    public void testCompressorDetection() throws IOException {
+        for (Compressor compressor : Arrays.asList(CompressorFactory.DEFLATE, CompressorFactory.LZ4)) {
+            BytesStreamOutput out = new BytesStreamOutput();
+            try (StreamOutput compressed = compressor.streamOutput(out)) {
+                compressed.writeString("{\"foo\":\"bar\"}");
+            }
+            assertSame(compressor, CompressorFactory.compressorForHeader(out.bytes()));
+            assertSame(compressor, CompressorFactory.compressor(out.bytes()));
+        }
+        assertNull(CompressorFactory.compressorForHeader(new BytesArray("{\"foo\":\"bar\"}")));
+        assertSame(CompressorFactory.LZ4, CompressorFactory.compressor("lz4"));
+        assertSame(CompressorFactory.DEFLATE, CompressorFactory.compressor("DEFLATE"));
+        expectThrows(IllegalArgumentException.class, () -> CompressorFactory.compressor("snappy"));
+    }
+
+    public void testCompressesRepetitiveContent() throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        final int iterations = randomIntBetween(1000, 10000);
+        try (StreamOutput compressed = compressor().streamOutput(out)) {
+            for (int i = 0; i < iterations; i++) {
+                compressed.writeString("{\"_index\":\"logs\",\"_id\":\"" + i + "\",\"_score\":1.0}");
+            }
+        }
+        BytesReference bytes = out.bytes();
+        BytesReference uncompressed = CompressorFactory.uncompress(bytes);
+        assertThat(bytes.length(), lessThan(uncompressed.length() / 2));
+        try (StreamInput in = uncompressed.streamInput()) {
+            for (int i = 0; i < iterations; i++) {
+                assertEquals("{\"_index\":\"logs\",\"_id\":\"" + i + "\",\"_score\":1.0}", in.readString());
+            }
+        }
+    }
+}
@@ -22,9 +22,12 @@ package org.elasticsearch.common.util;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.recycler.Recycler;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
 import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
 import org.elasticsearch.test.ESTestCase;
@@ -32,12 +35,15 @@ import org.junit.Before;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.function.Function;
 
 import static org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService.REQUEST_CIRCUIT_BREAKER_LIMIT_SETTING;
+import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 
 public class BigArraysTests extends ESTestCase {
@@ -389,6 +395,173 @@ public class BigArraysTests extends ESTestCase {
         }
     }
 
+    public void testOffHeapLongArray() {
+        final BigArrays offHeapBigArrays = bigArrays.withOffHeapPages();
+        final int totalLen = randomIntBetween(PageCacheRecycler.LONG_PAGE_SIZE + 1, 1000000);
+        LongArray array = offHeapBigArrays.newLongArray(randomIntBetween(PageCacheRecycler.LONG_PAGE_SIZE + 1, totalLen), true);
+        assertTrue(array instanceof OffHeapLongArray);
+        assertEquals(0L, array.get(array.size() - 1));
+        long[] ref = new long[totalLen];
+        for (int i = 0; i < totalLen; ++i) {
+            ref[i] = randomLong();
+            array = offHeapBigArrays.grow(array, i + 1);
+            array.set(i, ref[i]);
+        }
+        for (int i = 0; i < totalLen; ++i) {
+            final long inc = randomLongBetween(-100, 100);
+            ref[i] += inc;
+            assertEquals(ref[i], array.increment(i, inc));
+        }
+        final int fromIndex = randomIntBetween(0, totalLen);
+        final int toIndex = randomIntBetween(fromIndex, totalLen);
+        final long value = randomLong();
+        Arrays.fill(ref, fromIndex, toIndex, value);
+        array.fill(fromIndex, toIndex, value);
+        for (int i = 0; i < totalLen; ++i) {
+            assertEquals(ref[i], array.get(i));
+        }
+        array = offHeapBigArrays.resize(array, totalLen / 2);
+        for (int i = 0; i < array.size(); ++i) {
+            assertEquals(ref[i], array.get(i));
+        }
+        array.close();
+    }
+
+    public void testOffHeapDoubleArray() {
+        final BigArrays offHeapBigArrays = bigArrays.withOffHeapPages();
+        final int totalLen = randomIntBetween(PageCacheRecycler.LONG_PAGE_SIZE + 1, 1000000);
+        DoubleArray array = offHeapBigArrays.newDoubleArray(totalLen, true);
+        assertTrue(array instanceof OffHeapDoubleArray);
+        double[] ref = new double[totalLen];
+        for (int i = 0; i < totalLen; ++i) {
+            ref[i] = randomDouble();
+            assertEquals(0d, array.set(i, ref[i]), 0d);
+        }
+        final int fromIndex = randomIntBetween(0, totalLen);
+        final int toIndex = randomIntBetween(fromIndex, totalLen);
+        Arrays.fill(ref, fromIndex, toIndex, 42d);
+        array.fill(fromIndex, toIndex, 42d);
+        for (int i = 0; i < totalLen; ++i) {
+            assertEquals(ref[i] + 1, array.increment(i, 1), 0.001d);
+        }
+        array.close();
+    }
+
+    public void testOffHeapIntArray() {
+        final BigArrays offHeapBigArrays = bigArrays.withOffHeapPages();
+        final int totalLen = randomIntBetween(1, 1000000);
+        IntArray array = offHeapBigArrays.newIntArray(randomIntBetween(1, totalLen), randomBoolean());
+        int[] ref = new int[totalLen];
+        for (int i = 0; i < totalLen; ++i) {
+            ref[i] = randomInt();
+            array = offHeapBigArrays.grow(array, i + 1);
+            array.set(i, ref[i]);
+        }
+        if (totalLen > PageCacheRecycler.INT_PAGE_SIZE) {
+            assertTrue(array instanceof OffHeapIntArray);
+        }
+        for (int i = 0; i < totalLen; ++i) {
+            assertEquals(ref[i], array.get(i));
+        }
+        array.close();
+    }
+
+    public void testOffHeapPagesAreAccounted() {
+        final BigArrays offHeapBigArrays = newBigArraysInstance(1L << 30, randomBoolean()).withOffHeapPages();
+        final CircuitBreaker breaker = offHeapBigArrays.breakerService().getBreaker(CircuitBreaker.REQUEST);
+        final long size = randomIntBetween(PageCacheRecycler.LONG_PAGE_SIZE + 1, 1 << 20);
+        LongArray array = offHeapBigArrays.newLongArray(size);
+        assertEquals(OffHeapLongArray.estimateRamBytes(size), breaker.getUsed());
+        array = offHeapBigArrays.grow(array, size * 2);
+        assertEquals(array.ramBytesUsed(), breaker.getUsed());
+        array.close();
+        assertEquals(0, breaker.getUsed());
+
+        final BigArrays limited = newBigArraysInstance(PageCacheRecycler.PAGE_SIZE_IN_BYTES * 4, true).withOffHeapPages();
+        expectThrows(CircuitBreakingException.class, () -> limited.newDoubleArray(PageCacheRecycler.LONG_PAGE_SIZE * 8));
+        assertEquals(0, limited.breakerService().getBreaker(CircuitBreaker.REQUEST).getUsed());
+    }
+
+    public void testOffHeapPagesAreRecycledUnderBreaker() {
+        final PageCacheRecycler recycler = new PageCacheRecycler(Settings.builder()
+            .put(PageCacheRecycler.TYPE_SETTING.getKey(), PageCacheRecycler.Type.QUEUE.name())
+            .put(PageCacheRecycler.LIMIT_DIRECT_SETTING.getKey(), new ByteSizeValue(PageCacheRecycler.PAGE_SIZE_IN_BYTES * 8L))
+            .build());
+        final long maxSize = PageCacheRecycler.PAGE_SIZE_IN_BYTES * 8L;
+        final BigArrays offHeapBigArrays = newBigArraysInstance(recycler, maxSize, true).withOffHeapPages();
+        final CircuitBreaker breaker = offHeapBigArrays.breakerService().getBreaker(CircuitBreaker.REQUEST);
+        final int iters = scaledRandomIntBetween(10, 100);
+        for (int i = 0; i < iters; i++) {
+            final long size = randomLongBetween(PageCacheRecycler.LONG_PAGE_SIZE + 1, PageCacheRecycler.LONG_PAGE_SIZE * 8);
+            final boolean clear = randomBoolean();
+            try (LongArray array = offHeapBigArrays.newLongArray(size, clear)) {
+                assertEquals(array.ramBytesUsed(), breaker.getUsed());
+                if (clear) {
+                    assertEquals(0L, array.get(randomLongBetween(0, size - 1)));
+                }
+                array.fill(0, size, randomLong());
+            }
+            assertEquals(0, breaker.getUsed());
+            // the breaker only allows for one array at a time, so this only succeeds if the pages of the previous array were accounted
+            // as released
+            if (randomBoolean()) {
+                expectThrows(CircuitBreakingException.class, () -> offHeapBigArrays.newLongArray(PageCacheRecycler.LONG_PAGE_SIZE * 9));
+                assertEquals(0, breaker.getUsed());
+            }
+        }
+        // released pages are kept by the recycler and handed out again, cleared if requested
+        final Recycler.V<ByteBuffer> page = recycler.directPage(true);
+        assertTrue(page.isRecycled());
+        for (int i = 0; i < page.v().capacity(); i++) {
+            assertEquals(0, page.v().get(i));
+        }
+        page.close();
+    }
+
+    public void testDirectPagesFallBackToHeapPastTheDirectLimit() {
+        final int maxDirectPages = randomIntBetween(1, 8);
+        final PageCacheRecycler recycler = new PageCacheRecycler(Settings.builder()
+            .put(PageCacheRecycler.LIMIT_DIRECT_SETTING.getKey(), new ByteSizeValue(PageCacheRecycler.PAGE_SIZE_IN_BYTES * maxDirectPages))
+            .build());
+        final List<Recycler.V<ByteBuffer>> pages = new ArrayList<>();
+        for (int i = 0; i < maxDirectPages; i++) {
+            final Recycler.V<ByteBuffer> page = recycler.directPage(randomBoolean());
+            assertTrue(page.v().isDirect());
+            pages.add(page);
+        }
+        final int numHeapPages = randomIntBetween(1, 4);
+        for (int i = 0; i < numHeapPages; i++) {
+            final Recycler.V<ByteBuffer> page = recycler.directPage(randomBoolean());
+            assertFalse("direct pages must not exceed the direct limit", page.v().isDirect());
+            assertEquals(PageCacheRecycler.PAGE_SIZE_IN_BYTES, page.v().capacity());
+            pages.add(page);
+        }
+        Releasables.close(pages);
+        // released direct pages are all kept and handed out again
+        for (int i = 0; i < maxDirectPages; i++) {
+            final Recycler.V<ByteBuffer> page = recycler.directPage(true);
+            assertTrue(page.isRecycled());
+            assertTrue(page.v().isDirect());
+            page.close();
+        }
+
+        // arrays that need more pages than the direct limit allows still work with heap pages
+        final BigArrays offHeapBigArrays = newBigArraysInstance(recycler, 1L << 30, true).withOffHeapPages();
+        final long size = randomLongBetween(PageCacheRecycler.LONG_PAGE_SIZE * (maxDirectPages + 1L),
+            PageCacheRecycler.LONG_PAGE_SIZE * (maxDirectPages + 4L));
+        try (LongArray array = offHeapBigArrays.newLongArray(size, true)) {
+            assertTrue(array instanceof OffHeapLongArray);
+            assertEquals(array.ramBytesUsed(), offHeapBigArrays.breakerService().getBreaker(CircuitBreaker.REQUEST).getUsed());
+            for (long i = 0; i < size; i++) {
+                array.set(i, i);
+            }
+            for (long i = 0; i < size; i++) {
+                assertEquals(i, array.get(i));
+            }
+        }
+        assertEquals(0, offHeapBigArrays.breakerService().getBreaker(CircuitBreaker.REQUEST).getUsed());
+    }
+
     private List<BigArraysHelper> bigArrayCreators(final long maxSize, final boolean withBreaking) {
         final BigArrays byteBigArrays = newBigArraysInstance(maxSize, withBreaking);
         BigArraysHelper byteHelper = new BigArraysHelper(byteBigArrays,
@@ -417,7 +590,24 @@ public class BigArraysTests extends ESTestCase {
         return Arrays.asList(byteHelper, intHelper, longHelper, floatHelper, doubleHelper, objectHelper);
     }
 
+    public void testWithoutCircuitBreakerDoesNotAccountPages() {
+        final long maxSize = randomIntBetween(1 << 10, 1 << 14);
+        final BigArrays bigArrays = newBigArraysInstance(maxSize, randomBoolean());
+        final CircuitBreaker breaker = bigArrays.breakerService().getBreaker(CircuitBreaker.REQUEST);
+        // the array is larger than the limit of the breaker
+        try (LongArray array = bigArrays.withoutCircuitBreaker().newLongArray(maxSize, false)) {
+            assertThat(breaker.getUsed(), equalTo(0L));
+            array.resize(2 * maxSize);
+            assertThat(breaker.getUsed(), equalTo(0L));
+        }
+        assertThat(breaker.getUsed(), equalTo(0L));
+    }
+
     private BigArrays newBigArraysInstance(final long maxSize, final boolean withBreaking) {
+        return newBigArraysInstance(null, maxSize, withBreaking);
+    }
+
+    private BigArrays newBigArraysInstance(final PageCacheRecycler recycler, final long maxSize, final boolean withBreaking) {
         HierarchyCircuitBreakerService hcbs = new HierarchyCircuitBreakerService(
             Settings.builder()
                 .put(REQUEST_CIRCUIT_BREAKER_LIMIT_SETTING.getKey(), maxSize, ByteSizeUnit.BYTES)
@@ -425,7 +615,7 @@ public class BigArraysTests extends ESTestCase {
                 .build(),
             Collections.emptyList(),
             new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
-        BigArrays bigArrays = new BigArrays(null, hcbs, CircuitBreaker.REQUEST);
+        BigArrays bigArrays = new BigArrays(recycler, hcbs, CircuitBreaker.REQUEST);
         return (withBreaking ? bigArrays.withCircuitBreaking() : bigArrays);
     }
 
@@ -72,6 +72,71 @@ public class XContentMapValuesTests extends AbstractFilteringTestCase {
         assertEquals("Filtered map must be equal to the expected map",
                 toMap(expected, xContentType, humanReadable),
                 XContentMapValues.filter(toMap(actual, xContentType, humanReadable), sourceIncludes, sourceExcludes));
+        assertEquals("Streaming filtered map must be equal to the expected map",
+                toMap(expected, xContentType, humanReadable),
+                streamingFilter(toBytes(actual, xContentType, humanReadable), xContentType, sourceIncludes, sourceExcludes));
+    }
+
+    public void testStreamingFilterMatchesMapFilter() throws IOException {
+        for (int i = 0; i < 100; i++) {
+            Map<String, Object> source = randomObject(3);
+            String[] includes = randomBoolean() ? Strings.EMPTY_ARRAY : randomPaths();
+            String[] excludes = randomBoolean() ? Strings.EMPTY_ARRAY : randomPaths();
+            XContentType xContentType = randomFrom(XContentType.values());
+            BytesReference bytes = BytesReference.bytes(XContentFactory.contentBuilder(xContentType).map(source));
+            assertEquals("includes " + Arrays.toString(includes) + ", excludes " + Arrays.toString(excludes) + ", source " + source,
+                    XContentMapValues.filter(convertToMap(bytes, false, xContentType).v2(), includes, excludes),
+                    streamingFilter(bytes, xContentType, includes, excludes));
+        }
+    }
+
+    private static final String[] RANDOM_KEYS = new String[] { "a", "b", "ab", "a.b" };
+
+    private static Map<String, Object> randomObject(int depth) {
+        Map<String, Object> object = new HashMap<>();
+        int numFields = randomIntBetween(0, 4);
+        for (int i = 0; i < numFields; i++) {
+            object.put(randomFrom(RANDOM_KEYS), randomValue(depth));
+        }
+        return object;
+    }
+
+    private static Object randomValue(int depth) {
+        int type = depth == 0 ? 0 : randomIntBetween(0, 2);
+        if (type == 1) {
+            return randomObject(depth - 1);
+        } else if (type == 2) {
+            List<Object> array = new ArrayList<>();
+            int numValues = randomIntBetween(0, 3);
+            for (int i = 0; i < numValues; i++) {
+                array.add(randomValue(depth - 1));
+            }
+            return array;
+        } else {
+            return randomBoolean() ? randomAlphaOfLength(3) : randomInt();
+        }
+    }
+
+    private static String[] randomPaths() {
+        String[] paths = new String[randomIntBetween(1, 3)];
+        for (int i = 0; i < paths.length; i++) {
+            StringBuilder path = new StringBuilder(randomFrom("a", "b", "*", "a*"));
+            int numParts = randomIntBetween(0, 2);
+            for (int j = 0; j < numParts; j++) {
+                path.append('.').append(randomFrom("a", "b", "*", "a*"));
+            }
+            paths[i] = path.toString();
+        }
+        return paths;
+    }
+
+    private Map<String, Object> streamingFilter(BytesReference bytes, XContentType xContentType,
+                                                String[] includes, String[] excludes) throws IOException {
+        XContentBuilder builder = XContentFactory.contentBuilder(xContentType);
+        try (XContentParser parser = createParser(xContentType.xContent(), bytes)) {
+            XContentMapValues.streamingFilter(includes, excludes).accept(parser, builder);
+        }
+        return convertToMap(BytesReference.bytes(builder), false, xContentType).v2();
     }
 
     @SuppressWarnings({"unchecked"})
@@ -567,7 +632,11 @@ public class XContentMapValuesTests extends AbstractFilteringTestCase {
     }
 
     private static Map<String, Object> toMap(Builder test, XContentType xContentType, boolean humanReadable) throws IOException {
+        return convertToMap(toBytes(test, xContentType, humanReadable), true, xContentType).v2();
+    }
+
+    private static BytesReference toBytes(Builder test, XContentType xContentType, boolean humanReadable) throws IOException {
         ToXContentObject toXContent = (builder, params) -> test.apply(builder);
-        return convertToMap(toXContent(toXContent, xContentType, humanReadable), true, xContentType).v2();
+        return toXContent(toXContent, xContentType, humanReadable);
     }
 }
@@ -32,10 +32,14 @@ import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.ByteArray;
 import org.elasticsearch.common.util.MockBigArrays;
 import org.elasticsearch.common.util.MockPageCacheRecycler;
+import org.elasticsearch.common.xcontent.ChunkedToXContent;
+import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.json.JsonXContent;
 import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
 import org.elasticsearch.rest.BytesRestResponse;
+import org.elasticsearch.rest.ChunkedRestResponse;
+import org.elasticsearch.rest.ChunkedRestResponseBody;
 import org.elasticsearch.rest.RestChannel;
 import org.elasticsearch.rest.RestRequest;
 import org.elasticsearch.rest.RestResponse;
@@ -270,6 +274,38 @@ public class DefaultRestChannelTests extends ESTestCase {
         // ESTestCase#after will invoke ensureAllArraysAreReleased which will fail if the response content was not released
     }
 
+    public void testChunkedResponse() throws IOException {
+        final boolean supportsChunks = randomBoolean();
+        final TestRequest httpRequest = new TestRequest(HttpRequest.HttpVersion.HTTP_1_1, RestRequest.Method.GET, "/") {
+            @Override
+            public HttpResponse createResponse(RestStatus status, ChunkedRestResponseBody content) {
+                return supportsChunks ? new TestResponse(status, null) : null;
+            }
+        };
+        final RestRequest request = RestRequest.request(xContentRegistry(), httpRequest, httpChannel);
+        final DefaultRestChannel channel = new DefaultRestChannel(httpChannel, httpRequest, request, bigArrays,
+            HttpHandlingSettings.fromSettings(Settings.EMPTY), threadPool.getThreadContext(), null);
+        final ChunkedToXContent chunkedToXContent = () -> Arrays.<ToXContent>asList(
+            (builder, params) -> builder.startObject(),
+            (builder, params) -> builder.field("field", "value"),
+            (builder, params) -> builder.endObject()).iterator();
+        channel.sendResponse(new ChunkedRestResponse(RestStatus.OK, ChunkedRestResponseBody.fromXContent(chunkedToXContent, request,
+            channel)));
+
+        ArgumentCaptor<TestResponse> responseCaptor = ArgumentCaptor.forClass(TestResponse.class);
+        verify(httpChannel).sendResponse(responseCaptor.capture(), any());
+        TestResponse response = responseCaptor.getValue();
+        assertTrue(response.containsHeader(DefaultRestChannel.CONTENT_TYPE));
+        if (supportsChunks) {
+            // the content is serialized while it is sent by the http implementation
+            assertNull(response.content());
+            assertFalse(response.containsHeader(DefaultRestChannel.CONTENT_LENGTH));
+        } else {
+            assertEquals("{\"field\":\"value\"}", response.content().utf8ToString());
+            assertTrue(response.containsHeader(DefaultRestChannel.CONTENT_LENGTH));
+        }
+    }
+
     @SuppressWarnings("unchecked")
     public void testConnectionClose() throws Exception {
         final Settings settings = Settings.builder().build();
@@ -26,6 +26,8 @@ import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.compress.CompressedXContent;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
@@ -42,15 +44,25 @@ import org.elasticsearch.test.InternalSettingsPlugin;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.elasticsearch.index.shard.IndexShardTestCase.getEngine;
 import static org.elasticsearch.test.InternalSettingsPlugin.TRANSLOG_RETENTION_CHECK_INTERVAL_SETTING;
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.core.IsEqual.equalTo;
 
 /** Unit test(s) for IndexService */
@@ -464,4 +476,107 @@ public class IndexServiceTests extends ESSingleNodeTestCase {
         indexMetadata = client().admin().cluster().prepareState().execute().actionGet().getState().metadata().index("test");
         assertEquals("20s", indexMetadata.getSettings().get(IndexSettings.INDEX_TRANSLOG_SYNC_INTERVAL_SETTING.getKey()));
     }
+
+    public void testRefreshConcurrentlyRefreshesShardsConcurrently() throws Exception {
+        final int numShards = randomIntBetween(2, 8);
+        final List<Integer> shards = new ArrayList<>();
+        for (int i = 0; i < numShards; i++) {
+            shards.add(i);
+        }
+        // every refresh waits for all other shards to be refreshing, which only completes if they are refreshed concurrently
+        final CyclicBarrier allRefreshing = new CyclicBarrier(numShards);
+        final Set<Integer> refreshed = ConcurrentCollections.newConcurrentSet();
+        IndexService.refreshConcurrently(shards, getInstanceFromNode(ThreadPool.class).generic(), numShards, (shard, lagInNanos) -> {
+            try {
+                allRefreshing.await(10, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                throw new AssertionError(e);
+            }
+            refreshed.add(shard);
+        });
+        assertThat(refreshed, equalTo(new HashSet<>(shards)));
+    }
+
+    public void testRefreshConcurrentlyIsolatesFailures() {
+        final int numShards = randomIntBetween(1, 20);
+        final List<Integer> shards = new ArrayList<>();
+        final Set<Integer> failingShards = new HashSet<>();
+        for (int i = 0; i < numShards; i++) {
+            shards.add(i);
+            if (i == 0 || randomBoolean()) {
+                failingShards.add(i);
+            }
+        }
+        final Set<Integer> refreshed = ConcurrentCollections.newConcurrentSet();
+        final Executor executor = randomBoolean() ? getInstanceFromNode(ThreadPool.class).generic() : command -> {
+            throw new EsRejectedExecutionException("rejected");
+        };
+        final RuntimeException e = expectThrows(RuntimeException.class,
+            () -> IndexService.refreshConcurrently(shards, executor, randomIntBetween(1, 4), (shard, lagInNanos) -> {
+                if (failingShards.contains(shard)) {
+                    throw new RuntimeException("shard [" + shard + "] failed");
+                }
+                refreshed.add(shard);
+            }));
+        // the other shards are still refreshed and the failures are all reported
+        final Set<Integer> expectedRefreshed = new HashSet<>(shards);
+        expectedRefreshed.removeAll(failingShards);
+        assertThat(refreshed, equalTo(expectedRefreshed));
+        assertThat(e.getSuppressed().length, equalTo(failingShards.size() - 1));
+    }
+
+    public void testSearchActiveShardsAreRefreshedFirst() {
+        final List<Integer> shards = new ArrayList<>();
+        final int numShards = randomIntBetween(1, 20);
+        for (int i = 0; i < numShards; i++) {
+            shards.add(i);
+        }
+        final Set<Integer> searchIdleShards = new HashSet<>(randomSubsetOf(shards));
+        final List<Integer> ordered = IndexService.searchActiveFirst(shards, searchIdleShards::contains);
+        final List<Integer> expected = new ArrayList<>();
+        shards.stream().filter(shard -> searchIdleShards.contains(shard) == false).forEach(expected::add);
+        shards.stream().filter(searchIdleShards::contains).forEach(expected::add);
+        assertThat(ordered, equalTo(expected));
+
+        // without helper threads, the shards are refreshed in that order
+        final List<Integer> refreshOrder = new ArrayList<>();
+        IndexService.refreshConcurrently(ordered, getInstanceFromNode(ThreadPool.class).generic(), 1,
+            (shard, lagInNanos) -> refreshOrder.add(shard));
+        assertThat(refreshOrder, equalTo(expected));
+    }
+
+    public void testFirstRefreshDelay() {
+        final TimeValue interval = TimeValue.timeValueMillis(randomLongBetween(1, 100000));
+        for (int i = 0; i < 100; i++) {
+            final TimeValue delay = IndexService.firstRefreshDelay(interval, random());
+            assertThat(delay.millis(), greaterThanOrEqualTo(1L));
+            assertThat(delay.millis(), lessThanOrEqualTo(interval.millis()));
+        }
+    }
+
+    public void testScheduledRefreshLag() throws Exception {
+        // the second shard waits for the refresh of the first one since there are no helper threads
+        final long[] lags = new long[2];
+        IndexService.refreshConcurrently(Arrays.asList(0, 1), getInstanceFromNode(ThreadPool.class).generic(), 1,
+            (shard, lagInNanos) -> {
+                lags[shard] = lagInNanos;
+                if (shard == 0) {
+                    try {
+                        Thread.sleep(50);
+                    } catch (InterruptedException e) {
+                        throw new AssertionError(e);
+                    }
+                }
+            });
+        assertThat(lags[0], greaterThanOrEqualTo(0L));
+        assertThat(lags[1], greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(50)));
+
+        // the lag is accumulated in the refresh stats of the shard
+        final IndexService indexService = createIndex("test", Settings.EMPTY);
+        final IndexShard shard = indexService.getShard(0);
+        final long lagInMillis = randomLongBetween(1, 1000);
+        shard.addScheduledRefreshLag(TimeUnit.MILLISECONDS.toNanos(lagInMillis));
+        shard.addScheduledRefreshLag(TimeUnit.MILLISECONDS.toNanos(lagInMillis));
+        assertThat(shard.refreshStats().getScheduledLagInMillis(), equalTo(2 * lagInMillis));
+    }
 }
@@ -0,0 +1,126 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.MockBigArrays;
+import org.elasticsearch.common.util.MockPageCacheRecycler;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
+import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+/**
+ * Runs the {@link LiveVersionMapTests} against a version map that holds its versions in paged arrays.
+ */
+public class PagedLiveVersionMapTests extends LiveVersionMapTests {
+
+    @Override
+    protected LiveVersionMap newVersionMap() {
+        return new LiveVersionMap(BigArrays.NON_RECYCLING_INSTANCE);
+    }
+
+    public void testReleasePagesOnRefreshAndClear() throws IOException {
+        final BigArrays bigArrays = new MockBigArrays(new MockPageCacheRecycler(Settings.EMPTY), new NoneCircuitBreakerService());
+        final LiveVersionMap map = new LiveVersionMap(bigArrays);
+        final Map<BytesRef, VersionValue> expected = new HashMap<>();
+        final int numDocs = randomIntBetween(1, 10000);
+        for (int i = 0; i < numDocs; i++) {
+            final BytesRef uid = BytesRef.deepCopyOf(new BytesRef(Integer.toString(randomIntBetween(0, numDocs))));
+            final Translog.Location location = randomBoolean() ? null
+                : new Translog.Location(randomNonNegativeLong(), randomNonNegativeLong(), randomInt());
+            final IndexVersionValue value = new IndexVersionValue(location, randomNonNegativeLong(), i, randomNonNegativeLong());
+            try (Releasable r = map.acquireLock(uid)) {
+                if (rarely()) {
+                    map.putDeleteUnderLock(uid, new DeleteVersionValue(value.version, i, value.term, i));
+                    expected.remove(uid);
+                } else {
+                    map.putIndexUnderLock(uid, value);
+                    expected.put(uid, value);
+                }
+            }
+        }
+        assertThat(map.getAllCurrent(), equalTo(expected));
+        for (Map.Entry<BytesRef, VersionValue> entry : expected.entrySet()) {
+            try (Releasable r = map.acquireLock(entry.getKey())) {
+                assertThat(map.getUnderLock(entry.getKey()), equalTo(entry.getValue()));
+            }
+        }
+        final long ramBytesUsedForRefresh = map.ramBytesUsedForRefresh();
+        if (expected.isEmpty() == false) {
+            assertThat(ramBytesUsedForRefresh, greaterThan(0L));
+        }
+
+        map.beforeRefresh();
+        assertThat(map.getRefreshingBytes(), equalTo(ramBytesUsedForRefresh));
+        assertThat(map.ramBytesUsedForRefresh(), equalTo(0L));
+        if (randomBoolean()) {
+            map.afterRefresh(randomBoolean());
+            assertThat(map.getRefreshingBytes(), equalTo(0L));
+            for (BytesRef uid : expected.keySet()) {
+                try (Releasable r = map.acquireLock(uid)) {
+                    assertNull(map.getUnderLock(uid));
+                }
+            }
+        }
+        // the mock big arrays make sure that all pages are released once the test completes
+        map.clear();
+    }
+
+    public void testPagesAreNotAccountedOnCircuitBreaker() throws IOException {
+        final CircuitBreakerService breakerService = new HierarchyCircuitBreakerService(
+            Settings.builder()
+                .put(HierarchyCircuitBreakerService.REQUEST_CIRCUIT_BREAKER_LIMIT_SETTING.getKey(), 1, ByteSizeUnit.BYTES)
+                .put(HierarchyCircuitBreakerService.USE_REAL_MEMORY_USAGE_SETTING.getKey(), false)
+                .build(),
+            Collections.emptyList(),
+            new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+        final BigArrays bigArrays = new MockBigArrays(new MockPageCacheRecycler(Settings.EMPTY), breakerService);
+        final LiveVersionMap map = new LiveVersionMap(randomBoolean() ? bigArrays : bigArrays.withCircuitBreaking());
+        final CircuitBreaker breaker = breakerService.getBreaker(CircuitBreaker.REQUEST);
+        final int numDocs = randomIntBetween(1, 1000);
+        for (int i = 0; i < numDocs; i++) {
+            final BytesRef uid = new BytesRef(Integer.toString(i));
+            try (Releasable r = map.acquireLock(uid)) {
+                map.putIndexUnderLock(uid, new IndexVersionValue(null, randomNonNegativeLong(), i, randomNonNegativeLong()));
+            }
+        }
+        // the versions are accounted by the indexing buffer through the RAM usage of the map
+        assertThat(map.ramBytesUsedForRefresh(), greaterThan(0L));
+        assertThat(breaker.getUsed(), equalTo(0L));
+        assertThat(breaker.getTrippedCount(), equalTo(0L));
+        map.clear();
+        assertThat(breaker.getUsed(), equalTo(0L));
+    }
+}
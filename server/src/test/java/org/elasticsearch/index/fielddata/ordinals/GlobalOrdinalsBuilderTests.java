@@ -0,0 +1,241 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.fielddata.ordinals;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.OrdinalMap;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefArray;
+import org.apache.lucene.util.Counter;
+import org.apache.lucene.util.LongValues;
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.metadata.IndexMetadata;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.fielddata.IndexFieldDataCache;
+import org.elasticsearch.index.fielddata.IndexFieldDataService;
+import org.elasticsearch.index.fielddata.IndexOrdinalsFieldData;
+import org.elasticsearch.index.fielddata.plain.AbstractLeafOrdinalsFieldData;
+import org.elasticsearch.index.fielddata.plain.SortedSetOrdinalsIndexFieldData;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
+import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+import org.elasticsearch.search.aggregations.support.CoreValuesSourceType;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.threadpool.TestThreadPool;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class GlobalOrdinalsBuilderTests extends ESTestCase {
+
+    public void testParallelBuildMatchesSequentialBuild() throws Exception {
+        ThreadPool threadPool = new TestThreadPool(getTestName());
+        try {
+            assertParallelBuildMatchesSequentialBuild(threadPool.generic());
+        } finally {
+            terminate(threadPool);
+        }
+    }
+
+    public void testParallelBuildWithRejectingExecutor() throws Exception {
+        assertParallelBuildMatchesSequentialBuild(command -> {
+            throw new EsRejectedExecutionException("rejected");
+        });
+    }
+
+    private void assertParallelBuildMatchesSequentialBuild(Executor executor) throws Exception {
+        try (Directory dir = newDirectory()) {
+            indexRandomTerms(dir);
+            try (DirectoryReader reader = DirectoryReader.open(dir)) {
+                assumeTrue("needs more than one segment", reader.leaves().size() > 1);
+                Settings settings = Settings.builder()
+                    .put(IndexFieldDataService.INDEX_FIELDDATA_GLOBAL_ORDINALS_MAX_LOADED_TERMS_SETTING.getKey(), randomLongBetween(0, 500))
+                    .build();
+                SortedSetOrdinalsIndexFieldData fieldData = newFieldData(settings, new NoneCircuitBreakerService());
+                IndexOrdinalsFieldData sequential = fieldData.localGlobalDirect(reader);
+                IndexOrdinalsFieldData parallel = fieldData.localGlobalDirect(reader, executor);
+
+                OrdinalMap expected = sequential.getOrdinalMap();
+                OrdinalMap actual = parallel.getOrdinalMap();
+                assertThat(actual.getValueCount(), equalTo(expected.getValueCount()));
+                for (LeafReaderContext leaf : reader.leaves()) {
+                    SortedSetDocValues values = leaf.reader().getSortedSetDocValues("field");
+                    long valueCount = values == null ? 0 : values.getValueCount();
+                    LongValues expectedGlobalOrds = expected.getGlobalOrds(leaf.ord);
+                    LongValues actualGlobalOrds = actual.getGlobalOrds(leaf.ord);
+                    for (long ord = 0; ord < valueCount; ord++) {
+                        assertThat(actualGlobalOrds.get(ord), equalTo(expectedGlobalOrds.get(ord)));
+                    }
+                }
+            }
+        }
+    }
+
+    public void testParallelBuildOnlyAccountsOrdinalMapByDefault() throws Exception {
+        try (Directory dir = newDirectory()) {
+            indexRandomTerms(dir);
+            try (DirectoryReader reader = DirectoryReader.open(dir)) {
+                assumeTrue("needs more than one segment", reader.leaves().size() > 1);
+                // a limit that the ordinal map, which is added without breaking, may exceed but the copied terms would trip
+                CircuitBreakerService breakerService = newBreakerService(1);
+                SortedSetOrdinalsIndexFieldData fieldData = newFieldData(Settings.EMPTY, breakerService);
+                IndexOrdinalsFieldData parallel = fieldData.localGlobalDirect(reader, command -> {
+                    throw new EsRejectedExecutionException("rejected");
+                });
+                CircuitBreaker breaker = breakerService.getBreaker(CircuitBreaker.FIELDDATA);
+                assertThat(breaker.getUsed(), equalTo(parallel.getOrdinalMap().ramBytesUsed()));
+                assertThat(breaker.getTrippedCount(), equalTo(0L));
+            }
+        }
+    }
+
+    public void testParallelBuildReleasesLoadedTerms() throws Exception {
+        ThreadPool threadPool = new TestThreadPool(getTestName());
+        try (Directory dir = newDirectory()) {
+            indexRandomTerms(dir);
+            try (DirectoryReader reader = DirectoryReader.open(dir)) {
+                assumeTrue("needs more than one segment", reader.leaves().size() > 1);
+                Settings settings = Settings.builder()
+                    .put(IndexFieldDataService.INDEX_FIELDDATA_GLOBAL_ORDINALS_MAX_LOADED_TERMS_SETTING.getKey(), Long.MAX_VALUE)
+                    .build();
+
+                CircuitBreakerService breakerService = newBreakerService(1 << 20);
+                IndexOrdinalsFieldData parallel = newFieldData(settings, breakerService).localGlobalDirect(reader, threadPool.generic());
+                CircuitBreaker breaker = breakerService.getBreaker(CircuitBreaker.FIELDDATA);
+                assertThat(breaker.getUsed(), equalTo(parallel.getOrdinalMap().ramBytesUsed()));
+
+                CircuitBreakerService tightBreakerService = newBreakerService(1);
+                SortedSetOrdinalsIndexFieldData fieldData = newFieldData(settings, tightBreakerService);
+                expectThrows(CircuitBreakingException.class, () -> fieldData.localGlobalDirect(reader, threadPool.generic()));
+                CircuitBreaker tightBreaker = tightBreakerService.getBreaker(CircuitBreaker.FIELDDATA);
+                assertThat(tightBreaker.getUsed(), equalTo(0L));
+                assertThat(tightBreaker.getTrippedCount(), greaterThan(0L));
+            }
+        } finally {
+            terminate(threadPool);
+        }
+    }
+
+    private static void indexRandomTerms(Directory dir) throws IOException {
+        IndexWriterConfig iwc = new IndexWriterConfig(null);
+        iwc.setMergePolicy(NoMergePolicy.INSTANCE);
+        try (IndexWriter iw = new IndexWriter(dir, iwc)) {
+            int numSegments = randomIntBetween(2, 10);
+            for (int i = 0; i < numSegments; i++) {
+                int numDocs = randomIntBetween(1, 200);
+                for (int j = 0; j < numDocs; j++) {
+                    Document doc = new Document();
+                    int numValues = randomIntBetween(i == 0 && j == 0 ? 1 : 0, 3);
+                    for (int k = 0; k < numValues; k++) {
+                        doc.add(new SortedSetDocValuesField("field", new BytesRef(randomAlphaOfLengthBetween(1, 4))));
+                    }
+                    iw.addDocument(doc);
+                }
+                iw.flush();
+            }
+        }
+    }
+
+    private static SortedSetOrdinalsIndexFieldData newFieldData(Settings settings, CircuitBreakerService breakerService) {
+        return new SortedSetOrdinalsIndexFieldData(createIndexSettings(settings), new IndexFieldDataCache.None(), "field",
+            CoreValuesSourceType.BYTES, breakerService, AbstractLeafOrdinalsFieldData.DEFAULT_SCRIPT_FUNCTION);
+    }
+
+    private static CircuitBreakerService newBreakerService(long fieldDataLimit) {
+        return new HierarchyCircuitBreakerService(
+            Settings.builder()
+                .put(HierarchyCircuitBreakerService.FIELDDATA_CIRCUIT_BREAKER_LIMIT_SETTING.getKey(), fieldDataLimit, ByteSizeUnit.BYTES)
+                .put(HierarchyCircuitBreakerService.USE_REAL_MEMORY_USAGE_SETTING.getKey(), false)
+                .build(),
+            Collections.emptyList(),
+            new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+    }
+
+    public void testRunConcurrentlyPropagatesFailures() throws Exception {
+        ThreadPool threadPool = new TestThreadPool(getTestName());
+        try {
+            int numTasks = randomIntBetween(1, 20);
+            int failingTask = randomIntBetween(0, numTasks - 1);
+            AtomicInteger completed = new AtomicInteger();
+            IOException e = expectThrows(IOException.class, () -> GlobalOrdinalsBuilder.runConcurrently(numTasks, threadPool.generic(),
+                i -> {
+                    if (i == failingTask) {
+                        throw new IOException("task [" + i + "] failed");
+                    }
+                    completed.incrementAndGet();
+                }));
+            assertThat(e.getMessage(), equalTo("task [" + failingTask + "] failed"));
+            assertTrue(completed.get() < numTasks);
+        } finally {
+            terminate(threadPool);
+        }
+    }
+
+    public void testLoadedTermsEnum() throws IOException {
+        BytesRefArray terms = new BytesRefArray(Counter.newCounter());
+        for (String term : new String[] { "b", "d", "f" }) {
+            terms.append(new BytesRef(term));
+        }
+        TermsEnum termsEnum = new GlobalOrdinalsBuilder.LoadedTermsEnum(terms);
+        assertThat(termsEnum.next(), equalTo(new BytesRef("b")));
+        assertThat(termsEnum.ord(), equalTo(0L));
+        assertThat(termsEnum.next(), equalTo(new BytesRef("d")));
+        assertThat(termsEnum.ord(), equalTo(1L));
+
+        assertThat(termsEnum.seekCeil(new BytesRef("a")), sameInstance(TermsEnum.SeekStatus.NOT_FOUND));
+        assertThat(termsEnum.term(), equalTo(new BytesRef("b")));
+        assertThat(termsEnum.seekCeil(new BytesRef("d")), sameInstance(TermsEnum.SeekStatus.FOUND));
+        assertThat(termsEnum.ord(), equalTo(1L));
+        assertThat(termsEnum.seekCeil(new BytesRef("e")), sameInstance(TermsEnum.SeekStatus.NOT_FOUND));
+        assertThat(termsEnum.ord(), equalTo(2L));
+        assertThat(termsEnum.next(), equalTo(null));
+        assertThat(termsEnum.seekCeil(new BytesRef("g")), sameInstance(TermsEnum.SeekStatus.END));
+    }
+
+    private static IndexSettings createIndexSettings(Settings settings) {
+        IndexMetadata indexMetadata = IndexMetadata.builder("_name")
+            .settings(Settings.builder().put(IndexMetadata.SETTING_VERSION_CREATED, Version.CURRENT).put(settings))
+            .numberOfShards(1)
+            .numberOfReplicas(0)
+            .build();
+        return new IndexSettings(indexMetadata, Settings.EMPTY);
+    }
+}
@@ -64,6 +64,7 @@ import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.lucene.uid.Versions;
 import org.elasticsearch.common.settings.IndexScopedSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
@@ -77,6 +78,7 @@ import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.core.internal.io.IOUtils;
 import org.elasticsearch.env.NodeEnvironment;
 import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.codec.CodecService;
 import org.elasticsearch.index.engine.CommitStats;
 import org.elasticsearch.index.engine.DocIdSeqNoAndSource;
@@ -2127,6 +2129,49 @@ public class IndexShardTests extends IndexShardTestCase {
         closeShards(primarySource, primaryTarget);
     }
 
+    public void testApplyIndexOperationOnPrimaryWithPreParsedDocument() throws IOException {
+        Settings settings = Settings.builder().put(IndexMetadata.SETTING_VERSION_CREATED, Version.CURRENT)
+            .put(IndexMetadata.SETTING_NUMBER_OF_REPLICAS, 0)
+            .put(IndexMetadata.SETTING_NUMBER_OF_SHARDS, 1)
+            .build();
+        IndexMetadata metadata = IndexMetadata.builder("test")
+            .putMapping("{ \"properties\": { \"foo\":  { \"type\": \"keyword\"}}}")
+            .settings(settings)
+            .primaryTerm(0, 1).build();
+        IndexShard shard = newShard(new ShardId(metadata.getIndex(), 0), true, "n1", metadata, null);
+        recoverShardFromStore(shard);
+
+        // the source is not parsed again if the mapping did not change since the document was parsed ahead
+        IndexShard.PreParsedDocument preParsedDocument = shard.preParseDocument(fooSource(shard, "0", "ahead_0"));
+        Engine.IndexResult result = shard.applyIndexOperationOnPrimary(Versions.MATCH_ANY, VersionType.INTERNAL,
+            fooSource(shard, "0", "inline_0"), UNASSIGNED_SEQ_NO, 0, IndexRequest.UNSET_AUTO_GENERATED_TIMESTAMP, false,
+            preParsedDocument);
+        assertEquals(Engine.Result.Type.SUCCESS, result.getResultType());
+
+        // a mapping change between parsing ahead and execution discards the pre-parsed document
+        preParsedDocument = shard.preParseDocument(fooSource(shard, "1", "ahead_1"));
+        updateMappings(shard, IndexMetadata.builder(shard.indexSettings().getIndexMetadata())
+            .putMapping("{ \"properties\": { \"foo\":  { \"type\": \"keyword\"}, \"bar\":  { \"type\": \"keyword\"}}}")
+            .build());
+        result = shard.applyIndexOperationOnPrimary(Versions.MATCH_ANY, VersionType.INTERNAL,
+            fooSource(shard, "1", "inline_1"), UNASSIGNED_SEQ_NO, 0, IndexRequest.UNSET_AUTO_GENERATED_TIMESTAMP, false,
+            preParsedDocument);
+        assertEquals(Engine.Result.Type.SUCCESS, result.getResultType());
+
+        shard.refresh("test");
+        try (Engine.Searcher searcher = shard.acquireSearcher("test")) {
+            assertEquals(1, searcher.count(new TermQuery(new Term("foo", "ahead_0"))));
+            assertEquals(0, searcher.count(new TermQuery(new Term("foo", "inline_0"))));
+            assertEquals(0, searcher.count(new TermQuery(new Term("foo", "ahead_1"))));
+            assertEquals(1, searcher.count(new TermQuery(new Term("foo", "inline_1"))));
+        }
+        closeShards(shard);
+    }
+
+    private static SourceToParse fooSource(IndexShard shard, String id, String foo) {
+        return new SourceToParse(shard.shardId().getIndexName(), id, new BytesArray("{\"foo\": \"" + foo + "\"}"), XContentType.JSON);
+    }
+
     /* This test just verifies that we fill up local checkpoint up to max seen seqID on primary recovery */
     public void testRecoverFromStoreWithNoOps() throws IOException {
         final IndexShard shard = newStartedShard(true);
@@ -81,6 +81,7 @@ import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -88,6 +89,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
 
 import static java.util.Collections.unmodifiableMap;
 import static org.elasticsearch.test.VersionUtils.randomVersion;
@@ -417,6 +419,85 @@ public class StoreTests extends ESTestCase {
         IOUtils.close(dir);
     }
 
+    public void testCrc32Combine() {
+        final byte[] bytes = randomByteArrayOfLength(between(0, 1024));
+        final int split = between(0, bytes.length);
+        final CRC32 first = new CRC32();
+        first.update(bytes, 0, split);
+        final CRC32 second = new CRC32();
+        second.update(bytes, split, bytes.length - split);
+        final CRC32 whole = new CRC32();
+        whole.update(bytes, 0, bytes.length);
+        assertEquals(whole.getValue(), Store.crc32Combine(first.getValue(), second.getValue(), bytes.length - split));
+    }
+
+    public void testMultiPartVerifier() throws IOException {
+        Directory dir = newDirectory();
+        try (IndexOutput output = dir.createOutput("foo.bar", IOContext.DEFAULT)) {
+            int iters = scaledRandomIntBetween(10, 100);
+            for (int i = 0; i < iters; i++) {
+                BytesRef bytesRef = new BytesRef(TestUtil.randomRealisticUnicodeString(random(), 10, 1024));
+                output.writeBytes(bytesRef.bytes, bytesRef.offset, bytesRef.length);
+            }
+            CodecUtil.writeFooter(output);
+        }
+        final StoreFileMetadata metadata;
+        try (IndexInput indexInput = dir.openInput("foo.bar", IOContext.DEFAULT)) {
+            metadata = new StoreFileMetadata("foo.bar", indexInput.length(), Store.digestToString(CodecUtil.retrieveChecksum(indexInput)),
+                MIN_SUPPORTED_LUCENE_VERSION);
+        }
+        // small parts so that the footer is likely to be spread over several parts
+        final long partSize = randomFrom(randomLongBetween(1, 16), randomLongBetween(1, metadata.length()));
+        readPartsInRandomOrder(dir, metadata, partSize).verify();
+
+        // the footer is read entirely but one of the checksummed bytes is corrupted
+        corruptFile(dir, "foo.bar", "foo1.bar");
+        final StoreFileMetadata corruptedMetadata = new StoreFileMetadata("foo1.bar", metadata.length(), metadata.checksum(),
+            metadata.writtenBy());
+        final Store.MultiPartVerifier corruptedVerifier = readPartsInRandomOrder(dir, corruptedMetadata, partSize);
+        expectThrows(CorruptIndexException.class, corruptedVerifier::verify);
+
+        // a part is missing
+        final int numberOfParts = Math.toIntExact((metadata.length() + partSize - 1) / partSize);
+        final Store.MultiPartVerifier incompleteVerifier = Store.multiPartVerifier(metadata, numberOfParts + 1);
+        for (int part = 0; part < numberOfParts; part++) {
+            readPart(dir, incompleteVerifier, part, partSize, metadata.length());
+        }
+        expectThrows(CorruptIndexException.class, incompleteVerifier::verify);
+        IOUtils.close(dir);
+    }
+
+    private Store.MultiPartVerifier readPartsInRandomOrder(Directory dir, StoreFileMetadata metadata, long partSize) throws IOException {
+        final int numberOfParts = Math.toIntExact((metadata.length() + partSize - 1) / partSize);
+        final Store.MultiPartVerifier verifier = Store.multiPartVerifier(metadata, numberOfParts);
+        final List<Integer> parts = new ArrayList<>();
+        for (int part = 0; part < numberOfParts; part++) {
+            parts.add(part);
+        }
+        Collections.shuffle(parts, random());
+        for (int part : parts) {
+            readPart(dir, verifier, part, partSize, metadata.length());
+        }
+        return verifier;
+    }
+
+    private void readPart(Directory dir, Store.MultiPartVerifier verifier, int part, long partSize, long length) throws IOException {
+        final long offset = part * partSize;
+        try (IndexInput input = verifier.openPart(dir, IOContext.DEFAULT, part, offset)) {
+            final byte[] bytes = new byte[Math.toIntExact(Math.min(partSize, length - offset))];
+            int read = 0;
+            while (read < bytes.length) {
+                if (randomBoolean()) {
+                    bytes[read++] = input.readByte();
+                } else {
+                    final int len = between(1, bytes.length - read);
+                    input.readBytes(bytes, read, len);
+                    read += len;
+                }
+            }
+        }
+    }
+
     private void readIndexInputFullyWithRandomSeeks(IndexInput indexInput) throws IOException {
         BytesRef ref = new BytesRef(scaledRandomIntBetween(1, 1024));
         long pos = 0;
@@ -477,7 +477,8 @@ public class TranslogTests extends ESTestCase {
                 builder.endObject();
                 assertThat(Strings.toString(builder), equalTo("{\"translog\":{\"operations\":4,\"size_in_bytes\":" + 340
                     + ",\"uncommitted_operations\":4,\"uncommitted_size_in_bytes\":" + 285
-                    + ",\"earliest_last_modified_age\":" + stats.getEarliestLastModifiedAge() + "}}"));
+                    + ",\"earliest_last_modified_age\":" + stats.getEarliestLastModifiedAge()
+                    + ",\"sync_batches\":0,\"sync_requests\":0,\"sync_wait_time_in_millis\":0}}"));
             }
         }
         translog.getDeletionPolicy().setLocalCheckpointOfSafeCommit(randomLongBetween(3, Long.MAX_VALUE));
@@ -522,6 +523,7 @@ public class TranslogTests extends ESTestCase {
         for (int i = 0; i < n; i++) {
             final TranslogStats stats = new TranslogStats(randomIntBetween(1, 4096), randomIntBetween(1, 1 << 20),
                 randomIntBetween(1, 1 << 20), randomIntBetween(1, 4096), randomIntBetween(1, 1 << 20));
+            stats.addSyncStats(randomIntBetween(0, 4096), randomIntBetween(0, 1 << 20), randomIntBetween(0, 1 << 20));
             statsList.add(stats);
             total.add(stats);
         }
@@ -541,6 +543,15 @@ public class TranslogTests extends ESTestCase {
         assertThat(
             total.getEarliestLastModifiedAge(),
             equalTo(1L));
+        assertThat(
+            total.getSyncBatches(),
+            equalTo(statsList.stream().mapToLong(TranslogStats::getSyncBatches).sum()));
+        assertThat(
+            total.getSyncRequests(),
+            equalTo(statsList.stream().mapToLong(TranslogStats::getSyncRequests).sum()));
+        assertThat(
+            total.getSyncWaitTime().millis(),
+            equalTo(statsList.stream().mapToLong(stats -> stats.getSyncWaitTime().millis()).sum()));
     }
 
     public void testNegativeNumberOfOperations() {
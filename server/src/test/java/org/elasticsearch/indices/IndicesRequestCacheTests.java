@@ -26,6 +26,8 @@ import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.NoMergePolicy;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.TermQuery;
@@ -50,6 +52,7 @@ import org.elasticsearch.test.ESTestCase;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class IndicesRequestCacheTests extends ESTestCase {
 
@@ -204,6 +207,73 @@ public class IndicesRequestCacheTests extends ESTestCase {
         assertEquals(0, cache.numRegisteredCloseListeners());
     }
 
+    public void testCacheSegmentReaders() throws Exception {
+        IndicesRequestCache cache = new IndicesRequestCache(Settings.EMPTY);
+        AtomicBoolean indexShard =  new AtomicBoolean(true);
+        ShardRequestCache requestCacheStats = new ShardRequestCache();
+        Directory dir = newDirectory();
+        IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE));
+
+        writer.addDocument(newDoc(0, "foo"));
+        DirectoryReader reader = DirectoryReader.open(writer);
+        writer.addDocument(newDoc(1, "bar"));
+        DirectoryReader secondReader = DirectoryReader.open(writer);
+        assertEquals(1, reader.leaves().size());
+        assertEquals(2, secondReader.leaves().size());
+        // the unchanged segment is shared by both readers
+        LeafReader segment = reader.leaves().get(0).reader();
+        assertSame(segment.getReaderCacheHelper().getKey(), secondReader.leaves().get(0).reader().getReaderCacheHelper().getKey());
+
+        TermQueryBuilder termQuery = new TermQueryBuilder("id", "0");
+        BytesReference termBytes = XContentHelper.toXContent(termQuery, XContentType.JSON, false);
+        AtomicInteger loads = new AtomicInteger();
+        CheckedSupplier<BytesReference, IOException> loader = () -> {
+            try (BytesStreamOutput out = new BytesStreamOutput()) {
+                out.writeVInt(loads.incrementAndGet());
+                return out.bytes();
+            }
+        };
+
+        // initial cache
+        TestEntity entity = new TestEntity(requestCacheStats, indexShard);
+        BytesReference value = cache.getOrCompute(entity, loader, segment, termBytes, () -> termQuery.toString());
+        assertEquals(1, value.streamInput().readVInt());
+        assertEquals(0, requestCacheStats.stats().getHitCount());
+        assertEquals(1, requestCacheStats.stats().getMissCount());
+        assertEquals(1, cache.count());
+
+        // cache hit through the second reader
+        entity = new TestEntity(requestCacheStats, indexShard);
+        value = cache.getOrCompute(entity, loader, secondReader.leaves().get(0).reader(), termBytes, () -> termQuery.toString());
+        assertEquals(1, value.streamInput().readVInt());
+        assertEquals(1, requestCacheStats.stats().getHitCount());
+        assertEquals(1, requestCacheStats.stats().getMissCount());
+        assertEquals(1, cache.count());
+
+        // the new segment is a miss
+        entity = new TestEntity(requestCacheStats, indexShard);
+        value = cache.getOrCompute(entity, loader, secondReader.leaves().get(1).reader(), termBytes, () -> termQuery.toString());
+        assertEquals(2, value.streamInput().readVInt());
+        assertEquals(1, requestCacheStats.stats().getHitCount());
+        assertEquals(2, requestCacheStats.stats().getMissCount());
+        assertEquals(2, cache.count());
+        assertEquals(2, cache.numRegisteredCloseListeners());
+
+        // the shared segment remains open as long as one of the readers uses it
+        reader.close();
+        cache.cleanCache();
+        assertEquals(2, cache.count());
+
+        // segment readers are pooled by the writer until it is closed
+        IOUtils.close(secondReader, writer);
+        cache.cleanCache();
+        assertEquals(0, cache.count());
+        assertEquals(0, requestCacheStats.stats().getMemorySize().bytesAsInt());
+        assertEquals(0, cache.numRegisteredCloseListeners());
+
+        IOUtils.close(dir, cache);
+    }
+
     public void testEviction() throws Exception {
         final ByteSizeValue size;
         {
@@ -274,6 +344,78 @@ public class IndicesRequestCacheTests extends ESTestCase {
         IOUtils.close(reader, secondReader, thirdReader, writer, dir, cache);
     }
 
+    // fill a cache that uses frequency-based admission with frequently read entries, refresh, and check that the entries of the
+    // new reader are admitted under churn rather than rejected in favour of the entries of the closed reader
+    public void testFrequencyAdmissionAdmitsEntriesAfterRefresh() throws Exception {
+        final int numEntries = randomIntBetween(2, 10);
+        AtomicBoolean indexShard = new AtomicBoolean(true);
+        Directory dir = newDirectory();
+        IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig());
+        for (int i = 0; i < numEntries; i++) {
+            writer.addDocument(newDoc(i, "foo"));
+        }
+        DirectoryReader reader = ElasticsearchDirectoryReader.wrap(DirectoryReader.open(writer), new ShardId("foo", "bar", 1));
+        final ByteSizeValue size;
+        {
+            IndicesRequestCache cache = new IndicesRequestCache(Settings.EMPTY);
+            ShardRequestCache requestCacheStats = new ShardRequestCache();
+            for (int i = 0; i < numEntries; i++) {
+                cache.getOrCompute(new TestEntity(requestCacheStats, indexShard), new Loader(reader, i), reader, termBytes(i),
+                    () -> "id");
+            }
+            size = requestCacheStats.stats().getMemorySize();
+            IOUtils.close(cache);
+        }
+        IndicesRequestCache cache = new IndicesRequestCache(Settings.builder()
+            .put(IndicesRequestCache.INDICES_CACHE_QUERY_SIZE.getKey(), size.getBytes() + "b")
+            .put(IndicesRequestCache.INDICES_CACHE_QUERY_FREQUENCY_ADMISSION.getKey(), true)
+            .build());
+        ShardRequestCache requestCacheStats = new ShardRequestCache();
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < numEntries; i++) {
+                cache.getOrCompute(new TestEntity(requestCacheStats, indexShard), new Loader(reader, i), reader, termBytes(i),
+                    () -> "id");
+            }
+        }
+        assertEquals(numEntries, cache.count());
+        assertEquals(0, requestCacheStats.stats().getEvictions());
+
+        writer.updateDocument(new Term("id", "0"), newDoc(0, "bar"));
+        DirectoryReader secondReader = ElasticsearchDirectoryReader.wrap(DirectoryReader.open(writer), new ShardId("foo", "bar", 1));
+
+        // while the first reader is open, its frequently read entries are preferred over the entries of the new reader
+        Loader loader = new Loader(secondReader, 0);
+        assertEquals("bar", cache.getOrCompute(new TestEntity(requestCacheStats, indexShard), loader, secondReader, termBytes(0),
+            () -> "id").streamInput().readString());
+        assertFalse(loader.loadedFromCache);
+        assertEquals(1, requestCacheStats.stats().getEvictions());
+        for (int i = 0; i < numEntries; i++) {
+            loader = new Loader(reader, i);
+            cache.getOrCompute(new TestEntity(requestCacheStats, indexShard), loader, reader, termBytes(i), () -> "id");
+            assertTrue(loader.loadedFromCache);
+        }
+
+        // once the first reader is closed, its entries are evicted in favour of the entries of the new reader even before the
+        // cache is cleaned
+        reader.close();
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < numEntries; i++) {
+                loader = new Loader(secondReader, i);
+                BytesReference value = cache.getOrCompute(new TestEntity(requestCacheStats, indexShard), loader, secondReader,
+                    termBytes(i), () -> "id");
+                assertEquals(i == 0 ? "bar" : "foo", value.streamInput().readString());
+                assertEquals(round > 0, loader.loadedFromCache);
+            }
+        }
+        assertEquals(numEntries, cache.count());
+        assertEquals(1 + numEntries, requestCacheStats.stats().getEvictions());
+        IOUtils.close(secondReader, writer, dir, cache);
+    }
+
+    private static BytesReference termBytes(int id) throws IOException {
+        return XContentHelper.toXContent(new TermQueryBuilder("id", Integer.toString(id)), XContentType.JSON, false);
+    }
+
     public void testClearAllEntityIdentity() throws Exception {
         IndicesRequestCache cache = new IndicesRequestCache(Settings.EMPTY);
         AtomicBoolean indexShard =  new AtomicBoolean(true);
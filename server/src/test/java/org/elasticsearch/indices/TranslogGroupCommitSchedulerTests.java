@@ -0,0 +1,245 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices;
+
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.CountDown;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.threadpool.TestThreadPool;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.junit.After;
+import org.junit.Before;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class TranslogGroupCommitSchedulerTests extends ESTestCase {
+
+    private ThreadPool threadPool;
+
+    @Before
+    public void createThreadPool() {
+        threadPool = new TestThreadPool(getTestName(), Settings.builder().put("thread_pool.flush.max", 4).build());
+    }
+
+    @After
+    public void terminateThreadPool() {
+        terminate(threadPool);
+    }
+
+    private TranslogGroupCommitScheduler newScheduler(Settings settings) {
+        return new TranslogGroupCommitScheduler(settings, new ClusterSettings(settings, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS),
+            threadPool);
+    }
+
+    public void testDisabledByDefault() {
+        final ClusterSettings clusterSettings = new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS);
+        final TranslogGroupCommitScheduler scheduler = new TranslogGroupCommitScheduler(Settings.EMPTY, clusterSettings, threadPool);
+        assertFalse(scheduler.isEnabled());
+        clusterSettings.applySettings(Settings.builder().put(TranslogGroupCommitScheduler.WINDOW_SETTING.getKey(), "10ms").build());
+        assertTrue(scheduler.isEnabled());
+        clusterSettings.applySettings(Settings.EMPTY);
+        assertFalse(scheduler.isEnabled());
+    }
+
+    public void testBatchesSyncsRequestedDuringWindow() throws Exception {
+        final TranslogGroupCommitScheduler scheduler = newScheduler(
+            Settings.builder().put(TranslogGroupCommitScheduler.WINDOW_SETTING.getKey(), "20ms").build());
+        final Path dataPath = createTempDir();
+
+        final CountDownLatch firstSyncStarted = new CountDownLatch(1);
+        final CountDownLatch releaseFirstSync = new CountDownLatch(1);
+        final RecordingTarget first = new RecordingTarget(firstSyncStarted, releaseFirstSync);
+        final RecordingTarget second = new RecordingTarget(null, null);
+
+        // the first sync runs right away on the requesting thread and blocks the data path
+        final Translog.Location firstLocation = new Translog.Location(1, 0, 10);
+        final AtomicReference<Exception> firstException = new AtomicReference<>();
+        final CountDownLatch firstSynced = new CountDownLatch(1);
+        final Thread thread = new Thread(() -> scheduler.sync(dataPath, first, firstLocation, e -> {
+            firstException.set(e);
+            firstSynced.countDown();
+        }));
+        thread.start();
+        assertTrue(firstSyncStarted.await(10, TimeUnit.SECONDS));
+
+        // these syncs are requested while the first batch runs so they all end up in the next batch
+        final List<Translog.Location> firstTargetLocations = new ArrayList<>();
+        final List<Translog.Location> secondTargetLocations = new ArrayList<>();
+        final int numSyncs = randomIntBetween(2, 20);
+        final CountDownLatch synced = new CountDownLatch(numSyncs);
+        final List<Exception> exceptions = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < numSyncs; i++) {
+            final Translog.Location location = new Translog.Location(1, 10 * (i + 1), 10);
+            final RecordingTarget target = randomBoolean() ? first : second;
+            (target == first ? firstTargetLocations : secondTargetLocations).add(location);
+            scheduler.sync(dataPath, target, location, e -> {
+                if (e != null) {
+                    exceptions.add(e);
+                }
+                synced.countDown();
+            });
+        }
+        assertThat(first.calls, hasSize(1));
+        releaseFirstSync.countDown();
+
+        assertTrue(firstSynced.await(10, TimeUnit.SECONDS));
+        assertTrue(synced.await(10, TimeUnit.SECONDS));
+        thread.join();
+        assertThat(firstException.get(), nullValue());
+        assertThat(exceptions, hasSize(0));
+
+        assertThat(first.calls.get(0), contains(firstLocation));
+        if (firstTargetLocations.isEmpty()) {
+            assertThat(first.calls, hasSize(1));
+        } else {
+            assertThat(first.calls, hasSize(2));
+            assertThat(first.calls.get(1), containsInAnyOrder(firstTargetLocations.toArray()));
+        }
+        if (secondTargetLocations.isEmpty()) {
+            assertThat(second.calls, hasSize(0));
+        } else {
+            assertThat(second.calls, hasSize(1));
+            assertThat(second.calls.get(0), containsInAnyOrder(secondTargetLocations.toArray()));
+        }
+    }
+
+    public void testFailedSyncOnlyFailsItsTarget() throws Exception {
+        final TranslogGroupCommitScheduler scheduler = newScheduler(
+            Settings.builder().put(TranslogGroupCommitScheduler.WINDOW_SETTING.getKey(), "20ms").build());
+        final Path dataPath = createTempDir();
+        final IOException failure = new IOException("simulated");
+        final TranslogGroupCommitScheduler.Target failing = (locations, waitTimeInNanos) -> {
+            throw failure;
+        };
+        final RecordingTarget succeeding = new RecordingTarget(null, null);
+
+        final int numSyncs = randomIntBetween(1, 10);
+        final CountDown countDown = new CountDown(2 * numSyncs);
+        final CountDownLatch done = new CountDownLatch(1);
+        final List<Exception> failingExceptions = new CopyOnWriteArrayList<>();
+        final List<Exception> succeedingExceptions = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < numSyncs; i++) {
+            final Translog.Location location = new Translog.Location(1, i, 1);
+            scheduler.sync(dataPath, failing, location, e -> {
+                failingExceptions.add(e);
+                if (countDown.countDown()) {
+                    done.countDown();
+                }
+            });
+            scheduler.sync(dataPath, succeeding, location, e -> {
+                if (e != null) {
+                    succeedingExceptions.add(e);
+                }
+                if (countDown.countDown()) {
+                    done.countDown();
+                }
+            });
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertThat(failingExceptions, hasSize(numSyncs));
+        for (Exception e : failingExceptions) {
+            assertThat(e, sameInstance(failure));
+        }
+        assertThat(succeedingExceptions, hasSize(0));
+        assertThat(succeeding.calls.stream().mapToInt(List::size).sum(), equalTo(numSyncs));
+    }
+
+    public void testSyncsTranslogsOfBatchConcurrently() throws Exception {
+        final TranslogGroupCommitScheduler scheduler = newScheduler(
+            Settings.builder().put(TranslogGroupCommitScheduler.WINDOW_SETTING.getKey(), "20ms").build());
+        final Path dataPath = createTempDir();
+
+        final CountDownLatch firstSyncStarted = new CountDownLatch(1);
+        final CountDownLatch releaseFirstSync = new CountDownLatch(1);
+        final RecordingTarget first = new RecordingTarget(firstSyncStarted, releaseFirstSync);
+        final Thread thread = new Thread(() -> scheduler.sync(dataPath, first, new Translog.Location(1, 0, 10), e -> {}));
+        thread.start();
+        assertTrue(firstSyncStarted.await(10, TimeUnit.SECONDS));
+
+        // each sync of the next batch waits for the syncs of all other shards of the batch to have started, which only completes
+        // if the shards sharing the data path are synced concurrently rather than one after the other
+        final int numTargets = threadPool.info(ThreadPool.Names.FLUSH).getMax();
+        final CyclicBarrier allSyncing = new CyclicBarrier(numTargets);
+        final CountDownLatch synced = new CountDownLatch(numTargets);
+        final List<Exception> exceptions = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < numTargets; i++) {
+            final TranslogGroupCommitScheduler.Target target = (locations, waitTimeInNanos) -> {
+                try {
+                    allSyncing.await(10, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new IOException(e);
+                }
+            };
+            scheduler.sync(dataPath, target, new Translog.Location(1, 10, 10), e -> {
+                if (e != null) {
+                    exceptions.add(e);
+                }
+                synced.countDown();
+            });
+        }
+        releaseFirstSync.countDown();
+        thread.join();
+
+        assertTrue(synced.await(20, TimeUnit.SECONDS));
+        assertThat(exceptions, hasSize(0));
+    }
+
+    private static class RecordingTarget implements TranslogGroupCommitScheduler.Target {
+
+        private final CountDownLatch started;
+        private final CountDownLatch release;
+        final List<List<Translog.Location>> calls = new CopyOnWriteArrayList<>();
+
+        RecordingTarget(CountDownLatch started, CountDownLatch release) {
+            this.started = started;
+            this.release = release;
+        }
+
+        @Override
+        public void sync(List<Translog.Location> locations, long waitTimeInNanos) {
+            calls.add(new ArrayList<>(locations));
+            if (started != null && started.getCount() > 0) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+            }
+        }
+    }
+}
@@ -96,6 +96,7 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
@@ -111,6 +112,7 @@ import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.anyObject;
@@ -181,7 +183,7 @@ public class RecoverySourceHandlerTests extends ESTestCase {
             }
         };
         RecoverySourceHandler handler = new RecoverySourceHandler(null, new AsyncRecoveryTarget(target, recoveryExecutor),
-            threadPool, request, Math.toIntExact(recoverySettings.getChunkSize().getBytes()), between(1, 5));
+            threadPool, request, Math.toIntExact(recoverySettings.getChunkSize().getBytes()), between(1, 5), between(1, 4));
         PlainActionFuture<Void> sendFilesFuture = new PlainActionFuture<>();
         handler.sendFiles(store, metas.toArray(new StoreFileMetadata[0]), () -> 0, sendFilesFuture);
         sendFilesFuture.actionGet();
@@ -629,6 +631,107 @@ public class RecoverySourceHandlerTests extends ESTestCase {
         store.close();
     }
 
+    public void testSendFilesConcurrently() throws Exception {
+        final IndexShard shard = mock(IndexShard.class);
+        when(shard.state()).thenReturn(IndexShardState.STARTED);
+        final List<FileChunkResponse> unrepliedChunks = new CopyOnWriteArrayList<>();
+        final Map<Long, String> chunkFiles = new ConcurrentHashMap<>();
+        final AtomicInteger sentChunks = new AtomicInteger();
+        final TestRecoveryTargetHandler recoveryTarget = new TestRecoveryTargetHandler() {
+            final AtomicLong chunkNumberGenerator = new AtomicLong();
+            @Override
+            public void writeFileChunk(StoreFileMetadata md, long position, BytesReference content, boolean lastChunk,
+                                       int totalTranslogOps, ActionListener<Void> listener) {
+                final long chunkNumber = chunkNumberGenerator.getAndIncrement();
+                logger.info("--> write chunk name={} seq={}, position={}", md.name(), chunkNumber, position);
+                chunkFiles.put(chunkNumber, md.name());
+                unrepliedChunks.add(new FileChunkResponse(chunkNumber, listener));
+                sentChunks.incrementAndGet();
+            }
+        };
+        // with a single chunk in flight per file sender, each unreplied chunk belongs to a different sender
+        final int maxConcurrentFiles = between(2, 4);
+        final int chunkSize = between(1, 32);
+        final RecoverySourceHandler handler = new RecoverySourceHandler(shard, recoveryTarget, threadPool, getStartRecoveryRequest(),
+            chunkSize, 1, maxConcurrentFiles);
+        Store store = newStore(createTempDir(), false);
+        List<StoreFileMetadata> files = generateFiles(store, between(1, 10), () -> between(1, chunkSize * 20));
+        int totalChunks = files.stream().mapToInt(md -> ((int) md.length() + chunkSize - 1) / chunkSize).sum();
+        PlainActionFuture<Void> sendFilesFuture = new PlainActionFuture<>();
+        handler.sendFiles(store, files.toArray(new StoreFileMetadata[0]), () -> 0, sendFilesFuture);
+        assertBusy(() -> {
+            assertThat(sentChunks.get(), equalTo(Math.min(files.size(), maxConcurrentFiles)));
+            assertThat(unrepliedChunks, hasSize(sentChunks.get()));
+        });
+
+        while (sentChunks.get() < totalChunks || unrepliedChunks.isEmpty() == false) {
+            assertBusy(() -> assertFalse(unrepliedChunks.isEmpty()));
+            assertThat(unrepliedChunks.size(), lessThanOrEqualTo(maxConcurrentFiles));
+            assertThat(unrepliedChunks.stream().map(c -> chunkFiles.get(c.chunkNumber)).distinct().count(),
+                equalTo((long) unrepliedChunks.size()));
+            FileChunkResponse chunkToAck = randomFrom(unrepliedChunks);
+            unrepliedChunks.remove(chunkToAck);
+            chunkToAck.listener.onResponse(null);
+        }
+        sendFilesFuture.actionGet();
+        assertThat(sentChunks.get(), equalTo(totalChunks));
+        assertThat(chunkFiles.values().stream().distinct().count(), equalTo((long) files.size()));
+        store.close();
+    }
+
+    public void testSendFilesConcurrentlyStopOnError() throws Exception {
+        final List<FileChunkResponse> unrepliedChunks = new CopyOnWriteArrayList<>();
+        final AtomicInteger sentChunks = new AtomicInteger();
+        final TestRecoveryTargetHandler recoveryTarget = new TestRecoveryTargetHandler() {
+            final AtomicLong chunkNumberGenerator = new AtomicLong();
+            @Override
+            public void writeFileChunk(StoreFileMetadata md, long position, BytesReference content, boolean lastChunk,
+                                       int totalTranslogOps, ActionListener<Void> listener) {
+                final long chunkNumber = chunkNumberGenerator.getAndIncrement();
+                logger.info("--> write chunk name={} seq={}, position={}", md.name(), chunkNumber, position);
+                unrepliedChunks.add(new FileChunkResponse(chunkNumber, listener));
+                sentChunks.incrementAndGet();
+            }
+        };
+        final int maxConcurrentFiles = between(2, 4);
+        final int maxConcurrentChunks = between(1, 4);
+        final int chunkSize = between(1, 16);
+        final RecoverySourceHandler handler = new RecoverySourceHandler(null, recoveryTarget, threadPool, getStartRecoveryRequest(),
+            chunkSize, maxConcurrentChunks, maxConcurrentFiles);
+        Store store = newStore(createTempDir(), false);
+        // every file has more chunks than a sender may have in flight, so that no sender can complete before the failure
+        List<StoreFileMetadata> files =
+            generateFiles(store, between(2, 10), () -> between(chunkSize * maxConcurrentChunks, chunkSize * 20));
+        AtomicInteger sendFilesCompletions = new AtomicInteger();
+        SetOnce<Exception> sendFilesError = new SetOnce<>();
+        CountDownLatch sendFilesLatch = new CountDownLatch(1);
+        handler.sendFiles(store, files.toArray(new StoreFileMetadata[0]), () -> 0, new LatchedActionListener<>(ActionListener.wrap(
+            r -> sendFilesCompletions.incrementAndGet(),
+            e -> {
+                sendFilesCompletions.incrementAndGet();
+                sendFilesError.set(e);
+            }), sendFilesLatch));
+        final int initialChunks = Math.min(files.size(), maxConcurrentFiles) * maxConcurrentChunks;
+        assertBusy(() -> assertThat(sentChunks.get(), equalTo(initialChunks)));
+
+        FileChunkResponse failedChunk = randomFrom(unrepliedChunks);
+        unrepliedChunks.remove(failedChunk);
+        failedChunk.listener.onFailure(new IllegalStateException("test chunk exception"));
+        unrepliedChunks.forEach(c -> {
+            if (randomBoolean()) {
+                c.listener.onFailure(new RuntimeException("test"));
+            } else {
+                c.listener.onResponse(null);
+            }
+        });
+        sendFilesLatch.await();
+        assertThat(sendFilesError.get(), instanceOf(IllegalStateException.class));
+        assertThat(sendFilesError.get().getMessage(), containsString("test chunk exception"));
+        assertThat("the recovery must be failed exactly once", sendFilesCompletions.get(), equalTo(1));
+        assertThat("no more chunks should be sent by any sender", sentChunks.get(), equalTo(initialChunks));
+        store.close();
+    }
+
     public void testCancelRecoveryDuringPhase1() throws Exception {
         Store store = newStore(createTempDir("source"), false);
         IndexShard shard = mock(IndexShard.class);
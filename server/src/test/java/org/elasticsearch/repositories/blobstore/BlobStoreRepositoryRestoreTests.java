@@ -60,6 +60,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
 import static org.hamcrest.Matchers.containsString;
 
@@ -193,12 +194,95 @@ public class BlobStoreRepositoryRestoreTests extends IndexShardTestCase {
         }
     }
 
+    /**
+     * Snapshotting files that are split in several parts uploads the parts concurrently, restoring them must
+     * reassemble the original files.
+     */
+    public void testSnapshotAndRestoreFilesSplitInParts() throws IOException {
+        final IndexId indexId = new IndexId(randomAlphaOfLength(10), UUIDs.randomBase64UUID());
+        final ShardId shardId = new ShardId(indexId.getName(), indexId.getId(), 0);
+
+        IndexShard shard = newShard(shardId, true);
+        try {
+            // index documents in the shards
+            final int numDocs = scaledRandomIntBetween(10, 500);
+            recoverShardFromStore(shard);
+            for (int i = 0; i < numDocs; i++) {
+                indexDoc(shard, "_doc", Integer.toString(i));
+                if (rarely()) {
+                    flushShard(shard, false);
+                }
+            }
+            assertDocCount(shard, numDocs);
+
+            // snapshot the shard in a repository with a small chunk size so that files are split in several parts
+            final Environment environment = createEnvironment();
+            final Repository repository = createRepository(environment, Settings.builder()
+                .put(FsRepository.CHUNK_SIZE_SETTING.getKey(), randomIntBetween(100, 1000) + "b")
+                .build());
+            final Snapshot snapshot = new Snapshot(repository.getMetadata().name(), new SnapshotId(randomAlphaOfLength(10), "_uuid"));
+            snapshotShard(shard, snapshot, repository);
+
+            try (Stream<Path> repositoryFiles = Files.walk(environment.repoFiles()[0])) {
+                assertTrue("Expected some files to be split in several parts",
+                    repositoryFiles.anyMatch(file -> file.getFileName().toString().endsWith(".part1")));
+            }
+
+            // capture current store files
+            final Store.MetadataSnapshot storeFiles = shard.snapshotStoreMetadata();
+            assertFalse(storeFiles.asMap().isEmpty());
+
+            // close the shard and delete all the files in its store
+            closeShards(shard);
+            for (String storeFile : storeFiles.asMap().keySet()) {
+                Files.delete(shard.shardPath().resolveIndex().resolve(storeFile));
+            }
+
+            // build a new shard using the same store directory as the closed shard
+            ShardRouting shardRouting = ShardRoutingHelper.initWithSameId(shard.routingEntry(),
+                RecoverySource.ExistingStoreRecoverySource.INSTANCE);
+            shard = newShard(
+                    shardRouting,
+                    shard.shardPath(),
+                    shard.indexSettings().getIndexMetadata(),
+                    null,
+                    null,
+                    new InternalEngineFactory(),
+                    () -> {},
+                    RetentionLeaseSyncer.EMPTY,
+                    EMPTY_EVENT_LISTENER);
+
+            // restore the shard
+            recoverShardFromSnapshot(shard, snapshot, repository);
+
+            // check that the shard is not corrupted and that all files have been restored
+            TestUtil.checkIndex(shard.store().directory());
+            for (StoreFileMetadata storeFile : storeFiles) {
+                assertTrue("File [" + storeFile.name() + "] was not restored",
+                    shard.store().checkIntegrityNoException(storeFile));
+            }
+        } finally {
+            if (shard != null && shard.state() != IndexShardState.CLOSED) {
+                try {
+                    shard.close("test", false);
+                } finally {
+                    IOUtils.close(shard.store());
+                }
+            }
+        }
+    }
+
     /** Create a {@link Repository} with a random name **/
     private Repository createRepository() {
-        Settings settings = Settings.builder().put("location", randomAlphaOfLength(10)).build();
+        return createRepository(createEnvironment(), Settings.EMPTY);
+    }
+
+    /** Create a {@link Repository} with a random name and the given additional settings **/
+    private Repository createRepository(Environment environment, Settings additionalSettings) {
+        Settings settings = Settings.builder().put("location", randomAlphaOfLength(10)).put(additionalSettings).build();
         RepositoryMetadata repositoryMetadata = new RepositoryMetadata(randomAlphaOfLength(10), FsRepository.TYPE, settings);
         final ClusterService clusterService = BlobStoreTestUtil.mockClusterService(repositoryMetadata);
-        final FsRepository repository = new FsRepository(repositoryMetadata, createEnvironment(), xContentRegistry(), clusterService) {
+        final FsRepository repository = new FsRepository(repositoryMetadata, environment, xContentRegistry(), clusterService) {
             @Override
             protected void assertSnapshotOrGenericThread() {
                 // eliminate thread name check as we create repo manually
@@ -0,0 +1,95 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.metrics;
+
+import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class BufferedDoubleValuesTests extends ESTestCase {
+
+    public void testReducesValuesInOrderPerBucket() throws IOException {
+        final Map<Long, List<Double>> expected = new HashMap<>();
+        final Map<Long, List<Double>> reduced = new HashMap<>();
+        final BufferedDoubleValues buffer = new BufferedDoubleValues() {
+            @Override
+            protected void reduce(long bucket, double[] values, int size) {
+                final List<Double> bucketValues = reduced.computeIfAbsent(bucket, b -> new ArrayList<>());
+                for (int i = 0; i < size; i++) {
+                    bucketValues.add(values[i]);
+                }
+            }
+        };
+
+        final int numDocs = randomIntBetween(1, 5000);
+        long bucket = 0;
+        for (int doc = 0; doc < numDocs; doc++) {
+            if (randomInt(20) == 0) {
+                bucket = randomIntBetween(0, 5);
+            }
+            if (randomBoolean()) {
+                final double value = randomDouble();
+                expected.computeIfAbsent(bucket, b -> new ArrayList<>()).add(value);
+                buffer.collect(bucket, value);
+            } else {
+                // occasionally more values than the buffer can hold
+                final double[] values = new double[randomInt(50) == 0 ? BufferedDoubleValues.BUFFER_SIZE * 2 : randomIntBetween(1, 5)];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = randomDouble();
+                    expected.computeIfAbsent(bucket, b -> new ArrayList<>()).add(values[i]);
+                }
+                buffer.collect(bucket, docValues(values));
+            }
+        }
+        buffer.flush();
+        assertEquals(expected, reduced);
+
+        // flushing again does not reduce anything
+        reduced.clear();
+        buffer.flush();
+        assertTrue(reduced.isEmpty());
+    }
+
+    private static SortedNumericDoubleValues docValues(double[] values) {
+        return new SortedNumericDoubleValues() {
+            int next = 0;
+
+            @Override
+            public boolean advanceExact(int target) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public double nextValue() {
+                return values[next++];
+            }
+
+            @Override
+            public int docValueCount() {
+                return values.length;
+            }
+        };
+    }
+}
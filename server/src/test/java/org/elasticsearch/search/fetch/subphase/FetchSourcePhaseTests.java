@@ -79,6 +79,19 @@ public class FetchSourcePhaseTests extends ESTestCase {
         assertEquals(Collections.singletonMap("field","value"), hitContext.hit().getSourceAsMap());
     }
 
+    public void testFilteringKeepsSourceOrder() throws IOException {
+        XContentBuilder source = XContentFactory.jsonBuilder().startObject()
+            .field("field3", "value3")
+            .startObject("object").field("field1", "value1").field("field2", "value2").endObject()
+            .startObject("empty").field("field1", "value1").endObject()
+            .field("field1", "value")
+            .endObject();
+        FetchSubPhase.HitContext hitContext = hitExecuteMultiple(source, true, new String[]{"field*", "object.field2", "empty.other"},
+            null);
+        assertEquals("{\"field3\":\"value3\",\"object\":{\"field2\":\"value2\"},\"field1\":\"value\"}",
+            hitContext.hit().getSourceRef().utf8ToString());
+    }
+
     public void testNestedSource() throws IOException {
         Map<String, Object> expectedNested = Collections.singletonMap("nested2", Collections.singletonMap("field", "value0"));
         XContentBuilder source = XContentFactory.jsonBuilder().startObject()
@@ -23,6 +23,7 @@ import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.FilterDirectoryReader;
@@ -41,6 +42,7 @@ import org.apache.lucene.search.BulkScorer;
 import org.apache.lucene.search.ConstantScoreQuery;
 import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.Explanation;
+import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.LeafCollector;
 import org.apache.lucene.search.MatchAllDocsQuery;
@@ -48,8 +50,11 @@ import org.apache.lucene.search.Query;
 import org.apache.lucene.search.Scorable;
 import org.apache.lucene.search.ScoreMode;
 import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldCollector;
 import org.apache.lucene.search.Weight;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.Accountable;
@@ -62,11 +67,17 @@ import org.apache.lucene.util.SparseFixedBitSet;
 import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.core.internal.io.IOUtils;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.cache.bitset.BitsetFilterCache;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.LeafBucketCollector;
+import org.elasticsearch.search.query.QuerySearchResult;
+import org.elasticsearch.tasks.TaskCancelledException;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.test.IndexSettingsModule;
 
@@ -75,12 +86,15 @@ import java.io.UncheckedIOException;
 import java.util.Collections;
 import java.util.IdentityHashMap;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import static org.elasticsearch.search.internal.ContextIndexSearcher.intersectScorerAndBitSet;
 import static org.elasticsearch.search.internal.ExitableDirectoryReader.ExitableLeafReader;
 import static org.elasticsearch.search.internal.ExitableDirectoryReader.ExitablePointValues;
 import static org.elasticsearch.search.internal.ExitableDirectoryReader.ExitableTerms;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.instanceOf;
 
 public class ContextIndexSearcherTests extends ESTestCase {
@@ -271,6 +285,82 @@ public class ContextIndexSearcherTests extends ESTestCase {
         IOUtils.close(reader, w, dir);
     }
 
+    public void testSliceBounds() {
+        assertArrayEquals(new int[] {0, 1}, ContextIndexSearcher.sliceBounds(1, 8));
+        assertArrayEquals(new int[] {0, 1, 2, 3}, ContextIndexSearcher.sliceBounds(3, 8));
+        assertArrayEquals(new int[] {0, 2, 5}, ContextIndexSearcher.sliceBounds(5, 2));
+        final int numLeaves = randomIntBetween(1, 100);
+        final int maxSlices = randomIntBetween(1, 10);
+        final int[] bounds = ContextIndexSearcher.sliceBounds(numLeaves, maxSlices);
+        assertEquals(Math.min(numLeaves, maxSlices) + 1, bounds.length);
+        assertEquals(0, bounds[0]);
+        assertEquals(numLeaves, bounds[bounds.length - 1]);
+        for (int i = 1; i < bounds.length; i++) {
+            assertThat(bounds[i], greaterThan(bounds[i - 1]));
+        }
+    }
+
+    public void testConcurrentSearchWithCollectorManager() throws Exception {
+        Directory dir = newDirectory();
+        IndexWriter w = new IndexWriter(dir, newIndexWriterConfig(null).setMergePolicy(NoMergePolicy.INSTANCE));
+        final int numSegments = randomIntBetween(2, 20);
+        for (int i = 0; i < numSegments; i++) {
+            final int numDocs = randomIntBetween(1, 50);
+            for (int j = 0; j < numDocs; j++) {
+                Document doc = new Document();
+                doc.add(new NumericDocValuesField("value", randomLongBetween(0, 1000)));
+                w.addDocument(doc);
+            }
+            w.commit();
+        }
+        DirectoryReader reader = DirectoryReader.open(w);
+        ExecutorService executor = EsExecutors.newFixed("test", randomIntBetween(1, 4), -1,
+            EsExecutors.daemonThreadFactory("test"), new ThreadContext(Settings.EMPTY), false);
+        try {
+            Sort sort = new Sort(new SortField("value", SortField.Type.LONG));
+            DocValueFormat[] formats = new DocValueFormat[] { DocValueFormat.RAW };
+            int numHits = randomIntBetween(1, 100);
+
+            ContextIndexSearcher sequential = new ContextIndexSearcher(reader, IndexSearcher.getDefaultSimilarity(),
+                IndexSearcher.getDefaultQueryCache(), IndexSearcher.getDefaultQueryCachingPolicy(), false);
+            QuerySearchResult sequentialResult = new QuerySearchResult();
+            sequential.search(reader.leaves(), sequential.createWeight(new MatchAllDocsQuery(), ScoreMode.TOP_SCORES, 1f),
+                TopFieldCollector.createSharedManager(sort, numHits, null, Integer.MAX_VALUE), sequentialResult, formats, null);
+
+            ContextIndexSearcher concurrent = new ContextIndexSearcher(reader, IndexSearcher.getDefaultSimilarity(),
+                IndexSearcher.getDefaultQueryCache(), IndexSearcher.getDefaultQueryCachingPolicy(), false, executor);
+            Set<Thread> searchThreads = ConcurrentCollections.newConcurrentSet();
+            Runnable recordSearchThread = concurrent.addQueryCancellation(() -> searchThreads.add(Thread.currentThread()));
+            QuerySearchResult concurrentResult = new QuerySearchResult();
+            concurrent.search(reader.leaves(), concurrent.createWeight(new MatchAllDocsQuery(), ScoreMode.TOP_SCORES, 1f),
+                TopFieldCollector.createSharedManager(sort, numHits, null, Integer.MAX_VALUE), concurrentResult, formats, null);
+            concurrent.removeQueryCancellation(recordSearchThread);
+            // the first slice is searched by the calling thread, the other ones on the executor
+            assertThat(searchThreads, hasItem(Thread.currentThread()));
+            assertThat(searchThreads.size(), greaterThan(1));
+
+            TopDocs expected = sequentialResult.topDocs().topDocs;
+            TopDocs actual = concurrentResult.topDocs().topDocs;
+            assertEquals(expected.totalHits, actual.totalHits);
+            assertEquals(expected.scoreDocs.length, actual.scoreDocs.length);
+            for (int i = 0; i < expected.scoreDocs.length; i++) {
+                assertEquals(expected.scoreDocs[i].doc, actual.scoreDocs[i].doc);
+                assertArrayEquals(((FieldDoc) expected.scoreDocs[i]).fields, ((FieldDoc) actual.scoreDocs[i]).fields);
+            }
+
+            // failures on a slice are propagated to the caller
+            concurrent.addQueryCancellation(() -> {
+                throw new TaskCancelledException("cancelled");
+            });
+            expectThrows(TaskCancelledException.class, () -> concurrent.search(reader.leaves(),
+                concurrent.createWeight(new MatchAllDocsQuery(), ScoreMode.TOP_SCORES, 1f),
+                TopFieldCollector.createSharedManager(sort, numHits, null, Integer.MAX_VALUE), new QuerySearchResult(), formats, null));
+        } finally {
+            terminate(executor);
+            IOUtils.close(reader, w, dir);
+        }
+    }
+
     private SparseFixedBitSet query(LeafReaderContext leaf, String field, String value) throws IOException {
         SparseFixedBitSet sparseFixedBitSet = new SparseFixedBitSet(leaf.reader().maxDoc());
         TermsEnum tenum = leaf.reader().terms(field).iterator();
@@ -61,6 +61,7 @@ import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldDocs;
 import org.apache.lucene.search.TotalHitCountCollector;
 import org.apache.lucene.search.TotalHits;
 import org.apache.lucene.search.Weight;
@@ -77,6 +78,16 @@ import org.apache.lucene.util.FixedBitSet;
 import org.apache.lucene.util.bkd.BKDReader;
 import org.apache.lucene.util.bkd.BKDWriter;
 import org.elasticsearch.action.search.SearchShardTask;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
+import org.elasticsearch.common.lucene.search.TopDocsAndMaxScore;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.fielddata.IndexFieldDataCache;
 import org.elasticsearch.index.mapper.DateFieldMapper;
 import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.index.mapper.MapperService;
@@ -86,10 +97,29 @@ import org.elasticsearch.index.query.QueryShardContext;
 import org.elasticsearch.index.search.ESToParentBlockJoinQuery;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.IndexShardTestCase;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+import org.elasticsearch.script.Script;
 import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.SearchModule;
+import org.elasticsearch.search.SearchService;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.MultiBucketConsumerService;
+import org.elasticsearch.search.aggregations.MultiBucketConsumerService.MultiBucketConsumer;
+import org.elasticsearch.search.aggregations.SearchContextAggregations;
+import org.elasticsearch.search.aggregations.bucket.histogram.HistogramAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.AvgAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.MaxAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.MinAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.ValueCountAggregationBuilder;
+import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.internal.ContextIndexSearcher;
 import org.elasticsearch.search.internal.ScrollContext;
 import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.search.internal.ShardSearchRequest;
 import org.elasticsearch.search.sort.SortAndFormats;
 import org.elasticsearch.tasks.TaskCancelledException;
 import org.elasticsearch.test.TestSearchContext;
@@ -97,12 +127,18 @@ import org.elasticsearch.test.TestSearchContext;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.elasticsearch.search.query.QueryPhase.pointsHaveDuplicateData;
 import static org.elasticsearch.search.query.TopDocsCollectorContext.hasInfMaxScore;
 import static org.hamcrest.Matchers.anyOf;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
@@ -931,6 +967,78 @@ public class QueryPhaseTests extends IndexShardTestCase {
         dir.close();
     }
 
+    public void testTopScoreDocsSearchedConcurrently() throws Exception {
+        Directory dir = newDirectory();
+        IndexWriterConfig iwc = newIndexWriterConfig(new StandardAnalyzer()).setMergePolicy(NoMergePolicy.INSTANCE);
+        IndexWriter w = new IndexWriter(dir, iwc);
+        final int numSegments = randomIntBetween(2, 10);
+        for (int i = 0; i < numSegments; i++) {
+            final int numDocs = randomIntBetween(1, 50);
+            for (int j = 0; j < numDocs; j++) {
+                Document doc = new Document();
+                doc.add(new TextField("title", String.join(" ", Collections.nCopies(randomIntBetween(1, 5), "foo"))
+                    + (randomBoolean() ? " bar" : ""), Store.NO));
+                w.addDocument(doc);
+            }
+            w.commit();
+        }
+        w.close();
+
+        IndexReader reader = DirectoryReader.open(dir);
+        ExecutorService executor = EsExecutors.newFixed("test", randomIntBetween(1, 4), -1,
+            EsExecutors.daemonThreadFactory("test"), new ThreadContext(Settings.EMPTY), false);
+        try {
+            final Query query = new BooleanQuery.Builder()
+                .add(new TermQuery(new Term("title", "foo")), Occur.SHOULD)
+                .add(new TermQuery(new Term("title", "bar")), Occur.SHOULD)
+                .build();
+            final int from = randomIntBetween(0, 10);
+            final int size = randomIntBetween(1, 50);
+
+            TestSearchContext sequentialContext = new TestSearchContext(null, indexShard, newContextSearcher(reader));
+            sequentialContext.parsedQuery(new ParsedQuery(query));
+            sequentialContext.setTask(new SearchShardTask(123L, "", "", "", null, Collections.emptyMap()));
+            sequentialContext.from(from);
+            sequentialContext.setSize(size);
+            sequentialContext.trackTotalHitsUpTo(SearchContext.TRACK_TOTAL_HITS_ACCURATE);
+            assertFalse(QueryPhase.canSearchTopScoreDocsConcurrently(sequentialContext, Collections.emptyList()));
+            QueryPhase.executeInternal(sequentialContext);
+
+            ContextIndexSearcher concurrentSearcher = new ContextIndexSearcher(reader, IndexSearcher.getDefaultSimilarity(),
+                IndexSearcher.getDefaultQueryCache(), IndexSearcher.getDefaultQueryCachingPolicy(), true, executor);
+            TestSearchContext concurrentContext = new TestSearchContext(null, indexShard, concurrentSearcher);
+            concurrentContext.parsedQuery(new ParsedQuery(query));
+            concurrentContext.setTask(new SearchShardTask(123L, "", "", "", null, Collections.emptyMap()));
+            concurrentContext.from(from);
+            concurrentContext.setSize(size);
+            concurrentContext.trackTotalHitsUpTo(SearchContext.TRACK_TOTAL_HITS_ACCURATE);
+            assertTrue(QueryPhase.canSearchTopScoreDocsConcurrently(concurrentContext, Collections.emptyList()));
+            Set<Thread> searchThreads = ConcurrentCollections.newConcurrentSet();
+            Runnable recordSearchThread = concurrentSearcher.addQueryCancellation(() -> searchThreads.add(Thread.currentThread()));
+            QueryPhase.executeInternal(concurrentContext);
+            concurrentSearcher.removeQueryCancellation(recordSearchThread);
+            assertThat(searchThreads.size(), greaterThan(1));
+
+            TopDocsAndMaxScore expected = sequentialContext.queryResult().topDocs();
+            TopDocsAndMaxScore actual = concurrentContext.queryResult().topDocs();
+            assertEquals(expected.topDocs.totalHits, actual.topDocs.totalHits);
+            assertEquals(expected.maxScore, actual.maxScore, 0f);
+            assertEquals(expected.topDocs.scoreDocs.length, actual.topDocs.scoreDocs.length);
+            for (int i = 0; i < expected.topDocs.scoreDocs.length; i++) {
+                assertEquals(expected.topDocs.scoreDocs[i].doc, actual.topDocs.scoreDocs[i].doc);
+                assertEquals(expected.topDocs.scoreDocs[i].score, actual.topDocs.scoreDocs[i].score, 0f);
+            }
+
+            // aggregations and other collectors keep the sequential path
+            assertFalse(QueryPhase.canSearchTopScoreDocsConcurrently(concurrentContext,
+                Collections.singletonList(QueryCollectorContext.createMinScoreCollectorContext(0.01f))));
+        } finally {
+            terminate(executor);
+            reader.close();
+            dir.close();
+        }
+    }
+
     public void testCancellationDuringPreprocess() throws IOException {
         try (Directory dir = newDirectory();
              RandomIndexWriter w = new RandomIndexWriter(random(), dir, newIndexWriterConfig())) {
@@ -980,6 +1088,212 @@ public class QueryPhaseTests extends IndexShardTestCase {
         }
     }
 
+    public void testExecuteBySegmentMatchesShardResult() throws Exception {
+        final String fieldName = "number";
+        final MappedFieldType fieldType = new NumberFieldMapper.NumberFieldType(fieldName, NumberFieldMapper.NumberType.LONG);
+        final MapperService mapperService = mock(MapperService.class);
+        when(mapperService.fieldType(fieldName)).thenReturn(fieldType);
+        try (Directory dir = newDirectory()) {
+            final IndexWriterConfig iwc = newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE);
+            try (RandomIndexWriter w = new RandomIndexWriter(random(), dir, iwc)) {
+                final int numDocs = scaledRandomIntBetween(100, 2000);
+                for (int i = 0; i < numDocs; i++) {
+                    Document doc = new Document();
+                    // some documents are missing the field
+                    if (rarely() == false) {
+                        final long value = randomLongBetween(0, 1000);
+                        doc.add(new LongPoint(fieldName, value));
+                        doc.add(new NumericDocValuesField(fieldName, value));
+                    }
+                    w.addDocument(doc);
+                    if (rarely()) {
+                        w.flush();
+                    }
+                }
+            }
+            try (IndexReader reader = DirectoryReader.open(dir)) {
+                // a range query cannot be counted from the index statistics, so the whole shard search has to count the hits
+                final Query query = LongPoint.newRangeQuery(fieldName, randomLongBetween(0, 500), randomLongBetween(500, 1000));
+                final int trackTotalHitsUpTo = randomFrom(SearchContext.TRACK_TOTAL_HITS_ACCURATE, SearchContext.TRACK_TOTAL_HITS_DISABLED,
+                    SearchContext.DEFAULT_TRACK_TOTAL_HITS_UP_TO, randomIntBetween(0, 200));
+                final SortAndFormats sort = randomBoolean() ? null
+                    : new SortAndFormats(new Sort(new SortField(fieldName, SortField.Type.LONG)), new DocValueFormat[]{DocValueFormat.RAW});
+
+                final TestSearchContext shardContext =
+                    createAggregationContext(reader, mapperService, query, trackTotalHitsUpTo, sort);
+                new QueryPhase().execute(shardContext);
+                final QuerySearchResult shardResult = shardContext.queryResult();
+
+                final TestSearchContext segmentContext =
+                    createAggregationContext(reader, mapperService, query, trackTotalHitsUpTo, sort);
+                assertTrue(QueryPhase.canExecuteBySegment(segmentContext));
+                final Map<Object, QueryPhase.SegmentResult> cache = new HashMap<>();
+                final QueryPhase.SegmentResultCache segmentCache = (leaf, loader) -> {
+                    QueryPhase.SegmentResult result = cache.get(leaf.reader().getCoreCacheHelper().getKey());
+                    if (result == null) {
+                        result = loader.get();
+                        cache.put(leaf.reader().getCoreCacheHelper().getKey(), result);
+                    }
+                    return result;
+                };
+                new QueryPhase().executeBySegment(segmentContext, segmentCache, partialReduceContext());
+                assertSameResult(shardResult, segmentContext.queryResult());
+
+                // the second execution loads the results of all segments from the cache
+                final TestSearchContext cachedContext =
+                    createAggregationContext(reader, mapperService, query, trackTotalHitsUpTo, sort);
+                new QueryPhase().executeBySegment(cachedContext, (leaf, loader) -> {
+                    final QueryPhase.SegmentResult result = cache.get(leaf.reader().getCoreCacheHelper().getKey());
+                    assertNotNull(result);
+                    return result;
+                }, partialReduceContext());
+                assertSameResult(shardResult, cachedContext.queryResult());
+
+                // terminate_after can stop the collection before all segments are searched, so it is not executed by segment
+                final TestSearchContext terminateAfterContext =
+                    createAggregationContext(reader, mapperService, query, trackTotalHitsUpTo, sort);
+                terminateAfterContext.terminateAfter(randomIntBetween(1, 100));
+                assertFalse(QueryPhase.canExecuteBySegment(terminateAfterContext));
+            }
+        }
+    }
+
+    public void testExecuteBySegmentRemovesQueryCancellation() throws Exception {
+        final String fieldName = "number";
+        final MappedFieldType fieldType = new NumberFieldMapper.NumberFieldType(fieldName, NumberFieldMapper.NumberType.LONG);
+        final MapperService mapperService = mock(MapperService.class);
+        when(mapperService.fieldType(fieldName)).thenReturn(fieldType);
+        try (Directory dir = newDirectory()) {
+            try (RandomIndexWriter w = new RandomIndexWriter(random(), dir, newIndexWriterConfig())) {
+                for (int i = 0; i < 10; i++) {
+                    Document doc = new Document();
+                    doc.add(new NumericDocValuesField(fieldName, i));
+                    w.addDocument(doc);
+                }
+            }
+            try (IndexReader reader = DirectoryReader.open(dir)) {
+                final TestSearchContext context = createAggregationContext(reader, mapperService, new MatchAllDocsQuery(),
+                    SearchContext.TRACK_TOTAL_HITS_ACCURATE, null);
+                when(context.lowLevelCancellation()).thenReturn(true);
+                final AtomicBoolean cancelled = new AtomicBoolean();
+                final SearchShardTask task = mock(SearchShardTask.class);
+                when(task.isCancelled()).thenAnswer(invocation -> cancelled.get());
+                context.setTask(task);
+                new QueryPhase().executeBySegment(context, (leaf, loader) -> loader.get(), partialReduceContext());
+                assertEquals(10, context.queryResult().topDocs().topDocs.totalHits.value);
+
+                // the searcher can be used after the phase ends without checking the task of the phase
+                cancelled.set(true);
+                final TotalHitCountCollector collector = new TotalHitCountCollector();
+                context.searcher().search(new MatchAllDocsQuery(), collector);
+                assertEquals(10, collector.getTotalHits());
+            }
+        }
+    }
+
+    public void testExecuteBySegmentRejectsAggregationsThatNeedScores() throws Exception {
+        final String fieldName = "number";
+        final MappedFieldType fieldType = new NumberFieldMapper.NumberFieldType(fieldName, NumberFieldMapper.NumberType.LONG);
+        final MapperService mapperService = mock(MapperService.class);
+        when(mapperService.fieldType(fieldName)).thenReturn(fieldType);
+        try (Directory dir = newDirectory()) {
+            try (RandomIndexWriter w = new RandomIndexWriter(random(), dir, newIndexWriterConfig())) {
+                for (int i = 0; i < 10; i++) {
+                    Document doc = new Document();
+                    doc.add(new NumericDocValuesField(fieldName, i));
+                    w.addDocument(doc);
+                }
+            }
+            try (IndexReader reader = DirectoryReader.open(dir)) {
+                final TestSearchContext context = createAggregationContext(reader, mapperService, new MatchAllDocsQuery(),
+                    SearchContext.TRACK_TOTAL_HITS_ACCURATE, null);
+                assertTrue(QueryPhase.canExecuteBySegment(context));
+
+                // a script can use the score of the documents, which depends on the other segments of the shard
+                final SearchSourceBuilder scriptSource = new SearchSourceBuilder().size(0)
+                    .aggregation(new HistogramAggregationBuilder("histogram").field(fieldName).interval(100)
+                        .subAggregation(new AvgAggregationBuilder("avg").script(new Script("_score"))));
+                final ShardSearchRequest scriptRequest = mock(ShardSearchRequest.class);
+                when(scriptRequest.source()).thenReturn(scriptSource);
+                when(context.request()).thenReturn(scriptRequest);
+                assertFalse(QueryPhase.canExecuteBySegment(context));
+
+                // so are the aggregators that need scores
+                final ShardSearchRequest request = mock(ShardSearchRequest.class);
+                when(request.source()).thenReturn(new SearchSourceBuilder().size(0).aggregation(new MaxAggregationBuilder("max")));
+                when(context.request()).thenReturn(request);
+                final Aggregator aggregator = mock(Aggregator.class);
+                when(aggregator.scoreMode()).thenReturn(org.apache.lucene.search.ScoreMode.COMPLETE);
+                final AggregatorFactories factories = mock(AggregatorFactories.class);
+                when(factories.createTopLevelAggregators(context)).thenReturn(new Aggregator[] { aggregator });
+                context.aggregations(new SearchContextAggregations(factories, new MultiBucketConsumer(
+                    MultiBucketConsumerService.DEFAULT_MAX_BUCKETS, new NoopCircuitBreaker(CircuitBreaker.REQUEST))));
+                assertFalse(QueryPhase.canExecuteBySegment(context));
+            }
+        }
+    }
+
+    private TestSearchContext createAggregationContext(IndexReader reader, MapperService mapperService, Query query,
+                                                       int trackTotalHitsUpTo, SortAndFormats sort) throws IOException {
+        final String fieldName = "number";
+        final AggregatorFactories.Builder aggregations = new AggregatorFactories.Builder()
+            .addAggregator(new MaxAggregationBuilder("max").field(fieldName))
+            .addAggregator(new MinAggregationBuilder("min").field(fieldName))
+            .addAggregator(new ValueCountAggregationBuilder("count").field(fieldName))
+            .addAggregator(new HistogramAggregationBuilder("histogram").field(fieldName).interval(100)
+                .subAggregation(new MaxAggregationBuilder("histogram_max").field(fieldName)));
+        final ContextIndexSearcher searcher = newContextSearcher(reader);
+        final IndexSettings indexSettings = indexShard.indexSettings();
+        final QueryShardContext queryShardContext = new QueryShardContext(0, indexSettings, BigArrays.NON_RECYCLING_INSTANCE, null,
+            (ft, index) -> ft.fielddataBuilder(index)
+                .build(indexSettings, ft, new IndexFieldDataCache.None(), new NoneCircuitBreakerService(), mapperService),
+            mapperService, null, null, xContentRegistry(), writableRegistry(), null, searcher, System::currentTimeMillis, null, null,
+            () -> true, new SearchModule(Settings.EMPTY, Collections.emptyList()).getValuesSourceRegistry());
+
+        final TestSearchContext context = spy(new TestSearchContext(queryShardContext, indexShard, searcher));
+        when(context.mapperService()).thenReturn(mapperService);
+        when(context.bigArrays()).thenReturn(BigArrays.NON_RECYCLING_INSTANCE);
+        when(context.timeout()).thenReturn(SearchService.NO_TIMEOUT);
+        final SearchSourceBuilder source = new SearchSourceBuilder().size(0);
+        aggregations.getAggregatorFactories().forEach(source::aggregation);
+        final ShardSearchRequest request = mock(ShardSearchRequest.class);
+        when(request.source()).thenReturn(source);
+        when(context.request()).thenReturn(request);
+        context.parsedQuery(new ParsedQuery(query));
+        context.setSize(0);
+        context.trackTotalHitsUpTo(trackTotalHitsUpTo);
+        context.sort(sort);
+        context.setTask(new SearchShardTask(123L, "", "", "", null, Collections.emptyMap()));
+        context.aggregations(new SearchContextAggregations(aggregations.build(queryShardContext, null),
+            new MultiBucketConsumer(MultiBucketConsumerService.DEFAULT_MAX_BUCKETS, new NoopCircuitBreaker(CircuitBreaker.REQUEST))));
+        return context;
+    }
+
+    private static InternalAggregation.ReduceContext partialReduceContext() {
+        return InternalAggregation.ReduceContext.forPartialReduction(BigArrays.NON_RECYCLING_INSTANCE, null,
+            () -> PipelineAggregator.PipelineTree.EMPTY);
+    }
+
+    private static void assertSameResult(QuerySearchResult expected, QuerySearchResult actual) {
+        final TopDocs expectedTopDocs = expected.topDocs().topDocs;
+        final TopDocs actualTopDocs = actual.topDocs().topDocs;
+        assertEquals(expectedTopDocs.totalHits.relation, actualTopDocs.totalHits.relation);
+        assertEquals(expectedTopDocs.totalHits.value, actualTopDocs.totalHits.value);
+        assertEquals(0, actualTopDocs.scoreDocs.length);
+        assertEquals(expectedTopDocs instanceof TopFieldDocs, actualTopDocs instanceof TopFieldDocs);
+        if (expectedTopDocs instanceof TopFieldDocs) {
+            assertArrayEquals(((TopFieldDocs) expectedTopDocs).fields, ((TopFieldDocs) actualTopDocs).fields);
+        }
+        // the coordinating node reduces the shard results once more, the final results must be the same
+        final InternalAggregation.ReduceContext finalReduceContext = InternalAggregation.ReduceContext.forFinalReduction(
+            BigArrays.NON_RECYCLING_INSTANCE, null, b -> {}, PipelineAggregator.PipelineTree.EMPTY);
+        final InternalAggregations expectedAggregations =
+            InternalAggregations.topLevelReduce(List.of(expected.aggregations().expand()), finalReduceContext);
+        final InternalAggregations actualAggregations =
+            InternalAggregations.topLevelReduce(List.of(actual.aggregations().expand()), finalReduceContext);
+        assertEquals(expectedAggregations.asMap(), actualAggregations.asMap());
+    }
+
     private static ContextIndexSearcher newContextSearcher(IndexReader reader) throws IOException {
         return new ContextIndexSearcher(reader, IndexSearcher.getDefaultSimilarity(),
             IndexSearcher.getDefaultQueryCache(), IndexSearcher.getDefaultQueryCachingPolicy(), true);
@@ -0,0 +1,97 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.query;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.FixedBitSet;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class SkipSegmentsQueryTests extends ESTestCase {
+
+    public void testSkipSegments() throws IOException {
+        try (Directory dir = newDirectory()) {
+            IndexWriterConfig iwc = newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE);
+            try (IndexWriter w = new IndexWriter(dir, iwc)) {
+                int numSegments = randomIntBetween(2, 5);
+                for (int i = 0; i < numSegments; i++) {
+                    int numDocs = randomIntBetween(1, 20);
+                    for (int j = 0; j < numDocs; j++) {
+                        Document doc = new Document();
+                        doc.add(new StringField("field", randomBoolean() ? "a" : "b", Field.Store.NO));
+                        w.addDocument(doc);
+                    }
+                    w.flush();
+                }
+            }
+            try (IndexReader reader = DirectoryReader.open(dir)) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                FixedBitSet skippedLeaves = new FixedBitSet(reader.leaves().size());
+                for (LeafReaderContext leaf : reader.leaves()) {
+                    if (randomBoolean()) {
+                        skippedLeaves.set(leaf.ord);
+                    }
+                }
+                for (Query query : new Query[] { new MatchAllDocsQuery(), new TermQuery(new Term("field", "a")) }) {
+                    int expectedCount = 0;
+                    for (LeafReaderContext leaf : reader.leaves()) {
+                        if (skippedLeaves.get(leaf.ord) == false) {
+                            expectedCount += new IndexSearcher(leaf.reader()).count(query);
+                        }
+                    }
+                    SkipSegmentsQuery skipSegmentsQuery = new SkipSegmentsQuery(query, skippedLeaves);
+                    assertThat(searcher.count(skipSegmentsQuery), equalTo(expectedCount));
+                    assertThat(searcher.search(skipSegmentsQuery, reader.maxDoc()).scoreDocs.length, equalTo(expectedCount));
+                }
+            }
+        }
+    }
+
+    public void testEqualsAndHashCode() {
+        FixedBitSet skippedLeaves = new FixedBitSet(3);
+        skippedLeaves.set(1);
+        Query query = new TermQuery(new Term("field", "a"));
+        SkipSegmentsQuery first = new SkipSegmentsQuery(query, skippedLeaves);
+        SkipSegmentsQuery second = new SkipSegmentsQuery(new TermQuery(new Term("field", "a")), skippedLeaves.clone());
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+
+        FixedBitSet otherSkippedLeaves = skippedLeaves.clone();
+        otherSkippedLeaves.set(2);
+        assertNotEquals(first, new SkipSegmentsQuery(query, otherSkippedLeaves));
+        assertNotEquals(first, new SkipSegmentsQuery(new TermQuery(new Term("field", "b")), skippedLeaves));
+    }
+}
@@ -29,6 +29,7 @@ import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.bytes.ReleasableBytesReference;
 import org.elasticsearch.common.collect.Tuple;
+import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.io.Streams;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.transport.TransportAddress;
@@ -71,7 +72,8 @@ public class OutboundHandlerTests extends ESTestCase {
         TransportAddress transportAddress = buildNewFakeTransportAddress();
         node = new DiscoveryNode("", transportAddress, Version.CURRENT);
         StatsTracker statsTracker = new StatsTracker();
-        handler = new OutboundHandler("node", Version.CURRENT, statsTracker, threadPool, BigArrays.NON_RECYCLING_INSTANCE);
+        handler = new OutboundHandler("node", Version.CURRENT, statsTracker, threadPool, BigArrays.NON_RECYCLING_INSTANCE,
+            randomFrom(CompressorFactory.DEFLATE, CompressorFactory.LZ4));
 
         final LongSupplier millisSupplier = () -> TimeValue.nsecToMSec(System.nanoTime());
         final InboundDecoder decoder = new InboundDecoder(Version.CURRENT, PageCacheRecycler.NON_RECYCLING_INSTANCE);
@@ -242,6 +244,54 @@ public class OutboundHandlerTests extends ESTestCase {
         assertEquals("header_value", header.getHeaders().v1().get("header"));
     }
 
+    public void testPassThroughResponseIsReleasedOnlyOnceSerialized() throws IOException {
+        final AtomicReference<OutboundHandler.SendContext> pendingSend = new AtomicReference<>();
+        final FakeTcpChannel unwritableChannel = new FakeTcpChannel(randomBoolean(), buildNewFakeTransportAddress().address(),
+            buildNewFakeTransportAddress().address()) {
+            @Override
+            public void sendMessage(OutboundHandler.SendContext sendContext) {
+                // the channel is not writable so the message is queued and only serialized once the channel is flushed
+                pendingSend.set(sendContext);
+            }
+        };
+        final String value = randomAlphaOfLength(10);
+        final BytesReference serializedResponse;
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            new TestResponse(value).writeTo(out);
+            serializedResponse = out.bytes();
+        }
+        final AtomicBoolean released = new AtomicBoolean();
+        final ReleasableBytesReference bytes = new ReleasableBytesReference(serializedResponse, () -> {
+            assertTrue("bytes released twice", released.compareAndSet(false, true));
+        });
+        final long requestId = randomLongBetween(0, 300);
+        handler.sendResponse(Version.CURRENT, unwritableChannel, requestId, "action",
+            new TransportActionProxy.PassThroughResponse(bytes), false, false);
+
+        final OutboundHandler.SendContext sendContext = pendingSend.get();
+        assertNotNull(sendContext);
+        assertFalse(released.get());
+        assertEquals(1, bytes.refCount());
+
+        if (randomBoolean()) {
+            final BytesReference reference = sendContext.get();
+            assertTrue(released.get());
+            sendContext.onResponse(null);
+
+            pipeline.handleBytes(unwritableChannel, new ReleasableBytesReference(reference, () -> {
+            }));
+            final Tuple<Header, BytesReference> tuple = message.get();
+            assertEquals(requestId, tuple.v1().getRequestId());
+            assertTrue(tuple.v1().isResponse());
+            assertEquals(value, new TestResponse(tuple.v2().streamInput()).value);
+        } else {
+            // the channel is closed before the message is ever serialized
+            sendContext.onFailure(new IOException("channel closed"));
+            assertTrue(released.get());
+        }
+        assertEquals(0, bytes.refCount());
+    }
+
     public void testErrorResponse() throws IOException {
         ThreadContext threadContext = threadPool.getThreadContext();
         Version version = randomFrom(Version.CURRENT, Version.CURRENT.minimumCompatibilityVersion());
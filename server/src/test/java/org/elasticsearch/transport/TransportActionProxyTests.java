@@ -201,6 +201,56 @@ public class TransportActionProxyTests extends ESTestCase {
         latch.await();
     }
 
+    public void testSendMessagePassesThroughResponseBytes() throws InterruptedException {
+        serviceC.registerRequestHandler("internal:test", ThreadPool.Names.SAME, SimpleTestRequest::new,
+            (request, channel, task) -> {
+                assertEquals(request.sourceNode, "TS_C");
+                SimpleTestResponse response = new SimpleTestResponse("TS_C");
+                channel.sendResponse(response);
+            });
+        // B and C run on the same version so the proxy must forward the response without deserializing it
+        serviceB.registerRequestHandler("internal:test", ThreadPool.Names.SAME, SimpleTestRequest::new,
+            (request, channel, task) -> fail("request should have been proxied"));
+        TransportActionProxy.registerProxyAction(serviceB, "internal:test", in -> {
+            throw new AssertionError("response should have been passed through");
+        });
+        AbstractSimpleTransportTestCase.connectToNode(serviceB, nodeC);
+        AbstractSimpleTransportTestCase.connectToNode(serviceC, nodeB);
+
+        CountDownLatch latch = new CountDownLatch(1);
+        serviceC.sendRequest(nodeB, TransportActionProxy.getProxyAction("internal:test"), TransportActionProxy.wrapRequest(nodeC,
+            new SimpleTestRequest("TS_C")), new TransportResponseHandler<SimpleTestResponse>() {
+                @Override
+                public SimpleTestResponse read(StreamInput in) throws IOException {
+                    return new SimpleTestResponse(in);
+                }
+
+                @Override
+                public void handleResponse(SimpleTestResponse response) {
+                    try {
+                        assertEquals("TS_C", response.targetNode);
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+
+                @Override
+                public void handleException(TransportException exp) {
+                    try {
+                        throw new AssertionError(exp);
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+
+                @Override
+                public String executor() {
+                    return ThreadPool.Names.SAME;
+                }
+            });
+        latch.await();
+    }
+
     public static class SimpleTestRequest extends TransportRequest {
         String sourceNode;
 
@@ -19,9 +19,11 @@
 
 package org.elasticsearch.transport;
 
+import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.bytes.CompositeBytesReference;
 import org.elasticsearch.common.bytes.ReleasableBytesReference;
+import org.elasticsearch.common.compress.Compressor;
 import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.io.Streams;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
@@ -33,18 +35,24 @@ import org.elasticsearch.test.ESTestCase;
 
 import java.io.IOException;
 
+import static org.hamcrest.Matchers.instanceOf;
+
 public class TransportDecompressorTests extends ESTestCase {
 
+    private static Compressor randomCompressor() {
+        return randomFrom(CompressorFactory.DEFLATE, CompressorFactory.LZ4);
+    }
+
     public void testSimpleCompression() throws IOException {
         try (BytesStreamOutput output = new BytesStreamOutput()) {
-            StreamOutput deflateStream = CompressorFactory.COMPRESSOR.streamOutput(Streams.flushOnCloseStream(output));
+            StreamOutput deflateStream = randomCompressor().streamOutput(Streams.flushOnCloseStream(output));
             byte randomByte = randomByte();
             deflateStream.write(randomByte);
             deflateStream.close();
 
             BytesReference bytes = output.bytes();
 
-            TransportDecompressor decompressor = new TransportDecompressor(PageCacheRecycler.NON_RECYCLING_INSTANCE);
+            TransportDecompressor decompressor = TransportDecompressor.getDecompressor(PageCacheRecycler.NON_RECYCLING_INSTANCE, bytes);
             int bytesConsumed = decompressor.decompress(bytes);
             assertEquals(bytes.length(), bytesConsumed);
             assertTrue(decompressor.isEOS());
@@ -57,7 +65,7 @@ public class TransportDecompressorTests extends ESTestCase {
 
     public void testMultiPageCompression() throws IOException {
         try (BytesStreamOutput output = new BytesStreamOutput()) {
-            StreamOutput deflateStream = CompressorFactory.COMPRESSOR.streamOutput(Streams.flushOnCloseStream(output));
+            StreamOutput deflateStream = randomCompressor().streamOutput(Streams.flushOnCloseStream(output));
             for (int i = 0; i < 10000; ++i) {
                 deflateStream.writeInt(i);
             }
@@ -65,7 +73,7 @@ public class TransportDecompressorTests extends ESTestCase {
 
             BytesReference bytes = output.bytes();
 
-            TransportDecompressor decompressor = new TransportDecompressor(PageCacheRecycler.NON_RECYCLING_INSTANCE);
+            TransportDecompressor decompressor = TransportDecompressor.getDecompressor(PageCacheRecycler.NON_RECYCLING_INSTANCE, bytes);
             int bytesConsumed = decompressor.decompress(bytes);
             assertEquals(bytes.length(), bytesConsumed);
             assertTrue(decompressor.isEOS());
@@ -85,7 +93,7 @@ public class TransportDecompressorTests extends ESTestCase {
 
     public void testIncrementalMultiPageCompression() throws IOException {
         try (BytesStreamOutput output = new BytesStreamOutput()) {
-            StreamOutput deflateStream = CompressorFactory.COMPRESSOR.streamOutput(Streams.flushOnCloseStream(output));
+            StreamOutput deflateStream = randomCompressor().streamOutput(Streams.flushOnCloseStream(output));
             for (int i = 0; i < 10000; ++i) {
                 deflateStream.writeInt(i);
             }
@@ -93,7 +101,7 @@ public class TransportDecompressorTests extends ESTestCase {
 
             BytesReference bytes = output.bytes();
 
-            TransportDecompressor decompressor = new TransportDecompressor(PageCacheRecycler.NON_RECYCLING_INSTANCE);
+            TransportDecompressor decompressor = TransportDecompressor.getDecompressor(PageCacheRecycler.NON_RECYCLING_INSTANCE, bytes);
 
             int split1 = (int) (bytes.length() * 0.3);
             int split2 = (int) (bytes.length() * 0.65);
@@ -125,4 +133,57 @@ public class TransportDecompressorTests extends ESTestCase {
         }
     }
 
+    public void testDetectsCompressionScheme() throws IOException {
+        for (Compressor compressor : new Compressor[] { CompressorFactory.DEFLATE, CompressorFactory.LZ4 }) {
+            try (BytesStreamOutput output = new BytesStreamOutput()) {
+                StreamOutput compressedStream = compressor.streamOutput(Streams.flushOnCloseStream(output));
+                compressedStream.writeInt(randomInt());
+                compressedStream.close();
+                try (TransportDecompressor decompressor =
+                         TransportDecompressor.getDecompressor(PageCacheRecycler.NON_RECYCLING_INSTANCE, output.bytes())) {
+                    if (compressor == CompressorFactory.DEFLATE) {
+                        assertThat(decompressor, instanceOf(DeflateTransportDecompressor.class));
+                    } else {
+                        assertThat(decompressor, instanceOf(LZ4TransportDecompressor.class));
+                    }
+                }
+            }
+        }
+        expectThrows(IllegalStateException.class,
+            () -> TransportDecompressor.getDecompressor(PageCacheRecycler.NON_RECYCLING_INSTANCE, new BytesArray("junk")));
+    }
+
+    public void testLZ4IncrementalDecompressionByteByByte() throws IOException {
+        try (BytesStreamOutput output = new BytesStreamOutput()) {
+            StreamOutput lz4Stream = CompressorFactory.LZ4.streamOutput(Streams.flushOnCloseStream(output));
+            final int numInts = randomIntBetween(1, 50000);
+            for (int i = 0; i < numInts; ++i) {
+                lz4Stream.writeInt(i % 100);
+            }
+            lz4Stream.close();
+            BytesReference bytes = output.bytes();
+
+            TransportDecompressor decompressor = new LZ4TransportDecompressor(PageCacheRecycler.NON_RECYCLING_INSTANCE);
+            int offset = 0;
+            while (offset < bytes.length()) {
+                int length = Math.min(bytes.length() - offset, randomIntBetween(1, 100));
+                assertFalse(decompressor.isEOS());
+                assertEquals(length, decompressor.decompress(bytes.slice(offset, length)));
+                offset += length;
+            }
+            assertTrue(decompressor.isEOS());
+            BytesStreamOutput decompressed = new BytesStreamOutput();
+            ReleasableBytesReference page;
+            while ((page = decompressor.pollDecompressedPage()) != null) {
+                page.writeTo(decompressed);
+                page.close();
+            }
+            StreamInput streamInput = decompressed.bytes().streamInput();
+            for (int i = 0; i < numInts; ++i) {
+                assertEquals(i % 100, streamInput.readInt());
+            }
+            assertEquals(0, streamInput.available());
+            decompressor.close();
+        }
+    }
 }
@@ -107,6 +107,11 @@ public class MockBigArrays extends BigArrays {
         return new MockBigArrays(this.recycler, this.breakerService, true);
     }
 
+    @Override
+    public BigArrays withoutCircuitBreaker() {
+        return new MockBigArrays(this.recycler, null, false);
+    }
+
     @Override
     public ByteArray newByteArray(long size, boolean clearOnResize) {
         final ByteArrayWrapper array = new ByteArrayWrapper(super.newByteArray(size, clearOnResize), clearOnResize);
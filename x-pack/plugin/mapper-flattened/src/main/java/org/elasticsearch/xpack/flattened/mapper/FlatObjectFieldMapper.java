@@ -62,6 +62,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.Executor;
 
 import static org.elasticsearch.index.mapper.TypeParsers.parseField;
 
@@ -435,6 +436,12 @@ public final class FlatObjectFieldMapper extends DynamicKeyFieldMapper {
             return new KeyedFlatObjectFieldData(key, fieldData);
         }
 
+        @Override
+        public IndexOrdinalsFieldData localGlobalDirect(DirectoryReader indexReader, Executor executor) throws Exception {
+            IndexOrdinalsFieldData fieldData = delegate.localGlobalDirect(indexReader, executor);
+            return new KeyedFlatObjectFieldData(key, fieldData);
+        }
+
         @Override
         public OrdinalMap getOrdinalMap() {
             throw new UnsupportedOperationException("The field data for the flat object field ["
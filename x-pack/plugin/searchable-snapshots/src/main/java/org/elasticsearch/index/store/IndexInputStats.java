@@ -45,6 +45,10 @@ public class IndexInputStats {
     private final Counter cachedBytesRead = new Counter();
     private final TimedCounter cachedBytesWritten = new TimedCounter();
 
+    private final Counter cacheHits = new Counter();
+    private final TimedCounter cacheMisses = new TimedCounter();
+    private final TimedCounter readAheadBytes = new TimedCounter();
+
     public IndexInputStats(long fileLength, LongSupplier currentTimeNanos) {
         this(fileLength, SEEKING_THRESHOLD.getBytes(), currentTimeNanos);
     }
@@ -78,6 +82,27 @@ public class IndexInputStats {
         cachedBytesWritten.add(bytesWritten, nanoseconds);
     }
 
+    /**
+     * Records a read whose range was fully present in the cache.
+     */
+    public void addCacheHit(int bytesRead) {
+        cacheHits.add(bytesRead);
+    }
+
+    /**
+     * Records a read that had to wait for (some of) its range to be fetched from the blob store.
+     */
+    public void addCacheMiss(int bytesRead, long nanoseconds) {
+        cacheMisses.add(bytesRead, nanoseconds);
+    }
+
+    /**
+     * Records bytes fetched in the background ahead of sequential reads.
+     */
+    public void addReadAheadBytes(long bytesRead, long nanoseconds) {
+        readAheadBytes.add(bytesRead, nanoseconds);
+    }
+
     public void addDirectBytesRead(int bytesRead, long nanoseconds) {
         directBytesRead.add(bytesRead, nanoseconds);
     }
@@ -164,6 +189,18 @@ public class IndexInputStats {
         return cachedBytesWritten;
     }
 
+    public Counter getCacheHits() {
+        return cacheHits;
+    }
+
+    public TimedCounter getCacheMisses() {
+        return cacheMisses;
+    }
+
+    public TimedCounter getReadAheadBytes() {
+        return readAheadBytes;
+    }
+
     @SuppressForbidden(reason = "Handles Long.MIN_VALUE before using Math.abs()")
     public boolean isLargeSeek(long delta) {
         return delta != Long.MIN_VALUE && Math.abs(delta) > seekingThreshold;
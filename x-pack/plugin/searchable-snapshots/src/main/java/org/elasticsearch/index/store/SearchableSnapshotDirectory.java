@@ -73,6 +73,7 @@ import static org.elasticsearch.index.IndexModule.INDEX_STORE_TYPE_SETTING;
 import static org.elasticsearch.xpack.searchablesnapshots.SearchableSnapshots.SNAPSHOT_CACHE_ENABLED_SETTING;
 import static org.elasticsearch.xpack.searchablesnapshots.SearchableSnapshots.SNAPSHOT_CACHE_EXCLUDED_FILE_TYPES_SETTING;
 import static org.elasticsearch.xpack.searchablesnapshots.SearchableSnapshots.SNAPSHOT_CACHE_PREWARM_ENABLED_SETTING;
+import static org.elasticsearch.xpack.searchablesnapshots.SearchableSnapshots.SNAPSHOT_CACHE_READ_AHEAD_ENABLED_SETTING;
 import static org.elasticsearch.xpack.searchablesnapshots.SearchableSnapshots.SNAPSHOT_INDEX_ID_SETTING;
 import static org.elasticsearch.xpack.searchablesnapshots.SearchableSnapshots.SNAPSHOT_REPOSITORY_SETTING;
 import static org.elasticsearch.xpack.searchablesnapshots.SearchableSnapshots.SNAPSHOT_SNAPSHOT_ID_SETTING;
@@ -107,6 +108,7 @@ public class SearchableSnapshotDirectory extends BaseDirectory {
     private final CacheService cacheService;
     private final boolean useCache;
     private final boolean prewarmCache;
+    private final boolean readAhead;
     private final Set<String> excludedFileTypes;
     private final long uncachedChunkSize; // if negative use BlobContainer#readBlobPreferredLength, see #getUncachedChunkSize()
     private final Path cacheDir;
@@ -142,6 +144,7 @@ public class SearchableSnapshotDirectory extends BaseDirectory {
         this.closed = new AtomicBoolean(false);
         this.useCache = SNAPSHOT_CACHE_ENABLED_SETTING.get(indexSettings);
         this.prewarmCache = useCache ? SNAPSHOT_CACHE_PREWARM_ENABLED_SETTING.get(indexSettings) : false;
+        this.readAhead = useCache ? SNAPSHOT_CACHE_READ_AHEAD_ENABLED_SETTING.get(indexSettings) : false;
         this.excludedFileTypes = new HashSet<>(SNAPSHOT_CACHE_EXCLUDED_FILE_TYPES_SETTING.get(indexSettings));
         this.uncachedChunkSize = SNAPSHOT_UNCACHED_CHUNK_SIZE_SETTING.get(indexSettings).getBytes();
         this.threadPool = threadPool;
@@ -232,6 +235,15 @@ public class SearchableSnapshotDirectory extends BaseDirectory {
         return stats.get(fileName);
     }
 
+    /**
+     * @return the executor used to read ahead cached files on sequential reads, or {@code null} if cached files are always read using
+     *         fixed size ranges regardless of the access pattern
+     */
+    @Nullable
+    public Executor readAheadExecutor() {
+        return readAhead ? threadPool.executor(SEARCHABLE_SNAPSHOTS_THREAD_POOL_NAME) : null;
+    }
+
     private BlobStoreIndexShardSnapshot.FileInfo fileInfo(final String name) throws FileNotFoundException {
         return files().stream()
             .filter(fileInfo -> fileInfo.physicalName().equals(name))
@@ -296,8 +308,9 @@ public class SearchableSnapshotDirectory extends BaseDirectory {
         if (closed.compareAndSet(false, true)) {
             isOpen = false;
             // Ideally we could let the cache evict/remove cached files by itself after the
-            // directory has been closed.
-            clearCache();
+            // directory has been closed. Cached files are kept on disk so that they can be
+            // reused if the shard is opened again on this node.
+            cacheService.persistAndRemoveFromCache(cacheKey -> cacheKey.belongsTo(snapshotId, indexId, shardId));
         }
     }
 
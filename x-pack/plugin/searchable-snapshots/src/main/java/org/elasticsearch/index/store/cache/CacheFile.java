@@ -13,6 +13,7 @@ import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.util.concurrent.AbstractRefCounted;
+import org.elasticsearch.core.internal.io.IOUtils;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
@@ -25,6 +26,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.SortedSet;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -57,12 +59,20 @@ public class CacheFile {
 
     private volatile Set<EvictionListener> listeners;
     private volatile boolean evicted;
+    private volatile boolean retainedOnEviction;
 
     @Nullable // if evicted, or there are no listeners
     private volatile FileChannel channel;
 
     public CacheFile(String description, long length, Path file) {
-        this.tracker = new SparseFileTracker(file.toString(), length);
+        this(description, length, file, Collections.emptySortedSet());
+    }
+
+    /**
+     * Creates a cache file on top of an existing file on disk whose given ranges are known to be present.
+     */
+    public CacheFile(String description, long length, Path file, SortedSet<Tuple<Long, Long>> completedRanges) {
+        this.tracker = new SparseFileTracker(file.toString(), length, completedRanges);
         this.description = Objects.requireNonNull(description);
         this.file = Objects.requireNonNull(file);
         this.listeners = new HashSet<>();
@@ -79,6 +89,30 @@ public class CacheFile {
         return tracker.getLength();
     }
 
+    /**
+     * @return the ranges of the file which are present on disk, in order
+     */
+    public SortedSet<Tuple<Long, Long>> getCompletedRanges() {
+        return tracker.getCompletedRanges();
+    }
+
+    /**
+     * Flushes the content of the file on disk, if any, so that the ranges that were completed before calling this method survive a crash
+     * of the node.
+     */
+    public void fsync() throws IOException {
+        if (Files.exists(file)) {
+            IOUtils.fsync(file, false);
+        }
+    }
+
+    /**
+     * Keeps the file on disk when this cache file is evicted, so that its content can be reused by a later {@link CacheFile} instance.
+     */
+    public void retainOnEviction() {
+        retainedOnEviction = true;
+    }
+
     public Path getFile() {
         return file;
     }
@@ -167,6 +201,9 @@ public class CacheFile {
         assert evictionLock.isHeldByCurrentThread();
         assert listeners.isEmpty();
         assert channel == null;
+        if (retainedOnEviction) {
+            return;
+        }
         try {
             Files.deleteIfExists(file);
         } catch (IOException e) {
@@ -220,7 +257,7 @@ public class CacheFile {
             assert listeners != null;
             if (listeners.isEmpty()) {
                 assert channel == null;
-                assert evicted == false || refCounter.refCount() != 0 || Files.notExists(file);
+                assert evicted == false || refCounter.refCount() != 0 || retainedOnEviction || Files.notExists(file);
             } else {
                 assert channel != null;
                 assert refCounter.refCount() > 0;
@@ -5,13 +5,17 @@
  */
 package org.elasticsearch.index.store.cache;
 
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.repositories.IndexId;
 import org.elasticsearch.snapshots.SnapshotId;
 
+import java.io.IOException;
 import java.util.Objects;
 
-public class CacheKey {
+public class CacheKey implements Writeable {
 
     private final SnapshotId snapshotId;
     private final IndexId indexId;
@@ -25,6 +29,18 @@ public class CacheKey {
         this.fileName = Objects.requireNonNull(fileName);
     }
 
+    public CacheKey(StreamInput in) throws IOException {
+        this(new SnapshotId(in), new IndexId(in), new ShardId(in), in.readString());
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        snapshotId.writeTo(out);
+        indexId.writeTo(out);
+        shardId.writeTo(out);
+        out.writeString(fileName);
+    }
+
     SnapshotId getSnapshotId() {
         return snapshotId;
     }
@@ -17,6 +17,7 @@ import org.elasticsearch.common.SuppressForbidden;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.io.Channels;
 import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.util.concurrent.AbstractRunnable;
 import org.elasticsearch.index.snapshots.blobstore.BlobStoreIndexShardSnapshot.FileInfo;
 import org.elasticsearch.index.store.BaseSearchableSnapshotIndexInput;
 import org.elasticsearch.index.store.IndexInputStats;
@@ -28,6 +29,7 @@ import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.Locale;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Predicate;
@@ -45,6 +47,16 @@ public class CachedBlobContainerIndexInput extends BaseSearchableSnapshotIndexIn
     private static final Logger logger = LogManager.getLogger(CachedBlobContainerIndexInput.class);
     private static final int COPY_BUFFER_SIZE = 8192;
 
+    /**
+     * Number of contiguous reads after which the access pattern is considered sequential and the next range is read ahead.
+     */
+    static final int SEQUENTIAL_READS_THRESHOLD = 2;
+
+    /**
+     * Minimum size of the ranges fetched on random reads when read-ahead is enabled.
+     */
+    static final long MIN_RANDOM_READ_RANGE_SIZE = 64 * 1024L;
+
     private final SearchableSnapshotDirectory directory;
     private final CacheFileReference cacheFileReference;
     private final int defaultRangeSize;
@@ -53,6 +65,10 @@ public class CachedBlobContainerIndexInput extends BaseSearchableSnapshotIndexIn
     private long lastReadPosition;
     // last seek position is kept around in order to detect forward/backward seeks for stats
     private long lastSeekPosition;
+    // number of contiguous reads since the last non-contiguous one, used to detect sequential access
+    private int sequentialReads;
+    // end of the last range read ahead, used to avoid scheduling the same range twice
+    private long readAheadEnd;
 
     public CachedBlobContainerIndexInput(
         SearchableSnapshotDirectory directory,
@@ -91,6 +107,7 @@ public class CachedBlobContainerIndexInput extends BaseSearchableSnapshotIndexIn
         this.cacheFileReference = cacheFileReference;
         this.lastReadPosition = this.offset;
         this.lastSeekPosition = this.offset;
+        this.readAheadEnd = this.offset;
         this.defaultRangeSize = rangeSize;
     }
 
@@ -112,8 +129,20 @@ public class CachedBlobContainerIndexInput extends BaseSearchableSnapshotIndexIn
         return (context != CACHE_WARMING_CONTEXT) ? defaultRangeSize : fileInfo.partSize().getBytes();
     }
 
-    private Tuple<Long, Long> computeRange(long position) {
+    /**
+     * Returns the size of the range to fetch for a read at the current position: random reads fetch smaller ranges when read-ahead is
+     * enabled in order to not over-fetch on lookups, sequential reads fetch full ranges and are read ahead.
+     */
+    private long getRangeSize() {
         final long rangeSize = getDefaultRangeSize();
+        if (context != CACHE_WARMING_CONTEXT && sequentialReads == 0 && directory.readAheadExecutor() != null) {
+            return Math.min(rangeSize, Math.max(MIN_RANDOM_READ_RANGE_SIZE, rangeSize / 16L));
+        }
+        return rangeSize;
+    }
+
+    private Tuple<Long, Long> computeRange(long position) {
+        final long rangeSize = getRangeSize();
         long start = (position / rangeSize) * rangeSize;
         long end = Math.min(start + rangeSize, fileInfo.length());
         return Tuple.tuple(start, end);
@@ -132,27 +161,38 @@ public class CachedBlobContainerIndexInput extends BaseSearchableSnapshotIndexIn
         ensureContext(ctx -> ctx != CACHE_WARMING_CONTEXT);
         final long position = getFilePointer() + this.offset;
         final int length = b.remaining();
+        sequentialReads = position == lastReadPosition ? sequentialReads + 1 : 0;
 
+        CacheFile cacheFile = null;
         int totalBytesRead = 0;
         while (totalBytesRead < length) {
             final long pos = position + totalBytesRead;
             final int len = length - totalBytesRead;
             int bytesRead = 0;
             try {
-                final CacheFile cacheFile = getCacheFileSafe();
-                try (Releasable ignored = cacheFile.fileLock()) {
+                cacheFile = getCacheFileSafe();
+                final CacheFile currentCacheFile = cacheFile;
+                try (Releasable ignored = currentCacheFile.fileLock()) {
                     final Tuple<Long, Long> range = computeRange(pos);
-                    bytesRead = cacheFile.fetchRange(
+                    final boolean hit = currentCacheFile.getAbsentRangeWithin(range.v1(), range.v2()) == null;
+                    final long startTimeNanos = hit ? 0L : stats.currentTimeNanos();
+                    bytesRead = currentCacheFile.fetchRange(
                         range.v1(),
                         range.v2(),
-                        (start, end) -> readCacheFile(cacheFile.getChannel(), end, pos, b, len),
-                        (start, end) -> writeCacheFile(cacheFile.getChannel(), start, end)
+                        (start, end) -> readCacheFile(currentCacheFile.getChannel(), end, pos, b, len),
+                        (start, end) -> writeCacheFile(currentCacheFile.getChannel(), start, end)
                     ).get();
+                    if (hit) {
+                        stats.addCacheHit(bytesRead);
+                    } else {
+                        stats.addCacheMiss(bytesRead, stats.currentTimeNanos() - startTimeNanos);
+                    }
                 }
             } catch (final Exception e) {
                 if (e instanceof AlreadyClosedException || (e.getCause() != null && e.getCause() instanceof AlreadyClosedException)) {
                     try {
                         // cache file was evicted during the range fetching, read bytes directly from source
+                        cacheFile = null;
                         bytesRead = readDirectly(pos, pos + len, b);
                         continue;
                     } catch (Exception inner) {
@@ -169,6 +209,64 @@ public class CachedBlobContainerIndexInput extends BaseSearchableSnapshotIndexIn
         stats.incrementBytesRead(lastReadPosition, position, totalBytesRead);
         lastReadPosition = position + totalBytesRead;
         lastSeekPosition = lastReadPosition;
+        if (cacheFile != null && sequentialReads >= SEQUENTIAL_READS_THRESHOLD) {
+            maybeReadAhead(cacheFile, lastReadPosition);
+        }
+    }
+
+    /**
+     * Fetches the range following the given position in the background, so that the next sequential reads find it in cache.
+     */
+    private void maybeReadAhead(CacheFile cacheFile, long position) {
+        final Executor executor = directory.readAheadExecutor();
+        if (executor == null) {
+            return;
+        }
+        // the range containing the position has just been read unless the position is the start of a range
+        final Tuple<Long, Long> currentRange = computeRange(position);
+        final long rangeStart = currentRange.v1() == position ? position : currentRange.v2();
+        final long rangeEnd = Math.min(rangeStart + getDefaultRangeSize(), fileInfo.length());
+        if (rangeStart >= this.offset + length() || rangeEnd <= readAheadEnd) {
+            return; // nothing to read ahead in this slice or already scheduled
+        }
+        try {
+            if (cacheFile.getAbsentRangeWithin(rangeStart, rangeEnd) == null) {
+                return;
+            }
+        } catch (AlreadyClosedException e) {
+            return;
+        }
+        readAheadEnd = rangeEnd;
+        executor.execute(new AbstractRunnable() {
+            @Override
+            protected void doRun() throws Exception {
+                // the file lock prevents the channel from being closed while the range is written
+                try (Releasable ignored = cacheFile.fileLock()) {
+                    final AtomicLong bytesWritten = new AtomicLong();
+                    final long startTimeNanos = stats.currentTimeNanos();
+                    cacheFile.fetchRange(rangeStart, rangeEnd, (start, end) -> 0, (start, end) -> {
+                        writeCacheFile(cacheFile.getChannel(), start, end);
+                        bytesWritten.addAndGet(end - start);
+                    });
+                    if (bytesWritten.get() > 0L) {
+                        stats.addReadAheadBytes(bytesWritten.get(), stats.currentTimeNanos() - startTimeNanos);
+                    }
+                }
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                logger.debug(
+                    () -> new ParameterizedMessage(
+                        "failed to read ahead range [{}-{}] of cache file [{}]",
+                        rangeStart,
+                        rangeEnd,
+                        cacheFileReference
+                    ),
+                    e
+                );
+            }
+        });
     }
 
     /**
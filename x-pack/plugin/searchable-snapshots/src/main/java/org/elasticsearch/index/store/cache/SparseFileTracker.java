@@ -37,17 +37,53 @@ public class SparseFileTracker {
     private final long length;
 
     public SparseFileTracker(String description, long length) {
+        this(description, length, Collections.emptySortedSet());
+    }
+
+    /**
+     * Creates a tracker for a file whose given ranges are already present, for instance because they were written to disk before a
+     * restart of the node.
+     *
+     * @param ranges the (inclusive) start and (exclusive) end of the ranges that are present, in order
+     */
+    public SparseFileTracker(String description, long length, SortedSet<Tuple<Long, Long>> ranges) {
         this.description = description;
         this.length = length;
         if (length < 0) {
             throw new IllegalArgumentException("Length [" + length + "] must be equal to or greater than 0 for [" + description + "]");
         }
+        long previousEnd = -1L;
+        for (Tuple<Long, Long> range : ranges) {
+            if (range.v1() <= previousEnd || range.v2() <= range.v1() || length < range.v2()) {
+                throw new IllegalArgumentException(
+                    "invalid range [start=" + range.v1() + ", end=" + range.v2() + ", length=" + length + "] for [" + description + "]"
+                );
+            }
+            this.ranges.add(new Range(range.v1(), range.v2(), null));
+            previousEnd = range.v2();
+        }
     }
 
     public long getLength() {
         return length;
     }
 
+    /**
+     * @return the (inclusive) start and (exclusive) end of the ranges of the file which are present, in order
+     */
+    public SortedSet<Tuple<Long, Long>> getCompletedRanges() {
+        final SortedSet<Tuple<Long, Long>> completedRanges = new TreeSet<>(Comparator.<Tuple<Long, Long>>comparingLong(Tuple::v1));
+        synchronized (mutex) {
+            assert invariant();
+            for (Range range : ranges) {
+                if (range.isPending() == false) {
+                    completedRanges.add(Tuple.tuple(range.start, range.end));
+                }
+            }
+        }
+        return Collections.unmodifiableSortedSet(completedRanges);
+    }
+
     /**
      * @return the sum of the length of the ranges
      */
@@ -114,6 +114,13 @@ public class SearchableSnapshots extends Plugin implements IndexStorePlugin, Eng
         Setting.Property.IndexScope,
         Setting.Property.NotCopyableOnResize
     );
+    // Whether cached files are read ahead on sequential reads and read using smaller ranges on random reads
+    public static final Setting<Boolean> SNAPSHOT_CACHE_READ_AHEAD_ENABLED_SETTING = Setting.boolSetting(
+        "index.store.snapshot.cache.read_ahead.enabled",
+        true,
+        Setting.Property.IndexScope,
+        Setting.Property.NotCopyableOnResize
+    );
     // The file extensions that are excluded from the cache
     public static final Setting<List<String>> SNAPSHOT_CACHE_EXCLUDED_FILE_TYPES_SETTING = Setting.listSetting(
         "index.store.snapshot.cache.excluded_file_types",
@@ -156,6 +163,7 @@ public class SearchableSnapshots extends Plugin implements IndexStorePlugin, Eng
                 SNAPSHOT_INDEX_ID_SETTING,
                 SNAPSHOT_CACHE_ENABLED_SETTING,
                 SNAPSHOT_CACHE_PREWARM_ENABLED_SETTING,
+                SNAPSHOT_CACHE_READ_AHEAD_ENABLED_SETTING,
                 SNAPSHOT_CACHE_EXCLUDED_FILE_TYPES_SETTING,
                 SNAPSHOT_UNCACHED_CHUNK_SIZE_SETTING,
                 CacheService.SNAPSHOT_CACHE_SIZE_SETTING,
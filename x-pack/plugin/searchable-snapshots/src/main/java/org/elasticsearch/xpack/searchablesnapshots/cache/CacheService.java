@@ -5,9 +5,14 @@
  */
 package org.elasticsearch.xpack.searchablesnapshots.cache;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.UUIDs;
 import org.elasticsearch.common.cache.Cache;
 import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.component.Lifecycle;
 import org.elasticsearch.common.settings.Setting;
@@ -18,9 +23,14 @@ import org.elasticsearch.core.internal.io.IOUtils;
 import org.elasticsearch.index.store.cache.CacheFile;
 import org.elasticsearch.index.store.cache.CacheKey;
 
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.Objects;
+import java.util.SortedSet;
 import java.util.function.Predicate;
 
 /**
@@ -47,10 +57,18 @@ public class CacheService extends AbstractLifecycleComponent {
         Setting.Property.NodeScope
     );
 
+    private static final Logger logger = LogManager.getLogger(CacheService.class);
+
     private final Cache<CacheKey, CacheFile> cache;
     private final ByteSizeValue cacheSize;
     private final ByteSizeValue rangeSize;
 
+    /**
+     * Cache files that have been persisted on disk and that have not been reused yet, indexed by cache directory. A cache directory is
+     * loaded from disk the first time a cache file is requested for it.
+     */
+    private final Map<Path, Map<CacheKey, PersistentCacheIndex.Entry>> persistedCacheFiles = new HashMap<>();
+
     public CacheService(final Settings settings) {
         this(SNAPSHOT_CACHE_SIZE_SETTING.get(settings), SNAPSHOT_CACHE_RANGE_SIZE_SETTING.get(settings));
     }
@@ -70,11 +88,13 @@ public class CacheService extends AbstractLifecycleComponent {
 
     @Override
     protected void doStart() {
-        // NORELEASE TODO clean up (or rebuild) cache from disk as a node crash may leave cached files
+        // NORELEASE TODO clean up cache files that are not referenced by the index of their cache directory, as a node crash may leave
+        // such files behind. Cache files that are referenced are reused once their cache directory is used again.
     }
 
     @Override
     protected void doStop() {
+        persistAndRemoveFromCache(cacheKey -> true);
         cache.invalidateAll();
     }
 
@@ -106,6 +126,14 @@ public class CacheService extends AbstractLifecycleComponent {
         ensureLifecycleStarted();
         return cache.computeIfAbsent(cacheKey, key -> {
             ensureLifecycleStarted();
+            final PersistentCacheIndex.Entry persistedCacheFile = takePersistedCacheFile(key, cacheDir);
+            if (persistedCacheFile != null) {
+                final Path path = cacheDir.resolve(persistedCacheFile.getFileName());
+                if (persistedCacheFile.getLength() == fileLength) {
+                    return new CacheFile(key.toString(), fileLength, path, persistedCacheFile.getCompletedRanges());
+                }
+                Files.deleteIfExists(path);
+            }
             // generate a random UUID for the name of the cache file on disk
             final String uuid = UUIDs.randomBase64UUID();
             // resolve the cache file on disk w/ the expected cached file
@@ -122,6 +150,18 @@ public class CacheService extends AbstractLifecycleComponent {
      * @param predicate the predicate to evaluate
      */
     public void removeFromCache(final Predicate<CacheKey> predicate) {
+        synchronized (persistedCacheFiles) {
+            for (Map.Entry<Path, Map<CacheKey, PersistentCacheIndex.Entry>> cacheDir : persistedCacheFiles.entrySet()) {
+                final Iterator<Map.Entry<CacheKey, PersistentCacheIndex.Entry>> iterator = cacheDir.getValue().entrySet().iterator();
+                while (iterator.hasNext()) {
+                    final Map.Entry<CacheKey, PersistentCacheIndex.Entry> entry = iterator.next();
+                    if (predicate.test(entry.getKey())) {
+                        iterator.remove();
+                        IOUtils.deleteFilesIgnoringExceptions(cacheDir.getKey().resolve(entry.getValue().getFileName()));
+                    }
+                }
+            }
+        }
         for (CacheKey cacheKey : cache.keys()) {
             if (predicate.test(cacheKey)) {
                 cache.invalidate(cacheKey);
@@ -129,4 +169,87 @@ public class CacheService extends AbstractLifecycleComponent {
         }
         cache.refresh();
     }
+
+    /**
+     * Invalidate cache entries with keys matching the given predicate but, unlike {@link #removeFromCache(Predicate)}, keep their cache
+     * files on disk and record the ranges they contain in the index of their cache directory so that they can be reused when the cache
+     * directory is used again, for instance after the shard is reopened or the node restarted.
+     *
+     * @param predicate the predicate to evaluate
+     */
+    public void persistAndRemoveFromCache(final Predicate<CacheKey> predicate) {
+        final Map<CacheKey, CacheFile> cacheFiles = new HashMap<>();
+        final Map<Path, Map<CacheKey, PersistentCacheIndex.Entry>> persistedByDir = new HashMap<>();
+        for (CacheKey cacheKey : cache.keys()) {
+            if (predicate.test(cacheKey)) {
+                final CacheFile cacheFile = cache.get(cacheKey);
+                if (cacheFile != null) {
+                    cacheFiles.put(cacheKey, cacheFile);
+                    try {
+                        // ranges must be collected before the file is fsynced, ranges completed after that are not guaranteed on disk
+                        final SortedSet<Tuple<Long, Long>> completedRanges = cacheFile.getCompletedRanges();
+                        if (completedRanges.isEmpty() == false) {
+                            cacheFile.fsync();
+                            cacheFile.retainOnEviction();
+                            final Path file = cacheFile.getFile();
+                            persistedByDir.computeIfAbsent(file.getParent(), dir -> new HashMap<>())
+                                .put(
+                                    cacheKey,
+                                    new PersistentCacheIndex.Entry(file.getFileName().toString(), cacheFile.getLength(), completedRanges)
+                                );
+                        }
+                    } catch (Exception e) {
+                        logger.warn(() -> new ParameterizedMessage("failed to persist cache file [{}]", cacheFile), e);
+                    }
+                }
+            }
+        }
+
+        // the persisted cache files are published before the entries are invalidated, so that a shard that is reopened as soon as
+        // an entry is invalidated reuses its cache file instead of creating a new one and orphaning the persisted one. Only the cache
+        // files that were persisted are invalidated, not the ones a reopened shard may have created from them in the meantime.
+        synchronized (persistedCacheFiles) {
+            for (Map.Entry<Path, Map<CacheKey, PersistentCacheIndex.Entry>> persisted : persistedByDir.entrySet()) {
+                final Path cacheDir = persisted.getKey();
+                final Map<CacheKey, PersistentCacheIndex.Entry> entries = persistedCacheFiles.computeIfAbsent(
+                    cacheDir,
+                    dir -> new HashMap<>()
+                );
+                entries.putAll(persisted.getValue());
+                try {
+                    PersistentCacheIndex.write(cacheDir, entries);
+                } catch (Exception e) {
+                    logger.warn(() -> new ParameterizedMessage("failed to write cache index of [{}]", cacheDir), e);
+                }
+            }
+        }
+
+        cacheFiles.forEach(cache::invalidate);
+        cache.refresh();
+    }
+
+    /**
+     * Returns the persisted cache file for the given cache key, if any. The index of the cache directory is read from disk the first time
+     * a cache file is requested for the directory.
+     */
+    @Nullable
+    private PersistentCacheIndex.Entry takePersistedCacheFile(final CacheKey cacheKey, final Path cacheDir) {
+        synchronized (persistedCacheFiles) {
+            Map<CacheKey, PersistentCacheIndex.Entry> entries = persistedCacheFiles.get(cacheDir);
+            if (entries == null) {
+                try {
+                    entries = PersistentCacheIndex.read(cacheDir);
+                } catch (IOException e) {
+                    logger.warn(() -> new ParameterizedMessage("failed to read cache index of [{}], ignoring cached files", cacheDir), e);
+                    entries = new HashMap<>();
+                }
+                persistedCacheFiles.put(cacheDir, entries);
+            }
+            final PersistentCacheIndex.Entry entry = entries.remove(cacheKey);
+            if (entry != null && Files.exists(cacheDir.resolve(entry.getFileName()))) {
+                return entry;
+            }
+            return null;
+        }
+    }
 }
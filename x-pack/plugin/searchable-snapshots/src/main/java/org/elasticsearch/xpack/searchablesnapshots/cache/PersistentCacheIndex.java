@@ -0,0 +1,179 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License;
+ * you may not use this file except in compliance with the Elastic License.
+ */
+package org.elasticsearch.xpack.searchablesnapshots.cache;
+
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.index.CorruptIndexException;
+import org.apache.lucene.index.IndexFormatTooNewException;
+import org.apache.lucene.index.IndexFormatTooOldException;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.SimpleFSDirectory;
+import org.elasticsearch.common.collect.Tuple;
+import org.elasticsearch.common.io.stream.InputStreamStreamInput;
+import org.elasticsearch.common.io.stream.OutputStreamStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.lucene.store.IndexOutputOutputStream;
+import org.elasticsearch.common.lucene.store.InputStreamIndexInput;
+import org.elasticsearch.index.store.cache.CacheKey;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Reads and writes the index of the cache files that have been persisted in a cache directory. For every {@link CacheKey} the index
+ * records the name of the cache file on disk, the length of the cached file and the ranges of the file that were present (and fsynced)
+ * at the time the index was written, so that the cache files can be reused after the cache directory is opened again.
+ */
+final class PersistentCacheIndex {
+
+    static final String INDEX_FILE_NAME = "cache.index";
+
+    private static final String INDEX_FILE_CODEC = "searchable_snapshots_cache_index";
+    private static final int VERSION_START = 0;
+    private static final int VERSION_CURRENT = VERSION_START;
+
+    private PersistentCacheIndex() {}
+
+    /**
+     * Reads the index of the given cache directory. Entries whose cache file does not exist anymore are ignored.
+     *
+     * @return the persisted cache files indexed by cache key, or an empty map if the directory has no index
+     */
+    static Map<CacheKey, Entry> read(Path cacheDir) throws IOException {
+        if (Files.exists(cacheDir.resolve(INDEX_FILE_NAME)) == false) {
+            return new HashMap<>();
+        }
+        try (Directory directory = new SimpleFSDirectory(cacheDir)) {
+            try (IndexInput indexInput = directory.openInput(INDEX_FILE_NAME, IOContext.READONCE)) {
+                CodecUtil.checksumEntireFile(indexInput);
+                CodecUtil.checkHeader(indexInput, INDEX_FILE_CODEC, VERSION_START, VERSION_CURRENT);
+                final long contentSize = indexInput.length() - CodecUtil.footerLength() - indexInput.getFilePointer();
+                final Map<CacheKey, Entry> entries = new HashMap<>();
+                try (StreamInput in = new InputStreamStreamInput(new InputStreamIndexInput(indexInput, contentSize))) {
+                    final int numberOfEntries = in.readVInt();
+                    for (int i = 0; i < numberOfEntries; i++) {
+                        final CacheKey cacheKey = new CacheKey(in);
+                        final Entry entry = new Entry(in);
+                        if (Files.exists(cacheDir.resolve(entry.getFileName()))) {
+                            entries.put(cacheKey, entry);
+                        }
+                    }
+                }
+                return entries;
+            } catch (CorruptIndexException | IndexFormatTooOldException | IndexFormatTooNewException e) {
+                throw new IOException("failed to read cache index of [" + cacheDir + "]", e);
+            }
+        }
+    }
+
+    /**
+     * Atomically replaces the index of the given cache directory with the given entries.
+     */
+    static void write(Path cacheDir, Map<CacheKey, Entry> entries) throws IOException {
+        final String tmpFileName = INDEX_FILE_NAME + ".tmp";
+        try (Directory directory = new SimpleFSDirectory(cacheDir)) {
+            Files.deleteIfExists(cacheDir.resolve(tmpFileName));
+            try (IndexOutput indexOutput = directory.createOutput(tmpFileName, IOContext.DEFAULT)) {
+                CodecUtil.writeHeader(indexOutput, INDEX_FILE_CODEC, VERSION_CURRENT);
+                final StreamOutput out = new OutputStreamStreamOutput(new IndexOutputOutputStream(indexOutput));
+                out.writeVInt(entries.size());
+                for (Map.Entry<CacheKey, Entry> entry : entries.entrySet()) {
+                    entry.getKey().writeTo(out);
+                    entry.getValue().writeTo(out);
+                }
+                out.flush();
+                CodecUtil.writeFooter(indexOutput);
+            }
+            directory.sync(List.of(tmpFileName));
+            delete(cacheDir);
+            directory.rename(tmpFileName, INDEX_FILE_NAME);
+            directory.syncMetaData();
+        }
+    }
+
+    /**
+     * Deletes the index of the given cache directory, if any.
+     */
+    static void delete(Path cacheDir) throws IOException {
+        try {
+            Files.deleteIfExists(cacheDir.resolve(INDEX_FILE_NAME));
+        } catch (NoSuchFileException e) {
+            // the cache directory itself has been removed
+        }
+    }
+
+    /**
+     * A cache file persisted on disk.
+     */
+    static final class Entry {
+
+        private final String fileName;
+        private final long length;
+        private final SortedSet<Tuple<Long, Long>> completedRanges;
+
+        Entry(String fileName, long length, SortedSet<Tuple<Long, Long>> completedRanges) {
+            this.fileName = Objects.requireNonNull(fileName);
+            this.length = length;
+            this.completedRanges = Objects.requireNonNull(completedRanges);
+        }
+
+        private Entry(StreamInput in) throws IOException {
+            this.fileName = in.readString();
+            this.length = in.readVLong();
+            final int numberOfRanges = in.readVInt();
+            final SortedSet<Tuple<Long, Long>> ranges = new TreeSet<>(Comparator.<Tuple<Long, Long>>comparingLong(Tuple::v1));
+            for (int i = 0; i < numberOfRanges; i++) {
+                ranges.add(Tuple.tuple(in.readVLong(), in.readVLong()));
+            }
+            this.completedRanges = Collections.unmodifiableSortedSet(ranges);
+        }
+
+        private void writeTo(StreamOutput out) throws IOException {
+            out.writeString(fileName);
+            out.writeVLong(length);
+            out.writeVInt(completedRanges.size());
+            for (Tuple<Long, Long> range : completedRanges) {
+                out.writeVLong(range.v1());
+                out.writeVLong(range.v2());
+            }
+        }
+
+        /**
+         * @return the name of the cache file in the cache directory
+         */
+        String getFileName() {
+            return fileName;
+        }
+
+        /**
+         * @return the length of the cached file
+         */
+        long getLength() {
+            return length;
+        }
+
+        /**
+         * @return the ranges of the cached file that are present in the cache file
+         */
+        SortedSet<Tuple<Long, Long>> getCompletedRanges() {
+            return completedRanges;
+        }
+    }
+}
@@ -99,6 +99,7 @@ import java.util.Map;
 import static java.util.Collections.emptyMap;
 import static org.elasticsearch.xpack.searchablesnapshots.SearchableSnapshots.SNAPSHOT_CACHE_ENABLED_SETTING;
 import static org.elasticsearch.xpack.searchablesnapshots.SearchableSnapshots.SNAPSHOT_CACHE_PREWARM_ENABLED_SETTING;
+import static org.elasticsearch.xpack.searchablesnapshots.SearchableSnapshots.SNAPSHOT_CACHE_READ_AHEAD_ENABLED_SETTING;
 import static org.elasticsearch.xpack.searchablesnapshots.SearchableSnapshots.SNAPSHOT_INDEX_ID_SETTING;
 import static org.elasticsearch.xpack.searchablesnapshots.SearchableSnapshots.SNAPSHOT_REPOSITORY_SETTING;
 import static org.elasticsearch.xpack.searchablesnapshots.SearchableSnapshots.SNAPSHOT_SNAPSHOT_ID_SETTING;
@@ -644,9 +645,10 @@ public class SearchableSnapshotDirectoryTests extends ESTestCase {
                     shardId,
                     Settings.builder()
                         .put(SNAPSHOT_CACHE_ENABLED_SETTING.getKey(), true)
-                        // disable prewarming in this test to prevent files to be concurrently cached
+                        // disable prewarming and read-ahead in this test to prevent files to be concurrently cached
                         // while the cache is cleared out and while the test verifies it is empty
                         .put(SNAPSHOT_CACHE_PREWARM_ENABLED_SETTING.getKey(), false)
+                        .put(SNAPSHOT_CACHE_READ_AHEAD_ENABLED_SETTING.getKey(), false)
                         .build(),
                     () -> 0L,
                     cacheService,
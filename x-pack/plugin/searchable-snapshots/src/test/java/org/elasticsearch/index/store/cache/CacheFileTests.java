@@ -124,6 +124,23 @@ public class CacheFileTests extends ESTestCase {
         assertFalse(Files.exists(file));
     }
 
+    public void testRetainOnEviction() throws Exception {
+        final Path file = createTempDir().resolve("file.cache");
+        final CacheFile cacheFile = new CacheFile("test", randomLongBetween(1, 100), file);
+
+        final TestEvictionListener listener = new TestEvictionListener();
+        assertTrue(cacheFile.acquire(listener));
+        assertTrue(Files.exists(file));
+
+        cacheFile.retainOnEviction();
+        cacheFile.startEviction();
+        assertTrue(listener.isCalled());
+        assertTrue(cacheFile.release(listener));
+
+        assertThat("Cache file evicted and fully released: channel does not exist", cacheFile.getChannel(), nullValue());
+        assertThat("Cache file retained on eviction: file still exists", Files.exists(file), is(true));
+    }
+
     class TestEvictionListener implements EvictionListener {
 
         private SetOnce<CacheFile> evicted = new SetOnce<>();
@@ -5,15 +5,18 @@
  */
 package org.elasticsearch.index.store.cache;
 
+import org.apache.lucene.store.IOContext;
 import org.apache.lucene.store.IndexInput;
 import org.elasticsearch.Version;
 import org.elasticsearch.common.blobstore.BlobContainer;
 import org.elasticsearch.common.blobstore.support.FilterBlobContainer;
 import org.elasticsearch.common.lucene.store.ESIndexInputTestCase;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.snapshots.blobstore.BlobStoreIndexShardSnapshot;
+import org.elasticsearch.index.store.IndexInputStats;
 import org.elasticsearch.index.store.SearchableSnapshotDirectory;
 import org.elasticsearch.index.store.StoreFileMetadata;
 import org.elasticsearch.repositories.IndexId;
@@ -29,6 +32,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
@@ -40,13 +44,16 @@ import static org.elasticsearch.index.store.cache.TestUtils.singleBlobContainer;
 import static org.elasticsearch.index.store.cache.TestUtils.singleSplitBlobContainer;
 import static org.elasticsearch.xpack.searchablesnapshots.SearchableSnapshots.SNAPSHOT_CACHE_ENABLED_SETTING;
 import static org.elasticsearch.xpack.searchablesnapshots.SearchableSnapshots.SNAPSHOT_CACHE_PREWARM_ENABLED_SETTING;
+import static org.elasticsearch.xpack.searchablesnapshots.SearchableSnapshots.SNAPSHOT_CACHE_READ_AHEAD_ENABLED_SETTING;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.Matchers.notNullValue;
 
 public class CachedBlobContainerIndexInputTests extends ESIndexInputTestCase {
 
-    public void testRandomReads() throws IOException {
+    public void testRandomReads() throws Exception {
         final ThreadPool threadPool = new TestThreadPool(getTestName(), SearchableSnapshots.executorBuilder());
         try (CacheService cacheService = createCacheService(random())) {
             cacheService.start();
@@ -75,6 +82,7 @@ public class CachedBlobContainerIndexInputTests extends ESIndexInputTestCase {
                 );
 
                 final boolean prewarmEnabled = randomBoolean();
+                final boolean readAheadEnabled = randomBoolean();
                 final BlobContainer singleBlobContainer = singleSplitBlobContainer(blobName, input, partSize);
                 final BlobContainer blobContainer;
                 if (input.length == partSize && input.length <= cacheService.getCacheSize() && prewarmEnabled == false) {
@@ -94,6 +102,7 @@ public class CachedBlobContainerIndexInputTests extends ESIndexInputTestCase {
                         Settings.builder()
                             .put(SNAPSHOT_CACHE_ENABLED_SETTING.getKey(), true)
                             .put(SNAPSHOT_CACHE_PREWARM_ENABLED_SETTING.getKey(), prewarmEnabled)
+                            .put(SNAPSHOT_CACHE_READ_AHEAD_ENABLED_SETTING.getKey(), readAheadEnabled)
                             .build(),
                         () -> 0L,
                         cacheService,
@@ -115,17 +124,40 @@ public class CachedBlobContainerIndexInputTests extends ESIndexInputTestCase {
                 }
 
                 if (blobContainer instanceof CountingBlobContainer) {
+                    final CountingBlobContainer countingBlobContainer = (CountingBlobContainer) blobContainer;
                     long numberOfRanges = TestUtils.numberOfRanges(input.length, cacheService.getRangeSize());
-                    assertThat(
-                        "Expected " + numberOfRanges + " ranges fetched from the source",
-                        ((CountingBlobContainer) blobContainer).totalOpens.sum(),
-                        equalTo(numberOfRanges)
-                    );
-                    assertThat(
-                        "All bytes should have been read from source",
-                        ((CountingBlobContainer) blobContainer).totalBytes.sum(),
-                        equalTo((long) input.length)
-                    );
+                    if (readAheadEnabled) {
+                        // ranges that were read ahead may still be completing in the background
+                        assertBusy(
+                            () -> assertThat(
+                                "All bytes should have been read from source exactly once",
+                                countingBlobContainer.totalBytes.sum(),
+                                equalTo((long) input.length)
+                            )
+                        );
+                        // random reads fetch smaller ranges, and a full range that is read ahead or read sequentially only fetches
+                        // the parts that were not fetched yet, which are delimited by the boundaries of both kinds of ranges
+                        final long randomReadRangeSize = Math.min(
+                            cacheService.getRangeSize(),
+                            Math.max(CachedBlobContainerIndexInput.MIN_RANDOM_READ_RANGE_SIZE, cacheService.getRangeSize() / 16L)
+                        );
+                        assertThat(countingBlobContainer.totalOpens.sum(), greaterThanOrEqualTo(numberOfRanges));
+                        assertThat(
+                            countingBlobContainer.totalOpens.sum(),
+                            lessThanOrEqualTo(numberOfRanges + TestUtils.numberOfRanges(input.length, randomReadRangeSize))
+                        );
+                    } else {
+                        assertThat(
+                            "Expected " + numberOfRanges + " ranges fetched from the source",
+                            countingBlobContainer.totalOpens.sum(),
+                            equalTo(numberOfRanges)
+                        );
+                        assertThat(
+                            "All bytes should have been read from source",
+                            countingBlobContainer.totalBytes.sum(),
+                            equalTo((long) input.length)
+                        );
+                    }
                 }
             }
         } finally {
@@ -191,6 +223,163 @@ public class CachedBlobContainerIndexInputTests extends ESIndexInputTestCase {
         }
     }
 
+    public void testReadAheadOnSequentialReads() throws Exception {
+        final ByteSizeValue rangeSize = new ByteSizeValue(4, ByteSizeUnit.KB);
+        final ThreadPool threadPool = new TestThreadPool(getTestName(), SearchableSnapshots.executorBuilder());
+        try (CacheService cacheService = new CacheService(new ByteSizeValue(1, ByteSizeUnit.MB), rangeSize)) {
+            cacheService.start();
+
+            final SnapshotId snapshotId = new SnapshotId("_name", "_uuid");
+            final IndexId indexId = new IndexId("_name", "_uuid");
+            final ShardId shardId = new ShardId("_name", "_uuid", 0);
+
+            final String fileName = randomAlphaOfLength(10);
+            final byte[] input = randomByteArrayOfLength(Math.toIntExact(rangeSize.getBytes() * between(3, 10)));
+
+            final String blobName = randomUnicodeOfLength(10);
+            final StoreFileMetadata metadata = new StoreFileMetadata(fileName, input.length, "_na", Version.CURRENT.luceneVersion);
+            final BlobStoreIndexShardSnapshot snapshot = new BlobStoreIndexShardSnapshot(
+                snapshotId.getName(),
+                0L,
+                List.of(new BlobStoreIndexShardSnapshot.FileInfo(blobName, metadata, new ByteSizeValue(input.length))),
+                0L,
+                0L,
+                0,
+                0L
+            );
+
+            final BlobContainer blobContainer = singleBlobContainer(blobName, input);
+            try (
+                SearchableSnapshotDirectory directory = new SearchableSnapshotDirectory(
+                    () -> blobContainer,
+                    () -> snapshot,
+                    snapshotId,
+                    indexId,
+                    shardId,
+                    Settings.builder()
+                        .put(SNAPSHOT_CACHE_ENABLED_SETTING.getKey(), true)
+                        .put(SNAPSHOT_CACHE_PREWARM_ENABLED_SETTING.getKey(), false)
+                        .put(SNAPSHOT_CACHE_READ_AHEAD_ENABLED_SETTING.getKey(), true)
+                        .build(),
+                    () -> 0L,
+                    cacheService,
+                    createTempDir(),
+                    threadPool
+                )
+            ) {
+                assertThat("Failed to load snapshot", directory.loadSnapshot(), is(true));
+
+                try (IndexInput indexInput = directory.openInput(fileName, IOContext.READ)) {
+                    final byte[] output = new byte[input.length];
+                    final int chunkSize = 1024; // matches the buffer size so that every chunk is read from the cache file
+                    final int chunksPerRange = Math.toIntExact(rangeSize.getBytes() / chunkSize);
+
+                    // sequentially read the first range, which triggers the read-ahead of the second range
+                    for (int i = 0; i < chunksPerRange; i++) {
+                        indexInput.readBytes(output, i * chunkSize, chunkSize);
+                    }
+                    final IndexInputStats stats = directory.getStats(fileName);
+                    assertThat(stats, notNullValue());
+                    assertBusy(() -> assertThat(stats.getReadAheadBytes().total(), equalTo(rangeSize.getBytes())));
+                    assertThat(stats.getCacheMisses().count(), equalTo(1L));
+
+                    // the second range is now fully available in cache
+                    for (int i = chunksPerRange; i < 2 * chunksPerRange; i++) {
+                        indexInput.readBytes(output, i * chunkSize, chunkSize);
+                    }
+                    assertThat(stats.getCacheHits().count(), greaterThanOrEqualTo((long) chunksPerRange));
+
+                    indexInput.readBytes(output, 2 * chunksPerRange * chunkSize, input.length - 2 * chunksPerRange * chunkSize);
+                    assertArrayEquals(input, output);
+                }
+            }
+        } finally {
+            ThreadPool.terminate(threadPool, 30, TimeUnit.SECONDS);
+        }
+    }
+
+    public void testRandomReadsFetchSmallerRangesWhenReadAheadIsEnabled() throws Exception {
+        final ByteSizeValue rangeSize = new ByteSizeValue(randomIntBetween(2, 4), ByteSizeUnit.MB);
+        final ThreadPool threadPool = new TestThreadPool(getTestName(), SearchableSnapshots.executorBuilder());
+        try (CacheService cacheService = new CacheService(new ByteSizeValue(100, ByteSizeUnit.MB), rangeSize)) {
+            cacheService.start();
+
+            final SnapshotId snapshotId = new SnapshotId("_name", "_uuid");
+            final IndexId indexId = new IndexId("_name", "_uuid");
+            final ShardId shardId = new ShardId("_name", "_uuid", 0);
+
+            final String fileName = randomAlphaOfLength(10);
+            final byte[] input = randomByteArrayOfLength(Math.toIntExact(rangeSize.getBytes() * between(2, 3)));
+
+            final String blobName = randomUnicodeOfLength(10);
+            final StoreFileMetadata metadata = new StoreFileMetadata(fileName, input.length, "_na", Version.CURRENT.luceneVersion);
+            final BlobStoreIndexShardSnapshot snapshot = new BlobStoreIndexShardSnapshot(
+                snapshotId.getName(),
+                0L,
+                List.of(new BlobStoreIndexShardSnapshot.FileInfo(blobName, metadata, new ByteSizeValue(input.length))),
+                0L,
+                0L,
+                0,
+                0L
+            );
+
+            final CountingBlobContainer blobContainer = new CountingBlobContainer(
+                singleBlobContainer(blobName, input),
+                cacheService.getRangeSize()
+            );
+            try (
+                SearchableSnapshotDirectory directory = new SearchableSnapshotDirectory(
+                    () -> blobContainer,
+                    () -> snapshot,
+                    snapshotId,
+                    indexId,
+                    shardId,
+                    Settings.builder()
+                        .put(SNAPSHOT_CACHE_ENABLED_SETTING.getKey(), true)
+                        .put(SNAPSHOT_CACHE_PREWARM_ENABLED_SETTING.getKey(), false)
+                        .put(SNAPSHOT_CACHE_READ_AHEAD_ENABLED_SETTING.getKey(), true)
+                        .build(),
+                    () -> 0L,
+                    cacheService,
+                    createTempDir(),
+                    threadPool
+                )
+            ) {
+                assertThat("Failed to load snapshot", directory.loadSnapshot(), is(true));
+
+                final long randomReadRangeSize = rangeSize.getBytes() / 16L;
+                assertThat(randomReadRangeSize, greaterThanOrEqualTo(CachedBlobContainerIndexInput.MIN_RANDOM_READ_RANGE_SIZE));
+
+                try (IndexInput indexInput = directory.openInput(fileName, IOContext.READ)) {
+                    final byte[] output = new byte[1024]; // matches the buffer size so that a read does not span two ranges
+                    long expectedBytes = 0L;
+                    final int numberOfReads = randomIntBetween(1, 5);
+                    for (int i = 0; i < numberOfReads; i++) {
+                        // a non-contiguous read within a random read range that was not fetched yet
+                        final long rangeStart = randomReadRangeSize * (i * input.length / numberOfReads / randomReadRangeSize + 1);
+                        final long position = rangeStart + randomLongBetween(1L, randomReadRangeSize - output.length);
+                        if (position + output.length > input.length) {
+                            break;
+                        }
+                        indexInput.seek(position);
+                        indexInput.readBytes(output, 0, output.length);
+                        assertArrayEquals(Arrays.copyOfRange(input, (int) position, (int) position + output.length), output);
+                        expectedBytes += randomReadRangeSize;
+
+                        assertThat(blobContainer.totalOpens.sum(), equalTo((long) i + 1));
+                        assertThat(
+                            "Random reads should fetch ranges of [" + randomReadRangeSize + "] bytes, not [" + rangeSize + "]",
+                            blobContainer.totalBytes.sum(),
+                            equalTo(expectedBytes)
+                        );
+                    }
+                }
+            }
+        } finally {
+            ThreadPool.terminate(threadPool, 30, TimeUnit.SECONDS);
+        }
+    }
+
     private boolean containsEOFException(Throwable throwable, HashSet<Throwable> seenThrowables) {
         if (throwable == null || seenThrowables.add(throwable) == false) {
             return false;
@@ -0,0 +1,123 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License;
+ * you may not use this file except in compliance with the Elastic License.
+ */
+package org.elasticsearch.index.store.cache;
+
+import org.elasticsearch.common.collect.Tuple;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.repositories.IndexId;
+import org.elasticsearch.snapshots.SnapshotId;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.xpack.searchablesnapshots.cache.CacheService;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+public class PersistentCacheTests extends ESTestCase {
+
+    public void testCacheFilesAreReusedAfterRestart() throws Exception {
+        final Path cacheDir = createTempDir();
+        final CacheKey cacheKey = new CacheKey(
+            new SnapshotId("_snapshot_name", "_snapshot_uuid"),
+            new IndexId("_index_name", "_index_id"),
+            new ShardId("_index_name", "_index_uuid", 0),
+            "_file"
+        );
+        final byte[] content = randomByteArrayOfLength(between(1, 1024));
+        final long end = randomLongBetween(1L, content.length);
+
+        final Path file;
+        try (CacheService cacheService = newCacheService()) {
+            cacheService.start();
+            final CacheFile cacheFile = cacheService.get(cacheKey, content.length, cacheDir);
+            file = cacheFile.getFile();
+            writeRange(cacheFile, content, end);
+
+            cacheService.persistAndRemoveFromCache(key -> true);
+            assertThat("persisted cache file must be kept on disk", Files.exists(file), is(true));
+
+            final CacheFile reusedCacheFile = cacheService.get(cacheKey, content.length, cacheDir);
+            assertThat(reusedCacheFile, not(cacheFile));
+            assertThat(reusedCacheFile.getFile(), equalTo(file));
+            assertThat(reusedCacheFile.getCompletedRanges(), contains(Tuple.tuple(0L, end)));
+        }
+
+        // stopping the cache service persisted the cache file again, a new cache service reuses it from the index on disk
+        assertThat(Files.exists(file), is(true));
+        try (CacheService cacheService = newCacheService()) {
+            cacheService.start();
+            final CacheFile cacheFile = cacheService.get(cacheKey, content.length, cacheDir);
+            assertThat(cacheFile.getFile(), equalTo(file));
+            assertThat(cacheFile.getCompletedRanges(), contains(Tuple.tuple(0L, end)));
+
+            cacheService.removeFromCache(key -> true);
+            assertThat("removed cache file must be deleted", Files.exists(file), is(false));
+        }
+
+        try (CacheService cacheService = newCacheService()) {
+            cacheService.start();
+            final CacheFile cacheFile = cacheService.get(cacheKey, content.length, cacheDir);
+            assertThat(cacheFile.getFile(), not(equalTo(file)));
+            assertThat(cacheFile.getCompletedRanges(), empty());
+        }
+    }
+
+    public void testCacheFileIsNotReusedIfLengthDiffers() throws Exception {
+        final Path cacheDir = createTempDir();
+        final CacheKey cacheKey = new CacheKey(
+            new SnapshotId("_snapshot_name", "_snapshot_uuid"),
+            new IndexId("_index_name", "_index_id"),
+            new ShardId("_index_name", "_index_uuid", 0),
+            "_file"
+        );
+        final byte[] content = randomByteArrayOfLength(between(1, 1024));
+
+        final Path file;
+        try (CacheService cacheService = newCacheService()) {
+            cacheService.start();
+            final CacheFile cacheFile = cacheService.get(cacheKey, content.length, cacheDir);
+            file = cacheFile.getFile();
+            writeRange(cacheFile, content, content.length);
+        }
+        assertThat(Files.exists(file), is(true));
+
+        try (CacheService cacheService = newCacheService()) {
+            cacheService.start();
+            final CacheFile cacheFile = cacheService.get(cacheKey, content.length + 1L, cacheDir);
+            assertThat(cacheFile.getFile(), not(equalTo(file)));
+            assertThat(cacheFile.getCompletedRanges(), empty());
+            assertThat("stale cache file must be deleted", Files.exists(file), is(false));
+        }
+    }
+
+    private static CacheService newCacheService() {
+        return new CacheService(new ByteSizeValue(Long.MAX_VALUE, ByteSizeUnit.BYTES), new ByteSizeValue(4, ByteSizeUnit.KB));
+    }
+
+    private static void writeRange(CacheFile cacheFile, byte[] content, long end) throws Exception {
+        final CacheFile.EvictionListener listener = evictedCacheFile -> {};
+        assertTrue(cacheFile.acquire(listener));
+        try {
+            cacheFile.fetchRange(
+                0L,
+                end,
+                (start, rangeEnd) -> Math.toIntExact(rangeEnd - start),
+                (start, rangeEnd) -> cacheFile.getChannel()
+                    .write(ByteBuffer.wrap(content, Math.toIntExact(start), Math.toIntExact(rangeEnd - start)), start)
+            ).get();
+        } finally {
+            cacheFile.release(listener);
+        }
+    }
+}
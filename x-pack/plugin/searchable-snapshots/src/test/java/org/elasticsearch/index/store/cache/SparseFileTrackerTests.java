@@ -12,9 +12,12 @@ import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.test.ESTestCase;
 
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -123,6 +126,39 @@ public class SparseFileTrackerTests extends ESTestCase {
         }
     }
 
+    public void testCompletedRanges() {
+        final long length = randomLongBetween(10L, 1000L);
+        final SortedSet<Tuple<Long, Long>> ranges = new TreeSet<>(Comparator.<Tuple<Long, Long>>comparingLong(Tuple::v1));
+        long start = randomLongBetween(0L, 2L);
+        while (start < length - 1L) {
+            final long end = randomLongBetween(start + 1L, length);
+            ranges.add(Tuple.tuple(start, end));
+            start = randomLongBetween(end + 1L, end + 10L);
+        }
+
+        final SparseFileTracker sparseFileTracker = new SparseFileTracker("test", length, ranges);
+        assertThat(sparseFileTracker.getCompletedRanges(), equalTo(ranges));
+
+        for (Tuple<Long, Long> range : ranges) {
+            final AtomicBoolean invoked = new AtomicBoolean(false);
+            final List<SparseFileTracker.Gap> gaps = sparseFileTracker.waitForRange(
+                range,
+                range,
+                ActionListener.wrap(() -> invoked.set(true))
+            );
+            assertThat("completed ranges must not be filled again", gaps, empty());
+            assertThat(invoked.get(), is(true));
+        }
+
+        final SortedSet<Tuple<Long, Long>> invalidRanges = new TreeSet<>(Comparator.<Tuple<Long, Long>>comparingLong(Tuple::v1));
+        invalidRanges.add(Tuple.tuple(0L, length + 1L));
+        IllegalArgumentException e = expectThrows(
+            IllegalArgumentException.class,
+            () -> new SparseFileTracker("test", length, invalidRanges)
+        );
+        assertThat(e.getMessage(), containsString("invalid range"));
+    }
+
     public void testCallsListenerWhenWholeRangeIsAvailable() {
         final byte[] fileContents = new byte[between(0, 1000)];
         final SparseFileTracker sparseFileTracker = new SparseFileTracker("test", fileContents.length);
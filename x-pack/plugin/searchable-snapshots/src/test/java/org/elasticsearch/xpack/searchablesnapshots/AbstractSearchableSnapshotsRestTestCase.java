@@ -48,6 +48,11 @@ public abstract class AbstractSearchableSnapshotsRestTestCase extends ESRestTest
     protected abstract Settings repositorySettings();
 
     private void runSearchableSnapshotsTest(SearchableSnapshotsTestCaseBody testCaseBody) throws Exception {
+        runSearchableSnapshotsTest(Settings.EMPTY, testCaseBody);
+    }
+
+    private void runSearchableSnapshotsTest(Settings mountedIndexSettings, SearchableSnapshotsTestCaseBody testCaseBody)
+        throws Exception {
         final String repositoryType = repositoryType();
         final Settings repositorySettings = repositorySettings();
 
@@ -112,7 +117,7 @@ public abstract class AbstractSearchableSnapshotsRestTestCase extends ESRestTest
 
         final String restoredIndexName = randomBoolean() ? indexName : randomAlphaOfLength(10).toLowerCase(Locale.ROOT);
         logger.info("restoring index [{}] from snapshot [{}] as [{}]", indexName, snapshot, restoredIndexName);
-        mountSnapshot(repository, snapshot, true, indexName, restoredIndexName, Settings.EMPTY);
+        mountSnapshot(repository, snapshot, true, indexName, restoredIndexName, mountedIndexSettings);
 
         ensureGreen(restoredIndexName);
 
@@ -187,7 +192,11 @@ public abstract class AbstractSearchableSnapshotsRestTestCase extends ESRestTest
             .mapToLong(o -> ((Number) o).longValue())
             .sum();
 
-        runSearchableSnapshotsTest((restoredIndexName, numDocs) -> {
+        // disable read-ahead as it writes in cache concurrently with the searches and would change the cached bytes after the clear
+        final Settings mountedIndexSettings = Settings.builder()
+            .put(SearchableSnapshots.SNAPSHOT_CACHE_READ_AHEAD_ENABLED_SETTING.getKey(), false)
+            .build();
+        runSearchableSnapshotsTest(mountedIndexSettings, (restoredIndexName, numDocs) -> {
 
             Map<String, Object> searchResults = search(restoredIndexName, QueryBuilders.matchAllQuery(), Boolean.TRUE);
             assertThat(extractValue(searchResults, "hits.total.value"), equalTo(numDocs));